@@ -10,21 +10,31 @@ import java.lang.ref.WeakReference;
 import java.net.URL;
 import java.text.MessageFormat;
 import java.util.ArrayList;
+import java.util.Arrays;
 import java.util.Collection;
 import java.util.Collections;
+import java.util.Comparator;
 import java.util.EnumSet;
 import java.util.HashMap;
+import java.util.HashSet;
 import java.util.Iterator;
+import java.util.LinkedHashMap;
+import java.util.LinkedList;
 import java.util.List;
 import java.util.Locale;
 import java.util.Map;
 import java.util.Objects;
 import java.util.Set;
+import java.util.concurrent.BlockingQueue;
 import java.util.concurrent.Callable;
+import java.util.concurrent.CompletableFuture;
 import java.util.concurrent.ExecutionException;
+import java.util.concurrent.Executor;
 import java.util.concurrent.ExecutorService;
 import java.util.concurrent.Executors;
-import java.util.concurrent.Future;
+import java.util.concurrent.LinkedBlockingQueue;
+import java.util.concurrent.TimeUnit;
+import java.util.function.Function;
 
 import javax.swing.Action;
 
@@ -499,40 +509,129 @@ public abstract class Main {
 
     /**
      * Initializes the main object. A lot of global variables are initialized here.
+     * <p>
+     * The initialization tasks form a dependency graph: each task is run by a thread pool as soon as the tasks
+     * it depends on are done, see {@link InitializationTask#dependsOn}. A timing report is logged at the end.
      * @since 10340
      */
     public void initialize() {
-        // Initializes tasks that must be run before parallel tasks
-        runInitializationTasks(beforeInitializationTasks());
+        ExecutorService service = Executors.newFixedThreadPool(
+                Runtime.getRuntime().availableProcessors(), Utils.newThreadFactory("main-init-%d", Thread.NORM_PRIORITY));
+        runInitializationTasks(service, beforeInitializationTasks(), parallelInitializationTasks(), afterInitializationTasks());
+        // asynchronous initializations to be completed eventually
+        asynchronousRunnableTasks().forEach(service::submit);
+        asynchronousCallableTasks().forEach(service::submit);
+        service.shutdown();
+    }
+
+    /**
+     * Runs the given initialization tasks, each one as soon as its dependencies are done.
+     * <p>
+     * Tasks which do not declare their dependencies keep the historical order: tasks run before parallel tasks
+     * are run one after another, parallel tasks wait for all of them, and tasks run after parallel tasks wait
+     * for all the other tasks. Tasks run before and after parallel tasks are run by the calling thread, which
+     * can be the event dispatch thread, the other ones by the given executor service.
+     * @param service executor service running the parallel tasks
+     * @param before tasks that must be run before parallel tasks
+     * @param parallel tasks to be executed in parallel
+     * @param after tasks that must be run after parallel tasks
+     */
+    static void runInitializationTasks(ExecutorService service, List<InitializationTask> before,
+            Collection<InitializationTask> parallel, List<InitializationTask> after) {
+        Map<InitializationTask, List<InitializationTask>> graph = new LinkedHashMap<>();
+        InitializationTask previous = null;
+        for (InitializationTask task : before) {
+            graph.put(task, task.dependencies != null ? task.dependencies
+                    : previous != null ? Collections.singletonList(previous) : Collections.emptyList());
+            previous = task;
+        }
+        List<InitializationTask> others = new ArrayList<>(before);
+        for (InitializationTask task : parallel) {
+            graph.put(task, task.dependencies != null ? task.dependencies : new ArrayList<>(before));
+        }
+        others.addAll(parallel);
+        for (InitializationTask task : after) {
+            graph.put(task, task.dependencies != null ? task.dependencies : new ArrayList<>(others));
+            others.add(task);
+        }
+
+        BlockingQueue<Runnable> callingThreadTasks = new LinkedBlockingQueue<>();
+        Set<InitializationTask> sequential = new HashSet<>(before);
+        sequential.addAll(after);
+        Function<InitializationTask, Executor> executor = t -> sequential.contains(t) ? callingThreadTasks::add : service;
 
-        // Initializes tasks to be executed (in parallel) by a ExecutorService
+        long start = System.nanoTime();
+        Map<InitializationTask, CompletableFuture<Void>> futures = new HashMap<>();
+        for (InitializationTask task : new ArrayList<>(graph.keySet())) {
+            scheduleInitializationTask(task, graph, futures, new HashSet<>(), executor);
+        }
+        CompletableFuture<Void> all = CompletableFuture.allOf(futures.values().toArray(new CompletableFuture<?>[0]));
+        // wakes up the calling thread when all tasks are done
+        all.whenComplete((result, ex) -> callingThreadTasks.add(() -> { }));
         try {
-            ExecutorService service = Executors.newFixedThreadPool(
-                    Runtime.getRuntime().availableProcessors(), Utils.newThreadFactory("main-init-%d", Thread.NORM_PRIORITY));
-            for (Future<Void> i : service.invokeAll(parallelInitializationTasks())) {
-                i.get();
+            while (!all.isDone()) {
+                callingThreadTasks.take().run();
             }
-            // asynchronous initializations to be completed eventually
-            asynchronousRunnableTasks().forEach(service::submit);
-            asynchronousCallableTasks().forEach(service::submit);
-            service.shutdown();
+            all.get();
         } catch (InterruptedException | ExecutionException ex) {
             throw new JosmRuntimeException(ex);
         }
+        logInitializationReport(graph, start);
+    }
 
-        // Initializes tasks that must be run after parallel tasks
-        runInitializationTasks(afterInitializationTasks());
+    private static CompletableFuture<Void> scheduleInitializationTask(InitializationTask task,
+            Map<InitializationTask, List<InitializationTask>> graph, Map<InitializationTask, CompletableFuture<Void>> futures,
+            Set<InitializationTask> visiting, Function<InitializationTask, Executor> executor) {
+        CompletableFuture<Void> future = futures.get(task);
+        if (future == null) {
+            if (!visiting.add(task)) {
+                throw new JosmRuntimeException("Cyclic dependency of initialization task " + task.name);
+            }
+            // dependencies which are not part of the given lists are run as well
+            List<InitializationTask> dependencies = graph.computeIfAbsent(task,
+                    t -> t.dependencies != null ? t.dependencies : Collections.emptyList());
+            CompletableFuture<?>[] dependencyFutures = dependencies.stream()
+                    .map(d -> scheduleInitializationTask(d, graph, futures, visiting, executor))
+                    .toArray(CompletableFuture<?>[]::new);
+            future = CompletableFuture.allOf(dependencyFutures).thenRunAsync(() -> {
+                try {
+                    task.call();
+                } catch (JosmRuntimeException e) {
+                    // Can happen if the current projection needs NTV2 grid which is not available
+                    // In this case we want the user be able to change his projection
+                    BugReport.intercept(e).warn();
+                }
+            }, executor.apply(task));
+            futures.put(task, future);
+            visiting.remove(task);
+        }
+        return future;
     }
 
-    private static void runInitializationTasks(List<InitializationTask> tasks) {
+    private static void logInitializationReport(Map<InitializationTask, List<InitializationTask>> graph, long start) {
+        List<InitializationTask> tasks = new ArrayList<>(graph.keySet());
+        if (tasks.isEmpty()) {
+            return;
+        }
+        tasks.sort(Comparator.comparingLong(t -> t.startTime));
+        InitializationTask last = Collections.max(tasks, Comparator.comparingLong(t -> t.endTime));
+        long work = 0;
         for (InitializationTask task : tasks) {
-            try {
-                task.call();
-            } catch (JosmRuntimeException e) {
-                // Can happen if the current projection needs NTV2 grid which is not available
-                // In this case we want the user be able to change his projection
-                BugReport.intercept(e).warn();
-            }
+            work += task.endTime - task.startTime;
+        }
+        // The critical path ends with the last task, and goes through the dependency which completed last
+        LinkedList<String> criticalPath = new LinkedList<>();
+        for (InitializationTask t = last; t != null;
+                t = graph.get(t).stream().max(Comparator.comparingLong(d -> d.endTime)).orElse(null)) {
+            criticalPath.addFirst(t.name);
+        }
+        Logging.info("Initialization done in {0} ms ({1} ms of work in {2} tasks), critical path: {3}",
+                TimeUnit.NANOSECONDS.toMillis(last.endTime - start), TimeUnit.NANOSECONDS.toMillis(work), tasks.size(),
+                String.join(" -> ", criticalPath));
+        for (InitializationTask task : tasks) {
+            Logging.debug("Initialization task ''{0}'' started at {1} ms, took {2} ms in {3}", task.name,
+                    TimeUnit.NANOSECONDS.toMillis(task.startTime - start),
+                    TimeUnit.NANOSECONDS.toMillis(task.endTime - task.startTime), task.threadName);
         }
     }
 
@@ -584,6 +683,10 @@ public abstract class Main {
 
         private final String name;
         private final Runnable task;
+        private List<InitializationTask> dependencies;
+        private long startTime;
+        private long endTime;
+        private String threadName;
 
         /**
          * Constructs a new {@code InitializationTask}.
@@ -595,15 +698,33 @@ public abstract class Main {
             this.task = task;
         }
 
+        /**
+         * Declares the tasks which must be completed before this task is run, replacing the default order.
+         * Without arguments, the task does not wait for any other task.
+         * @param tasks tasks this task depends on
+         * @return this task
+         * @since 12687
+         */
+        public InitializationTask dependsOn(InitializationTask... tasks) {
+            this.dependencies = Arrays.asList(tasks);
+            return this;
+        }
+
         @Override
         public Void call() {
-            Object status = null;
-            if (initListener != null) {
-                status = initListener.updateStatus(name);
-            }
-            task.run();
-            if (initListener != null) {
-                initListener.finish(status);
+            startTime = System.nanoTime();
+            threadName = Thread.currentThread().getName();
+            try {
+                Object status = null;
+                if (initListener != null) {
+                    status = initListener.updateStatus(name);
+                }
+                task.run();
+                if (initListener != null) {
+                    initListener.finish(status);
+                }
+            } finally {
+                endTime = System.nanoTime();
             }
             return null;
         }
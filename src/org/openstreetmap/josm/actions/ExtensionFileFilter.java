@@ -26,6 +26,7 @@ import org.openstreetmap.josm.io.NMEAImporter;
 import org.openstreetmap.josm.io.NoteImporter;
 import org.openstreetmap.josm.io.OsmChangeImporter;
 import org.openstreetmap.josm.io.OsmImporter;
+import org.openstreetmap.josm.io.TilePackageImporter;
 import org.openstreetmap.josm.io.WMSLayerImporter;
 import org.openstreetmap.josm.io.session.SessionImporter;
 import org.openstreetmap.josm.tools.Logging;
@@ -66,6 +67,7 @@ public class ExtensionFileFilter extends FileFilter implements java.io.FileFilte
                 NoteImporter.class,
                 JpgImporter.class,
                 WMSLayerImporter.class,
+                TilePackageImporter.class,
                 AllFormatsImporter.class,
                 SessionImporter.class
         );
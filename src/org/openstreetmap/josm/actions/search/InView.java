@@ -5,6 +5,7 @@ import java.util.Collection;
 import java.util.Collections;
 
 import org.openstreetmap.josm.data.Bounds;
+import org.openstreetmap.josm.data.osm.DataSet;
 import org.openstreetmap.josm.data.osm.OsmPrimitive;
 import org.openstreetmap.josm.data.osm.search.SearchCompiler.InArea;
 import org.openstreetmap.josm.gui.MainApplication;
@@ -21,8 +22,13 @@ class InView extends InArea {
 
     @Override
     protected Collection<Bounds> getBounds(OsmPrimitive primitive) {
+        return getSearchBounds(primitive.getDataSet());
+    }
+
+    @Override
+    protected Collection<Bounds> getSearchBounds(DataSet ds) {
         if (!MainApplication.isDisplayingMapView()) {
-            return null;
+            return Collections.emptySet();
         }
         return Collections.singleton(MainApplication.getMap().mapView.getRealBounds());
     }
@@ -52,6 +52,7 @@ import org.openstreetmap.josm.data.osm.search.SearchCompiler.Match;
 import org.openstreetmap.josm.data.osm.search.SearchCompiler.SimpleMatchFactory;
 import org.openstreetmap.josm.data.osm.search.SearchMode;
 import org.openstreetmap.josm.data.osm.search.SearchParseError;
+import org.openstreetmap.josm.data.osm.search.SearchQueryPlanner;
 import org.openstreetmap.josm.data.osm.search.SearchSetting;
 import org.openstreetmap.josm.gui.ExtendedDialog;
 import org.openstreetmap.josm.gui.MainApplication;
@@ -69,6 +70,7 @@ import org.openstreetmap.josm.tools.GBC;
 import org.openstreetmap.josm.tools.JosmRuntimeException;
 import org.openstreetmap.josm.tools.Logging;
 import org.openstreetmap.josm.tools.Shortcut;
+import org.openstreetmap.josm.tools.SubclassFilteredCollection;
 import org.openstreetmap.josm.tools.Utils;
 
 /**
@@ -778,8 +780,13 @@ public class SearchAction extends JosmAction implements ParameterizedAction {
                     foundMatches = selection.size();
                 }
 
+                // primitives not matching the expression can only be skipped, if they don't have to be removed from the selection
+                Collection<OsmPrimitive> candidates = setting.mode == SearchMode.in_selection
+                        ? null : SearchQueryPlanner.getCandidates(matcher, ds);
                 Collection<OsmPrimitive> all;
-                if (setting.allElements) {
+                if (candidates != null) {
+                    all = setting.allElements ? candidates : SubclassFilteredCollection.filter(candidates, OsmPrimitive::isSelectable);
+                } else if (setting.allElements) {
                     all = ds.allPrimitives();
                 } else {
                     all = ds.getPrimitives(OsmPrimitive::isSelectable);
@@ -20,6 +20,7 @@ import org.openstreetmap.josm.data.osm.DataSet;
 import org.openstreetmap.josm.data.osm.Node;
 import org.openstreetmap.josm.data.osm.OsmPrimitive;
 import org.openstreetmap.josm.data.osm.PrimitiveData;
+import org.openstreetmap.josm.data.osm.PrimitiveDelta;
 import org.openstreetmap.josm.data.osm.Relation;
 import org.openstreetmap.josm.data.osm.Way;
 import org.openstreetmap.josm.data.osm.visitor.AbstractVisitor;
@@ -50,21 +51,21 @@ public abstract class Command implements PseudoCommand {
     public static final int IS_INCOMPLETE = 2;
 
     private static final class CloneVisitor extends AbstractVisitor {
-        public final Map<OsmPrimitive, PrimitiveData> orig = new LinkedHashMap<>();
+        public final Map<OsmPrimitive, PrimitiveDelta> orig = new LinkedHashMap<>();
 
         @Override
         public void visit(Node n) {
-            orig.put(n, n.save());
+            orig.put(n, new PrimitiveDelta(n.save()));
         }
 
         @Override
         public void visit(Way w) {
-            orig.put(w, w.save());
+            orig.put(w, new PrimitiveDelta(w.save()));
         }
 
         @Override
         public void visit(Relation e) {
-            orig.put(e, e.save());
+            orig.put(e, new PrimitiveDelta(e.save()));
         }
     }
 
@@ -131,8 +132,8 @@ public abstract class Command implements PseudoCommand {
         }
     }
 
-    /** the map of OsmPrimitives in the original state to OsmPrimitives in cloned state */
-    private Map<OsmPrimitive, PrimitiveData> cloneMap = new HashMap<>();
+    /** the map of OsmPrimitives to their original state */
+    private Map<OsmPrimitive, PrimitiveDelta> cloneMap = new HashMap<>();
 
     /** the layer which this command is applied to */
     private final OsmDataLayer layer;
@@ -200,12 +201,45 @@ public abstract class Command implements PseudoCommand {
      * This implementation undoes all objects stored by a former call to executeCommand.
      */
     public void undoCommand() {
-        for (Entry<OsmPrimitive, PrimitiveData> e : cloneMap.entrySet()) {
+        // restore the former states only once all of them could be computed
+        Map<OsmPrimitive, PrimitiveData> former = new LinkedHashMap<>();
+        for (Entry<OsmPrimitive, PrimitiveDelta> e : cloneMap.entrySet()) {
             OsmPrimitive primitive = e.getKey();
             if (primitive.getDataSet() != null) {
-                e.getKey().load(e.getValue());
+                former.put(primitive, e.getValue().revert(primitive));
             }
         }
+        former.forEach(OsmPrimitive::load);
+    }
+
+    /**
+     * Reduces the memory needed to undo the command, by replacing the stored original state of the primitives
+     * by the differences to their current state.
+     * <p>
+     * This must be called right after {@link #executeCommand()}, when the primitives are in the state that
+     * {@link #undoCommand()} expects. Commands executing other commands compact them the same way.
+     * @since 12679
+     */
+    public void compactUndoData() {
+        for (Entry<OsmPrimitive, PrimitiveDelta> e : cloneMap.entrySet()) {
+            if (!e.getValue().isCompact()) {
+                e.setValue(e.getValue().compact(e.getKey().save()));
+            }
+        }
+    }
+
+    /**
+     * Estimates the memory needed to undo the command.
+     * @return the estimated size of the stored state, in bytes
+     * @since 12679
+     */
+    public long estimateMemoryUsage() {
+        long size = 0;
+        for (PrimitiveDelta delta : cloneMap.values()) {
+            // including the map entry
+            size += 40 + delta.estimateMemoryUsage();
+        }
+        return size;
     }
 
     /**
@@ -223,11 +257,15 @@ public abstract class Command implements PseudoCommand {
     /**
      * Lets other commands access the original version
      * of the object. Usually for undoing.
+     * <p>
+     * After {@link #compactUndoData()}, the original version is computed from the current one,
+     * so the object must be in the state after execution of this command.
      * @param osm The requested OSM object
      * @return The original version of the requested object, if any
      */
     public PrimitiveData getOrig(OsmPrimitive osm) {
-        return cloneMap.get(osm);
+        PrimitiveDelta delta = cloneMap.get(osm);
+        return delta != null ? delta.revert(osm) : null;
     }
 
     /**
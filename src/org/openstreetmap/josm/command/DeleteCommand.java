@@ -33,6 +33,7 @@ import org.openstreetmap.josm.data.osm.Node;
 import org.openstreetmap.josm.data.osm.OsmPrimitive;
 import org.openstreetmap.josm.data.osm.OsmPrimitiveType;
 import org.openstreetmap.josm.data.osm.PrimitiveData;
+import org.openstreetmap.josm.data.osm.PrimitiveDelta;
 import org.openstreetmap.josm.data.osm.Relation;
 import org.openstreetmap.josm.data.osm.RelationToChildReference;
 import org.openstreetmap.josm.data.osm.Way;
@@ -82,7 +83,7 @@ public class DeleteCommand extends Command {
      * The primitives that get deleted.
      */
     private final Collection<? extends OsmPrimitive> toDelete;
-    private final Map<OsmPrimitive, PrimitiveData> clonedPrimitives = new HashMap<>();
+    private final Map<OsmPrimitive, PrimitiveDelta> clonedPrimitives = new HashMap<>();
 
     /**
      * Constructor. Deletes a collection of primitives in the current edit layer.
@@ -172,7 +173,7 @@ public class DeleteCommand extends Command {
         for (OsmPrimitive osm: toDelete) {
             if (osm.isDeleted())
                 throw new IllegalArgumentException(osm + " is already deleted");
-            clonedPrimitives.put(osm, osm.save());
+            clonedPrimitives.put(osm, new PrimitiveDelta(osm.save()));
 
             if (osm instanceof Way) {
                 ((Way) osm).setNodes(null);
@@ -192,13 +193,34 @@ public class DeleteCommand extends Command {
     public void undoCommand() {
         ensurePrimitivesAreInDataset();
 
+        // restore the former states only once all of them could be computed
+        Map<OsmPrimitive, PrimitiveData> former = new HashMap<>();
+        for (Entry<OsmPrimitive, PrimitiveDelta> entry: clonedPrimitives.entrySet()) {
+            former.put(entry.getKey(), entry.getValue().revert(entry.getKey()));
+        }
+
         for (OsmPrimitive osm: toDelete) {
             osm.setDeleted(false);
         }
 
-        for (Entry<OsmPrimitive, PrimitiveData> entry: clonedPrimitives.entrySet()) {
-            entry.getKey().load(entry.getValue());
+        former.forEach(OsmPrimitive::load);
+    }
+
+    @Override
+    public void compactUndoData() {
+        super.compactUndoData();
+        for (Entry<OsmPrimitive, PrimitiveDelta> entry: clonedPrimitives.entrySet()) {
+            entry.setValue(entry.getValue().compact(entry.getKey().save()));
+        }
+    }
+
+    @Override
+    public long estimateMemoryUsage() {
+        long size = super.estimateMemoryUsage();
+        for (PrimitiveDelta delta : clonedPrimitives.values()) {
+            size += 40 + delta.estimateMemoryUsage();
         }
+        return size;
     }
 
     @Override
@@ -233,6 +233,12 @@ public class MoveCommand extends Command {
         }
     }
 
+    @Override
+    public long estimateMemoryUsage() {
+        // list node, node state, coordinates
+        return super.estimateMemoryUsage() + oldState.size() * 136L;
+    }
+
     @Override
     public void fillModifiedData(Collection<OsmPrimitive> modified, Collection<OsmPrimitive> deleted, Collection<OsmPrimitive> added) {
         for (OsmPrimitive osm : nodes) {
@@ -67,6 +67,8 @@ public class SequenceCommand extends Command {
                 undoCommands(i-1);
                 return false;
             }
+            // later commands may change the same primitives
+            sequence[i].compactUndoData();
         }
         sequenceComplete = true;
         return true;
@@ -97,6 +99,15 @@ public class SequenceCommand extends Command {
         undoCommands(sequence.length-1);
     }
 
+    @Override
+    public long estimateMemoryUsage() {
+        long size = super.estimateMemoryUsage();
+        for (Command c : sequence) {
+            size += c.estimateMemoryUsage();
+        }
+        return size;
+    }
+
     @Override public void fillModifiedData(Collection<OsmPrimitive> modified, Collection<OsmPrimitive> deleted, Collection<OsmPrimitive> added) {
         for (Command c : sequence) {
             c.fillModifiedData(modified, deleted, added);
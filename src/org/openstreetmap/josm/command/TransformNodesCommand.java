@@ -99,6 +99,12 @@ public abstract class TransformNodesCommand extends Command {
         }
     }
 
+    @Override
+    public long estimateMemoryUsage() {
+        // map entry, node state, coordinates
+        return super.estimateMemoryUsage() + oldStates.size() * 136L;
+    }
+
     @Override
     public void fillModifiedData(Collection<OsmPrimitive> modified, Collection<OsmPrimitive> deleted, Collection<OsmPrimitive> added) {
     }
@@ -10,6 +10,7 @@ import org.openstreetmap.josm.Main;
 import org.openstreetmap.josm.command.Command;
 import org.openstreetmap.josm.data.osm.DataSet;
 import org.openstreetmap.josm.data.osm.OsmPrimitive;
+import org.openstreetmap.josm.data.preferences.IntegerProperty;
 import org.openstreetmap.josm.gui.MainApplication;
 import org.openstreetmap.josm.gui.layer.Layer;
 import org.openstreetmap.josm.gui.layer.LayerManager.LayerAddEvent;
@@ -27,6 +28,13 @@ import org.openstreetmap.josm.tools.CheckParameterUtil;
  */
 public class UndoRedoHandler implements LayerChangeListener {
 
+    /**
+     * Memory in megabytes that may be used to store the state needed to undo commands.
+     * The oldest commands are dropped when it is exceeded; the last command is always kept.
+     * @since 12679
+     */
+    public static final IntegerProperty MAX_MEMORY = new IntegerProperty("undo.max-memory", 256);
+
     /**
      * All commands that were made on the dataset. Don't write from outside!
      *
@@ -40,6 +48,9 @@ public class UndoRedoHandler implements LayerChangeListener {
 
     private final LinkedList<CommandQueueListener> listenerCommands = new LinkedList<>();
 
+    /** estimated memory used by the commands that can be undone, in bytes */
+    private long memoryUsage;
+
     /**
      * Constructs a new {@code UndoRedoHandler}.
      */
@@ -63,16 +74,31 @@ public class UndoRedoHandler implements LayerChangeListener {
     public void addNoRedraw(final Command c) {
         CheckParameterUtil.ensureParameterNotNull(c, "c");
         c.executeCommand();
+        c.compactUndoData();
         commands.add(c);
+        memoryUsage += c.estimateMemoryUsage();
         // Limit the number of commands in the undo list.
         // Currently you have to undo the commands one by one. If
         // this changes, a higher default value may be reasonable.
         if (commands.size() > Main.pref.getInteger("undo.max", 1000)) {
-            commands.removeFirst();
+            memoryUsage -= commands.removeFirst().estimateMemoryUsage();
+        }
+        long maxMemory = MAX_MEMORY.get() * 1024L * 1024L;
+        while (memoryUsage > maxMemory && commands.size() > 1) {
+            memoryUsage -= commands.removeFirst().estimateMemoryUsage();
         }
         redoCommands.clear();
     }
 
+    /**
+     * Returns the estimated memory used by the commands that can be undone.
+     * @return the estimated memory usage in bytes
+     * @since 12679
+     */
+    public long getMemoryUsage() {
+        return memoryUsage;
+    }
+
     /**
      * Fires a commands change event after adding a command.
      */
@@ -123,6 +149,7 @@ public class UndoRedoHandler implements LayerChangeListener {
         try {
             for (int i = 1; i <= num; ++i) {
                 final Command c = commands.removeLast();
+                memoryUsage -= c.estimateMemoryUsage();
                 c.undoCommand();
                 c.invalidateAffectedLayers();
                 redoCommands.addFirst(c);
@@ -160,8 +187,10 @@ public class UndoRedoHandler implements LayerChangeListener {
         for (int i = 0; i < num; ++i) {
             final Command c = redoCommands.removeFirst();
             c.executeCommand();
+            c.compactUndoData();
             c.invalidateAffectedLayers();
             commands.add(c);
+            memoryUsage += c.estimateMemoryUsage();
             if (redoCommands.isEmpty()) {
                 break;
             }
@@ -192,6 +221,7 @@ public class UndoRedoHandler implements LayerChangeListener {
     public void clean() {
         redoCommands.clear();
         commands.clear();
+        memoryUsage = 0;
         fireCommandsChanged();
     }
 
@@ -216,6 +246,10 @@ public class UndoRedoHandler implements LayerChangeListener {
             }
         }
         if (changed) {
+            memoryUsage = 0;
+            for (Command c : commands) {
+                memoryUsage += c.estimateMemoryUsage();
+            }
             fireCommandsChanged();
         }
     }
@@ -7,6 +7,8 @@ import java.io.IOException;
 
 import javax.imageio.ImageIO;
 
+import org.openstreetmap.josm.tools.ImageProvider;
+
 /**
  * Cache Entry that has methods to get the BufferedImage, that will be cached along in memory
  * but will be not serialized when saved to the disk (to avoid duplication of data)
@@ -44,7 +46,7 @@ public class BufferedImageCacheEntry extends CacheEntry {
                 return img;
             byte[] content = getContent();
             if (content.length > 0) {
-                img = ImageIO.read(new ByteArrayInputStream(content));
+                img = ImageProvider.toStandardImageType(ImageIO.read(new ByteArrayInputStream(content)));
                 imageLoaded = true;
             }
         }
@@ -0,0 +1,284 @@
+// License: GPL. For details, see LICENSE file.
+package org.openstreetmap.josm.data.cache;
+
+import java.io.IOException;
+import java.util.Collection;
+import java.util.Collections;
+import java.util.Locale;
+import java.util.Map;
+import java.util.concurrent.ConcurrentSkipListMap;
+import java.util.concurrent.TimeUnit;
+import java.util.concurrent.atomic.AtomicLongArray;
+import java.util.concurrent.atomic.LongAdder;
+
+import org.apache.commons.jcs.auxiliary.AuxiliaryCache;
+
+/**
+ * Usage statistics of a JCS cache region - counters and latency histograms of cache operations.
+ * <p>
+ * Statistics are collected for all regions created by {@link JCSCacheManager}, they are meant to help with sizing
+ * of the cache preferences.
+ *
+ * @since 12668
+ */
+public final class CacheMetrics {
+
+    /**
+     * Measured cache operations
+     */
+    public enum Operation {
+        /** get, that was served from memory */
+        MEMORY_HIT,
+        /** get, that was served from disk */
+        DISK_HIT,
+        /** get of element, that is not in the cache */
+        MISS,
+        /** put to the cache */
+        WRITE,
+        /** removal from the cache */
+        REMOVE,
+        /** read from the disk cache, including waiting for its locks */
+        DISK_READ,
+        /** write to the disk cache, including waiting for its locks */
+        DISK_WRITE
+    }
+
+    private static final Map<String, CacheMetrics> REGIONS = new ConcurrentSkipListMap<>();
+
+    private final String region;
+    private final Histogram[] histograms = new Histogram[Operation.values().length];
+    private volatile InstrumentedMemoryCache<?, ?> memoryCache;
+    private volatile AuxiliaryCache<?, ?> diskCache;
+
+    private CacheMetrics(String region) {
+        this.region = region;
+        for (int i = 0; i < histograms.length; i++) {
+            histograms[i] = new Histogram();
+        }
+    }
+
+    /**
+     * Returns statistics of a cache region, creating them if needed.
+     * @param region name of the cache region
+     * @return statistics of the region
+     */
+    public static CacheMetrics forRegion(String region) {
+        return REGIONS.computeIfAbsent(region, CacheMetrics::new);
+    }
+
+    /**
+     * Returns statistics of all cache regions, sorted by region name.
+     * @return statistics of all cache regions
+     */
+    public static Collection<CacheMetrics> getAll() {
+        return Collections.unmodifiableCollection(REGIONS.values());
+    }
+
+    /**
+     * Resets statistics of all regions.
+     */
+    public static void resetAll() {
+        REGIONS.values().forEach(CacheMetrics::reset);
+    }
+
+    /**
+     * Writes a report of statistics of all cache regions.
+     * @param out where to write the report
+     * @throws IOException if an I/O error occurs
+     */
+    public static void dumpAll(Appendable out) throws IOException {
+        for (CacheMetrics metrics : REGIONS.values()) {
+            metrics.dump(out);
+            out.append('\n');
+        }
+    }
+
+    void setMemoryCache(InstrumentedMemoryCache<?, ?> memoryCache) {
+        this.memoryCache = memoryCache;
+    }
+
+    void setDiskCache(AuxiliaryCache<?, ?> diskCache) {
+        this.diskCache = diskCache;
+    }
+
+    void record(Operation operation, long nanos) {
+        histograms[operation.ordinal()].record(nanos);
+    }
+
+    /**
+     * Returns the name of the cache region.
+     * @return name of the cache region
+     */
+    public String getRegion() {
+        return region;
+    }
+
+    /**
+     * Returns the number of operations of given type.
+     * @param operation operation type
+     * @return number of operations
+     */
+    public long getCount(Operation operation) {
+        return histograms[operation.ordinal()].getCount();
+    }
+
+    /**
+     * Returns the latency histogram of given operation type.
+     * @param operation operation type
+     * @return latency histogram
+     */
+    public Histogram getHistogram(Operation operation) {
+        return histograms[operation.ordinal()];
+    }
+
+    /**
+     * Returns the ratio of gets, that found the element in the cache.
+     * @return hit rate, between 0 and 1, or NaN if there were no gets
+     */
+    public double getHitRate() {
+        long hits = getCount(Operation.MEMORY_HIT) + getCount(Operation.DISK_HIT);
+        return (double) hits / (hits + getCount(Operation.MISS));
+    }
+
+    /**
+     * Returns the number of elements, that were evicted from memory, because of the memory cache size limit.
+     * @return the number of elements evicted from memory
+     */
+    public long getMemoryEvictions() {
+        InstrumentedMemoryCache<?, ?> cache = memoryCache;
+        return cache == null ? 0 : cache.getEvictions();
+    }
+
+    /**
+     * Returns the number of elements in the memory cache.
+     * @return the number of elements in memory
+     */
+    public int getMemorySize() {
+        InstrumentedMemoryCache<?, ?> cache = memoryCache;
+        return cache == null ? 0 : cache.getSize();
+    }
+
+    /**
+     * Returns the number of elements in the disk cache.
+     * @return the number of elements on disk, or -1, if the region has no disk cache
+     */
+    public int getDiskSize() {
+        AuxiliaryCache<?, ?> cache = diskCache;
+        return cache == null ? -1 : cache.getSize();
+    }
+
+    /**
+     * Resets statistics of this region.
+     */
+    public void reset() {
+        for (Histogram h : histograms) {
+            h.reset();
+        }
+        InstrumentedMemoryCache<?, ?> cache = memoryCache;
+        if (cache != null) {
+            cache.resetEvictions();
+        }
+    }
+
+    /**
+     * Writes a report of statistics of this region.
+     * @param out where to write the report
+     * @throws IOException if an I/O error occurs
+     */
+    public void dump(Appendable out) throws IOException {
+        out.append(String.format(Locale.ROOT, "Region %s: hit rate %.1f%%, memory elements %d, disk elements %d, memory evictions %d%n",
+                region, getHitRate() * 100, getMemorySize(), getDiskSize(), getMemoryEvictions()));
+        out.append(String.format(Locale.ROOT, "  %-11s %10s %10s %10s %10s %10s%n",
+                "operation", "count", "mean[us]", "p50[us]", "p99[us]", "max[us]"));
+        for (Operation op : Operation.values()) {
+            Histogram h = getHistogram(op);
+            out.append(String.format(Locale.ROOT, "  %-11s %10d %10.1f %10d %10d %10d%n", op.name().toLowerCase(Locale.ROOT),
+                    h.getCount(), h.getMean(), h.getPercentile(0.5), h.getPercentile(0.99), h.getMax()));
+        }
+    }
+
+    /**
+     * Histogram of operation latencies. Buckets grow in powers of two microseconds, so percentiles are
+     * approximate - within a factor of two.
+     */
+    public static final class Histogram {
+        private static final int BUCKETS = 25; // up to 2^24 us, about 16 seconds
+        private final AtomicLongArray buckets = new AtomicLongArray(BUCKETS);
+        private final LongAdder count = new LongAdder();
+        private final LongAdder totalNanos = new LongAdder();
+        private final Object maxLock = new Object();
+        private volatile long maxMicros;
+
+        private Histogram() {
+            // only created by CacheMetrics
+        }
+
+        void record(long nanos) {
+            long micros = TimeUnit.NANOSECONDS.toMicros(nanos);
+            buckets.incrementAndGet(Math.min(BUCKETS - 1, 64 - Long.numberOfLeadingZeros(micros)));
+            count.increment();
+            totalNanos.add(nanos);
+            if (micros > maxMicros) {
+                synchronized (maxLock) {
+                    maxMicros = Math.max(maxMicros, micros);
+                }
+            }
+        }
+
+        void reset() {
+            for (int i = 0; i < BUCKETS; i++) {
+                buckets.set(i, 0);
+            }
+            count.reset();
+            totalNanos.reset();
+            maxMicros = 0;
+        }
+
+        /**
+         * Returns the number of recorded operations.
+         * @return the number of recorded operations
+         */
+        public long getCount() {
+            return count.sum();
+        }
+
+        /**
+         * Returns the mean latency.
+         * @return the mean latency in microseconds, 0 if nothing was recorded
+         */
+        public double getMean() {
+            long n = count.sum();
+            return n == 0 ? 0 : totalNanos.sum() / 1000.0 / n;
+        }
+
+        /**
+         * Returns the maximum latency.
+         * @return the maximum latency in microseconds
+         */
+        public long getMax() {
+            return maxMicros;
+        }
+
+        /**
+         * Returns approximate latency percentile.
+         * @param fraction fraction of operations, between 0 and 1, e.g. 0.99 for 99th percentile
+         * @return upper bound of the latency in microseconds, that given fraction of operations did not exceed
+         */
+        public long getPercentile(double fraction) {
+            long total = 0;
+            for (int i = 0; i < BUCKETS; i++) {
+                total += buckets.get(i);
+            }
+            long threshold = (long) Math.ceil(total * fraction);
+            long seen = 0;
+            for (int i = 0; i < BUCKETS; i++) {
+                seen += buckets.get(i);
+                if (seen >= threshold && seen > 0) {
+                    // the percentile is not greater than the upper bound of the bucket, nor than the maximum
+                    return Math.min(1L << i, Math.max(maxMicros, 1));
+                }
+            }
+            return 0;
+        }
+    }
+}
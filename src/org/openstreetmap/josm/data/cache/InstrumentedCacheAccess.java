@@ -0,0 +1,60 @@
+// License: GPL. For details, see LICENSE file.
+package org.openstreetmap.josm.data.cache;
+
+import org.apache.commons.jcs.access.CacheAccess;
+import org.apache.commons.jcs.engine.behavior.ICacheElement;
+import org.apache.commons.jcs.engine.behavior.IElementAttributes;
+import org.apache.commons.jcs.engine.control.CompositeCache;
+import org.openstreetmap.josm.data.cache.CacheMetrics.Operation;
+
+/**
+ * Cache access, that records hits, misses and writes with their latencies in {@link CacheMetrics}.
+ *
+ * @param <K> cache key type
+ * @param <V> cache value type
+ * @since 12668
+ */
+final class InstrumentedCacheAccess<K, V> extends CacheAccess<K, V> {
+
+    private final CacheMetrics metrics;
+
+    InstrumentedCacheAccess(CompositeCache<K, V> cacheControl, CacheMetrics metrics) {
+        super(cacheControl);
+        this.metrics = metrics;
+    }
+
+    @Override
+    public V get(K name) {
+        ICacheElement<K, V> element = getCacheElement(name);
+        return element != null ? element.getVal() : null;
+    }
+
+    @Override
+    public ICacheElement<K, V> getCacheElement(K name) {
+        boolean[] diskHit = InstrumentedDiskCache.DISK_HIT.get();
+        diskHit[0] = false;
+        long start = System.nanoTime();
+        ICacheElement<K, V> element = super.getCacheElement(name);
+        long time = System.nanoTime() - start;
+        if (element == null) {
+            metrics.record(Operation.MISS, time);
+        } else {
+            metrics.record(diskHit[0] ? Operation.DISK_HIT : Operation.MEMORY_HIT, time);
+        }
+        return element;
+    }
+
+    @Override
+    public void put(K key, V val, IElementAttributes attr) {
+        long start = System.nanoTime();
+        super.put(key, val, attr);
+        metrics.record(Operation.WRITE, System.nanoTime() - start);
+    }
+
+    @Override
+    public void remove(K name) {
+        long start = System.nanoTime();
+        super.remove(name);
+        metrics.record(Operation.REMOVE, System.nanoTime() - start);
+    }
+}
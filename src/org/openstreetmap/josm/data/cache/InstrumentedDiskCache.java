@@ -0,0 +1,144 @@
+// License: GPL. For details, see LICENSE file.
+package org.openstreetmap.josm.data.cache;
+
+import java.io.IOException;
+import java.util.Map;
+import java.util.Set;
+
+import org.apache.commons.jcs.auxiliary.AuxiliaryCache;
+import org.apache.commons.jcs.auxiliary.AuxiliaryCacheAttributes;
+import org.apache.commons.jcs.engine.CacheStatus;
+import org.apache.commons.jcs.engine.behavior.ICacheElement;
+import org.apache.commons.jcs.engine.behavior.IElementSerializer;
+import org.apache.commons.jcs.engine.logging.behavior.ICacheEventLogger;
+import org.apache.commons.jcs.engine.match.behavior.IKeyMatcher;
+import org.apache.commons.jcs.engine.stats.behavior.IStats;
+import org.openstreetmap.josm.data.cache.CacheMetrics.Operation;
+
+/**
+ * Disk cache wrapper, that measures the time spent in reads and writes of the wrapped cache for {@link CacheMetrics}.
+ * As locking is done within the wrapped cache, the measured time includes waiting for its locks.
+ *
+ * @param <K> cache key type
+ * @param <V> cache value type
+ * @since 12668
+ */
+final class InstrumentedDiskCache<K, V> implements AuxiliaryCache<K, V> {
+
+    /** set, when the last get on current thread was served from disk */
+    static final ThreadLocal<boolean[]> DISK_HIT = ThreadLocal.withInitial(() -> new boolean[1]);
+
+    private final AuxiliaryCache<K, V> delegate;
+    private final CacheMetrics metrics;
+
+    InstrumentedDiskCache(AuxiliaryCache<K, V> delegate, CacheMetrics metrics) {
+        this.delegate = delegate;
+        this.metrics = metrics;
+        metrics.setDiskCache(delegate);
+    }
+
+    @Override
+    public void update(ICacheElement<K, V> element) throws IOException {
+        long start = System.nanoTime();
+        try {
+            delegate.update(element);
+        } finally {
+            metrics.record(Operation.DISK_WRITE, System.nanoTime() - start);
+        }
+    }
+
+    @Override
+    public ICacheElement<K, V> get(K key) throws IOException {
+        long start = System.nanoTime();
+        ICacheElement<K, V> ret = null;
+        try {
+            ret = delegate.get(key);
+            return ret;
+        } finally {
+            metrics.record(Operation.DISK_READ, System.nanoTime() - start);
+            if (ret != null) {
+                DISK_HIT.get()[0] = true;
+            }
+        }
+    }
+
+    @Override
+    public Map<K, ICacheElement<K, V>> getMultiple(Set<K> keys) throws IOException {
+        return delegate.getMultiple(keys);
+    }
+
+    @Override
+    public Map<K, ICacheElement<K, V>> getMatching(String pattern) throws IOException {
+        return delegate.getMatching(pattern);
+    }
+
+    @Override
+    public boolean remove(K key) throws IOException {
+        return delegate.remove(key);
+    }
+
+    @Override
+    public void removeAll() throws IOException {
+        delegate.removeAll();
+    }
+
+    @Override
+    public void dispose() throws IOException {
+        delegate.dispose();
+    }
+
+    @Override
+    public int getSize() {
+        return delegate.getSize();
+    }
+
+    @Override
+    public CacheStatus getStatus() {
+        return delegate.getStatus();
+    }
+
+    @Override
+    public String getStats() {
+        return delegate.getStats();
+    }
+
+    @Override
+    public String getCacheName() {
+        return delegate.getCacheName();
+    }
+
+    @Override
+    public void setKeyMatcher(IKeyMatcher<K> keyMatcher) {
+        delegate.setKeyMatcher(keyMatcher);
+    }
+
+    @Override
+    public CacheType getCacheType() {
+        return delegate.getCacheType();
+    }
+
+    @Override
+    public Set<K> getKeySet() throws IOException {
+        return delegate.getKeySet();
+    }
+
+    @Override
+    public IStats getStatistics() {
+        return delegate.getStatistics();
+    }
+
+    @Override
+    public AuxiliaryCacheAttributes getAuxiliaryCacheAttributes() {
+        return delegate.getAuxiliaryCacheAttributes();
+    }
+
+    @Override
+    public void setElementSerializer(IElementSerializer elementSerializer) {
+        delegate.setElementSerializer(elementSerializer);
+    }
+
+    @Override
+    public void setCacheEventLogger(ICacheEventLogger cacheEventLogger) {
+        delegate.setCacheEventLogger(cacheEventLogger);
+    }
+}
@@ -0,0 +1,68 @@
+// License: GPL. For details, see LICENSE file.
+package org.openstreetmap.josm.data.cache;
+
+import java.io.IOException;
+import java.util.concurrent.atomic.LongAdder;
+
+import org.apache.commons.jcs.engine.behavior.ICacheElement;
+import org.apache.commons.jcs.engine.control.CompositeCache;
+import org.apache.commons.jcs.engine.memory.lru.LRUMemoryCache;
+import org.apache.commons.jcs.engine.memory.util.MemoryElementDescriptor;
+
+/**
+ * LRU memory cache, that counts elements evicted because of the size limit for {@link CacheMetrics}.
+ * <p>
+ * Evicted elements are not reported by JCS, so they are computed as the number of added elements, that are neither
+ * removed nor present in the cache anymore.
+ *
+ * @param <K> cache key type
+ * @param <V> cache value type
+ * @since 12668
+ */
+public class InstrumentedMemoryCache<K, V> extends LRUMemoryCache<K, V> {
+
+    private final LongAdder added = new LongAdder();
+    private final LongAdder removed = new LongAdder();
+
+    @Override
+    public void initialize(CompositeCache<K, V> hub) {
+        super.initialize(hub);
+        CacheMetrics.forRegion(hub.getCacheName()).setMemoryCache(this);
+    }
+
+    @Override
+    protected MemoryElementDescriptor<K, V> adjustListForUpdate(ICacheElement<K, V> ce) throws IOException {
+        if (!map.containsKey(ce.getKey())) {
+            added.increment();
+        }
+        return super.adjustListForUpdate(ce);
+    }
+
+    @Override
+    protected void lockedRemoveElement(MemoryElementDescriptor<K, V> me) {
+        removed.increment();
+        super.lockedRemoveElement(me);
+    }
+
+    @Override
+    protected void lockedRemoveAll() {
+        removed.add(map.size());
+        super.lockedRemoveAll();
+    }
+
+    long getEvictions() {
+        return Math.max(0, added.sum() - removed.sum() - getSize());
+    }
+
+    void resetEvictions() {
+        lock.lock();
+        try {
+            // start counting from the current content
+            added.reset();
+            added.add(getSize());
+            removed.reset();
+        } finally {
+            lock.unlock();
+        }
+    }
+}
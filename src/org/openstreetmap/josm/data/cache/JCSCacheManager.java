@@ -35,7 +35,8 @@ import org.openstreetmap.josm.tools.Utils;
 
 /**
  * Wrapper class for JCS Cache. Sets some sane environment and returns instances of cache objects.
- * Static configuration for now assumes some small LRU cache in memory and larger LRU cache on disk
+ * Static configuration for now assumes some small LRU cache in memory and larger LRU cache on disk.
+ * Usage of all regions is recorded in {@link CacheMetrics}.
  *
  * @author Wiktor Niesiobędzki
  * @since 8168
@@ -172,13 +173,15 @@ public final class JCSCacheManager {
     private static <K, V> CacheAccess<K, V> getCacheInner(String cacheName, int maxMemoryObjects, int maxDiskObjects, String cachePath)
             throws IOException {
         CompositeCache<K, V> cc = cacheManager.getCache(cacheName, getCacheAttributes(maxMemoryObjects));
+        CacheMetrics metrics = CacheMetrics.forRegion(cacheName);
 
         if (cachePath != null && cacheDirLock != null) {
             IDiskCacheAttributes diskAttributes = getDiskCacheAttributes(maxDiskObjects, cachePath, cacheName);
             try {
                 if (cc.getAuxCaches().length == 0) {
-                    cc.setAuxCaches(new AuxiliaryCache[]{DISK_CACHE_FACTORY.createCache(
-                            diskAttributes, cacheManager, null, new StandardSerializer())});
+                    AuxiliaryCache<K, V> diskCache = DISK_CACHE_FACTORY.createCache(
+                            diskAttributes, cacheManager, null, new StandardSerializer());
+                    cc.setAuxCaches(new AuxiliaryCache[]{new InstrumentedDiskCache<>(diskCache, metrics)});
                 }
             } catch (IOException e) {
                 throw e;
@@ -186,7 +189,7 @@ public final class JCSCacheManager {
                 throw new IOException(e);
             }
         }
-        return new CacheAccess<>(cc);
+        return new InstrumentedCacheAccess<>(cc, metrics);
     }
 
     /**
@@ -250,6 +253,7 @@ public final class JCSCacheManager {
     private static CompositeCacheAttributes getCacheAttributes(int maxMemoryElements) {
         CompositeCacheAttributes ret = new CompositeCacheAttributes();
         ret.setMaxObjects(maxMemoryElements);
+        ret.setMemoryCacheName(InstrumentedMemoryCache.class.getName());
         ret.setDiskUsagePattern(DiskUsagePattern.UPDATE);
         return ret;
     }
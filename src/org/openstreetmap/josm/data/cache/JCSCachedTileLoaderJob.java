@@ -301,9 +301,10 @@ public abstract class JCSCachedTileLoaderJob<K, V extends CacheEntry> implements
     }
 
     /**
+     * Loads the object from remote resource and puts it into the cache.
      * @return true if object was successfully downloaded, false, if there was a loading failure
      */
-    private boolean loadObject() {
+    protected boolean loadObject() {
         if (attributes == null) {
             attributes = new CacheEntryAttributes();
         }
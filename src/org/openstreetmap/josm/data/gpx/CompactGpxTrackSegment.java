@@ -0,0 +1,293 @@
+// License: GPL. For details, see LICENSE file.
+package org.openstreetmap.josm.data.gpx;
+
+import java.lang.ref.SoftReference;
+import java.util.Arrays;
+import java.util.Collection;
+import java.util.Collections;
+import java.util.Date;
+import java.util.HashMap;
+import java.util.List;
+import java.util.Map;
+import java.util.Objects;
+
+import org.openstreetmap.josm.data.Bounds;
+import org.openstreetmap.josm.data.coor.LatLon;
+import org.openstreetmap.josm.data.preferences.IntegerProperty;
+import org.openstreetmap.josm.data.projection.BulkReprojection;
+import org.openstreetmap.josm.data.projection.Projection;
+import org.openstreetmap.josm.tools.Logging;
+import org.openstreetmap.josm.tools.date.DateUtils;
+
+/**
+ * A gpx track segment, that cannot be changed, storing its points in primitive arrays.
+ * <p>
+ * Coordinates, time, elevation and speed of the points are stored in arrays, other attributes are only
+ * stored for points that have them. This takes a fraction of the memory of {@link WayPoint}s, that are
+ * created on demand by {@link #getWayPoints()}. The created way points are kept as long as memory allows,
+ * so drawing caches stored in them (like {@link WayPoint#customColoring}) may be lost -
+ * {@link #getUpdateCount()} tells when the way points have been created again. Projected coordinates
+ * are kept in arrays as well, see {@link #updateEastNorthCache}, and restored in created way points.
+ * <p>
+ * While the track is drawn, its way points are in use, and both the arrays and the way points are in memory.
+ * The memory is only saved for tracks, that are not drawn, or when memory runs low.
+ *
+ * @since 12674
+ */
+public class CompactGpxTrackSegment implements GpxTrackSegment {
+
+    /**
+     * Minimum number of points of track segments, that are stored in a {@code CompactGpxTrackSegment}
+     * by {@link ImmutableGpxTrack}. A negative value disables compact storage.
+     */
+    public static final IntegerProperty MIN_POINTS = new IntegerProperty("gpx.compact-segment.min-points", 10_000);
+
+    private static final String PT_SPEED = "speed";
+
+    /** the time attribute is the formatted {@link #time} */
+    private static final byte TIME_ATTR = 1;
+    /** the elevation attribute is formatted as integer */
+    private static final byte ELE_INTEGER = 2;
+    /** the speed attribute is formatted as integer */
+    private static final byte SPEED_INTEGER = 4;
+
+    private final double[] lat;
+    private final double[] lon;
+    private final double[] time;
+    /** elevations, NaN for points without elevation attribute */
+    private final float[] ele;
+    /** speeds, NaN for points without speed attribute */
+    private final float[] speed;
+    private final byte[] flags;
+    /** other attributes, by point index, only for points having them */
+    private final Map<Integer, Map<String, Object>> extraAttributes = new HashMap<>();
+    private final Bounds bounds;
+    private final double length;
+
+    /** projected coordinates, or {@code null} if they have not been computed for the current projection */
+    private double[] east;
+    private double[] north;
+    private Object eastNorthCacheKey;
+
+    private SoftReference<List<WayPoint>> wayPoints = new SoftReference<>(null);
+    private int updateCount;
+
+    /**
+     * Constructs a new {@code CompactGpxTrackSegment}.
+     * @param wayPoints list of waypoints
+     */
+    public CompactGpxTrackSegment(Collection<WayPoint> wayPoints) {
+        int size = wayPoints.size();
+        lat = new double[size];
+        lon = new double[size];
+        time = new double[size];
+        ele = new float[size];
+        speed = new float[size];
+        flags = new byte[size];
+        int i = 0;
+        for (WayPoint wpt : wayPoints) {
+            lat[i] = wpt.lat();
+            lon[i] = wpt.lon();
+            time[i] = wpt.time;
+            Map<String, Object> extra = new HashMap<>(wpt.attr);
+            Object t = extra.get(GpxConstants.PT_TIME);
+            if (t != null && t.equals(formatTime(time[i]))) {
+                extra.remove(GpxConstants.PT_TIME);
+                flags[i] |= TIME_ATTR;
+            }
+            ele[i] = storeValue(extra, GpxConstants.PT_ELE, i, ELE_INTEGER);
+            speed[i] = storeValue(extra, PT_SPEED, i, SPEED_INTEGER);
+            if (!extra.isEmpty()) {
+                extraAttributes.put(i, extra);
+            }
+            i++;
+        }
+        bounds = calculateBounds();
+        length = calculateLength();
+    }
+
+    /**
+     * Removes a numeric attribute from the extra attributes, if it can be restored from a float value.
+     * @param extra the attributes of the point
+     * @param key the attribute key
+     * @param index the point index
+     * @param integerFlag the flag to set if the value is formatted as integer
+     * @return the value of the attribute, or NaN if it is kept in the extra attributes
+     */
+    private float storeValue(Map<String, Object> extra, String key, int index, byte integerFlag) {
+        Object value = extra.get(key);
+        if (value instanceof String) {
+            try {
+                float f = Float.parseFloat((String) value);
+                if (Float.isNaN(f)) {
+                    return Float.NaN;
+                } else if (!value.equals(formatValue(f, false))) {
+                    if (!value.equals(formatValue(f, true))) {
+                        return Float.NaN;
+                    }
+                    flags[index] |= integerFlag;
+                }
+                extra.remove(key);
+                return f;
+            } catch (NumberFormatException e) {
+                // keep the attribute as it is
+                Logging.trace(e);
+            }
+        }
+        return Float.NaN;
+    }
+
+    private static String formatValue(float value, boolean integer) {
+        if (integer) {
+            return value == Math.rint(value) && Math.abs(value) < 1e7 ? Long.toString((long) value) : null;
+        }
+        return Float.toString(value);
+    }
+
+    private static String formatTime(double time) {
+        return DateUtils.fromDate(new Date((long) (time * 1000)));
+    }
+
+    private Bounds calculateBounds() {
+        Bounds result = null;
+        for (int i = 0; i < lat.length; i++) {
+            if (result == null) {
+                result = new Bounds(new LatLon(lat[i], lon[i]));
+            } else {
+                result.extend(lat[i], lon[i]);
+            }
+        }
+        return result;
+    }
+
+    private double calculateLength() {
+        double result = 0.0; // in meters
+        for (int i = 1; i < lat.length; i++) {
+            double d = new LatLon(lat[i - 1], lon[i - 1]).greatCircleDistance(new LatLon(lat[i], lon[i]));
+            if (!Double.isNaN(d) && !Double.isInfinite(d)) {
+                result += d;
+            }
+        }
+        return result;
+    }
+
+    /**
+     * Returns the number of points of this segment.
+     * @return the number of points
+     */
+    public int size() {
+        return lat.length;
+    }
+
+    private WayPoint createWayPoint(int index) {
+        WayPoint wpt = new WayPoint(new LatLon(lat[index], lon[index]));
+        wpt.time = time[index];
+        if ((flags[index] & TIME_ATTR) != 0) {
+            wpt.attr.put(GpxConstants.PT_TIME, formatTime(time[index]));
+        }
+        if (!Float.isNaN(ele[index])) {
+            wpt.attr.put(GpxConstants.PT_ELE, formatValue(ele[index], (flags[index] & ELE_INTEGER) != 0));
+        }
+        if (!Float.isNaN(speed[index])) {
+            wpt.attr.put(PT_SPEED, formatValue(speed[index], (flags[index] & SPEED_INTEGER) != 0));
+        }
+        Map<String, Object> extra = extraAttributes.get(index);
+        if (extra != null) {
+            wpt.attr.putAll(extra);
+        }
+        if (east != null) {
+            wpt.setEastNorthCache(east[index], north[index], eastNorthCacheKey);
+        }
+        return wpt;
+    }
+
+    /**
+     * Computes the projected coordinates of all points, in parallel for large segments. They are stored in arrays,
+     * so they are not lost when the way points are created again.
+     * @param projection the current projection
+     * @since 12689
+     */
+    public synchronized void updateEastNorthCache(Projection projection) {
+        double[] newNorth = lat.clone();
+        double[] newEast = lon.clone();
+        BulkReprojection.project(projection, newNorth, newEast);
+        east = newEast;
+        north = newNorth;
+        eastNorthCacheKey = projection.getCacheKey();
+        List<WayPoint> points = wayPoints.get();
+        if (points != null) {
+            for (int i = 0; i < points.size(); i++) {
+                points.get(i).setEastNorthCache(east[i], north[i], eastNorthCacheKey);
+            }
+        }
+    }
+
+    /**
+     * Invalidates the projected coordinates of all points.
+     * @since 12689
+     */
+    public synchronized void invalidateEastNorthCache() {
+        east = null;
+        north = null;
+        eastNorthCacheKey = null;
+        List<WayPoint> points = wayPoints.get();
+        if (points != null) {
+            points.forEach(WayPoint::invalidateEastNorthCache);
+        }
+    }
+
+    @Override
+    public Bounds getBounds() {
+        return bounds == null ? null : new Bounds(bounds);
+    }
+
+    /**
+     * Returns the segment waypoints. They are created when needed and kept as long as memory allows.
+     * @return the segment waypoints
+     */
+    @Override
+    public synchronized Collection<WayPoint> getWayPoints() {
+        List<WayPoint> result = wayPoints.get();
+        if (result == null) {
+            WayPoint[] array = new WayPoint[lat.length];
+            for (int i = 0; i < array.length; i++) {
+                array[i] = createWayPoint(i);
+            }
+            result = Collections.unmodifiableList(Arrays.asList(array));
+            wayPoints = new SoftReference<>(result);
+            updateCount++;
+        }
+        return result;
+    }
+
+    @Override
+    public double length() {
+        return length;
+    }
+
+    /**
+     * Returns the number of times the way points of this segment have been created.
+     * @return Number of times the way points have been created by {@link #getWayPoints()}
+     */
+    @Override
+    public synchronized int getUpdateCount() {
+        return updateCount;
+    }
+
+    @Override
+    public int hashCode() {
+        return Objects.hash(Arrays.hashCode(lat), Arrays.hashCode(lon), Arrays.hashCode(time), extraAttributes);
+    }
+
+    @Override
+    public boolean equals(Object obj) {
+        if (this == obj)
+            return true;
+        if (obj == null || getClass() != obj.getClass())
+            return false;
+        CompactGpxTrackSegment other = (CompactGpxTrackSegment) obj;
+        return Arrays.equals(lat, other.lat) && Arrays.equals(lon, other.lon) && Arrays.equals(time, other.time)
+                && Arrays.equals(ele, other.ele) && Arrays.equals(speed, other.speed) && Arrays.equals(flags, other.flags)
+                && extraAttributes.equals(other.extraAttributes);
+    }
+}
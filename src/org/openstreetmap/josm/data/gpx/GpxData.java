@@ -9,7 +9,9 @@ import java.util.Collections;
 import java.util.Date;
 import java.util.DoubleSummaryStatistics;
 import java.util.HashSet;
+import java.util.IdentityHashMap;
 import java.util.Iterator;
+import java.util.List;
 import java.util.Map;
 import java.util.NoSuchElementException;
 import java.util.Set;
@@ -19,8 +21,11 @@ import org.openstreetmap.josm.Main;
 import org.openstreetmap.josm.data.Bounds;
 import org.openstreetmap.josm.data.Data;
 import org.openstreetmap.josm.data.DataSource;
+import org.openstreetmap.josm.data.ProjectionBounds;
 import org.openstreetmap.josm.data.coor.EastNorth;
 import org.openstreetmap.josm.data.gpx.GpxTrack.GpxTrackChangeListener;
+import org.openstreetmap.josm.data.projection.BulkReprojection;
+import org.openstreetmap.josm.data.projection.Projection;
 import org.openstreetmap.josm.tools.ListenerList;
 import org.openstreetmap.josm.tools.ListeningCollection;
 
@@ -102,6 +107,9 @@ public class GpxData extends WithAttributes implements Data {
 
     private final ListenerList<GpxDataChangeListener> listeners = ListenerList.create();
 
+    /** spatial index of the tracks, created when needed */
+    private GpxTrackIndex trackIndex;
+
     /**
      * Merges data from another object.
      * @param other existing GPX data
@@ -124,7 +132,7 @@ public class GpxData extends WithAttributes implements Data {
                 put(k, ent.getValue());
             }
         }
-        other.getTracks().forEach(this::addTrack);
+        addTracks(other.getTracks());
         other.getRoutes().forEach(this::addRoute);
         other.getWaypoints().forEach(this::addWaypoint);
         dataSources.addAll(other.dataSources);
@@ -153,6 +161,27 @@ public class GpxData extends WithAttributes implements Data {
         fireInvalidate();
     }
 
+    /**
+     * Add several tracks at once. Listeners are notified only once.
+     * @param newTracks The new tracks
+     * @since 12675
+     */
+    public void addTracks(Collection<? extends GpxTrack> newTracks) {
+        Set<GpxTrack> known = Collections.newSetFromMap(new IdentityHashMap<>());
+        known.addAll(privateTracks);
+        for (GpxTrack track : newTracks) {
+            if (!known.add(track)) {
+                throw new IllegalArgumentException(MessageFormat.format("The track was already added to this data: {0}", track));
+            }
+        }
+        privateTracks.ensureCapacity(privateTracks.size() + newTracks.size());
+        for (GpxTrack track : newTracks) {
+            privateTracks.add(track);
+            track.addListener(proxy);
+        }
+        fireInvalidate();
+    }
+
     /**
      * Remove a track
      * @param track The old track
@@ -413,15 +442,22 @@ public class GpxData extends WithAttributes implements Data {
         double px = p.east();
         double py = p.north();
         double rx = 0.0, ry = 0.0, sx, sy, x, y;
-        for (GpxTrack track : getTracks()) {
-            for (GpxTrackSegment seg : track.getSegments()) {
-                WayPoint r = null;
-                for (WayPoint S : seg.getWayPoints()) {
-                    EastNorth en = S.getEastNorth();
-                    if (r == null) {
-                        r = S;
-                        rx = en.east();
-                        ry = en.north();
+        Projection projection = Main.getProjection();
+        Bounds searchBounds = projection.getLatLonBoundsBox(
+                new ProjectionBounds(px - tolerance, py - tolerance, px + tolerance, py + tolerance));
+        for (GpxTrackIndex.Run run : getTrackIndex().search(searchBounds)) {
+            List<WayPoint> points = run.getSegmentWayPoints();
+            // start with the previous point of the segment, so that the line leading to this run is checked
+            int start = Math.max(run.getFrom() - 1, 0);
+            WayPoint r = null;
+            for (int i = start; i < run.getTo(); i++) {
+                WayPoint S = points.get(i);
+                EastNorth en = S.getEastNorth();
+                if (r == null) {
+                    r = S;
+                    rx = en.east();
+                    ry = en.north();
+                    if (i == 0) {
                         x = px - rx;
                         y = py - ry;
                         double pRsq = x * x + y * y;
@@ -430,58 +466,58 @@ public class GpxData extends WithAttributes implements Data {
                             bestEN = en;
                             bestTime = r.time;
                         }
-                    } else {
-                        sx = en.east();
-                        sy = en.north();
-                        double a = sy - ry;
-                        double b = rx - sx;
-                        double c = -a * rx - b * ry;
-                        double rssq = a * a + b * b;
-                        if (rssq == 0) {
-                            continue;
-                        }
-                        double pnsq = a * px + b * py + c;
-                        pnsq = pnsq * pnsq / rssq;
-                        if (pnsq < pnminsq) {
-                            x = px - rx;
-                            y = py - ry;
-                            double prsq = x * x + y * y;
-                            x = px - sx;
-                            y = py - sy;
-                            double pssq = x * x + y * y;
-                            if (prsq - pnsq <= rssq && pssq - pnsq <= rssq) {
-                                double rnoverRS = Math.sqrt((prsq - pnsq) / rssq);
-                                double nx = rx - rnoverRS * b;
-                                double ny = ry + rnoverRS * a;
-                                bestEN = new EastNorth(nx, ny);
-                                bestTime = r.time + rnoverRS * (S.time - r.time);
-                                pnminsq = pnsq;
-                            }
+                    }
+                } else {
+                    sx = en.east();
+                    sy = en.north();
+                    double a = sy - ry;
+                    double b = rx - sx;
+                    double c = -a * rx - b * ry;
+                    double rssq = a * a + b * b;
+                    if (rssq == 0) {
+                        continue;
+                    }
+                    double pnsq = a * px + b * py + c;
+                    pnsq = pnsq * pnsq / rssq;
+                    if (pnsq < pnminsq) {
+                        x = px - rx;
+                        y = py - ry;
+                        double prsq = x * x + y * y;
+                        x = px - sx;
+                        y = py - sy;
+                        double pssq = x * x + y * y;
+                        if (prsq - pnsq <= rssq && pssq - pnsq <= rssq) {
+                            double rnoverRS = Math.sqrt((prsq - pnsq) / rssq);
+                            double nx = rx - rnoverRS * b;
+                            double ny = ry + rnoverRS * a;
+                            bestEN = new EastNorth(nx, ny);
+                            bestTime = r.time + rnoverRS * (S.time - r.time);
+                            pnminsq = pnsq;
                         }
-                        r = S;
-                        rx = sx;
-                        ry = sy;
                     }
+                    r = S;
+                    rx = sx;
+                    ry = sy;
                 }
-                if (r != null) {
-                    EastNorth c = r.getEastNorth();
-                    /* if there is only one point in the seg, it will do this twice, but no matter */
-                    rx = c.east();
-                    ry = c.north();
-                    x = px - rx;
-                    y = py - ry;
-                    double prsq = x * x + y * y;
-                    if (prsq < pnminsq) {
-                        pnminsq = prsq;
-                        bestEN = c;
-                        bestTime = r.time;
-                    }
+            }
+            if (r != null && run.isSegmentEnd()) {
+                EastNorth c = r.getEastNorth();
+                /* if there is only one point in the seg, it will do this twice, but no matter */
+                rx = c.east();
+                ry = c.north();
+                x = px - rx;
+                y = py - ry;
+                double prsq = x * x + y * y;
+                if (prsq < pnminsq) {
+                    pnminsq = prsq;
+                    bestEN = c;
+                    bestTime = r.time;
                 }
             }
         }
         if (bestEN == null)
             return null;
-        WayPoint best = new WayPoint(Main.getProjection().eastNorth2latlon(bestEN));
+        WayPoint best = new WayPoint(projection.eastNorth2latlon(bestEN));
         best.time = bestTime;
         return best;
     }
@@ -503,7 +539,13 @@ public class GpxData extends WithAttributes implements Data {
      */
     public void resetEastNorthCache() {
         getWaypoints().forEach(WayPoint::invalidateEastNorthCache);
-        getTrackPoints().forEach(WayPoint::invalidateEastNorthCache);
+        getTracks().stream().flatMap(trk -> trk.getSegments().stream()).forEach(segment -> {
+            if (segment instanceof CompactGpxTrackSegment) {
+                ((CompactGpxTrackSegment) segment).invalidateEastNorthCache();
+            } else {
+                segment.getWayPoints().forEach(WayPoint::invalidateEastNorthCache);
+            }
+        });
         for (GpxRoute route: getRoutes()) {
             if (route.routePoints == null) {
                 continue;
@@ -514,6 +556,30 @@ public class GpxData extends WithAttributes implements Data {
         }
     }
 
+    /**
+     * Fills the internal caches of east/north coordinates, in parallel for large data.
+     * @param projection the new projection
+     * @since 12672
+     */
+    public void updateEastNorthCache(Projection projection) {
+        List<WayPoint> points = new ArrayList<>(getWaypoints());
+        getTracks().stream().flatMap(trk -> trk.getSegments().stream()).forEach(segment -> {
+            if (segment instanceof CompactGpxTrackSegment) {
+                // stored in the segment, so that its way points do not need to be created
+                ((CompactGpxTrackSegment) segment).updateEastNorthCache(projection);
+            } else {
+                points.addAll(segment.getWayPoints());
+            }
+        });
+        for (GpxRoute route: getRoutes()) {
+            if (route.routePoints != null) {
+                points.addAll(route.routePoints);
+            }
+        }
+        Object cacheKey = projection.getCacheKey();
+        BulkReprojection.project(projection, points, (wp, east, north) -> wp.setEastNorthCache(east, north, cacheKey));
+    }
+
     /**
      * Iterates over all track segments and then over all routes.
      */
@@ -661,7 +727,23 @@ public class GpxData extends WithAttributes implements Data {
         listeners.removeListener(listener);
     }
 
+    /**
+     * Returns the spatial index of the track segments. It is created when needed,
+     * and dropped whenever a {@link GpxDataChangeEvent} is fired.
+     * @return the spatial index of the track segments
+     * @since 12676
+     */
+    public synchronized GpxTrackIndex getTrackIndex() {
+        if (trackIndex == null) {
+            trackIndex = new GpxTrackIndex(getTracks());
+        }
+        return trackIndex;
+    }
+
     private void fireInvalidate() {
+        synchronized (this) {
+            trackIndex = null;
+        }
         if (listeners.hasListeners()) {
             GpxDataChangeEvent e = new GpxDataChangeEvent(this);
             listeners.fireEvent(l -> l.gpxDataChanged(e));
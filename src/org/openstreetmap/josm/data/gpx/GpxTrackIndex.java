@@ -0,0 +1,459 @@
+// License: GPL. For details, see LICENSE file.
+package org.openstreetmap.josm.data.gpx;
+
+import java.util.ArrayDeque;
+import java.util.ArrayList;
+import java.util.Arrays;
+import java.util.Collection;
+import java.util.Collections;
+import java.util.Comparator;
+import java.util.Deque;
+import java.util.IdentityHashMap;
+import java.util.List;
+import java.util.Map;
+import java.util.concurrent.ForkJoinPool;
+import java.util.concurrent.ForkJoinTask;
+import java.util.concurrent.RecursiveAction;
+
+import org.openstreetmap.josm.data.Bounds;
+import org.openstreetmap.josm.data.coor.LatLon;
+import org.openstreetmap.josm.tools.Utils;
+
+/**
+ * Spatial index over the track segments of a {@link GpxData}.
+ * <p>
+ * Track segments are split into runs of consecutive points. The runs are stored in a packed R-tree
+ * using their lat/lon bounding boxes, so the index stays valid when the projection changes.
+ * The index is immutable; it is created by {@link GpxData#getTrackIndex()} and dropped when the data changes.
+ * <p>
+ * For drawing at small scales, the index also provides simplifications of all segments, see {@link #getTolerances}.
+ *
+ * @since 12676
+ */
+public final class GpxTrackIndex {
+
+    /**
+     * Maximum number of points of a run.
+     */
+    static final int RUN_SIZE = 64;
+
+    /**
+     * Maximum number of children of a tree node.
+     */
+    private static final int NODE_SIZE = 16;
+
+    /**
+     * A run of consecutive points of a track segment.
+     */
+    public static final class Run extends Box {
+        private final int ordinal;
+        private final int trackIndex;
+        private final GpxTrack track;
+        private final GpxTrackSegment segment;
+        private final GpxTrackSegment previousSegment;
+        private final int from;
+        private final int to;
+
+        Run(int ordinal, int trackIndex, GpxTrack track, GpxTrackSegment segment, GpxTrackSegment previousSegment,
+                List<WayPoint> points, int from, int to) {
+            this.ordinal = ordinal;
+            this.trackIndex = trackIndex;
+            this.track = track;
+            this.segment = segment;
+            this.previousSegment = previousSegment;
+            this.from = from;
+            this.to = to;
+            for (int i = from; i < to; i++) {
+                extend(points.get(i).getCoor());
+            }
+            WayPoint previous = getPrevious(points);
+            if (previous != null) {
+                extend(previous.getCoor());
+            }
+        }
+
+        /**
+         * Returns the track of this run.
+         * @return the track
+         */
+        public GpxTrack getTrack() {
+            return track;
+        }
+
+        /**
+         * Returns the index of the track in {@link GpxData#getTracks()}.
+         * @return the track index
+         */
+        public int getTrackIndex() {
+            return trackIndex;
+        }
+
+        /**
+         * Returns the track segment of this run.
+         * @return the track segment
+         */
+        public GpxTrackSegment getSegment() {
+            return segment;
+        }
+
+        /**
+         * Returns the index of the first point of this run in the segment.
+         * @return the index of the first point (inclusive)
+         */
+        public int getFrom() {
+            return from;
+        }
+
+        /**
+         * Returns the index after the last point of this run in the segment.
+         * @return the index of the last point (exclusive)
+         */
+        public int getTo() {
+            return to;
+        }
+
+        /**
+         * Determines if this run ends with the last point of its segment.
+         * @return {@code true} if this run ends with the last point of its segment
+         */
+        public boolean isSegmentEnd() {
+            return to == segment.getWayPoints().size();
+        }
+
+        /**
+         * Returns all points of the segment of this run, as a list.
+         * @return all points of the segment
+         */
+        public List<WayPoint> getSegmentWayPoints() {
+            return asList(segment.getWayPoints());
+        }
+
+        /**
+         * Returns the points of this run.
+         * @return the points of this run
+         */
+        public List<WayPoint> getWayPoints() {
+            return getSegmentWayPoints().subList(from, to);
+        }
+
+        /**
+         * Returns the point before the first point of this run, when iterating over all track points
+         * like {@link GpxData#getLinesIterable} does. This is the last point of the previous segment
+         * for the first run of a segment. The bounding box of the run includes this point.
+         * @return the point before the first point of this run, or {@code null}
+         */
+        public WayPoint getPrevious() {
+            return getPrevious(getSegmentWayPoints());
+        }
+
+        private WayPoint getPrevious(List<WayPoint> points) {
+            if (from > 0) {
+                return points.get(from - 1);
+            } else if (previousSegment != null) {
+                List<WayPoint> previousPoints = asList(previousSegment.getWayPoints());
+                return previousPoints.isEmpty() ? null : previousPoints.get(previousPoints.size() - 1);
+            }
+            return null;
+        }
+    }
+
+    /**
+     * A lat/lon bounding box. Empty boxes do not intersect anything.
+     */
+    static class Box {
+        double minLat = Double.POSITIVE_INFINITY;
+        double minLon = Double.POSITIVE_INFINITY;
+        double maxLat = Double.NEGATIVE_INFINITY;
+        double maxLon = Double.NEGATIVE_INFINITY;
+
+        final void extend(LatLon ll) {
+            if (ll != null && !Double.isNaN(ll.lat()) && !Double.isNaN(ll.lon())) {
+                minLat = Math.min(minLat, ll.lat());
+                minLon = Math.min(minLon, ll.lon());
+                maxLat = Math.max(maxLat, ll.lat());
+                maxLon = Math.max(maxLon, ll.lon());
+            }
+        }
+
+        final void extend(Box b) {
+            minLat = Math.min(minLat, b.minLat);
+            minLon = Math.min(minLon, b.minLon);
+            maxLat = Math.max(maxLat, b.maxLat);
+            maxLon = Math.max(maxLon, b.maxLon);
+        }
+
+        final boolean intersects(double minLat, double minLon, double maxLat, double maxLon) {
+            return this.minLat <= maxLat && this.maxLat >= minLat && this.minLon <= maxLon && this.maxLon >= minLon;
+        }
+
+        final double centerLat() {
+            return (minLat + maxLat) / 2;
+        }
+
+        final double centerLon() {
+            return (minLon + maxLon) / 2;
+        }
+
+        /**
+         * Returns the bounding box of this run or node.
+         * @return the bounding box, or {@code null} if it contains no point with known coordinates
+         */
+        public Bounds getBounds() {
+            return minLat > maxLat ? null : new Bounds(minLat, minLon, maxLat, maxLon);
+        }
+    }
+
+    private static final class Node extends Box {
+        private final List<? extends Box> children;
+        private final boolean leaf;
+
+        Node(List<? extends Box> children, boolean leaf) {
+            this.children = children;
+            this.leaf = leaf;
+            children.forEach(this::extend);
+        }
+    }
+
+    private static final ForkJoinPool THREAD_POOL =
+            Utils.newForkJoinPool("gpx.index.numberOfThreads", "gpx-index-%d", Thread.NORM_PRIORITY);
+
+    /** mean earth radius in meters, to measure distances for simplification */
+    private static final double EARTH_RADIUS = 6_371_000;
+
+    private final Node root;
+    private final List<Run> runs;
+    /** the distinct segments, in track order */
+    private final List<GpxTrackSegment> segments = new ArrayList<>();
+    /** simplification tolerances of the points of each segment, computed when needed */
+    private Map<GpxTrackSegment, float[]> tolerances;
+
+    /**
+     * Constructs a new {@code GpxTrackIndex}.
+     * @param tracks the tracks to index
+     */
+    GpxTrackIndex(Collection<GpxTrack> tracks) {
+        List<Run> runs = new ArrayList<>();
+        int trackIndex = 0;
+        GpxTrackSegment previousSegment = null;
+        for (GpxTrack track : tracks) {
+            for (GpxTrackSegment segment : track.getSegments()) {
+                List<WayPoint> points = asList(segment.getWayPoints());
+                for (int from = 0; from < points.size(); from += RUN_SIZE) {
+                    int to = Math.min(from + RUN_SIZE, points.size());
+                    runs.add(new Run(runs.size(), trackIndex, track, segment, previousSegment, points, from, to));
+                }
+                if (!points.isEmpty()) {
+                    previousSegment = segment;
+                    segments.add(segment);
+                }
+            }
+            trackIndex++;
+        }
+        this.runs = Collections.unmodifiableList(runs);
+        root = runs.isEmpty() ? null : pack(runs, true);
+    }
+
+    /**
+     * Builds the tree bottom-up, using sort-tile-recursive packing.
+     * @param boxes the runs or nodes of one level
+     * @param leaf {@code true} if {@code boxes} are runs
+     * @return the root node
+     */
+    private static Node pack(List<? extends Box> boxes, boolean leaf) {
+        if (boxes.size() <= NODE_SIZE) {
+            return new Node(boxes, leaf);
+        }
+        int nodeCount = (boxes.size() + NODE_SIZE - 1) / NODE_SIZE;
+        int stripSize = (int) Math.ceil(Math.sqrt(nodeCount)) * NODE_SIZE;
+        List<? extends Box> sorted = new ArrayList<>(boxes);
+        sorted.sort(Comparator.comparingDouble(Box::centerLon));
+        List<Node> nodes = new ArrayList<>(nodeCount);
+        for (int strip = 0; strip < sorted.size(); strip += stripSize) {
+            List<? extends Box> stripBoxes = new ArrayList<>(sorted.subList(strip, Math.min(strip + stripSize, sorted.size())));
+            stripBoxes.sort(Comparator.comparingDouble(Box::centerLat));
+            for (int i = 0; i < stripBoxes.size(); i += NODE_SIZE) {
+                nodes.add(new Node(new ArrayList<>(stripBoxes.subList(i, Math.min(i + NODE_SIZE, stripBoxes.size()))), leaf));
+            }
+        }
+        return pack(nodes, false);
+    }
+
+    /**
+     * Returns the Douglas-Peucker tolerances of the points of the given segment.
+     * <p>
+     * A point is part of the Douglas-Peucker simplification of the segment with tolerance {@code t},
+     * if its tolerance is at least {@code t}. So the segment can be drawn with any level of detail, by skipping
+     * the points with smaller tolerances. The first and the last point have an infinite tolerance.
+     * <p>
+     * When first called, the tolerances are computed for all segments, in parallel.
+     * @param segment a segment of this index
+     * @return the tolerance of each point, in meters, or {@code null} if the segment is not part of this index
+     */
+    public float[] getTolerances(GpxTrackSegment segment) {
+        synchronized (segments) {
+            if (tolerances == null) {
+                float[][] result = new float[segments.size()][];
+                if (!segments.isEmpty()) {
+                    THREAD_POOL.invoke(new ToleranceWorker(segments, result, 0, segments.size()));
+                }
+                Map<GpxTrackSegment, float[]> map = new IdentityHashMap<>(segments.size());
+                for (int i = 0; i < result.length; i++) {
+                    map.put(segments.get(i), result[i]);
+                }
+                tolerances = map;
+            }
+            return tolerances.get(segment);
+        }
+    }
+
+    /**
+     * Computes the Douglas-Peucker tolerance of each point.
+     * <p>
+     * The tolerance of a point is the distance to the line between the end points of the part of the
+     * segment it splits, but not more than the tolerance of the point that split the enclosing part.
+     * Distances are computed in an equirectangular projection around the first point.
+     * @param points the points of a segment
+     * @return the tolerance of each point, in meters
+     */
+    static float[] computeTolerances(List<WayPoint> points) {
+        int n = points.size();
+        float[] result = new float[n];
+        double[] x = new double[n];
+        double[] y = new double[n];
+        double scaleX = Math.cos(Math.toRadians(points.get(0).lat()));
+        for (int i = 0; i < n; i++) {
+            WayPoint wpt = points.get(i);
+            x[i] = Math.toRadians(wpt.lon()) * scaleX * EARTH_RADIUS;
+            y[i] = Math.toRadians(wpt.lat()) * EARTH_RADIUS;
+            if (Double.isNaN(x[i]) || Double.isNaN(y[i])) {
+                // do not simplify segments with unknown coordinates
+                Arrays.fill(result, Float.POSITIVE_INFINITY);
+                return result;
+            }
+        }
+        result[0] = Float.POSITIVE_INFINITY;
+        result[n - 1] = Float.POSITIVE_INFINITY;
+        // parts of the segment still to split: from, to and the tolerance of the point that created the part
+        Deque<double[]> parts = new ArrayDeque<>();
+        if (n > 2) {
+            parts.push(new double[] {0, n - 1, Double.POSITIVE_INFINITY});
+        }
+        while (!parts.isEmpty()) {
+            double[] part = parts.pop();
+            int from = (int) part[0];
+            int to = (int) part[1];
+            int split = -1;
+            double maxDist = -1;
+            for (int i = from + 1; i < to; i++) {
+                double dist = distanceToLine(x[i], y[i], x[from], y[from], x[to], y[to]);
+                if (dist > maxDist) {
+                    maxDist = dist;
+                    split = i;
+                }
+            }
+            double tolerance = Math.min(maxDist, part[2]);
+            result[split] = (float) tolerance;
+            if (split - from > 1) {
+                parts.push(new double[] {from, split, tolerance});
+            }
+            if (to - split > 1) {
+                parts.push(new double[] {split, to, tolerance});
+            }
+        }
+        return result;
+    }
+
+    private static double distanceToLine(double px, double py, double ax, double ay, double bx, double by) {
+        double dx = bx - ax;
+        double dy = by - ay;
+        double lengthSq = dx * dx + dy * dy;
+        double t = lengthSq == 0 ? 0 : Utils.clamp(((px - ax) * dx + (py - ay) * dy) / lengthSq, 0, 1);
+        return Math.hypot(px - ax - t * dx, py - ay - t * dy);
+    }
+
+    /**
+     * Computes the tolerances of a range of segments, splitting it for parallel execution.
+     */
+    private static class ToleranceWorker extends RecursiveAction {
+
+        // Needed for Findbugs / Coverity because parent class is serializable
+        private static final long serialVersionUID = 1L;
+
+        private final transient List<GpxTrackSegment> segments;
+        private final transient float[][] result;
+        private final int from;
+        private final int to;
+
+        ToleranceWorker(List<GpxTrackSegment> segments, float[][] result, int from, int to) {
+            this.segments = segments;
+            this.result = result;
+            this.from = from;
+            this.to = to;
+        }
+
+        @Override
+        protected void compute() {
+            if (to - from == 1) {
+                result[from] = computeTolerances(asList(segments.get(from).getWayPoints()));
+            } else {
+                int middle = from + (to - from) / 2;
+                ForkJoinTask.invokeAll(new ToleranceWorker(segments, result, from, middle),
+                        new ToleranceWorker(segments, result, middle, to));
+            }
+        }
+    }
+
+    static List<WayPoint> asList(Collection<WayPoint> points) {
+        return points instanceof List ? (List<WayPoint>) points : new ArrayList<>(points);
+    }
+
+    /**
+     * Returns all runs of this index.
+     * @return all runs, in track and segment order
+     */
+    public List<Run> getRuns() {
+        return runs;
+    }
+
+    /**
+     * Returns the runs, whose bounding box intersects the given bounds.
+     * @param bounds the bounds to search
+     * @return the runs intersecting the bounds, in track and segment order
+     */
+    public List<Run> search(Bounds bounds) {
+        List<Run> result = new ArrayList<>();
+        if (root != null) {
+            if (bounds.crosses180thMeridian()) {
+                search(root, bounds.getMinLat(), bounds.getMinLon(), bounds.getMaxLat(), 180, result);
+                search(root, bounds.getMinLat(), -180, bounds.getMaxLat(), bounds.getMaxLon(), result);
+            } else {
+                search(root, bounds.getMinLat(), bounds.getMinLon(), bounds.getMaxLat(), bounds.getMaxLon(), result);
+            }
+            result.sort(Comparator.comparingInt(r -> r.ordinal));
+            if (bounds.crosses180thMeridian()) {
+                // runs touching the 180th meridian may have been found twice
+                for (int i = result.size() - 1; i > 0; i--) {
+                    if (result.get(i) == result.get(i - 1)) {
+                        result.remove(i);
+                    }
+                }
+            }
+        }
+        return result;
+    }
+
+    private static void search(Node node, double minLat, double minLon, double maxLat, double maxLon, List<Run> result) {
+        if (!node.intersects(minLat, minLon, maxLat, maxLon)) {
+            return;
+        }
+        for (Box child : node.children) {
+            if (child.intersects(minLat, minLon, maxLat, maxLon)) {
+                if (node.leaf) {
+                    result.add((Run) child);
+                } else {
+                    search((Node) child, minLat, minLon, maxLat, maxLon, result);
+                }
+            }
+        }
+    }
+}
@@ -22,14 +22,16 @@ public class ImmutableGpxTrack extends WithAttributes implements GpxTrack {
 
     /**
      * Constructs a new {@code ImmutableGpxTrack}.
+     * Large segments are stored in {@link CompactGpxTrackSegment}s, see {@link CompactGpxTrackSegment#MIN_POINTS}.
      * @param trackSegs track segments
      * @param attributes track attributes
      */
     public ImmutableGpxTrack(Collection<Collection<WayPoint>> trackSegs, Map<String, Object> attributes) {
         List<GpxTrackSegment> newSegments = new ArrayList<>();
+        int minCompactPoints = CompactGpxTrackSegment.MIN_POINTS.get();
         for (Collection<WayPoint> trackSeg: trackSegs) {
             if (trackSeg != null && !trackSeg.isEmpty()) {
-                newSegments.add(new ImmutableGpxTrackSegment(trackSeg));
+                newSegments.add(createSegment(trackSeg, minCompactPoints));
             }
         }
         this.attr = Collections.unmodifiableMap(new HashMap<>(attributes));
@@ -38,6 +40,44 @@ public class ImmutableGpxTrack extends WithAttributes implements GpxTrack {
         this.bounds = calculateBounds();
     }
 
+    private ImmutableGpxTrack(Map<String, Object> attributes, List<GpxTrackSegment> segments) {
+        this.attr = Collections.unmodifiableMap(new HashMap<>(attributes));
+        this.segments = Collections.unmodifiableList(new ArrayList<>(segments));
+        this.length = calculateLength();
+        this.bounds = calculateBounds();
+    }
+
+    /**
+     * Creates a new {@code ImmutableGpxTrack} from segments that have already been built,
+     * e.g. by {@link #createSegment} in worker threads.
+     * @param segments track segments, none of them empty
+     * @param attributes track attributes
+     * @return the new track
+     * @since 12675
+     */
+    public static ImmutableGpxTrack fromSegments(List<GpxTrackSegment> segments, Map<String, Object> attributes) {
+        return new ImmutableGpxTrack(attributes, segments);
+    }
+
+    /**
+     * Creates an immutable track segment, as used by the {@code ImmutableGpxTrack} constructor.
+     * Bounds and length of the segment are computed here, so this can be called from any thread.
+     * @param wayPoints the segment way points, must not be empty
+     * @return a {@link CompactGpxTrackSegment} for large segments, else an {@link ImmutableGpxTrackSegment}
+     * @since 12675
+     */
+    public static GpxTrackSegment createSegment(Collection<WayPoint> wayPoints) {
+        return createSegment(wayPoints, CompactGpxTrackSegment.MIN_POINTS.get());
+    }
+
+    private static GpxTrackSegment createSegment(Collection<WayPoint> wayPoints, int minCompactPoints) {
+        if (minCompactPoints >= 0 && wayPoints.size() >= minCompactPoints) {
+            return new CompactGpxTrackSegment(wayPoints);
+        } else {
+            return new ImmutableGpxTrackSegment(wayPoints);
+        }
+    }
+
     private double calculateLength() {
         double result = 0.0; // in meters
 
@@ -89,6 +89,19 @@ public class WayPoint extends WithAttributes implements Comparable<WayPoint>, Te
         this.north = Double.NaN;
     }
 
+    /**
+     * Sets the internal cache of east/north coordinates.
+     * To be used only by {@link GpxData#updateEastNorthCache}.
+     * @param east east coordinate in the projection identified by the cache key
+     * @param north north coordinate in the projection identified by the cache key
+     * @param cacheKey the cache key of the projection
+     */
+    void setEastNorthCache(double east, double north, Object cacheKey) {
+        this.east = east;
+        this.north = north;
+        this.eastNorthCacheKey = cacheKey;
+    }
+
     /**
      * Returns the waypoint coordinates.
      * @return the waypoint coordinates
@@ -206,6 +206,8 @@ public class ImageryInfo extends TileSourceInfo implements Comparable<ImageryInf
     private boolean isGeoreferenceValid;
     /** which layers should be activated by default on layer addition. **/
     private Collection<DefaultLayer> defaultLayers = Collections.emptyList();
+    /** number of tiles in each direction requested at once from WMS servers, 1 to request each tile separately */
+    private int metaTileSize = 1;
     // when adding a field, also adapt the ImageryInfo(ImageryInfo)
     // and ImageryInfo(ImageryPreferenceEntry) constructor, equals method, and ImageryPreferenceEntry
 
@@ -243,6 +245,7 @@ public class ImageryInfo extends TileSourceInfo implements Comparable<ImageryInf
         @pref Map<String, String> metadataHeaders;
         @pref boolean valid_georeference;
         @pref boolean bestMarked;
+        @pref int metaTileSize = 1;
         // TODO: disabled until change of layers is implemented
         // @pref String default_layers;
 
@@ -308,6 +311,7 @@ public class ImageryInfo extends TileSourceInfo implements Comparable<ImageryInf
             tileSize = i.getTileSize();
 
             valid_georeference = i.isGeoreferenceValid();
+            metaTileSize = i.metaTileSize;
             // TODO disabled until change of layers is implemented
             // default_layers = i.defaultLayers.stream().collect(Collectors.joining(","));
         }
@@ -449,6 +453,7 @@ public class ImageryInfo extends TileSourceInfo implements Comparable<ImageryInf
         setTileSize(e.tileSize);
         metadataHeaders = e.metadataHeaders;
         isGeoreferenceValid = e.valid_georeference;
+        metaTileSize = e.metaTileSize;
         // TODO disabled until change of layers is implemented
         // defaultLayers = Arrays.asList(e.default_layers.split(","));
     }
@@ -487,6 +492,7 @@ public class ImageryInfo extends TileSourceInfo implements Comparable<ImageryInf
         this.metadataHeaders = i.metadataHeaders;
         this.isGeoreferenceValid = i.isGeoreferenceValid;
         this.defaultLayers = i.defaultLayers;
+        this.metaTileSize = i.metaTileSize;
     }
 
     @Override
@@ -536,7 +542,8 @@ public class ImageryInfo extends TileSourceInfo implements Comparable<ImageryInf
                 Objects.equals(this.noTileHeaders, other.noTileHeaders) &&
                 Objects.equals(this.noTileChecksums, other.noTileChecksums) &&
                 Objects.equals(this.metadataHeaders, other.metadataHeaders) &&
-                Objects.equals(this.defaultLayers, other.defaultLayers);
+                Objects.equals(this.defaultLayers, other.defaultLayers) &&
+                this.metaTileSize == other.metaTileSize;
         // CHECKSTYLE.ON: BooleanExpressionComplexity
     }
 
@@ -1193,6 +1200,26 @@ public class ImageryInfo extends TileSourceInfo implements Comparable<ImageryInf
         this.isGeoreferenceValid = isGeoreferenceValid;
     }
 
+    /**
+     * Returns the number of tiles in each direction that are requested at once from a WMS server.
+     * @return the size of a meta tile, in tiles. {@code 1} if each tile is requested separately
+     * @since 12666
+     */
+    public int getMetaTileSize() {
+        return metaTileSize;
+    }
+
+    /**
+     * Sets the number of tiles in each direction that are requested at once from a WMS server.
+     * Missing tiles are then fetched as blocks of {@code metaTileSize x metaTileSize} tiles with a single
+     * GetMap request, which is split into separate tiles afterwards.
+     * @param metaTileSize the size of a meta tile, in tiles. {@code 1} to request each tile separately
+     * @since 12666
+     */
+    public void setMetaTileSize(int metaTileSize) {
+        this.metaTileSize = metaTileSize;
+    }
+
     /**
      * Returns the status of "best" marked status in other editors.
      * @return <code>true</code> if it is marked as best.
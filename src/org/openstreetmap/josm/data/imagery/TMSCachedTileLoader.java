@@ -2,6 +2,7 @@
 package org.openstreetmap.josm.data.imagery;
 
 import java.util.Map;
+import java.util.concurrent.ArrayBlockingQueue;
 import java.util.concurrent.ThreadPoolExecutor;
 import java.util.concurrent.TimeUnit;
 
@@ -42,13 +43,27 @@ public class TMSCachedTileLoader implements TileLoader, CachedTileLoader {
      */
     public static final IntegerProperty HOST_LIMIT = new IntegerProperty("imagery.tms.tmsloader.maxjobsperhost", 6);
 
+    /**
+     * Limit definition for concurrent decoding of downloaded or cached tile images
+     * @since 12664
+     */
+    public static final IntegerProperty DECODE_THREAD_LIMIT = new IntegerProperty("imagery.tms.tmsloader.maxdecodejobs",
+            Math.max(1, Runtime.getRuntime().availableProcessors() - 1));
+
     /**
      * separate from JCS thread pool for TMS loader, so we can have different thread pools for default JCS
      * and for TMS imagery
      */
     private static final ThreadPoolExecutor DEFAULT_DOWNLOAD_JOB_DISPATCHER = getNewThreadPoolExecutor("TMS-downloader-%d");
 
+    /**
+     * separate pool for decoding tile images, so neither download threads nor painting wait on image decoding
+     */
+    private static final ThreadPoolExecutor DEFAULT_DECODE_JOB_DISPATCHER = getNewDecodeExecutor("TMS-decoder-%d",
+            DECODE_THREAD_LIMIT.get());
+
     private ThreadPoolExecutor downloadExecutor = DEFAULT_DOWNLOAD_JOB_DISPATCHER;
+    private ThreadPoolExecutor decodeExecutor = DEFAULT_DECODE_JOB_DISPATCHER;
 
     /**
      * Constructor
@@ -95,10 +110,54 @@ public class TMSCachedTileLoader implements TileLoader, CachedTileLoader {
         return getNewThreadPoolExecutor(name, THREAD_LIMIT.get().intValue());
     }
 
+    /**
+     * Creates a new executor for decoding tile images. The queue of the executor is bounded - if decoding cannot
+     * keep up with downloads, the submitting (download) thread decodes the image itself.
+     * @param nameFormat see {@link Utils#newThreadFactory(String, int)}
+     * @param workers number of decoding threads
+     * @return new ThreadPoolExecutor for decoding tile images
+     * @since 12664
+     */
+    public static ThreadPoolExecutor getNewDecodeExecutor(String nameFormat, int workers) {
+        ThreadPoolExecutor executor = new ThreadPoolExecutor(
+                workers,
+                workers,
+                300, // keepalive for thread
+                TimeUnit.SECONDS,
+                new ArrayBlockingQueue<Runnable>(workers * 8),
+                Utils.newThreadFactory(nameFormat, Thread.NORM_PRIORITY),
+                new ThreadPoolExecutor.CallerRunsPolicy()
+                );
+        executor.allowCoreThreadTimeOut(true); // so unused thread pools will eventually release their threads
+        return executor;
+    }
+
     @Override
     public TileJob createTileLoaderJob(Tile tile) {
+        return createTileLoaderJob(listener, tile);
+    }
+
+    /**
+     * Creates a job to load the given tile.
+     * @param listener that will be notified when tile is loaded, may be {@code null}
+     * @param tile tile to load
+     * @return the new job
+     * @since 12689
+     */
+    protected TMSCachedTileLoaderJob createTileLoaderJob(TileLoaderListener listener, Tile tile) {
         return new TMSCachedTileLoaderJob(listener, tile, cache,
-                connectTimeout, readTimeout, headers, getDownloadExecutor());
+                connectTimeout, readTimeout, headers, getDownloadExecutor(), getDecodeExecutor());
+    }
+
+    /**
+     * Returns the key under which the given tile is stored in the cache.
+     * @param tile tile
+     * @return cache key of the tile
+     * @since 12689
+     */
+    public String getCacheKey(Tile tile) {
+        // without listener, the job is not registered as in progress, so it does not need to be run
+        return createTileLoaderJob(null, tile).getCacheKey();
     }
 
     @Override
@@ -143,4 +202,23 @@ public class TMSCachedTileLoader implements TileLoader, CachedTileLoader {
     public ThreadPoolExecutor getDownloadExecutor() {
         return downloadExecutor;
     }
+
+    /**
+     * Sets the executor that will be used to decode tile images instead of default one.
+     *
+     * @param decodeExecutor decode executor that will be used to decode tile images, or {@code null} to decode
+     * them on the download threads
+     * @since 12664
+     */
+    public void setDecodeExecutor(ThreadPoolExecutor decodeExecutor) {
+        this.decodeExecutor = decodeExecutor;
+    }
+
+    /**
+     * @return decode executor that is used by this factory
+     * @since 12664
+     */
+    public ThreadPoolExecutor getDecodeExecutor() {
+        return decodeExecutor;
+    }
 }
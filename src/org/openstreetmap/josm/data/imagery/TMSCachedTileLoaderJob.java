@@ -3,6 +3,7 @@ package org.openstreetmap.josm.data.imagery;
 
 import static org.openstreetmap.josm.tools.I18n.tr;
 
+import java.awt.image.BufferedImage;
 import java.io.ByteArrayInputStream;
 import java.io.IOException;
 import java.net.URL;
@@ -19,6 +20,8 @@ import java.util.concurrent.TimeUnit;
 import java.util.logging.Level;
 import java.util.logging.Logger;
 
+import javax.imageio.ImageIO;
+
 import org.apache.commons.jcs.access.behavior.ICacheAccess;
 import org.openstreetmap.gui.jmapviewer.FeatureAdapter;
 import org.openstreetmap.gui.jmapviewer.Tile;
@@ -33,6 +36,7 @@ import org.openstreetmap.josm.data.cache.ICachedLoaderListener;
 import org.openstreetmap.josm.data.cache.JCSCachedTileLoaderJob;
 import org.openstreetmap.josm.data.preferences.LongProperty;
 import org.openstreetmap.josm.tools.HttpClient;
+import org.openstreetmap.josm.tools.ImageProvider;
 import org.openstreetmap.josm.tools.Logging;
 
 /**
@@ -46,6 +50,7 @@ public class TMSCachedTileLoaderJob extends JCSCachedTileLoaderJob<String, Buffe
     private static final LongProperty MAXIMUM_EXPIRES = new LongProperty("imagery.generic.maximum_expires", TimeUnit.DAYS.toMillis(30));
     private static final LongProperty MINIMUM_EXPIRES = new LongProperty("imagery.generic.minimum_expires", TimeUnit.HOURS.toMillis(1));
     protected final Tile tile;
+    private final ThreadPoolExecutor decodeExecutor;
     private volatile URL url;
 
     // we need another deduplication of Tile Loader listeners, as for each submit, new TMSCachedTileLoaderJob was created
@@ -66,8 +71,29 @@ public class TMSCachedTileLoaderJob extends JCSCachedTileLoaderJob<String, Buffe
             ICacheAccess<String, BufferedImageCacheEntry> cache,
             int connectTimeout, int readTimeout, Map<String, String> headers,
             ThreadPoolExecutor downloadExecutor) {
+        this(listener, tile, cache, connectTimeout, readTimeout, headers, downloadExecutor, null);
+    }
+
+    /**
+     * Constructor for creating a job, to get a specific tile from cache and decode its image on a separate executor
+     * @param listener Tile loader listener
+     * @param tile to be fetched from cache
+     * @param cache object
+     * @param connectTimeout when connecting to remote resource
+     * @param readTimeout when connecting to remote resource
+     * @param headers HTTP headers to be sent together with request
+     * @param downloadExecutor that will be executing the jobs
+     * @param decodeExecutor that will be decoding tile images, once they are downloaded or fetched from disk cache.
+     * If {@code null}, images are decoded on the thread that finished loading
+     * @since 12664
+     */
+    public TMSCachedTileLoaderJob(TileLoaderListener listener, Tile tile,
+            ICacheAccess<String, BufferedImageCacheEntry> cache,
+            int connectTimeout, int readTimeout, Map<String, String> headers,
+            ThreadPoolExecutor downloadExecutor, ThreadPoolExecutor decodeExecutor) {
         super(cache, connectTimeout, readTimeout, headers, downloadExecutor);
         this.tile = tile;
+        this.decodeExecutor = decodeExecutor;
         if (listener != null) {
             String deduplicationKey = getCacheKey();
             synchronized (inProgress) {
@@ -84,13 +110,23 @@ public class TMSCachedTileLoaderJob extends JCSCachedTileLoaderJob<String, Buffe
     @Override
     public String getCacheKey() {
         if (tile != null) {
-            TileSource tileSource = tile.getTileSource();
-            return Optional.ofNullable(tileSource.getName()).orElse("").replace(':', '_') + ':'
-                    + tileSource.getTileId(tile.getZoom(), tile.getXtile(), tile.getYtile());
+            return getCacheKey(tile);
         }
         return null;
     }
 
+    /**
+     * Returns the key under which the given tile is stored in the cache.
+     * @param tile tile of the tile source of this job
+     * @return cache key of the tile
+     * @since 12666
+     */
+    protected String getCacheKey(Tile tile) {
+        TileSource tileSource = tile.getTileSource();
+        return Optional.ofNullable(tileSource.getName()).orElse("").replace(':', '_') + ':'
+                + tileSource.getTileId(tile.getZoom(), tile.getXtile(), tile.getYtile());
+    }
+
     /*
      *  this doesn't needs to be synchronized, as it's not that costly to keep only one execution
      *  in parallel, but URL creation and Tile.getUrl() are costly and are not needed when fetching
@@ -159,6 +195,15 @@ public class TMSCachedTileLoaderJob extends JCSCachedTileLoaderJob<String, Buffe
 
     @Override
     public void loadingFinished(CacheEntry object, CacheEntryAttributes attributes, LoadResult result) {
+        if (decodeExecutor == null || result == LoadResult.CANCELED) {
+            finishTileLoading(object, attributes, result);
+        } else {
+            // decode the image on a separate pool, so the download thread can move on to the next tile
+            decodeExecutor.execute(() -> finishTileLoading(object, attributes, result));
+        }
+    }
+
+    private void finishTileLoading(CacheEntry object, CacheEntryAttributes attributes, LoadResult result) {
         this.attributes = attributes; // as we might get notification from other object than our selfs, pass attributes along
         Set<TileLoaderListener> listeners;
         synchronized (inProgress) {
@@ -277,7 +322,7 @@ public class TMSCachedTileLoaderJob extends JCSCachedTileLoaderJob<String, Buffe
         if (object != null) {
             byte[] content = object.getContent();
             if (content.length > 0) {
-                tile.loadImage(new ByteArrayInputStream(content));
+                tile.setImage(decodeImage(content));
                 if (tile.getImage() == null) {
                     tile.setError(tr("Could not load image from tile server"));
                     return false;
@@ -286,4 +331,14 @@ public class TMSCachedTileLoaderJob extends JCSCachedTileLoaderJob<String, Buffe
         }
         return true;
     }
+
+    /**
+     * Decodes the tile image and converts it once to a standard type, so it is not converted on each paint.
+     * @param content encoded image
+     * @return decoded image or {@code null} if the content couldn't be decoded
+     * @throws IOException if an error occurs during reading
+     */
+    private static BufferedImage decodeImage(byte[] content) throws IOException {
+        return ImageProvider.toStandardImageType(ImageIO.read(new ByteArrayInputStream(content)));
+    }
 }
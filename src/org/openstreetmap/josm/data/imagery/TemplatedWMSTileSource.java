@@ -30,6 +30,7 @@ import org.openstreetmap.josm.tools.CheckParameterUtil;
 public class TemplatedWMSTileSource extends AbstractWMSTileSource implements TemplatedTileSource {
     private final Map<String, String> headers = new ConcurrentHashMap<>();
     private final Set<String> serverProjections;
+    private final int metaTileSize;
     // CHECKSTYLE.OFF: SingleSpaceSeparator
     private static final Pattern PATTERN_HEADER = Pattern.compile("\\{header\\(([^,]+),([^}]+)\\)\\}");
     private static final Pattern PATTERN_PROJ   = Pattern.compile("\\{proj\\}");
@@ -58,6 +59,7 @@ public class TemplatedWMSTileSource extends AbstractWMSTileSource implements Tem
     public TemplatedWMSTileSource(ImageryInfo info, Projection tileProjection) {
         super(info, tileProjection);
         this.serverProjections = new TreeSet<>(info.getServerProjections());
+        this.metaTileSize = Math.max(1, info.getMetaTileSize());
         handleTemplate();
         initProjection();
     }
@@ -67,12 +69,36 @@ public class TemplatedWMSTileSource extends AbstractWMSTileSource implements Tem
         return WMSLayer.PROP_IMAGE_SIZE.get();
     }
 
+    /**
+     * Returns the number of tiles in each direction that are requested at once, when tiles are missing in cache.
+     * @return the size of a meta tile, in tiles. {@code 1} if meta tiling is disabled
+     * @since 12666
+     */
+    public int getMetaTileSize() {
+        return metaTileSize;
+    }
+
     @Override
     public String getTileUrl(int zoom, int tilex, int tiley) {
+        return getTileUrl(zoom, tilex, tiley, 1, 1);
+    }
+
+    /**
+     * Returns the URL of a GetMap request covering a block of tiles, with its north-west corner at the given tile.
+     * The requested image size is the tile size multiplied by the number of columns and rows.
+     * @param zoom zoom level
+     * @param tilex X index of the north-west tile of the block
+     * @param tiley Y index of the north-west tile of the block
+     * @param columns number of tiles in east-west direction
+     * @param rows number of tiles in north-south direction
+     * @return URL of the request
+     * @since 12666
+     */
+    public String getTileUrl(int zoom, int tilex, int tiley, int columns, int rows) {
         String myProjCode = getServerCRS();
 
         EastNorth nw = getTileEastNorth(tilex, tiley, zoom);
-        EastNorth se = getTileEastNorth(tilex + 1, tiley + 1, zoom);
+        EastNorth se = getTileEastNorth(tilex + columns, tiley + rows, zoom);
 
         double w = nw.getX();
         double n = nw.getY();
@@ -145,8 +171,10 @@ public class TemplatedWMSTileSource extends AbstractWMSTileSource implements Tem
                 replacement = LATLON_FORMAT.format(n);
                 break;
             case "width":
+                replacement = String.valueOf(getTileSize() * columns);
+                break;
             case "height":
-                replacement = String.valueOf(getTileSize());
+                replacement = String.valueOf(getTileSize() * rows);
                 break;
             default:
                 replacement = '{' + matcher.group(1) + '}';
@@ -0,0 +1,469 @@
+// License: GPL. For details, see LICENSE file.
+package org.openstreetmap.josm.data.imagery;
+
+import static org.openstreetmap.josm.tools.I18n.tr;
+
+import java.io.BufferedOutputStream;
+import java.io.Closeable;
+import java.io.DataInputStream;
+import java.io.DataOutputStream;
+import java.io.File;
+import java.io.IOException;
+import java.io.InputStream;
+import java.lang.reflect.Field;
+import java.lang.reflect.Method;
+import java.nio.ByteBuffer;
+import java.nio.MappedByteBuffer;
+import java.nio.channels.Channels;
+import java.nio.channels.FileChannel;
+import java.nio.charset.StandardCharsets;
+import java.nio.file.StandardOpenOption;
+import java.util.ArrayList;
+import java.util.Arrays;
+import java.util.Collections;
+import java.util.LinkedHashMap;
+import java.util.List;
+import java.util.Map;
+import java.util.Map.Entry;
+import java.util.concurrent.locks.ReadWriteLock;
+import java.util.concurrent.locks.ReentrantReadWriteLock;
+
+import org.openstreetmap.josm.data.Bounds;
+import org.openstreetmap.josm.data.Preferences;
+import org.openstreetmap.josm.data.imagery.ImageryInfo.ImageryBounds;
+import org.openstreetmap.josm.data.imagery.ImageryInfo.ImageryPreferenceEntry;
+import org.openstreetmap.josm.data.imagery.ImageryInfo.ImageryType;
+import org.openstreetmap.josm.tools.CheckParameterUtil;
+import org.openstreetmap.josm.tools.Logging;
+import org.openstreetmap.josm.tools.Utils;
+
+/**
+ * Offline imagery package - a single file containing the tiles of an imagery source for an area and a range of zoom levels,
+ * together with the description of the imagery.
+ * <p>
+ * The file consists of a header with the metadata, the tile images and an index of the tiles sorted by zoom, x and y.
+ * The package is read through memory mapped buffers, so tiles are served without reading the whole file into memory.
+ * Packages are created with {@link Writer}.
+ *
+ * @since 12667
+ */
+public class TilePackage implements Closeable {
+
+    /** Extension of tile package files */
+    public static final String EXTENSION = "josmtiles";
+
+    private static final byte[] MAGIC = "JOSMTPKG".getBytes(StandardCharsets.US_ASCII);
+    private static final int VERSION = 1;
+    // magic, version, index offset, tile count
+    private static final int INDEX_POSITION_OFFSET = MAGIC.length + 4;
+    // zoom, x, y, offset, length
+    private static final int INDEX_ENTRY_SIZE = 4 + 4 + 4 + 8 + 4;
+    // size of a single mapped buffer, files larger than that are mapped in several chunks
+    private static final long CHUNK_SIZE = 1L << 30;
+
+    private static final String META_PROJECTION = "projection";
+    private static final String META_MIN_ZOOM = "minZoom";
+    private static final String META_MAX_ZOOM = "maxZoom";
+    private static final String META_BOUNDS = "bounds";
+    private static final String META_IMAGERY_PREFIX = "imagery.";
+
+    private final File file;
+    private final FileChannel channel;
+    private final MappedByteBuffer[] chunks;
+    private final long indexOffset;
+    private final int tileCount;
+    private final Map<String, String> metadata;
+    /** guards the mapped buffers, which are released when the package is closed */
+    private final ReadWriteLock lock = new ReentrantReadWriteLock();
+    private boolean closed;
+
+    /**
+     * Opens a tile package.
+     * @param file the package file
+     * @throws IOException if the file cannot be read or is not a tile package
+     */
+    public TilePackage(File file) throws IOException {
+        CheckParameterUtil.ensureParameterNotNull(file, "file");
+        this.file = file;
+        this.channel = FileChannel.open(file.toPath(), StandardOpenOption.READ);
+        try {
+            long size = channel.size();
+            chunks = new MappedByteBuffer[(int) ((size + CHUNK_SIZE - 1) / CHUNK_SIZE)];
+            for (int i = 0; i < chunks.length; i++) {
+                long start = i * CHUNK_SIZE;
+                chunks[i] = channel.map(FileChannel.MapMode.READ_ONLY, start, Math.min(CHUNK_SIZE, size - start));
+            }
+            if (size < INDEX_POSITION_OFFSET + 12) {
+                throw new IOException(tr("File {0} is not an imagery package", file));
+            }
+            byte[] magic = new byte[MAGIC.length];
+            read(0, magic);
+            if (!Arrays.equals(MAGIC, magic)) {
+                throw new IOException(tr("File {0} is not an imagery package", file));
+            }
+            int version = getInt(MAGIC.length);
+            if (version != VERSION) {
+                throw new IOException(tr("Unsupported imagery package version; found {0}, expected {1}", version, VERSION));
+            }
+            indexOffset = getLong(INDEX_POSITION_OFFSET);
+            tileCount = getInt(INDEX_POSITION_OFFSET + 8);
+            if (indexOffset < 0 || tileCount < 0 || indexOffset + (long) tileCount * INDEX_ENTRY_SIZE > size) {
+                throw new IOException(tr("Imagery package {0} is damaged", file));
+            }
+            metadata = Collections.unmodifiableMap(readMetadata(INDEX_POSITION_OFFSET + 12));
+        } catch (IOException | RuntimeException e) {
+            close();
+            throw e;
+        }
+    }
+
+    private Map<String, String> readMetadata(long position) throws IOException {
+        ByteBuffer buffer = chunks[0].duplicate();
+        buffer.position((int) position);
+        try (DataInputStream in = new DataInputStream(new ByteBufferInputStream(buffer))) {
+            Map<String, String> ret = new LinkedHashMap<>();
+            int count = in.readInt();
+            for (int i = 0; i < count; i++) {
+                ret.put(in.readUTF(), in.readUTF());
+            }
+            return ret;
+        }
+    }
+
+    /**
+     * Returns the package file.
+     * @return the package file
+     */
+    public File getFile() {
+        return file;
+    }
+
+    /**
+     * Returns the number of tiles in this package.
+     * @return the number of tiles
+     */
+    public int getTileCount() {
+        return tileCount;
+    }
+
+    /**
+     * Returns the metadata of the package.
+     * @return unmodifiable map of metadata
+     */
+    public Map<String, String> getMetadata() {
+        return metadata;
+    }
+
+    /**
+     * Returns the code of the projection, in which the tiles were requested from the server.
+     * @return projection code or null, if unknown
+     */
+    public String getProjectionCode() {
+        return metadata.get(META_PROJECTION);
+    }
+
+    /**
+     * Returns the lowest zoom level of tiles in this package.
+     * @return the lowest zoom level
+     */
+    public int getMinZoom() {
+        return Integer.parseInt(metadata.getOrDefault(META_MIN_ZOOM, "0"));
+    }
+
+    /**
+     * Returns the highest zoom level of tiles in this package.
+     * @return the highest zoom level
+     */
+    public int getMaxZoom() {
+        return Integer.parseInt(metadata.getOrDefault(META_MAX_ZOOM, "0"));
+    }
+
+    /**
+     * Returns the area, that was exported to this package.
+     * @return area exported to this package or null, if unknown
+     */
+    public Bounds getBounds() {
+        String bounds = metadata.get(META_BOUNDS);
+        return bounds == null ? null : new Bounds(bounds, ",");
+    }
+
+    /**
+     * Returns the description of an imagery layer, that displays the tiles of this package. The imagery is restricted
+     * to the area, zoom levels and projection of the package.
+     * @return new imagery info
+     */
+    public ImageryInfo getImageryInfo() {
+        Map<String, String> imagery = new LinkedHashMap<>();
+        for (Entry<String, String> e : metadata.entrySet()) {
+            if (e.getKey().startsWith(META_IMAGERY_PREFIX)) {
+                imagery.put(e.getKey().substring(META_IMAGERY_PREFIX.length()), e.getValue());
+            }
+        }
+        ImageryInfo info = new ImageryInfo(Preferences.deserializeStruct(imagery, ImageryPreferenceEntry.class));
+        info.setName(tr("{0} (offline)", info.getName()));
+        info.setDefaultMinZoom(getMinZoom());
+        info.setDefaultMaxZoom(getMaxZoom());
+        Bounds bounds = getBounds();
+        if (bounds != null) {
+            info.setBounds(new ImageryBounds(bounds.encodeAsString(","), ","));
+        }
+        String projection = getProjectionCode();
+        if (projection != null && info.getImageryType() == ImageryType.WMS) {
+            // tiles are only available in the projection they have been exported
+            info.setServerProjections(Collections.singleton(projection));
+        }
+        return info;
+    }
+
+    /**
+     * Returns the content of a tile.
+     * @param zoom zoom level of the tile
+     * @param x x index of the tile
+     * @param y y index of the tile
+     * @return tile content (usually an encoded image), or null if the tile is not in this package or the package is closed
+     */
+    public byte[] getTile(int zoom, int x, int y) {
+        lock.readLock().lock();
+        try {
+            return closed ? null : findTile(zoom, x, y);
+        } finally {
+            lock.readLock().unlock();
+        }
+    }
+
+    private byte[] findTile(int zoom, int x, int y) {
+        int low = 0;
+        int high = tileCount - 1;
+        while (low <= high) {
+            int mid = (low + high) >>> 1;
+            long entry = indexOffset + (long) mid * INDEX_ENTRY_SIZE;
+            int cmp = compare(getInt(entry), getInt(entry + 4), getInt(entry + 8), zoom, x, y);
+            if (cmp < 0) {
+                low = mid + 1;
+            } else if (cmp > 0) {
+                high = mid - 1;
+            } else {
+                byte[] ret = new byte[getInt(entry + 20)];
+                read(getLong(entry + 12), ret);
+                return ret;
+            }
+        }
+        return null;
+    }
+
+    private static int compare(int zoom1, int x1, int y1, int zoom2, int x2, int y2) {
+        int ret = Integer.compare(zoom1, zoom2);
+        if (ret == 0) {
+            ret = Integer.compare(x1, x2);
+        }
+        if (ret == 0) {
+            ret = Integer.compare(y1, y2);
+        }
+        return ret;
+    }
+
+    private void read(long position, byte[] dst) {
+        int done = 0;
+        while (done < dst.length) {
+            long pos = position + done;
+            ByteBuffer chunk = chunks[(int) (pos / CHUNK_SIZE)].duplicate();
+            chunk.position((int) (pos % CHUNK_SIZE));
+            int len = Math.min(dst.length - done, chunk.remaining());
+            chunk.get(dst, done, len);
+            done += len;
+        }
+    }
+
+    private int getInt(long position) {
+        MappedByteBuffer chunk = chunks[(int) (position / CHUNK_SIZE)];
+        int offset = (int) (position % CHUNK_SIZE);
+        if (offset + 4 <= chunk.limit()) {
+            return chunk.getInt(offset);
+        }
+        byte[] b = new byte[4];
+        read(position, b);
+        return ByteBuffer.wrap(b).getInt();
+    }
+
+    private long getLong(long position) {
+        MappedByteBuffer chunk = chunks[(int) (position / CHUNK_SIZE)];
+        int offset = (int) (position % CHUNK_SIZE);
+        if (offset + 8 <= chunk.limit()) {
+            return chunk.getLong(offset);
+        }
+        byte[] b = new byte[8];
+        read(position, b);
+        return ByteBuffer.wrap(b).getLong();
+    }
+
+    /**
+     * Closes the package and releases the mapped buffers. Tiles cannot be read afterwards.
+     * @throws IOException if an I/O error occurs
+     */
+    @Override
+    public void close() throws IOException {
+        lock.writeLock().lock();
+        try {
+            if (!closed) {
+                closed = true;
+                // chunks is null, if the package could not be opened
+                for (int i = 0; chunks != null && i < chunks.length && chunks[i] != null; i++) {
+                    unmap(chunks[i]);
+                    chunks[i] = null;
+                }
+                channel.close();
+            }
+        } finally {
+            lock.writeLock().unlock();
+        }
+    }
+
+    /**
+     * Releases a mapped buffer, so that the file is no longer mapped (and can e.g. be deleted on Windows).
+     * The buffer must not be used afterwards. If it cannot be released, it is released by garbage collection.
+     * @param buffer the mapped buffer
+     */
+    private static void unmap(MappedByteBuffer buffer) {
+        try {
+            if (Utils.getJavaVersion() >= 9) {
+                Class<?> unsafeClass = Class.forName("sun.misc.Unsafe");
+                Field theUnsafe = unsafeClass.getDeclaredField("theUnsafe");
+                Utils.setObjectsAccessible(theUnsafe);
+                unsafeClass.getMethod("invokeCleaner", ByteBuffer.class).invoke(theUnsafe.get(null), buffer);
+            } else {
+                Method cleanerMethod = buffer.getClass().getMethod("cleaner");
+                Utils.setObjectsAccessible(cleanerMethod);
+                Object cleaner = cleanerMethod.invoke(buffer);
+                if (cleaner != null) {
+                    cleaner.getClass().getMethod("clean").invoke(cleaner);
+                }
+            }
+        } catch (ReflectiveOperationException | RuntimeException e) {
+            Logging.trace(e);
+        }
+    }
+
+    /**
+     * Writes a new tile package. Tiles can be added in any order, the index is sorted when the writer is closed.
+     */
+    public static class Writer implements Closeable {
+        private final FileChannel channel;
+        private final DataOutputStream out;
+        private final List<long[]> index = new ArrayList<>();
+        private long position;
+
+        /**
+         * Creates a new package file.
+         * @param file the file to write, existing file will be overwritten
+         * @param info the imagery, whose tiles will be written
+         * @param projectionCode the code of projection, in which tiles were requested from the server
+         * @param bounds the area covered by the package
+         * @param minZoom the lowest zoom level of the tiles
+         * @param maxZoom the highest zoom level of the tiles
+         * @throws IOException if an I/O error occurs
+         */
+        public Writer(File file, ImageryInfo info, String projectionCode, Bounds bounds, int minZoom, int maxZoom)
+                throws IOException {
+            channel = FileChannel.open(file.toPath(),
+                    StandardOpenOption.CREATE, StandardOpenOption.TRUNCATE_EXISTING, StandardOpenOption.WRITE);
+            out = new DataOutputStream(new BufferedOutputStream(Channels.newOutputStream(channel)));
+            Map<String, String> meta = new LinkedHashMap<>();
+            if (projectionCode != null) {
+                meta.put(META_PROJECTION, projectionCode);
+            }
+            if (bounds != null) {
+                meta.put(META_BOUNDS, bounds.encodeAsString(","));
+            }
+            meta.put(META_MIN_ZOOM, Integer.toString(minZoom));
+            meta.put(META_MAX_ZOOM, Integer.toString(maxZoom));
+            for (Entry<String, String> e : Preferences.serializeStruct(
+                    new ImageryPreferenceEntry(info), ImageryPreferenceEntry.class).entrySet()) {
+                meta.put(META_IMAGERY_PREFIX + e.getKey(), e.getValue());
+            }
+            out.write(MAGIC);
+            out.writeInt(VERSION);
+            out.writeLong(0); // index offset, written when closing
+            out.writeInt(0); // tile count, written when closing
+            out.writeInt(meta.size());
+            for (Entry<String, String> e : meta.entrySet()) {
+                out.writeUTF(e.getKey());
+                out.writeUTF(e.getValue());
+            }
+            position = out.size();
+        }
+
+        /**
+         * Adds a tile to the package.
+         * @param zoom zoom level of the tile
+         * @param x x index of the tile
+         * @param y y index of the tile
+         * @param content tile content
+         * @throws IOException if an I/O error occurs
+         */
+        public void addTile(int zoom, int x, int y, byte[] content) throws IOException {
+            out.write(content);
+            index.add(new long[] {zoom, x, y, position, content.length});
+            position += content.length;
+        }
+
+        /**
+         * Returns the number of tiles added so far.
+         * @return the number of tiles added
+         */
+        public int getTileCount() {
+            return index.size();
+        }
+
+        @Override
+        public void close() throws IOException {
+            try {
+                index.sort((a, b) -> compare((int) a[0], (int) a[1], (int) a[2], (int) b[0], (int) b[1], (int) b[2]));
+                long indexOffset = position;
+                int count = 0;
+                long[] previous = null;
+                for (long[] entry : index) {
+                    if (previous != null && compare((int) previous[0], (int) previous[1], (int) previous[2],
+                            (int) entry[0], (int) entry[1], (int) entry[2]) == 0) {
+                        continue; // same tile added twice, keep the first one
+                    }
+                    out.writeInt((int) entry[0]);
+                    out.writeInt((int) entry[1]);
+                    out.writeInt((int) entry[2]);
+                    out.writeLong(entry[3]);
+                    out.writeInt((int) entry[4]);
+                    previous = entry;
+                    count++;
+                }
+                out.flush();
+                ByteBuffer header = ByteBuffer.allocate(12);
+                header.putLong(indexOffset).putInt(count).flip();
+                channel.write(header, INDEX_POSITION_OFFSET);
+            } finally {
+                out.close();
+            }
+        }
+    }
+
+    private static final class ByteBufferInputStream extends InputStream {
+        private final ByteBuffer buffer;
+
+        ByteBufferInputStream(ByteBuffer buffer) {
+            this.buffer = buffer;
+        }
+
+        @Override
+        public int read() {
+            return buffer.hasRemaining() ? buffer.get() & 0xff : -1;
+        }
+
+        @Override
+        public int read(byte[] b, int off, int len) {
+            if (!buffer.hasRemaining()) {
+                return -1;
+            }
+            int n = Math.min(len, buffer.remaining());
+            buffer.get(b, off, n);
+            return n;
+        }
+    }
+}
@@ -0,0 +1,110 @@
+// License: GPL. For details, see LICENSE file.
+package org.openstreetmap.josm.data.imagery;
+
+import static org.openstreetmap.josm.tools.I18n.tr;
+
+import java.io.ByteArrayInputStream;
+import java.io.IOException;
+import java.util.concurrent.LinkedBlockingQueue;
+import java.util.concurrent.ThreadPoolExecutor;
+import java.util.concurrent.TimeUnit;
+
+import javax.imageio.ImageIO;
+
+import org.openstreetmap.gui.jmapviewer.Tile;
+import org.openstreetmap.gui.jmapviewer.interfaces.TileJob;
+import org.openstreetmap.gui.jmapviewer.interfaces.TileLoader;
+import org.openstreetmap.gui.jmapviewer.interfaces.TileLoaderListener;
+import org.openstreetmap.josm.tools.ImageProvider;
+import org.openstreetmap.josm.tools.Logging;
+import org.openstreetmap.josm.tools.Utils;
+
+/**
+ * Tile loader serving tiles from an offline {@link TilePackage}. No network connection is used.
+ *
+ * @since 12667
+ */
+public class TilePackageTileLoader implements TileLoader {
+
+    /**
+     * Jobs are submitted from the EDT, so the queue is unbounded - the jobs never run in the submitting thread
+     */
+    private static final ThreadPoolExecutor DEFAULT_JOB_DISPATCHER = newJobDispatcher(
+            "Tile-package-loader-%d", TMSCachedTileLoader.DECODE_THREAD_LIMIT.get());
+
+    private final TilePackage tilePackage;
+    private final TileLoaderListener listener;
+
+    private static ThreadPoolExecutor newJobDispatcher(String nameFormat, int workers) {
+        ThreadPoolExecutor executor = new ThreadPoolExecutor(workers, workers, 300, TimeUnit.SECONDS,
+                new LinkedBlockingQueue<Runnable>(), Utils.newThreadFactory(nameFormat, Thread.NORM_PRIORITY));
+        executor.allowCoreThreadTimeOut(true); // so unused thread pools will eventually release their threads
+        return executor;
+    }
+
+    /**
+     * Constructs a new {@code TilePackageTileLoader}.
+     * @param tilePackage package containing the tiles
+     * @param listener called when tile loading has finished
+     */
+    public TilePackageTileLoader(TilePackage tilePackage, TileLoaderListener listener) {
+        this.tilePackage = tilePackage;
+        this.listener = listener;
+    }
+
+    /**
+     * Returns a factory creating loaders of tiles from given package.
+     * @param tilePackage package containing the tiles
+     * @return tile loader factory
+     */
+    public static TileLoaderFactory getFactory(TilePackage tilePackage) {
+        return (listener, headers) -> new TilePackageTileLoader(tilePackage, listener);
+    }
+
+    @Override
+    public TileJob createTileLoaderJob(Tile tile) {
+        return new TileJob() {
+            @Override
+            public void run() {
+                boolean success = false;
+                try {
+                    byte[] content = tilePackage.getTile(tile.getZoom(), tile.getXtile(), tile.getYtile());
+                    if (content == null) {
+                        tile.setError(tr("Tile is not present in the offline package"));
+                        tile.putValue("tile-info", "no-tile");
+                    } else {
+                        tile.setImage(ImageProvider.toStandardImageType(ImageIO.read(new ByteArrayInputStream(content))));
+                        if (tile.getImage() == null) {
+                            tile.setError(tr("Could not load image from tile package"));
+                        } else {
+                            success = true;
+                        }
+                    }
+                } catch (IOException | RuntimeException e) {
+                    Logging.warn(e);
+                    tile.setError(e);
+                } finally {
+                    tile.finishLoading();
+                    tile.setLoaded(success);
+                    listener.tileLoadingFinished(tile, success);
+                }
+            }
+
+            @Override
+            public void submit() {
+                submit(false);
+            }
+
+            @Override
+            public void submit(boolean force) {
+                tile.initLoading();
+                DEFAULT_JOB_DISPATCHER.execute(this);
+            }
+        };
+    }
+
+    @Override
+    public void cancelOutstandingTasks() {
+        // loading tiles from package is fast, and tiles of all packages share one queue - let them finish
+    }
+}
@@ -5,7 +5,6 @@ import java.util.Map;
 
 import org.apache.commons.jcs.access.behavior.ICacheAccess;
 import org.openstreetmap.gui.jmapviewer.Tile;
-import org.openstreetmap.gui.jmapviewer.interfaces.TileJob;
 import org.openstreetmap.gui.jmapviewer.interfaces.TileLoaderListener;
 import org.openstreetmap.josm.data.cache.BufferedImageCacheEntry;
 import org.openstreetmap.josm.data.preferences.IntegerProperty;
@@ -41,7 +40,8 @@ public class WMSCachedTileLoader extends TMSCachedTileLoader {
     }
 
     @Override
-    public TileJob createTileLoaderJob(Tile tile) {
-        return new WMSCachedTileLoaderJob(listener, tile, cache, connectTimeout, readTimeout, headers, getDownloadExecutor());
+    protected TMSCachedTileLoaderJob createTileLoaderJob(TileLoaderListener listener, Tile tile) {
+        return new WMSCachedTileLoaderJob(listener, tile, cache, connectTimeout, readTimeout, headers, getDownloadExecutor(),
+                getDecodeExecutor());
     }
 }
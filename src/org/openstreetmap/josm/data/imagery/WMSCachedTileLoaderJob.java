@@ -1,13 +1,31 @@
 // License: GPL. For details, see LICENSE file.
 package org.openstreetmap.josm.data.imagery;
 
+import java.awt.image.BufferedImage;
+import java.io.ByteArrayInputStream;
+import java.io.ByteArrayOutputStream;
+import java.io.IOException;
+import java.net.HttpURLConnection;
+import java.net.URL;
 import java.util.Map;
+import java.util.concurrent.CompletableFuture;
+import java.util.concurrent.ConcurrentHashMap;
+import java.util.concurrent.ConcurrentMap;
+import java.util.concurrent.ExecutionException;
 import java.util.concurrent.ThreadPoolExecutor;
 
+import javax.imageio.ImageIO;
+
 import org.apache.commons.jcs.access.behavior.ICacheAccess;
+import org.apache.commons.jcs.engine.behavior.ICacheElement;
 import org.openstreetmap.gui.jmapviewer.Tile;
 import org.openstreetmap.gui.jmapviewer.interfaces.TileLoaderListener;
+import org.openstreetmap.gui.jmapviewer.interfaces.TileSource;
 import org.openstreetmap.josm.data.cache.BufferedImageCacheEntry;
+import org.openstreetmap.josm.data.cache.CacheEntryAttributes;
+import org.openstreetmap.josm.tools.HttpClient;
+import org.openstreetmap.josm.tools.Logging;
+import org.openstreetmap.josm.tools.Utils;
 
 /**
  * Separate class to handle WMS jobs, as it needs to react differently to HTTP response codes from WMS server
@@ -17,6 +35,14 @@ import org.openstreetmap.josm.data.cache.BufferedImageCacheEntry;
  */
 public class WMSCachedTileLoaderJob extends TMSCachedTileLoaderJob {
 
+    // meta tiles that are being downloaded, so jobs for other tiles of the same meta tile can wait for them
+    private static final ConcurrentMap<String, CompletableFuture<Boolean>> metaTilesInProgress = new ConcurrentHashMap<>();
+
+    private final ICacheAccess<String, BufferedImageCacheEntry> cache;
+    private final int connectTimeout;
+    private final int readTimeout;
+    private final Map<String, String> headers;
+
     /**
      * Creates a job - that will download specific tile
      * @param listener will be notified, when tile has loaded
@@ -30,16 +56,131 @@ public class WMSCachedTileLoaderJob extends TMSCachedTileLoaderJob {
     public WMSCachedTileLoaderJob(TileLoaderListener listener, Tile tile,
             ICacheAccess<String, BufferedImageCacheEntry> cache, int connectTimeout, int readTimeout,
             Map<String, String> headers, ThreadPoolExecutor downloadExecutor) {
-        super(listener, tile, cache, connectTimeout, readTimeout, headers, downloadExecutor);
+        this(listener, tile, cache, connectTimeout, readTimeout, headers, downloadExecutor, null);
+    }
+
+    /**
+     * Creates a job - that will download specific tile and decode its image using {@code decodeExecutor}
+     * @param listener will be notified, when tile has loaded
+     * @param tile to load
+     * @param cache to use (get/put)
+     * @param connectTimeout to tile source
+     * @param readTimeout to tile source
+     * @param headers to be sent with request
+     * @param downloadExecutor that will execute the download task (if needed)
+     * @param decodeExecutor that will decode the tile image, can be null
+     * @since 12664
+     */
+    public WMSCachedTileLoaderJob(TileLoaderListener listener, Tile tile,
+            ICacheAccess<String, BufferedImageCacheEntry> cache, int connectTimeout, int readTimeout,
+            Map<String, String> headers, ThreadPoolExecutor downloadExecutor, ThreadPoolExecutor decodeExecutor) {
+        super(listener, tile, cache, connectTimeout, readTimeout, headers, downloadExecutor, decodeExecutor);
+        this.cache = cache;
+        this.connectTimeout = connectTimeout;
+        this.readTimeout = readTimeout;
+        this.headers = headers;
     }
 
     @Override
-    public String getCacheKey() {
+    protected String getCacheKey(Tile tile) {
         // include projection in cache key, as with different projections different response will be returned from server
-        String key = super.getCacheKey();
-        if (key != null) {
-            return key + tile.getSource().getServerCRS();
+        return super.getCacheKey(tile) + tile.getSource().getServerCRS();
+    }
+
+    /**
+     * Loads the tile. If meta tiling is enabled for the tile source and the tile is missing in cache, the whole
+     * meta tile containing the tile is requested, split into tiles and put into the cache. Tiles that are
+     * present in cache, but need to be revalidated, are handled one by one.
+     */
+    @Override
+    protected boolean loadObject() {
+        TileSource source = tile.getSource();
+        if (!(source instanceof TemplatedWMSTileSource) || ((TemplatedWMSTileSource) source).getMetaTileSize() <= 1
+                || isObjectLoadable()) {
+            return super.loadObject();
+        }
+        TemplatedWMSTileSource wmsSource = (TemplatedWMSTileSource) source;
+        int size = wmsSource.getMetaTileSize();
+        int zoom = tile.getZoom();
+        int x0 = Math.floorDiv(tile.getXtile(), size) * size;
+        int y0 = Math.floorDiv(tile.getYtile(), size) * size;
+        String metaTileUrl = wmsSource.getTileUrl(zoom, x0, y0, size, size);
+
+        CompletableFuture<Boolean> future = new CompletableFuture<>();
+        CompletableFuture<Boolean> inProgress = metaTilesInProgress.putIfAbsent(metaTileUrl, future);
+        try {
+            if (inProgress == null) {
+                try {
+                    future.complete(loadMetaTile(wmsSource, metaTileUrl, zoom, x0, y0, size));
+                } catch (IOException | RuntimeException e) {
+                    future.complete(Boolean.FALSE);
+                    Logging.log(Logging.LEVEL_WARN, "WMS - failed to load meta tile " + metaTileUrl, e);
+                } finally {
+                    metaTilesInProgress.remove(metaTileUrl);
+                }
+            } else {
+                // another job is already downloading the meta tile containing our tile
+                inProgress.get();
+            }
+        } catch (InterruptedException e) {
+            Thread.currentThread().interrupt();
+            return false;
+        } catch (ExecutionException e) {
+            Logging.warn(e);
+        }
+
+        ICacheElement<String, BufferedImageCacheEntry> element = cache.getCacheElement(getCacheKey());
+        if (element != null) {
+            cacheData = element.getVal();
+            attributes = (CacheEntryAttributes) element.getElementAttributes();
+            return true;
+        }
+        // meta tile failed, try to get our tile alone
+        return super.loadObject();
+    }
+
+    private boolean loadMetaTile(TemplatedWMSTileSource source, String metaTileUrl, int zoom, int x0, int y0, int size)
+            throws IOException {
+        HttpClient request = HttpClient.create(new URL(metaTileUrl))
+                .setAccept("text/html, image/png, image/jpeg, image/gif, */*")
+                .setConnectTimeout(connectTimeout)
+                .setReadTimeout(readTimeout);
+        if (headers != null) {
+            request.setHeaders(headers);
+        }
+        HttpClient.Response response = request.connect();
+        try {
+            if (response.getResponseCode() != HttpURLConnection.HTTP_OK) {
+                Logging.debug("WMS - meta tile request returned {0}: {1}", response.getResponseCode(), metaTileUrl);
+                return false;
+            }
+            byte[] raw = Utils.readBytesFromStream(response.getContent());
+            attributes = parseHeaders(response);
+            attributes.setResponseCode(response.getResponseCode());
+            if (!isResponseLoadable(response.getHeaderFields(), response.getResponseCode(), raw)) {
+                return false;
+            }
+            BufferedImage img = ImageIO.read(new ByteArrayInputStream(raw));
+            int tileSize = source.getTileSize();
+            if (img == null || img.getWidth() != size * tileSize || img.getHeight() != size * tileSize) {
+                // e.g. service exception, or server limiting the image size
+                return false;
+            }
+            for (int dy = 0; dy < size; dy++) {
+                for (int dx = 0; dx < size; dx++) {
+                    // store tiles lossless, so they are not recompressed
+                    ByteArrayOutputStream out = new ByteArrayOutputStream();
+                    ImageIO.write(img.getSubimage(dx * tileSize, dy * tileSize, tileSize, tileSize), "png", out);
+                    CacheEntryAttributes tileAttributes = parseHeaders(response);
+                    tileAttributes.setResponseCode(response.getResponseCode());
+                    tileAttributes.setMetadata(attributes.getMetadata());
+                    cache.put(getCacheKey(new Tile(source, x0 + dx, y0 + dy, zoom)),
+                            new BufferedImageCacheEntry(out.toByteArray()), tileAttributes);
+                }
+            }
+            return true;
+        } finally {
+            response.disconnect();
         }
-        return null;
     }
 }
@@ -7,9 +7,11 @@ import java.awt.geom.Area;
 import java.util.ArrayList;
 import java.util.Collection;
 import java.util.Collections;
+import java.util.EnumSet;
 import java.util.HashMap;
 import java.util.HashSet;
 import java.util.Iterator;
+import java.util.LinkedHashSet;
 import java.util.LinkedList;
 import java.util.List;
 import java.util.Map;
@@ -28,6 +30,8 @@ import org.openstreetmap.josm.data.Bounds;
 import org.openstreetmap.josm.data.Data;
 import org.openstreetmap.josm.data.DataSource;
 import org.openstreetmap.josm.data.ProjectionBounds;
+import org.openstreetmap.josm.data.preferences.BooleanProperty;
+import org.openstreetmap.josm.data.preferences.IntegerProperty;
 import org.openstreetmap.josm.data.SelectionChangedListener;
 import org.openstreetmap.josm.data.coor.EastNorth;
 import org.openstreetmap.josm.data.coor.LatLon;
@@ -37,6 +41,8 @@ import org.openstreetmap.josm.data.osm.DataSelectionListener.SelectionRemoveEven
 import org.openstreetmap.josm.data.osm.DataSelectionListener.SelectionReplaceEvent;
 import org.openstreetmap.josm.data.osm.DataSelectionListener.SelectionToggleEvent;
 import org.openstreetmap.josm.data.osm.event.AbstractDatasetChangedEvent;
+import org.openstreetmap.josm.data.osm.event.AbstractDatasetChangedEvent.DatasetEventType;
+import org.openstreetmap.josm.data.osm.event.BulkChangeEvent;
 import org.openstreetmap.josm.data.osm.event.ChangesetIdChangedEvent;
 import org.openstreetmap.josm.data.osm.event.DataChangedEvent;
 import org.openstreetmap.josm.data.osm.event.DataSetListener;
@@ -49,6 +55,7 @@ import org.openstreetmap.josm.data.osm.event.SelectionEventManager;
 import org.openstreetmap.josm.data.osm.event.TagsChangedEvent;
 import org.openstreetmap.josm.data.osm.event.WayNodesChangedEvent;
 import org.openstreetmap.josm.data.osm.visitor.BoundingXYVisitor;
+import org.openstreetmap.josm.data.projection.BulkReprojection;
 import org.openstreetmap.josm.data.projection.Projection;
 import org.openstreetmap.josm.data.projection.ProjectionChangeListener;
 import org.openstreetmap.josm.gui.progress.ProgressMonitor;
@@ -153,6 +160,19 @@ public final class DataSet extends QuadBucketPrimitiveStore implements Data, Pro
      */
     private static final int MAX_EVENTS = 1000;
 
+    /**
+     * Determines if data sets maintain an inverted index of tags, see {@link #getPrimitivesWithTag(String, String)}.
+     * @since 12670
+     */
+    public static final BooleanProperty USE_TAG_INDEX = new BooleanProperty("data.tag-index", true);
+
+    /**
+     * Maximum number of distinct values of a key for which the tag index holds the primitives by value.
+     * Keys with more values (e.g., names) are only indexed by key to keep the memory footprint of the index low.
+     * @since 12689
+     */
+    public static final IntegerProperty TAG_INDEX_MAX_VALUES = new IntegerProperty("data.tag-index.max-values", 256);
+
     private final Storage<OsmPrimitive> allPrimitives = new Storage<>(new Storage.PrimitiveIdHash(), true);
     private final Map<PrimitiveId, OsmPrimitive> primitivesMap = allPrimitives.foreignKey(new Storage.PrimitiveIdHash());
     private final CopyOnWriteArrayList<DataSetListener> listeners = new CopyOnWriteArrayList<>();
@@ -166,11 +186,23 @@ public final class DataSet extends QuadBucketPrimitiveStore implements Data, Pro
     private int updateCount;
     // Events that occurred while dataset was locked but should be fired after write lock is released
     private final List<AbstractDatasetChangedEvent> cachedEvents = new ArrayList<>();
+    // Coalesced changes while dataset was locked, for a BulkChangeEvent. Only collected if there are listeners
+    private Set<OsmPrimitive> addedPrimitives = new LinkedHashSet<>();
+    private Set<OsmPrimitive> removedPrimitives = new LinkedHashSet<>();
+    private Set<OsmPrimitive> changedPrimitives = new LinkedHashSet<>();
+    private final Set<DatasetEventType> changeTypes = EnumSet.noneOf(DatasetEventType.class);
+    private boolean changesComplete = true;
 
     private UploadPolicy uploadPolicy;
 
     private final ReadWriteLock lock = new ReentrantReadWriteLock();
 
+    /** open snapshots, that save the state of primitives before they are changed */
+    private final List<DataSetSnapshot> snapshots = new CopyOnWriteArrayList<>();
+
+    /** Inverted index of tags, created by the first query */
+    private volatile TagIndex tagIndex;
+
     /**
      * The mutex lock that is used to synchronize selection changes.
      */
@@ -290,6 +322,41 @@ public final class DataSet extends QuadBucketPrimitiveStore implements Data, Pro
         return lock.readLock();
     }
 
+    /**
+     * Creates a snapshot of this data set, that stays unchanged while the data set is edited.
+     * Long-running readers should use it instead of holding the read lock during the entire operation.
+     * The snapshot must be closed once read.
+     * @return a new snapshot
+     * @since 12681
+     */
+    public DataSetSnapshot createSnapshot() {
+        lock.readLock().lock();
+        try {
+            DataSetSnapshot snapshot = new DataSetSnapshot(this);
+            snapshots.add(snapshot);
+            return snapshot;
+        } finally {
+            lock.readLock().unlock();
+        }
+    }
+
+    void removeSnapshot(DataSetSnapshot snapshot) {
+        snapshots.remove(snapshot);
+    }
+
+    /**
+     * Saves the state of a primitive in the open snapshots, before it is changed or removed.
+     * The caller must hold the write lock.
+     * @param primitive the primitive
+     */
+    void beforeChange(OsmPrimitive primitive) {
+        if (!snapshots.isEmpty()) {
+            for (DataSetSnapshot snapshot : snapshots) {
+                snapshot.save(primitive);
+            }
+        }
+    }
+
     /**
      * History of selections - shared by plugins and SelectionListDialog
      */
@@ -499,6 +566,112 @@ public final class DataSet extends QuadBucketPrimitiveStore implements Data, Pro
         return getPrimitives(o -> true);
     }
 
+    /**
+     * Returns the inverted index of tags. Must be called with (at least) the read lock held.
+     * @return the tag index, or {@code null} if it is disabled
+     */
+    private TagIndex getTagIndex() {
+        if (tagIndex == null && USE_TAG_INDEX.get()) {
+            synchronized (allPrimitives) {
+                if (tagIndex == null) {
+                    tagIndex = new TagIndex(allPrimitives, TAG_INDEX_MAX_VALUES.get());
+                }
+            }
+        }
+        return tagIndex;
+    }
+
+    /**
+     * Returns all primitives of the dataset having the given tag, including deleted and incomplete primitives.
+     * <p>
+     * The primitives are looked up in an inverted index of tags, that is created by the first call and then updated
+     * with every change of the dataset (unless disabled by {@link #USE_TAG_INDEX}).
+     * @param key the key
+     * @param value the value
+     * @return a new list of all primitives having the tag
+     * @since 12670
+     */
+    public List<OsmPrimitive> getPrimitivesWithTag(String key, String value) {
+        lock.readLock().lock();
+        try {
+            TagIndex index = getTagIndex();
+            if (index != null) {
+                return index.getPrimitives(key, value);
+            }
+            return new ArrayList<>(getPrimitives(p -> value.equals(p.get(key))));
+        } finally {
+            lock.readLock().unlock();
+        }
+    }
+
+    /**
+     * Returns all primitives of the dataset having the given key, including deleted and incomplete primitives.
+     * @param key the key
+     * @return a new list of all primitives having the key
+     * @see #getPrimitivesWithTag(String, String)
+     * @since 12670
+     */
+    public List<OsmPrimitive> getPrimitivesWithKey(String key) {
+        lock.readLock().lock();
+        try {
+            TagIndex index = getTagIndex();
+            if (index != null) {
+                return index.getPrimitives(key);
+            }
+            return new ArrayList<>(getPrimitives(p -> p.hasKey(key)));
+        } finally {
+            lock.readLock().unlock();
+        }
+    }
+
+    /**
+     * Returns all keys used by primitives of the dataset, including deleted and incomplete primitives.
+     * @return a new set of all keys
+     * @see #getPrimitivesWithTag(String, String)
+     * @since 12670
+     */
+    public Set<String> getTagKeys() {
+        lock.readLock().lock();
+        try {
+            TagIndex index = getTagIndex();
+            if (index != null) {
+                return index.getKeys();
+            }
+            Set<String> keys = new HashSet<>();
+            allPrimitives.forEach(p -> keys.addAll(p.keySet()));
+            return keys;
+        } finally {
+            lock.readLock().unlock();
+        }
+    }
+
+    /**
+     * Returns all values of the given key used by primitives of the dataset, including deleted and incomplete primitives.
+     * @param key the key
+     * @return a new set of all values of the key
+     * @see #getPrimitivesWithTag(String, String)
+     * @since 12670
+     */
+    public Set<String> getTagValues(String key) {
+        lock.readLock().lock();
+        try {
+            TagIndex index = getTagIndex();
+            if (index != null) {
+                return index.getValues(key);
+            }
+            Set<String> values = new HashSet<>();
+            for (OsmPrimitive p : allPrimitives) {
+                String value = p.get(key);
+                if (value != null) {
+                    values.add(value);
+                }
+            }
+            return values;
+        } finally {
+            lock.readLock().unlock();
+        }
+    }
+
     /**
      * Returns a collection containing all not-deleted primitives.
      * @return A collection containing all not-deleted primitives.
@@ -555,6 +728,9 @@ public final class DataSet extends QuadBucketPrimitiveStore implements Data, Pro
             primitive.setDataset(this);
             primitive.updatePosition(); // Set cached bbox for way and relation (required for reindexWay and reindexRelation to work properly)
             super.addPrimitive(primitive);
+            if (tagIndex != null) {
+                tagIndex.add(primitive);
+            }
             firePrimitivesAdded(Collections.singletonList(primitive), false);
         } finally {
             endUpdate();
@@ -588,8 +764,12 @@ public final class DataSet extends QuadBucketPrimitiveStore implements Data, Pro
         if (primitive.isSelected()) {
             throw new DataIntegrityProblemException("Primitive was re-selected by a selection listener: " + primitive);
         }
+        beforeChange(primitive);
         super.removePrimitive(primitive);
         allPrimitives.remove(primitive);
+        if (tagIndex != null) {
+            tagIndex.remove(primitive);
+        }
         primitive.setDataset(null);
     }
 
@@ -1138,7 +1318,8 @@ public final class DataSet extends QuadBucketPrimitiveStore implements Data, Pro
 
     /**
      * Can be called before bigger changes on dataset. Events are disabled until {@link #endUpdate()}.
-     * {@link DataSetListener#dataChanged(DataChangedEvent event)} event is triggered after end of changes
+     * {@link DataSetListener#dataChanged(DataChangedEvent event)} event is triggered after end of changes,
+     * with a {@link BulkChangeEvent} listing the changed primitives
      * <br>
      * Typical usecase should look like this:
      * <pre>
@@ -1162,9 +1343,14 @@ public final class DataSet extends QuadBucketPrimitiveStore implements Data, Pro
         if (updateCount > 0) {
             updateCount--;
             List<AbstractDatasetChangedEvent> eventsToFire = Collections.emptyList();
+            AbstractDatasetChangedEvent bulkEvent = null;
             if (updateCount == 0) {
                 eventsToFire = new ArrayList<>(cachedEvents);
                 cachedEvents.clear();
+                if (eventsToFire.size() >= MAX_SINGLE_EVENTS) {
+                    bulkEvent = createBulkEvent(eventsToFire.size() == MAX_EVENTS ? null : eventsToFire);
+                }
+                clearChanges();
             }
 
             if (!eventsToFire.isEmpty()) {
@@ -1175,10 +1361,8 @@ public final class DataSet extends QuadBucketPrimitiveStore implements Data, Pro
                         for (AbstractDatasetChangedEvent event: eventsToFire) {
                             fireEventToListeners(event);
                         }
-                    } else if (eventsToFire.size() == MAX_EVENTS) {
-                        fireEventToListeners(new DataChangedEvent(this));
                     } else {
-                        fireEventToListeners(new DataChangedEvent(this, eventsToFire));
+                        fireEventToListeners(bulkEvent);
                     }
                 } finally {
                     lock.readLock().unlock();
@@ -1197,12 +1381,65 @@ public final class DataSet extends QuadBucketPrimitiveStore implements Data, Pro
         }
     }
 
+    private AbstractDatasetChangedEvent createBulkEvent(List<AbstractDatasetChangedEvent> events) {
+        if (!changesComplete) {
+            return new DataChangedEvent(this, events);
+        }
+        return new BulkChangeEvent(this, events, addedPrimitives, removedPrimitives, changedPrimitives, changeTypes);
+    }
+
+    private void clearChanges() {
+        if (!addedPrimitives.isEmpty()) {
+            addedPrimitives = new LinkedHashSet<>();
+        }
+        if (!removedPrimitives.isEmpty()) {
+            removedPrimitives = new LinkedHashSet<>();
+        }
+        if (!changedPrimitives.isEmpty()) {
+            changedPrimitives = new LinkedHashSet<>();
+        }
+        changeTypes.clear();
+        changesComplete = true;
+    }
+
     private void fireEvent(AbstractDatasetChangedEvent event) {
         if (updateCount == 0)
             throw new AssertionError("dataset events can be fired only when dataset is locked");
         if (cachedEvents.size() < MAX_EVENTS) {
             cachedEvents.add(event);
         }
+        if (listeners.isEmpty()) {
+            // nobody to notify at the moment, do not spend time and memory on collecting the changes
+            changesComplete = false;
+        } else if (changesComplete) {
+            collectChanges(event);
+        }
+    }
+
+    private void collectChanges(AbstractDatasetChangedEvent event) {
+        changeTypes.add(event.getType());
+        if (event instanceof PrimitivesAddedEvent) {
+            for (OsmPrimitive p : event.getPrimitives()) {
+                if (removedPrimitives.remove(p)) {
+                    changedPrimitives.add(p);
+                } else {
+                    addedPrimitives.add(p);
+                }
+            }
+        } else if (event instanceof PrimitivesRemovedEvent) {
+            for (OsmPrimitive p : event.getPrimitives()) {
+                changedPrimitives.remove(p);
+                if (!addedPrimitives.remove(p)) {
+                    removedPrimitives.add(p);
+                }
+            }
+        } else {
+            for (OsmPrimitive p : event.getPrimitives()) {
+                if (!addedPrimitives.contains(p) && !removedPrimitives.contains(p)) {
+                    changedPrimitives.add(p);
+                }
+            }
+        }
     }
 
     void firePrimitivesAdded(Collection<? extends OsmPrimitive> added, boolean wasIncomplete) {
@@ -1214,6 +1451,9 @@ public final class DataSet extends QuadBucketPrimitiveStore implements Data, Pro
     }
 
     void fireTagsChanged(OsmPrimitive prim, Map<String, String> originalKeys) {
+        if (tagIndex != null) {
+            tagIndex.tagsChanged(prim, originalKeys);
+        }
         fireEvent(new TagsChangedEvent(this, prim, originalKeys));
     }
 
@@ -1263,6 +1503,33 @@ public final class DataSet extends QuadBucketPrimitiveStore implements Data, Pro
         }
     }
 
+    /**
+     * Fills the internal cache of projected east/north coordinates of all nodes.
+     * <p>
+     * Large data sets are projected in parallel, so this method can be invoked after the globally configured
+     * projection method changed, instead of projecting the nodes one by one when painting them.
+     *
+     * @param projection the new projection
+     * @since 12672
+     */
+    public void updateEastNorthCache(Projection projection) {
+        beginUpdate();
+        try {
+            List<Node> nodes = new ArrayList<>(getNodes().size());
+            for (Node n: getNodes()) {
+                if (n.isLatLonKnown()) {
+                    nodes.add(n);
+                } else {
+                    n.invalidateEastNorthCache();
+                }
+            }
+            Object cacheKey = projection.getCacheKey();
+            BulkReprojection.project(projection, nodes, (n, east, north) -> n.setEastNorthCache(east, north, cacheKey));
+        } finally {
+            endUpdate();
+        }
+    }
+
     /**
      * Cleanups all deleted primitives (really delete them from the dataset).
      */
@@ -1294,10 +1561,12 @@ public final class DataSet extends QuadBucketPrimitiveStore implements Data, Pro
         try {
             clearSelection();
             for (OsmPrimitive primitive:allPrimitives) {
+                beforeChange(primitive);
                 primitive.setDataset(null);
             }
             super.clear();
             allPrimitives.clear();
+            tagIndex = null;
         } finally {
             endUpdate();
         }
@@ -1351,7 +1620,11 @@ public final class DataSet extends QuadBucketPrimitiveStore implements Data, Pro
     /* --------------------------------------------------------------------------------- */
     @Override
     public void projectionChanged(Projection oldValue, Projection newValue) {
-        invalidateEastNorthCache();
+        if (newValue != null) {
+            updateEastNorthCache(newValue);
+        } else {
+            invalidateEastNorthCache();
+        }
     }
 
     /**
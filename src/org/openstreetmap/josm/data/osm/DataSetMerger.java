@@ -5,27 +5,69 @@ import static org.openstreetmap.josm.tools.I18n.tr;
 
 import java.util.ArrayList;
 import java.util.Collection;
+import java.util.Collections;
 import java.util.HashMap;
 import java.util.HashSet;
 import java.util.Iterator;
-import java.util.LinkedList;
 import java.util.List;
 import java.util.Map;
 import java.util.Set;
+import java.util.concurrent.ForkJoinPool;
+import java.util.concurrent.ForkJoinTask;
+import java.util.concurrent.RecursiveAction;
+import java.util.function.IntConsumer;
 
 import org.openstreetmap.josm.data.conflict.Conflict;
 import org.openstreetmap.josm.data.conflict.ConflictCollection;
+import org.openstreetmap.josm.data.preferences.IntegerProperty;
 import org.openstreetmap.josm.gui.progress.ProgressMonitor;
 import org.openstreetmap.josm.tools.CheckParameterUtil;
 import org.openstreetmap.josm.tools.JosmRuntimeException;
+import org.openstreetmap.josm.tools.Utils;
 
 /**
  * A dataset merger which takes a target and a source dataset and merges the source data set
  * onto the target dataset.
+ * <p>
+ * Large source datasets are merged in parallel: the source primitives are split into chunks, in which the target
+ * primitives are looked up, the merge decisions are taken and new target primitives are created concurrently.
+ * The target dataset is then changed by the calling thread only, in the order of the source primitives.
  *
  */
 public class DataSetMerger {
 
+    /**
+     * Minimum number of primitives of the source dataset to merge them in parallel.
+     * @since 12682
+     */
+    public static final IntegerProperty PARALLEL_THRESHOLD = new IntegerProperty("merge.parallel.threshold", 10_000);
+
+    private static final ForkJoinPool THREAD_POOL =
+            Utils.newForkJoinPool("merge.numberOfThreads", "dataset-merger-%d", Thread.NORM_PRIORITY);
+
+    /** number of source primitives handled directly by one worker */
+    private static final int CHUNK_SIZE = 1024;
+
+    /**
+     * What to do with the target primitive having the same id as a source primitive.
+     */
+    private enum MergeAction {
+        /** keep the target unchanged */
+        KEEP,
+        /** merge the source into the target, and its nodes or members afterwards */
+        MERGE,
+        /** reset the modified flag of the target */
+        RESET_MODIFIED,
+        /** keep the deleted target, unless the source has referrers missing in the target dataset */
+        CHECK_REFERRERS,
+        /** delete the target */
+        DELETE,
+        /** add a conflict */
+        CONFLICT,
+        /** throw a {@link DataIntegrityProblemException} about the visible attribute */
+        VISIBLE_MISMATCH
+    }
+
     /** the collection of conflicts created during merging */
     private final ConflictCollection conflicts;
 
@@ -111,6 +153,15 @@ public class DataSetMerger {
         // If we get here we didn't find a suitable primitive in
         // the target dataset. Create a clone and add it to the target dataset.
         //
+        addTarget(source, createTarget(source));
+    }
+
+    /**
+     * Creates a clone of a source primitive, not yet added to the target dataset.
+     * @param source the source primitive
+     * @return the clone
+     */
+    private static OsmPrimitive createTarget(OsmPrimitive source) {
         OsmPrimitive target;
         switch(source.getType()) {
         case NODE: target = source.isNew() ? new Node() : new Node(source.getId()); break;
@@ -119,11 +170,105 @@ public class DataSetMerger {
         default: throw new AssertionError();
         }
         target.mergeFrom(source);
+        return target;
+    }
+
+    private void addTarget(OsmPrimitive source, OsmPrimitive target) {
         targetDataSet.addPrimitive(target);
         mergedMap.put(source.getPrimitiveId(), target.getPrimitiveId());
         objectsWithChildrenToMerge.add(source.getPrimitiveId());
     }
 
+    /**
+     * Merges the given source primitives.
+     * @param sources the source primitives
+     * @param targets the target primitives of the same type, possible candidates for new primitives
+     * @param parallel if {@code true}, the target primitives are looked up and the merge decisions are taken in parallel
+     * @param progressMonitor the progress monitor, can be {@code null}
+     */
+    private void mergePrimitives(Collection<? extends OsmPrimitive> sources, Collection<? extends OsmPrimitive> targets,
+            boolean parallel, ProgressMonitor progressMonitor) {
+        if (!parallel) {
+            List<? extends OsmPrimitive> candidates = new ArrayList<>(targets);
+            for (OsmPrimitive source : sources) {
+                mergePrimitive(source, candidates);
+                if (progressMonitor != null) {
+                    progressMonitor.worked(1);
+                }
+            }
+            return;
+        }
+        List<OsmPrimitive> list = new ArrayList<>(sources);
+        // For each source with an id, the target with the same id and the action to apply,
+        // or a new target not yet added to the dataset if the action is null.
+        // New sources are compared with the candidates afterwards, as they may be merged one onto the other.
+        OsmPrimitive[] mergeTargets = new OsmPrimitive[list.size()];
+        MergeAction[] actions = new MergeAction[list.size()];
+        runParallel(list.size(), i -> {
+            OsmPrimitive source = list.get(i);
+            if (!source.isNew()) {
+                OsmPrimitive target = targetDataSet.getPrimitiveById(source.getId(), source.getType());
+                if (target != null) {
+                    mergeTargets[i] = target;
+                    actions[i] = getMergeAction(source, target);
+                } else {
+                    mergeTargets[i] = createTarget(source);
+                }
+            }
+        });
+        // the candidates are only needed for new sources, which are rare in downloads
+        List<? extends OsmPrimitive> candidates = list.stream().anyMatch(OsmPrimitive::isNew)
+                ? new ArrayList<>(targets) : Collections.<OsmPrimitive>emptyList();
+        for (int i = 0; i < list.size(); i++) {
+            OsmPrimitive source = list.get(i);
+            if (source.isNew()) {
+                mergePrimitive(source, candidates);
+            } else if (actions[i] != null) {
+                applyMergeAction(source, mergeTargets[i], actions[i]);
+            } else {
+                addTarget(source, mergeTargets[i]);
+            }
+            if (progressMonitor != null) {
+                progressMonitor.worked(1);
+            }
+        }
+    }
+
+    private static void runParallel(int size, IntConsumer action) {
+        THREAD_POOL.invoke(new Worker(0, size, action));
+    }
+
+    /**
+     * Worker that runs an action for a range of indexes, splitting it into chunks of {@link #CHUNK_SIZE} indexes.
+     */
+    private static class Worker extends RecursiveAction {
+
+        // Needed for Findbugs / Coverity because parent class is serializable
+        private static final long serialVersionUID = 1L;
+
+        private final int from;
+        private final int to;
+        private final transient IntConsumer action;
+
+        Worker(int from, int to, IntConsumer action) {
+            this.from = from;
+            this.to = to;
+            this.action = action;
+        }
+
+        @Override
+        protected void compute() {
+            if (to - from <= CHUNK_SIZE) {
+                for (int i = from; i < to; i++) {
+                    action.accept(i);
+                }
+            } else {
+                int middle = from + (to - from) / 2;
+                ForkJoinTask.invokeAll(new Worker(from, middle, action), new Worker(middle, to, action));
+            }
+        }
+    }
+
     protected OsmPrimitive getMergeTarget(OsmPrimitive mergeSource) {
         PrimitiveId targetId = mergedMap.get(mergeSource.getPrimitiveId());
         if (targetId == null)
@@ -151,15 +296,43 @@ public class DataSetMerger {
      * data.
      */
     public void fixReferences() {
-        for (Way w : sourceDataSet.getWays()) {
+        fixReferences(false);
+    }
+
+    /**
+     * Postprocess the dataset and fix all merged references to point to the actual data.
+     * @param parallel if {@code true}, the target nodes and members are looked up in parallel
+     */
+    private void fixReferences(boolean parallel) {
+        List<Way> ways = new ArrayList<>(sourceDataSet.getWays());
+        List<List<Node>> nodeLists = new ArrayList<>(Collections.nCopies(ways.size(), null));
+        if (parallel) {
+            runParallel(ways.size(), i -> {
+                if (objectsWithChildrenToMerge.contains(ways.get(i).getPrimitiveId())) {
+                    nodeLists.set(i, getTargetNodes(ways.get(i), false));
+                }
+            });
+        }
+        for (int i = 0; i < ways.size(); i++) {
+            Way w = ways.get(i);
             if (!conflicts.hasConflictForTheir(w) && objectsWithChildrenToMerge.contains(w.getPrimitiveId())) {
-                mergeNodeList(w);
+                mergeNodeList(w, nodeLists.get(i));
                 fixIncomplete(w);
             }
         }
-        for (Relation r : sourceDataSet.getRelations()) {
+        List<Relation> relations = new ArrayList<>(sourceDataSet.getRelations());
+        List<List<RelationMember>> memberLists = new ArrayList<>(Collections.nCopies(relations.size(), null));
+        if (parallel) {
+            runParallel(relations.size(), i -> {
+                if (objectsWithChildrenToMerge.contains(relations.get(i).getPrimitiveId())) {
+                    memberLists.set(i, getTargetMembers(relations.get(i), false));
+                }
+            });
+        }
+        for (int i = 0; i < relations.size(); i++) {
+            Relation r = relations.get(i);
             if (!conflicts.hasConflictForTheir(r) && objectsWithChildrenToMerge.contains(r.getPrimitiveId())) {
-                mergeRelationMembers(r);
+                mergeRelationMembers(r, memberLists.get(i));
             }
         }
 
@@ -230,55 +403,94 @@ public class DataSetMerger {
      * Merges the node list of a source way onto its target way.
      *
      * @param source the source way
+     * @param targetNodes the target nodes of the source way, looked up if {@code null}
      * @throws IllegalStateException if no target way can be found for the source way
      * @throws IllegalStateException if there isn't a target node for one of the nodes in the source way
      *
      */
-    private void mergeNodeList(Way source) {
+    private void mergeNodeList(Way source, List<Node> targetNodes) {
         Way target = (Way) getMergeTarget(source);
         if (target == null)
             throw new IllegalStateException(tr("Missing merge target for way with id {0}", source.getUniqueId()));
 
+        List<Node> newNodes = targetNodes != null ? targetNodes : getTargetNodes(source, true);
+        for (int i = 0; i < newNodes.size(); i++) {
+            Node targetNode = newNodes.get(i);
+            if (targetNode.isDeleted() && !conflicts.hasConflictForMy(targetNode)) {
+                addConflict(new Conflict<OsmPrimitive>(targetNode, source.getNode(i), true));
+                targetNode.setDeleted(false);
+            }
+        }
+        target.setNodes(newNodes);
+    }
+
+    /**
+     * Looks up the target nodes of a source way. This method does not change anything.
+     * @param source the source way
+     * @param required if {@code true}, throw an exception if a target node is missing
+     * @return the target nodes, or {@code null} if a target node is missing
+     * @throws IllegalStateException if there isn't a target node for one of the nodes in the source way
+     */
+    private List<Node> getTargetNodes(Way source, boolean required) {
         List<Node> newNodes = new ArrayList<>(source.getNodesCount());
         for (Node sourceNode : source.getNodes()) {
             Node targetNode = (Node) getMergeTarget(sourceNode);
             if (targetNode != null) {
                 newNodes.add(targetNode);
-                if (targetNode.isDeleted() && !conflicts.hasConflictForMy(targetNode)) {
-                    addConflict(new Conflict<OsmPrimitive>(targetNode, sourceNode, true));
-                    targetNode.setDeleted(false);
-                }
-            } else
+            } else if (required) {
                 throw new IllegalStateException(tr("Missing merge target for node with id {0}", sourceNode.getUniqueId()));
+            } else {
+                return null;
+            }
         }
-        target.setNodes(newNodes);
+        return newNodes;
     }
 
     /**
      * Merges the relation members of a source relation onto the corresponding target relation.
      * @param source the source relation
+     * @param targetMembers the target members of the source relation, looked up if {@code null}
      * @throws IllegalStateException if there is no corresponding target relation
      * @throws IllegalStateException if there isn't a corresponding target object for one of the relation
      * members in source
      */
-    private void mergeRelationMembers(Relation source) {
+    private void mergeRelationMembers(Relation source, List<RelationMember> targetMembers) {
         Relation target = (Relation) getMergeTarget(source);
         if (target == null)
             throw new IllegalStateException(tr("Missing merge target for relation with id {0}", source.getUniqueId()));
-        List<RelationMember> newMembers = new LinkedList<>();
+        List<RelationMember> newMembers = targetMembers != null ? targetMembers : getTargetMembers(source, true);
+        for (int i = 0; i < newMembers.size(); i++) {
+            OsmPrimitive targetMember = newMembers.get(i).getMember();
+            if (targetMember.isDeleted() && !conflicts.hasConflictForMy(targetMember)) {
+                addConflict(new Conflict<>(targetMember, source.getMember(i).getMember(), true));
+                targetMember.setDeleted(false);
+            }
+        }
+        target.setMembers(newMembers);
+    }
+
+    /**
+     * Looks up the target members of a source relation. This method does not change anything.
+     * @param source the source relation
+     * @param required if {@code true}, throw an exception if a target member is missing
+     * @return the target members, or {@code null} if a target member is missing
+     * @throws IllegalStateException if there isn't a corresponding target object for one of the relation
+     * members in source
+     */
+    private List<RelationMember> getTargetMembers(Relation source, boolean required) {
+        List<RelationMember> newMembers = new ArrayList<>(source.getMembersCount());
         for (RelationMember sourceMember : source.getMembers()) {
             OsmPrimitive targetMember = getMergeTarget(sourceMember.getMember());
-            if (targetMember == null)
+            if (targetMember != null) {
+                newMembers.add(new RelationMember(sourceMember.getRole(), targetMember));
+            } else if (required) {
                 throw new IllegalStateException(tr("Missing merge target of type {0} with id {1}",
                         sourceMember.getType(), sourceMember.getUniqueId()));
-            RelationMember newMember = new RelationMember(sourceMember.getRole(), targetMember);
-            newMembers.add(newMember);
-            if (targetMember.isDeleted() && !conflicts.hasConflictForMy(targetMember)) {
-                addConflict(new Conflict<>(targetMember, sourceMember.getMember(), true));
-                targetMember.setDeleted(false);
+            } else {
+                return null;
             }
         }
-        target.setMembers(newMembers);
+        return newMembers;
     }
 
     /**
@@ -293,92 +505,133 @@ public class DataSetMerger {
         //
         if (target == null)
             return false;
-        // found a corresponding target, remember it
-        mergedMap.put(source.getPrimitiveId(), target.getPrimitiveId());
+        applyMergeAction(source, target, getMergeAction(source, target));
+        return true;
+    }
 
+    /**
+     * Decides how to merge a primitive <code>source</code> into an existing primitive with the same id.
+     * This method does not change anything, it can be called from several threads at once.
+     *
+     * @param source the source primitive which is to be merged into a target primitive
+     * @param target the target primitive with the same id
+     * @return the action to apply
+     */
+    private static MergeAction getMergeAction(OsmPrimitive source, OsmPrimitive target) {
         if (target.getVersion() > source.getVersion())
             // target.version > source.version => keep target version
-            return true;
+            return MergeAction.KEEP;
 
         if (target.isIncomplete() && !source.isIncomplete()) {
             // target is incomplete, source completes it
             // => merge source into target
             //
-            target.mergeFrom(source);
-            objectsWithChildrenToMerge.add(source.getPrimitiveId());
+            return MergeAction.MERGE;
         } else if (!target.isIncomplete() && source.isIncomplete()) {
             // target is complete and source is incomplete
             // => keep target, it has more information already
             //
+            return MergeAction.KEEP;
         } else if (target.isIncomplete() && source.isIncomplete()) {
             // target and source are incomplete. Doesn't matter which one to
             // take. We take target.
             //
+            return MergeAction.KEEP;
         } else if (!target.isModified() && !source.isModified() && target.isVisible() != source.isVisible()
                 && target.getVersion() == source.getVersion())
             // Same version, but different "visible" attribute and neither of them are modified.
             // It indicates a serious problem in datasets.
             // For example, datasets can be fetched from different OSM servers or badly hand-modified.
             // We shouldn't merge that datasets.
-            throw new DataIntegrityProblemException(tr("Conflict in ''visible'' attribute for object of type {0} with id {1}",
-                    target.getType(), target.getId()));
+            return MergeAction.VISIBLE_MISMATCH;
         else if (target.isDeleted() && !source.isDeleted() && target.getVersion() == source.getVersion()) {
             // same version, but target is deleted. Assume target takes precedence
             // otherwise too many conflicts when refreshing from the server
             // but, if source has a referrer that is not in the target dataset there is a conflict
             // If target dataset refers to the deleted primitive, conflict will be added in fixReferences method
-            for (OsmPrimitive referrer: source.getReferrers()) {
-                if (targetDataSet.getPrimitiveById(referrer.getPrimitiveId()) == null) {
-                    addConflict(new Conflict<>(target, source, true));
-                    target.setDeleted(false);
-                    break;
-                }
-            }
+            return MergeAction.CHECK_REFERRERS;
         } else if (!target.isModified() && source.isDeleted()) {
             // target not modified. We can assume that source is the most recent version,
             // so mark it to be deleted.
             //
-            objectsToDelete.add(target);
+            return MergeAction.DELETE;
         } else if (!target.isModified() && source.isModified()) {
             // target not modified. We can assume that source is the most recent version.
             // clone it into target.
-            target.mergeFrom(source);
-            objectsWithChildrenToMerge.add(source.getPrimitiveId());
+            return MergeAction.MERGE;
         } else if (!target.isModified() && !source.isModified() && target.getVersion() == source.getVersion()) {
             // both not modified. Merge nevertheless.
             // This helps when updating "empty" relations, see #4295
-            target.mergeFrom(source);
-            objectsWithChildrenToMerge.add(source.getPrimitiveId());
+            return MergeAction.MERGE;
         } else if (!target.isModified() && !source.isModified() && target.getVersion() < source.getVersion()) {
             // my not modified but other is newer. clone other onto mine.
             //
-            target.mergeFrom(source);
-            objectsWithChildrenToMerge.add(source.getPrimitiveId());
+            return MergeAction.MERGE;
         } else if (target.isModified() && !source.isModified() && target.getVersion() == source.getVersion()) {
             // target is same as source but target is modified
             // => keep target and reset modified flag if target and source are semantically equal
-            if (target.hasEqualSemanticAttributes(source, false)) {
-                target.setModified(false);
-            }
+            return target.hasEqualSemanticAttributes(source, false) ? MergeAction.RESET_MODIFIED : MergeAction.KEEP;
         } else if (source.isDeleted() != target.isDeleted()) {
             // target is modified and deleted state differs.
             // this have to be resolved manually.
             //
-            addConflict(target, source);
+            return MergeAction.CONFLICT;
         } else if (!target.hasEqualSemanticAttributes(source)) {
             // target is modified and is not semantically equal with source. Can't automatically
             // resolve the differences
             // =>  create a conflict
-            addConflict(target, source);
+            return MergeAction.CONFLICT;
         } else {
             // clone from other. mergeFrom will mainly copy
             // technical attributes like timestamp or user information. Semantic
             // attributes should already be equal if we get here.
             //
+            return MergeAction.MERGE;
+        }
+    }
+
+    /**
+     * Merges a primitive <code>source</code> into an existing primitive with the same id.
+     *
+     * @param source the source primitive which is to be merged into a target primitive
+     * @param target the target primitive with the same id
+     * @param action the action returned by {@link #getMergeAction}
+     */
+    private void applyMergeAction(OsmPrimitive source, OsmPrimitive target, MergeAction action) {
+        // found a corresponding target, remember it
+        mergedMap.put(source.getPrimitiveId(), target.getPrimitiveId());
+
+        switch (action) {
+        case KEEP:
+            break;
+        case MERGE:
             target.mergeFrom(source);
             objectsWithChildrenToMerge.add(source.getPrimitiveId());
+            break;
+        case RESET_MODIFIED:
+            target.setModified(false);
+            break;
+        case CHECK_REFERRERS:
+            for (OsmPrimitive referrer: source.getReferrers()) {
+                if (targetDataSet.getPrimitiveById(referrer.getPrimitiveId()) == null) {
+                    addConflict(new Conflict<>(target, source, true));
+                    target.setDeleted(false);
+                    break;
+                }
+            }
+            break;
+        case DELETE:
+            objectsToDelete.add(target);
+            break;
+        case CONFLICT:
+            addConflict(target, source);
+            break;
+        case VISIBLE_MISMATCH:
+            throw new DataIntegrityProblemException(tr("Conflict in ''visible'' attribute for object of type {0} with id {1}",
+                    target.getType(), target.getId()));
+        default:
+            throw new AssertionError(action);
         }
-        return true;
     }
 
     /**
@@ -401,36 +654,17 @@ public class DataSetMerger {
     public void merge(ProgressMonitor progressMonitor) {
         if (sourceDataSet == null)
             return;
+        int size = sourceDataSet.allPrimitives().size();
         if (progressMonitor != null) {
-            progressMonitor.beginTask(tr("Merging data..."), sourceDataSet.allPrimitives().size());
+            progressMonitor.beginTask(tr("Merging data..."), size);
         }
+        boolean parallel = size >= PARALLEL_THRESHOLD.get();
         targetDataSet.beginUpdate();
         try {
-            List<? extends OsmPrimitive> candidates = new ArrayList<>(targetDataSet.getNodes());
-            for (Node node: sourceDataSet.getNodes()) {
-                mergePrimitive(node, candidates);
-                if (progressMonitor != null) {
-                    progressMonitor.worked(1);
-                }
-            }
-            candidates.clear();
-            candidates = new ArrayList<>(targetDataSet.getWays());
-            for (Way way: sourceDataSet.getWays()) {
-                mergePrimitive(way, candidates);
-                if (progressMonitor != null) {
-                    progressMonitor.worked(1);
-                }
-            }
-            candidates.clear();
-            candidates = new ArrayList<>(targetDataSet.getRelations());
-            for (Relation relation: sourceDataSet.getRelations()) {
-                mergePrimitive(relation, candidates);
-                if (progressMonitor != null) {
-                    progressMonitor.worked(1);
-                }
-            }
-            candidates.clear();
-            fixReferences();
+            mergePrimitives(sourceDataSet.getNodes(), targetDataSet.getNodes(), parallel, progressMonitor);
+            mergePrimitives(sourceDataSet.getWays(), targetDataSet.getWays(), parallel, progressMonitor);
+            mergePrimitives(sourceDataSet.getRelations(), targetDataSet.getRelations(), parallel, progressMonitor);
+            fixReferences(parallel);
         } finally {
             targetDataSet.endUpdate();
         }
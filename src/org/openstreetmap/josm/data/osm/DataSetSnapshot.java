@@ -0,0 +1,190 @@
+// License: GPL. For details, see LICENSE file.
+package org.openstreetmap.josm.data.osm;
+
+import java.util.ArrayList;
+import java.util.Arrays;
+import java.util.Collection;
+import java.util.Comparator;
+import java.util.IdentityHashMap;
+import java.util.List;
+import java.util.Map;
+import java.util.function.Consumer;
+
+import org.openstreetmap.josm.data.DataSource;
+import org.openstreetmap.josm.data.osm.DataSet.UploadPolicy;
+
+/**
+ * A consistent view of a data set as it was when the snapshot was created, that stays unchanged while the data set
+ * is edited.
+ * <p>
+ * Long-running readers (export, autosave) used to hold the read lock of the data set during the entire operation,
+ * blocking all edits. A snapshot only holds the read lock while it is created, and briefly while the primitives are
+ * read batch by batch. The snapshot is copy-on-write: before a primitive of the data set is changed or removed for
+ * the first time, its former state is saved in all open snapshots. Primitives added after the snapshot was created
+ * are not part of it.
+ * <p>
+ * Snapshots must be closed once read, so that the data set stops saving primitives for them:
+ * <pre>
+ * try (DataSetSnapshot snapshot = ds.createSnapshot()) {
+ *     snapshot.forEachNode(...);
+ * }
+ * </pre>
+ * @see DataSet#createSnapshot()
+ * @since 12681
+ */
+public final class DataSetSnapshot implements AutoCloseable {
+
+    /** number of primitives read at once under the read lock */
+    private static final int BATCH_SIZE = 1000;
+
+    /** Sorts new primitives first, from {@code -1} to {@code -infinity}, then others by increasing id */
+    private static final Comparator<OsmPrimitive> BY_ID = (o1, o2) -> {
+        final long i1 = o1.getUniqueId();
+        final long i2 = o2.getUniqueId();
+        if (i1 < 0 && i2 < 0) {
+            return Long.compare(i2, i1);
+        } else {
+            return Long.compare(i1, i2);
+        }
+    };
+
+    private final DataSet dataSet;
+    private final Node[] nodes;
+    private final Way[] ways;
+    private final Relation[] relations;
+    private final List<DataSource> dataSources;
+    private final String version;
+    private final UploadPolicy uploadPolicy;
+    /** former state of the primitives changed since the snapshot was created, guarded by the lock of the data set */
+    private final Map<OsmPrimitive, PrimitiveData> saved = new IdentityHashMap<>();
+    private volatile boolean closed;
+
+    /**
+     * Constructs a new {@code DataSetSnapshot}. The caller must hold the read lock of the data set.
+     * @param dataSet the data set
+     */
+    DataSetSnapshot(DataSet dataSet) {
+        this.dataSet = dataSet;
+        this.nodes = sorted(dataSet.getNodes(), new Node[0]);
+        this.ways = sorted(dataSet.getWays(), new Way[0]);
+        this.relations = sorted(dataSet.getRelations(), new Relation[0]);
+        this.dataSources = new ArrayList<>(dataSet.getDataSources());
+        this.version = dataSet.getVersion();
+        this.uploadPolicy = dataSet.getUploadPolicy();
+    }
+
+    private static <T extends OsmPrimitive> T[] sorted(Collection<T> primitives, T[] array) {
+        T[] result = primitives.toArray(array);
+        Arrays.sort(result, BY_ID);
+        return result;
+    }
+
+    /**
+     * Saves the state of the given primitive, if it is not yet saved. The caller must hold the write lock of the data set.
+     * @param primitive a primitive of the data set, that is about to be changed or removed
+     */
+    void save(OsmPrimitive primitive) {
+        if (!saved.containsKey(primitive)) {
+            saved.put(primitive, primitive.save());
+        }
+    }
+
+    /**
+     * Returns the data set of which this is a snapshot.
+     * @return the data set
+     */
+    public DataSet getDataSet() {
+        return dataSet;
+    }
+
+    /**
+     * Returns the data sources of the data set.
+     * @return the data sources
+     */
+    public List<DataSource> getDataSources() {
+        return dataSources;
+    }
+
+    /**
+     * Returns the API version the data set was created from.
+     * @return the API version, may be null
+     * @see DataSet#getVersion()
+     */
+    public String getVersion() {
+        return version;
+    }
+
+    /**
+     * Returns the upload policy of the data set.
+     * @return the upload policy
+     * @see DataSet#getUploadPolicy()
+     */
+    public UploadPolicy getUploadPolicy() {
+        return uploadPolicy;
+    }
+
+    /**
+     * Returns the number of primitives of the snapshot.
+     * @return the number of nodes, ways and relations
+     */
+    public int size() {
+        return nodes.length + ways.length + relations.length;
+    }
+
+    /**
+     * Performs the given action for the state of each node, sorted by id.
+     * @param action the action
+     */
+    public void forEachNode(Consumer<? super NodeData> action) {
+        forEach(nodes, action);
+    }
+
+    /**
+     * Performs the given action for the state of each way, sorted by id.
+     * @param action the action
+     */
+    public void forEachWay(Consumer<? super WayData> action) {
+        forEach(ways, action);
+    }
+
+    /**
+     * Performs the given action for the state of each relation, sorted by id.
+     * @param action the action
+     */
+    public void forEachRelation(Consumer<? super RelationData> action) {
+        forEach(relations, action);
+    }
+
+    @SuppressWarnings("unchecked")
+    private <T extends PrimitiveData> void forEach(OsmPrimitive[] primitives, Consumer<? super T> action) {
+        if (closed) {
+            throw new IllegalStateException("Snapshot is closed");
+        }
+        List<T> batch = new ArrayList<>(Math.min(BATCH_SIZE, primitives.length));
+        for (int start = 0; start < primitives.length; start += BATCH_SIZE) {
+            int end = Math.min(start + BATCH_SIZE, primitives.length);
+            dataSet.getReadLock().lock();
+            try {
+                for (int i = start; i < end; i++) {
+                    PrimitiveData data = saved.get(primitives[i]);
+                    batch.add((T) (data != null ? data : primitives[i].save()));
+                }
+            } finally {
+                dataSet.getReadLock().unlock();
+            }
+            batch.forEach(action);
+            batch.clear();
+        }
+    }
+
+    /**
+     * Closes this snapshot. The data set stops saving the state of changed primitives for it.
+     */
+    @Override
+    public void close() {
+        if (!closed) {
+            closed = true;
+            dataSet.removeSnapshot(this);
+        }
+    }
+}
@@ -3,13 +3,22 @@ package org.openstreetmap.josm.data.osm;
 
 import java.util.ArrayList;
 import java.util.Collection;
+import java.util.HashSet;
 import java.util.List;
+import java.util.Set;
+import java.util.function.Consumer;
 
 import org.openstreetmap.josm.data.osm.search.SearchParseError;
 import org.openstreetmap.josm.data.osm.search.SearchCompiler;
 import org.openstreetmap.josm.data.osm.search.SearchMode;
+import org.openstreetmap.josm.data.osm.search.SearchQueryPlanner;
+import org.openstreetmap.josm.data.osm.search.SearchCompiler.AbstractBinaryMatch;
+import org.openstreetmap.josm.data.osm.search.SearchCompiler.Child;
+import org.openstreetmap.josm.data.osm.search.SearchCompiler.InArea;
 import org.openstreetmap.josm.data.osm.search.SearchCompiler.Match;
 import org.openstreetmap.josm.data.osm.search.SearchCompiler.Not;
+import org.openstreetmap.josm.data.osm.search.SearchCompiler.Parent;
+import org.openstreetmap.josm.data.osm.search.SearchCompiler.UnaryMatch;
 import org.openstreetmap.josm.gui.MainApplication;
 import org.openstreetmap.josm.gui.MapFrame;
 import org.openstreetmap.josm.tools.SubclassFilteredCollection;
@@ -74,9 +83,12 @@ public class FilterMatcher {
     }
 
     private static class FilterInfo {
+        private final Match compiled;
         private final Match match;
         private final boolean isDelete;
         private final boolean isInverted;
+        /** primitives, that may match the compiled expression, or {@code null} if all primitives may match */
+        private Set<OsmPrimitive> candidates;
 
         FilterInfo(Filter filter) throws SearchParseError {
             if (filter.mode == SearchMode.remove || filter.mode == SearchMode.in_selection) {
@@ -85,10 +97,18 @@ public class FilterMatcher {
                 isDelete = false;
             }
 
-            Match compiled = SearchCompiler.compile(filter);
+            this.compiled = SearchCompiler.compile(filter);
             this.match = filter.inverted ? new Not(compiled) : compiled;
             this.isInverted = filter.inverted;
         }
+
+        boolean match(OsmPrimitive primitive) {
+            Set<OsmPrimitive> c = candidates;
+            if (c != null && !c.contains(primitive)) {
+                return isInverted;
+            }
+            return match.match(primitive);
+        }
     }
 
     private final List<FilterInfo> hiddenFilters = new ArrayList<>();
@@ -147,6 +167,76 @@ public class FilterMatcher {
         }
     }
 
+    /**
+     * Returns the maximum nesting depth of {@code parent} and {@code child} operators in the filters.
+     * A change of a primitive can affect the filter expressions of primitives up to this number of
+     * parent/child relations away.
+     * @return the maximum nesting depth of {@code parent} and {@code child} operators
+     */
+    int getDependencyDepth() {
+        int depth = 0;
+        for (FilterInfo fi : hiddenFilters) {
+            depth = Math.max(depth, getDependencyDepth(fi.compiled));
+        }
+        for (FilterInfo fi : disabledFilters) {
+            depth = Math.max(depth, getDependencyDepth(fi.compiled));
+        }
+        return depth;
+    }
+
+    private static int getDependencyDepth(Match match) {
+        if (match instanceof UnaryMatch) {
+            int depth = getDependencyDepth(((UnaryMatch) match).getOperand());
+            return match instanceof Parent || match instanceof Child ? depth + 1 : depth;
+        } else if (match instanceof AbstractBinaryMatch) {
+            return Math.max(getDependencyDepth(((AbstractBinaryMatch) match).getLhs()),
+                    getDependencyDepth(((AbstractBinaryMatch) match).getRhs()));
+        }
+        return 0;
+    }
+
+    private static void forEachArea(Match match, Consumer<InArea> action) {
+        if (match instanceof InArea) {
+            action.accept((InArea) match);
+        } else if (match instanceof UnaryMatch) {
+            forEachArea(((UnaryMatch) match).getOperand(), action);
+        } else if (match instanceof AbstractBinaryMatch) {
+            forEachArea(((AbstractBinaryMatch) match).getLhs(), action);
+            forEachArea(((AbstractBinaryMatch) match).getRhs(), action);
+        }
+    }
+
+    /**
+     * Looks up the primitives, that may match the filters, in the indexes of the data set.
+     * Also computes the bounds of area filters, so that the filters can then be evaluated in worker threads.
+     * Both are used until {@link #clearCandidates()} is called, so the data set must not change meanwhile.
+     * @param ds the data set, whose primitives will be tested
+     * @see SearchQueryPlanner
+     * @see InArea#prepare(DataSet)
+     */
+    void computeCandidates(DataSet ds) {
+        Set<FilterInfo> filters = new HashSet<>(hiddenFilters);
+        filters.addAll(disabledFilters);
+        for (FilterInfo fi : filters) {
+            forEachArea(fi.compiled, area -> area.prepare(ds));
+            fi.candidates = SearchQueryPlanner.getCandidates(fi.compiled, ds);
+        }
+    }
+
+    /**
+     * Forgets the primitives and bounds computed by {@link #computeCandidates(DataSet)}.
+     */
+    void clearCandidates() {
+        for (FilterInfo fi : hiddenFilters) {
+            forEachArea(fi.compiled, InArea::release);
+            fi.candidates = null;
+        }
+        for (FilterInfo fi : disabledFilters) {
+            forEachArea(fi.compiled, InArea::release);
+            fi.candidates = null;
+        }
+    }
+
     /**
      * Check if primitive is filtered.
      * @param primitive the primitive to check
@@ -236,11 +326,11 @@ public class FilterMatcher {
 
         for (FilterInfo fi: filters) {
             if (fi.isDelete) {
-                if (filtered && fi.match.match(primitive)) {
+                if (filtered && fi.match(primitive)) {
                     filtered = false;
                 }
             } else {
-                if ((!filtered || (!explicitlyFiltered && !fi.isInverted)) && fi.match.match(primitive)) {
+                if ((!filtered || (!explicitlyFiltered && !fi.isInverted)) && fi.match(primitive)) {
                     filtered = true;
                     if (!fi.isInverted) {
                         explicitlyFiltered = true;
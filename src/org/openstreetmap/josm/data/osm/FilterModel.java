@@ -6,7 +6,9 @@ import static org.openstreetmap.josm.tools.I18n.trn;
 
 import java.awt.Graphics2D;
 import java.util.ArrayList;
+import java.util.Arrays;
 import java.util.Collection;
+import java.util.Collections;
 import java.util.HashSet;
 import java.util.LinkedList;
 import java.util.List;
@@ -17,6 +19,8 @@ import javax.swing.JOptionPane;
 
 import org.openstreetmap.josm.Main;
 import org.openstreetmap.josm.data.osm.Filter.FilterPreferenceEntry;
+import org.openstreetmap.josm.data.osm.event.AbstractDatasetChangedEvent;
+import org.openstreetmap.josm.data.osm.event.DataChangedEvent;
 import org.openstreetmap.josm.data.osm.search.SearchParseError;
 import org.openstreetmap.josm.gui.MainApplication;
 import org.openstreetmap.josm.gui.layer.OsmDataLayer;
@@ -126,6 +130,11 @@ public class FilterModel {
                     }
                 }
                 disabledCount -= disabledAndHiddenCount;
+
+                // keep the flags consistent with the counts, see executeFilters(Collection)
+                for (OsmPrimitive osm : ds.getPrimitives(p -> p.isDisabled() && (p.isDeleted() || p.isIncomplete()))) {
+                    changed |= osm.unsetDisabledState();
+                }
             } finally {
                 ds.endUpdate();
             }
@@ -141,6 +150,7 @@ public class FilterModel {
 
     /**
      * Runs the filter on a list of primitives that are part of the edit data set.
+     * Primitives that have been deleted or removed from the data set are no longer filtered.
      * @param primitives The primitives
      */
     public void executeFilters(Collection<? extends OsmPrimitive> primitives) {
@@ -153,30 +163,20 @@ public class FilterModel {
 
         ds.beginUpdate();
         try {
-            for (int i = 0; i < 2; i++) {
+            // first relations, then ways and nodes last; this is required to resolve dependencies
+            for (Class<?> type : Arrays.asList(Relation.class, Way.class, Node.class)) {
                 for (OsmPrimitive primitive: primitives) {
-
-                    if (i == 0 && primitive instanceof Node) {
+                    if (!type.isInstance(primitive)) {
                         continue;
                     }
 
-                    if (i == 1 && !(primitive instanceof Node)) {
+                    count(primitive, -1);
+                    if (primitive.getDataSet() != ds || primitive.isDeleted() || primitive.isIncomplete()) {
+                        changed |= primitive.unsetDisabledState();
                         continue;
                     }
-
-                    if (primitive.isDisabled()) {
-                        disabledCount--;
-                    }
-                    if (primitive.isDisabledAndHidden()) {
-                        disabledAndHiddenCount--;
-                    }
                     changed |= FilterWorker.executeFilters(primitive, filterMatcher);
-                    if (primitive.isDisabled()) {
-                        disabledCount++;
-                    }
-                    if (primitive.isDisabledAndHidden()) {
-                        disabledAndHiddenCount++;
-                    }
+                    count(primitive, +1);
 
                     if (primitive.isSelected() && primitive.isDisabled()) {
                         deselect.add(primitive);
@@ -195,6 +195,53 @@ public class FilterModel {
         }
     }
 
+    /**
+     * Updates the filter state after a change of the edit data set.
+     * <p>
+     * Only the changed primitives and the primitives, whose filter state may depend on them, are filtered again.
+     * All primitives are filtered again, if the event does not tell which primitives have changed.
+     * @param event the change of the edit data set
+     * @since 12671
+     */
+    public void executeFilters(AbstractDatasetChangedEvent event) {
+        Collection<OsmPrimitive> changedPrimitives = getChangedPrimitives(event);
+        if (changedPrimitives == null) {
+            executeFilters();
+        } else {
+            // relations can match depending on all their members, e.g. with allInDownloadedArea, so all referrers
+            // are affected. The filter state of nodes and ways depends on the state of parent ways and multipolygons,
+            // so a change of a relation can affect the nodes of its member ways
+            executeFilters(getDependentPrimitives(getAllReferrers(changedPrimitives), filterMatcher.getDependencyDepth() + 2));
+        }
+    }
+
+    private static Collection<OsmPrimitive> getChangedPrimitives(AbstractDatasetChangedEvent event) {
+        if (event instanceof DataChangedEvent) {
+            List<AbstractDatasetChangedEvent> events = ((DataChangedEvent) event).getEvents();
+            if (events == null) {
+                return null;
+            }
+            Set<OsmPrimitive> result = new HashSet<>();
+            for (AbstractDatasetChangedEvent e : events) {
+                Collection<OsmPrimitive> primitives = getChangedPrimitives(e);
+                if (primitives == null) {
+                    return null;
+                }
+                result.addAll(primitives);
+            }
+            return result;
+        }
+        return new ArrayList<>(event.getPrimitives());
+    }
+
+    private void count(OsmPrimitive primitive, int delta) {
+        if (primitive.isDisabledAndHidden()) {
+            disabledAndHiddenCount += delta;
+        } else if (primitive.isDisabled()) {
+            disabledCount += delta;
+        }
+    }
+
     private static void updateMap() {
         OsmDataLayer editLayer = MainApplication.getLayerManager().getEditLayer();
         if (editLayer != null) {
@@ -370,6 +417,64 @@ public class FilterModel {
         return changed;
     }
 
+    /**
+     * Returns the primitives, whose filtering can be affected by a change of the given primitives.
+     * Unlike {@link #getAffectedPrimitives(Collection)}, only primitives up to the given number of
+     * parent/child relations away from the changed primitives are returned.
+     * @param primitives the changed primitives
+     * @param distance maximum number of parent/child relations between a changed and an affected primitive
+     * @return the changed primitives and the primitives, whose filtering can be affected by their change
+     * @since 12671
+     */
+    public static Set<OsmPrimitive> getDependentPrimitives(Collection<? extends OsmPrimitive> primitives, int distance) {
+        Set<OsmPrimitive> result = new HashSet<>(primitives);
+        Collection<OsmPrimitive> level = new ArrayList<>(primitives);
+        for (int i = 0; i < distance && !level.isEmpty(); i++) {
+            Collection<OsmPrimitive> next = new ArrayList<>();
+            for (OsmPrimitive p : level) {
+                List<? extends OsmPrimitive> children;
+                if (p instanceof Way) {
+                    children = ((Way) p).getNodes();
+                } else if (p instanceof Relation) {
+                    children = ((Relation) p).getMemberPrimitivesList();
+                } else {
+                    children = Collections.emptyList();
+                }
+                for (OsmPrimitive neighbour : children) {
+                    if (result.add(neighbour)) {
+                        next.add(neighbour);
+                    }
+                }
+                for (OsmPrimitive neighbour : p.getReferrers(true)) {
+                    if (result.add(neighbour)) {
+                        next.add(neighbour);
+                    }
+                }
+            }
+            level = next;
+        }
+        return result;
+    }
+
+    /**
+     * Returns the given primitives and their referrers, the referrers of these referrers and so on.
+     * @param primitives the changed primitives
+     * @return the given primitives and all primitives that refer to them, directly or indirectly
+     */
+    static Set<OsmPrimitive> getAllReferrers(Collection<? extends OsmPrimitive> primitives) {
+        Set<OsmPrimitive> result = new HashSet<>(primitives);
+        Stack<OsmPrimitive> stack = new Stack<>();
+        stack.addAll(primitives);
+        while (!stack.isEmpty()) {
+            for (OsmPrimitive referrer : stack.pop().getReferrers(true)) {
+                if (result.add(referrer)) {
+                    stack.push(referrer);
+                }
+            }
+        }
+        return result;
+    }
+
     /**
      * Returns the list of primitives whose filtering can be affected by change in primitive
      * @param primitives list of primitives to check
@@ -1,12 +1,17 @@
 // License: GPL. For details, see LICENSE file.
 package org.openstreetmap.josm.data.osm;
 
+import java.util.ArrayList;
 import java.util.Collection;
 import java.util.Collections;
+import java.util.List;
+import java.util.concurrent.ForkJoinPool;
+import java.util.concurrent.RecursiveAction;
 
 import org.openstreetmap.josm.data.osm.FilterMatcher.FilterType;
 import org.openstreetmap.josm.data.osm.search.SearchParseError;
 import org.openstreetmap.josm.tools.SubclassFilteredCollection;
+import org.openstreetmap.josm.tools.Utils;
 
 /**
  * Class for applying {@link Filter}s to {@link OsmPrimitive}s.
@@ -17,6 +22,12 @@ import org.openstreetmap.josm.tools.SubclassFilteredCollection;
  */
 public final class FilterWorker {
 
+    private static final ForkJoinPool THREAD_POOL =
+            Utils.newForkJoinPool("filter.numberOfThreads", "filter-worker-%d", Thread.NORM_PRIORITY);
+
+    /** Number of primitives evaluated by one task of the thread pool */
+    private static final int PARALLEL_CHUNK_SIZE = 2_000;
+
     private FilterWorker() {
         // Hide default constructor for utils classes
     }
@@ -42,36 +53,94 @@ public final class FilterWorker {
      * @return true, if the filter state (normal / disabled / hidden) of any primitive has changed in the process
      */
     public static boolean executeFilters(Collection<OsmPrimitive> all, FilterMatcher filterMatcher) {
-        boolean changed;
-        // first relations, then ways and nodes last; this is required to resolve dependencies
-        changed = doExecuteFilters(SubclassFilteredCollection.filter(all, Relation.class::isInstance), filterMatcher);
-        changed |= doExecuteFilters(SubclassFilteredCollection.filter(all, Way.class::isInstance), filterMatcher);
-        changed |= doExecuteFilters(SubclassFilteredCollection.filter(all, Node.class::isInstance), filterMatcher);
-        return changed;
+        DataSet ds = all.isEmpty() ? null : all.iterator().next().getDataSet();
+        if (ds != null) {
+            // evaluate the filter expressions only for primitives found in the indexes of the data set
+            filterMatcher.computeCandidates(ds);
+        }
+        try {
+            boolean changed;
+            // first relations, then ways and nodes last; this is required to resolve dependencies
+            changed = doExecuteFilters(SubclassFilteredCollection.filter(all, Relation.class::isInstance), filterMatcher);
+            changed |= doExecuteFilters(SubclassFilteredCollection.filter(all, Way.class::isInstance), filterMatcher);
+            changed |= doExecuteFilters(SubclassFilteredCollection.filter(all, Node.class::isInstance), filterMatcher);
+            return changed;
+        } finally {
+            filterMatcher.clearCandidates();
+        }
     }
 
     private static boolean doExecuteFilters(Collection<OsmPrimitive> all, FilterMatcher filterMatcher) {
+        List<OsmPrimitive> primitives = new ArrayList<>(all);
+        FilterType[] hiddenTypes = new FilterType[primitives.size()];
+        FilterType[] disabledTypes = new FilterType[primitives.size()];
+        // The state of a primitive only depends on the state of its parents, which have been updated before.
+        // Evaluate the filters in parallel, but change the primitives in this thread, that holds the dataset lock.
+        // The worker threads must not lock the dataset or access the GUI, see computeCandidates() and Match.match().
+        EvaluationTask task = new EvaluationTask(primitives, 0, primitives.size(), filterMatcher, hiddenTypes, disabledTypes);
+        if (primitives.size() > PARALLEL_CHUNK_SIZE) {
+            THREAD_POOL.invoke(task);
+        } else {
+            task.compute();
+        }
 
         boolean changed = false;
-
-        for (OsmPrimitive primitive: all) {
-            FilterType hiddenType = filterMatcher.isHidden(primitive);
-            if (hiddenType != FilterType.NOT_FILTERED) {
+        for (int i = 0; i < hiddenTypes.length; i++) {
+            OsmPrimitive primitive = primitives.get(i);
+            if (hiddenTypes[i] != FilterType.NOT_FILTERED) {
                 changed |= primitive.setDisabledState(true);
-                primitive.setHiddenType(hiddenType == FilterType.EXPLICIT);
+                primitive.setHiddenType(hiddenTypes[i] == FilterType.EXPLICIT);
+            } else if (disabledTypes[i] != FilterType.NOT_FILTERED) {
+                changed |= primitive.setDisabledState(false);
+                primitive.setDisabledType(disabledTypes[i] == FilterType.EXPLICIT);
             } else {
-                FilterType disabledType = filterMatcher.isDisabled(primitive);
-                if (disabledType != FilterType.NOT_FILTERED) {
-                    changed |= primitive.setDisabledState(false);
-                    primitive.setDisabledType(disabledType == FilterType.EXPLICIT);
-                } else {
-                    changed |= primitive.unsetDisabledState();
-                }
+                changed |= primitive.unsetDisabledState();
             }
         }
         return changed;
     }
 
+    /**
+     * Determines the filter state of a range of primitives, splitting it into chunks evaluated in parallel.
+     */
+    private static final class EvaluationTask extends RecursiveAction {
+
+        // Needed for Findbugs / Coverity because parent class is serializable
+        private static final long serialVersionUID = 1L;
+
+        private final transient List<OsmPrimitive> primitives;
+        private final int from;
+        private final int to;
+        private final transient FilterMatcher filterMatcher;
+        private final FilterType[] hiddenTypes;
+        private final FilterType[] disabledTypes;
+
+        EvaluationTask(List<OsmPrimitive> primitives, int from, int to, FilterMatcher filterMatcher,
+                FilterType[] hiddenTypes, FilterType[] disabledTypes) {
+            this.primitives = primitives;
+            this.from = from;
+            this.to = to;
+            this.filterMatcher = filterMatcher;
+            this.hiddenTypes = hiddenTypes;
+            this.disabledTypes = disabledTypes;
+        }
+
+        @Override
+        protected void compute() {
+            if (to - from > PARALLEL_CHUNK_SIZE) {
+                int mid = (from + to) >>> 1;
+                invokeAll(new EvaluationTask(primitives, from, mid, filterMatcher, hiddenTypes, disabledTypes),
+                          new EvaluationTask(primitives, mid, to, filterMatcher, hiddenTypes, disabledTypes));
+                return;
+            }
+            for (int i = from; i < to; i++) {
+                OsmPrimitive primitive = primitives.get(i);
+                hiddenTypes[i] = filterMatcher.isHidden(primitive);
+                disabledTypes[i] = hiddenTypes[i] == FilterType.NOT_FILTERED ? filterMatcher.isDisabled(primitive) : FilterType.NOT_FILTERED;
+            }
+        }
+    }
+
     /**
      * Apply the filters to a single primitive.
      *
@@ -259,7 +259,8 @@ public final class Node extends OsmPrimitive implements INode {
         boolean locked = writeLock();
         try {
             super.mergeFrom(other);
-            if (!other.isIncomplete()) {
+            // do not move (and reindex) the node if its coordinates are unchanged, as when refreshing data
+            if (!other.isIncomplete() && !(isLatLonKnown() && lat == ((Node) other).lat && lon == ((Node) other).lon)) {
                 setCoor(((Node) other).getCoor());
             }
         } finally {
@@ -367,6 +368,19 @@ public final class Node extends OsmPrimitive implements INode {
         this.eastNorthCacheKey = null;
     }
 
+    /**
+     * Sets the internal cache of projected east/north coordinates.
+     * To be used only by {@link DataSet#updateEastNorthCache}.
+     * @param east east coordinate in the projection identified by the cache key
+     * @param north north coordinate in the projection identified by the cache key
+     * @param cacheKey the cache key of the projection
+     */
+    void setEastNorthCache(double east, double north, Object cacheKey) {
+        this.east = east;
+        this.north = north;
+        this.eastNorthCacheKey = cacheKey;
+    }
+
     @Override
     public boolean concernsArea() {
         // A node cannot be an area
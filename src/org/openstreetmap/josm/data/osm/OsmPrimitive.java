@@ -256,6 +256,7 @@ public abstract class OsmPrimitive extends AbstractPrimitive implements Comparab
     protected boolean writeLock() {
         if (dataSet != null) {
             dataSet.beginUpdate();
+            dataSet.beforeChange(this);
             return true;
         } else
             return false;
@@ -291,6 +292,10 @@ public abstract class OsmPrimitive extends AbstractPrimitive implements Comparab
                 throw new IllegalArgumentException(tr("Version > 0 expected. Got {0}.", version));
             if (dataSet != null && id != this.id) {
                 DataSet datasetCopy = dataSet;
+                // Referrers of this primitive refer to it by id in snapshots
+                for (OsmPrimitive referrer : getReferrers()) {
+                    datasetCopy.beforeChange(referrer);
+                }
                 // Reindex primitive
                 datasetCopy.removePrimitive(this);
                 this.id = id;
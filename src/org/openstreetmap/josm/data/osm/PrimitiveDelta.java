@@ -0,0 +1,252 @@
+// License: GPL. For details, see LICENSE file.
+package org.openstreetmap.josm.data.osm;
+
+import static org.openstreetmap.josm.tools.I18n.tr;
+
+import java.util.ArrayList;
+import java.util.Arrays;
+import java.util.List;
+import java.util.Objects;
+
+import org.openstreetmap.josm.data.coor.LatLon;
+
+/**
+ * The former state of a primitive, stored to undo a change.
+ * <p>
+ * A delta first holds the complete former state. Once the change is done, {@link #compact} replaces it by the
+ * differences to the current state: the changed tags, the former coordinates of a node and the changed part of
+ * the node list of a way or of the member list of a relation. The former state is then restored from the
+ * current state of the primitive by {@link #revert}, which requires the primitive to be in the state it was
+ * in when the delta was compacted.
+ *
+ * @since 12679
+ */
+public final class PrimitiveDelta {
+
+    /** rough size of an object header and reference, in bytes */
+    private static final int OBJECT_SIZE = 16;
+    private static final int REFERENCE_SIZE = 8;
+    /** rough size of the fields of a delta and of primitive data, in bytes */
+    private static final int DELTA_SIZE = OBJECT_SIZE + 48;
+    private static final int DATA_SIZE = OBJECT_SIZE + 56;
+
+    /** the complete former state, {@code null} once compacted */
+    private final PrimitiveData data;
+
+    private short flags;
+    /** key and former value of each changed tag, the value is {@code null} for added tags */
+    private String[] tags;
+    private double lat = Double.NaN;
+    private double lon = Double.NaN;
+    /** index of the first changed way node or relation member */
+    private int start;
+    /** number of way nodes or relation members that replaced the former ones */
+    private int count;
+    /** the former way nodes replaced by the change */
+    private long[] nodes;
+    /** the former relation members replaced by the change */
+    private RelationMemberData[] members;
+
+    /**
+     * Constructs a new {@code PrimitiveDelta} holding the complete former state.
+     * @param data the former state of the primitive
+     */
+    public PrimitiveDelta(PrimitiveData data) {
+        this.data = Objects.requireNonNull(data, "data");
+    }
+
+    private PrimitiveDelta() {
+        this.data = null;
+    }
+
+    /**
+     * Determines if this delta only holds the differences to the current state.
+     * @return {@code true} if {@link #compact} has been applied
+     */
+    public boolean isCompact() {
+        return data == null;
+    }
+
+    /**
+     * Computes the differences between the former state and the given current state.
+     * @param current the current state of the primitive
+     * @return the compact delta, or this delta if it is already compact or cannot be compacted
+     */
+    public PrimitiveDelta compact(PrimitiveData current) {
+        // commands seldom change the upload attributes, keep the complete state if they do
+        if (data == null || data.getType() != current.getType() || data.id != current.id || data.version != current.version
+                || data.changesetId != current.changesetId || data.timestamp != current.timestamp || data.user != current.user) {
+            return this;
+        }
+        PrimitiveDelta delta = new PrimitiveDelta();
+        delta.flags = data.flags;
+        delta.tags = diffTags(data.keys, current.keys);
+        if (data instanceof NodeData) {
+            delta.lat = ((NodeData) data).lat();
+            delta.lon = ((NodeData) data).lon();
+        } else if (data instanceof WayData) {
+            List<Long> before = ((WayData) data).getNodes();
+            List<Long> after = ((WayData) current).getNodes();
+            if (delta.diffRange(before, after)) {
+                delta.nodes = new long[before.size() - delta.start - (after.size() - delta.start - delta.count)];
+                for (int i = 0; i < delta.nodes.length; i++) {
+                    delta.nodes[i] = before.get(delta.start + i);
+                }
+            }
+        } else if (data instanceof RelationData) {
+            List<RelationMemberData> before = ((RelationData) data).getMembers();
+            List<RelationMemberData> after = ((RelationData) current).getMembers();
+            if (delta.diffRange(before, after)) {
+                int end = before.size() - (after.size() - delta.start - delta.count);
+                delta.members = before.subList(delta.start, end).toArray(new RelationMemberData[end - delta.start]);
+            }
+        }
+        return delta;
+    }
+
+    private static String[] diffTags(String[] before, String[] after) {
+        if (Arrays.equals(before, after)) {
+            return null;
+        }
+        List<String> result = new ArrayList<>();
+        if (before != null) {
+            for (int i = 0; i < before.length; i += 2) {
+                if (!before[i + 1].equals(valueOf(after, before[i]))) {
+                    result.add(before[i]);
+                    result.add(before[i + 1]);
+                }
+            }
+        }
+        if (after != null) {
+            for (int i = 0; i < after.length; i += 2) {
+                if (valueOf(before, after[i]) == null) {
+                    result.add(after[i]);
+                    result.add(null);
+                }
+            }
+        }
+        return result.isEmpty() ? null : result.toArray(new String[result.size()]);
+    }
+
+    private static String valueOf(String[] keys, String key) {
+        if (keys != null) {
+            for (int i = 0; i < keys.length; i += 2) {
+                if (keys[i].equals(key)) {
+                    return keys[i + 1];
+                }
+            }
+        }
+        return null;
+    }
+
+    /**
+     * Finds the changed range of a list, as {@link #start} and {@link #count}.
+     * @param before the former list
+     * @param after the current list
+     * @return {@code true} if the lists differ
+     */
+    private boolean diffRange(List<?> before, List<?> after) {
+        int prefix = 0;
+        int max = Math.min(before.size(), after.size());
+        while (prefix < max && before.get(prefix).equals(after.get(prefix))) {
+            prefix++;
+        }
+        if (prefix == before.size() && prefix == after.size()) {
+            return false;
+        }
+        int suffix = 0;
+        max -= prefix;
+        while (suffix < max && before.get(before.size() - 1 - suffix).equals(after.get(after.size() - 1 - suffix))) {
+            suffix++;
+        }
+        start = prefix;
+        count = after.size() - prefix - suffix;
+        return true;
+    }
+
+    /**
+     * Checks that the changed range of the node or member list lies within the current list.
+     * @param primitive the primitive
+     * @param size the current size of the list
+     * @throws IllegalStateException if the primitive is not in the state it was in when this delta was compacted
+     */
+    private void checkRange(OsmPrimitive primitive, int size) {
+        if (start + count > size) {
+            throw new IllegalStateException(tr("Cannot undo the change of {0}: it has {1} nodes or members, expected at least {2}",
+                    primitive.getPrimitiveId(), size, start + count));
+        }
+    }
+
+    /**
+     * Returns the former state of the given primitive.
+     * @param primitive the primitive, in the state it was in when this delta was compacted
+     * @return the former state
+     * @throws IllegalStateException if the primitive has fewer nodes or members than when this delta was compacted
+     */
+    public PrimitiveData revert(OsmPrimitive primitive) {
+        if (data != null) {
+            return data;
+        }
+        PrimitiveData result = primitive.save();
+        result.flags = flags;
+        if (tags != null) {
+            for (int i = 0; i < tags.length; i += 2) {
+                if (tags[i + 1] == null) {
+                    result.remove(tags[i]);
+                } else {
+                    result.put(tags[i], tags[i + 1]);
+                }
+            }
+        }
+        if (result instanceof NodeData) {
+            ((NodeData) result).setCoor(Double.isNaN(lat) || Double.isNaN(lon) ? null : new LatLon(lat, lon));
+        } else if (result instanceof WayData && nodes != null) {
+            List<Long> current = ((WayData) result).getNodes();
+            checkRange(primitive, current.size());
+            List<Long> list = new ArrayList<>(current.size() - count + nodes.length);
+            list.addAll(current.subList(0, start));
+            for (long node : nodes) {
+                list.add(node);
+            }
+            list.addAll(current.subList(start + count, current.size()));
+            ((WayData) result).setNodes(list);
+        } else if (result instanceof RelationData && members != null) {
+            List<RelationMemberData> current = ((RelationData) result).getMembers();
+            checkRange(primitive, current.size());
+            List<RelationMemberData> list = new ArrayList<>(current.size() - count + members.length);
+            list.addAll(current.subList(0, start));
+            list.addAll(Arrays.asList(members));
+            list.addAll(current.subList(start + count, current.size()));
+            ((RelationData) result).setMembers(list);
+        }
+        return result;
+    }
+
+    /**
+     * Estimates the memory used by this delta. Strings are assumed to be shared with the data set.
+     * @return the estimated size in bytes
+     */
+    public long estimateMemoryUsage() {
+        if (data != null) {
+            long size = DELTA_SIZE + DATA_SIZE + (data.keys == null ? 0 : OBJECT_SIZE + REFERENCE_SIZE * data.keys.length);
+            if (data instanceof WayData) {
+                // list of boxed ids
+                size += 2 * OBJECT_SIZE + (OBJECT_SIZE + REFERENCE_SIZE) * ((WayData) data).getNodesCount();
+            } else if (data instanceof RelationData) {
+                size += 2 * OBJECT_SIZE + (2 * OBJECT_SIZE + REFERENCE_SIZE) * ((RelationData) data).getMembersCount();
+            }
+            return size;
+        }
+        long size = DELTA_SIZE;
+        if (tags != null) {
+            size += OBJECT_SIZE + REFERENCE_SIZE * tags.length;
+        }
+        if (nodes != null) {
+            size += OBJECT_SIZE + 8 * nodes.length;
+        }
+        if (members != null) {
+            size += OBJECT_SIZE + (2 * OBJECT_SIZE + REFERENCE_SIZE) * members.length;
+        }
+        return size;
+    }
+}
@@ -56,7 +56,8 @@ public class SimplePrimitiveId implements PrimitiveId, Serializable {
 
     @Override
     public int hashCode() {
-        return Objects.hash(id, type);
+        // same value as Objects.hash(id, type), without boxing: ids are used as keys of large maps by readers
+        return 31 * (31 + Long.hashCode(id)) + Objects.hashCode(type);
     }
 
     @Override
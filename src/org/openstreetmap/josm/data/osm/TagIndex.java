@@ -0,0 +1,181 @@
+// License: GPL. For details, see LICENSE file.
+package org.openstreetmap.josm.data.osm;
+
+import java.util.ArrayList;
+import java.util.Collection;
+import java.util.HashMap;
+import java.util.HashSet;
+import java.util.List;
+import java.util.Map;
+import java.util.Set;
+import java.util.stream.Collectors;
+
+/**
+ * Inverted index of the tags of the primitives of a {@link DataSet}.
+ * <p>
+ * For every key and every value of the key, the index holds the set of primitives having this tag.
+ * The sets are {@link Storage}s, that take considerably less memory than hash sets of primitives.
+ * Keys with more distinct values than {@link DataSet#TAG_INDEX_MAX_VALUES} (e.g., {@code name}, {@code ref})
+ * are only indexed by key, the primitives having a given value are then filtered from the primitives having the key.
+ * The index is maintained by the data set, it is only accessed when holding the lock of the data set.
+ *
+ * @since 12670
+ */
+final class TagIndex {
+
+    /**
+     * Primitives having a key.
+     */
+    private static final class KeyPostings {
+        /** primitives by value, or {@code null} if the key has too many values */
+        private Map<String, Set<OsmPrimitive>> values = new HashMap<>();
+        /** primitives having the key, only maintained if the key has too many values */
+        private Set<OsmPrimitive> primitives;
+
+        boolean isEmpty() {
+            return values != null ? values.isEmpty() : primitives.isEmpty();
+        }
+    }
+
+    /** primitives by key */
+    private final Map<String, KeyPostings> index = new HashMap<>();
+    /** maximum number of values indexed for a key */
+    private final int maxValues;
+
+    /**
+     * Constructs a new {@code TagIndex} containing the given primitives.
+     * @param primitives primitives to index
+     * @param maxValues maximum number of distinct values of a key for which the primitives are indexed by value
+     */
+    TagIndex(Collection<OsmPrimitive> primitives, int maxValues) {
+        this.maxValues = maxValues;
+        for (OsmPrimitive primitive : primitives) {
+            add(primitive);
+        }
+    }
+
+    private static Set<OsmPrimitive> newSet() {
+        return new Storage<>(new Storage.PrimitiveIdHash(), 2);
+    }
+
+    private void add(OsmPrimitive primitive, String key, String value) {
+        KeyPostings postings = index.computeIfAbsent(key.intern(), k -> new KeyPostings());
+        if (postings.values != null) {
+            Set<OsmPrimitive> primitives = postings.values.get(value);
+            if (primitives != null || postings.values.size() < maxValues) {
+                postings.values.computeIfAbsent(value, v -> newSet()).add(primitive);
+                return;
+            }
+            // too many values, only index the key from now on
+            postings.primitives = newSet();
+            postings.values.values().forEach(postings.primitives::addAll);
+            postings.values = null;
+        }
+        postings.primitives.add(primitive);
+    }
+
+    private void remove(OsmPrimitive primitive, String key, String value) {
+        KeyPostings postings = index.get(key);
+        if (postings != null) {
+            boolean removed;
+            if (postings.values != null) {
+                Set<OsmPrimitive> primitives = postings.values.get(value);
+                removed = primitives != null && primitives.remove(primitive);
+                if (removed && primitives.isEmpty()) {
+                    postings.values.remove(value);
+                }
+            } else {
+                removed = postings.primitives.remove(primitive);
+            }
+            if (removed && postings.isEmpty()) {
+                index.remove(key);
+            }
+        }
+    }
+
+    /**
+     * Adds the tags of a primitive to the index.
+     * @param primitive primitive added to the data set
+     */
+    void add(OsmPrimitive primitive) {
+        primitive.visitKeys((p, key, value) -> add(primitive, key, value));
+    }
+
+    /**
+     * Removes the tags of a primitive from the index.
+     * @param primitive primitive removed from the data set
+     */
+    void remove(OsmPrimitive primitive) {
+        primitive.visitKeys((p, key, value) -> remove(primitive, key, value));
+    }
+
+    /**
+     * Updates the index after the tags of a primitive changed.
+     * @param primitive primitive with changed tags
+     * @param originalKeys tags of the primitive before the change
+     */
+    void tagsChanged(OsmPrimitive primitive, Map<String, String> originalKeys) {
+        for (Map.Entry<String, String> e : originalKeys.entrySet()) {
+            remove(primitive, e.getKey(), e.getValue());
+        }
+        add(primitive);
+    }
+
+    /**
+     * Returns the primitives having the given tag.
+     * @param key the key
+     * @param value the value
+     * @return a new list of the primitives having the tag
+     */
+    List<OsmPrimitive> getPrimitives(String key, String value) {
+        KeyPostings postings = index.get(key);
+        if (postings == null) {
+            return new ArrayList<>();
+        } else if (postings.values != null) {
+            Set<OsmPrimitive> primitives = postings.values.get(value);
+            return primitives == null ? new ArrayList<>() : new ArrayList<>(primitives);
+        } else {
+            return postings.primitives.stream().filter(p -> value.equals(p.get(key))).collect(Collectors.toList());
+        }
+    }
+
+    /**
+     * Returns the primitives having the given key.
+     * @param key the key
+     * @return a new list of the primitives having the key
+     */
+    List<OsmPrimitive> getPrimitives(String key) {
+        List<OsmPrimitive> result = new ArrayList<>();
+        KeyPostings postings = index.get(key);
+        if (postings != null && postings.values != null) {
+            postings.values.values().forEach(result::addAll);
+        } else if (postings != null) {
+            result.addAll(postings.primitives);
+        }
+        return result;
+    }
+
+    /**
+     * Returns all keys used in the data set.
+     * @return a new set of all keys
+     */
+    Set<String> getKeys() {
+        return new HashSet<>(index.keySet());
+    }
+
+    /**
+     * Returns all values of the given key used in the data set.
+     * @param key the key
+     * @return a new set of the values
+     */
+    Set<String> getValues(String key) {
+        KeyPostings postings = index.get(key);
+        if (postings == null) {
+            return new HashSet<>();
+        } else if (postings.values != null) {
+            return new HashSet<>(postings.values.keySet());
+        } else {
+            return postings.primitives.stream().map(p -> p.get(key)).collect(Collectors.toSet());
+        }
+    }
+}
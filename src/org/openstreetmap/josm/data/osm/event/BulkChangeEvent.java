@@ -0,0 +1,94 @@
+// License: GPL. For details, see LICENSE file.
+package org.openstreetmap.josm.data.osm.event;
+
+import java.util.Collections;
+import java.util.EnumSet;
+import java.util.List;
+import java.util.Set;
+
+import org.openstreetmap.josm.data.osm.DataSet;
+import org.openstreetmap.josm.data.osm.OsmPrimitive;
+
+/**
+ * A data change event for many changes, that tells which primitives have been added, removed and changed.
+ * <p>
+ * It is fired by {@link DataSet#endUpdate()} instead of a plain {@link DataChangedEvent} when too many events
+ * occurred to fire them one by one. Listeners not aware of it handle it like any {@link DataChangedEvent},
+ * listeners that can update incrementally check for it in {@link DataSetListener#dataChanged}.
+ * <p>
+ * The changes are coalesced: a primitive that is added and removed again is not listed,
+ * a primitive that is removed and added again is listed as changed.
+ * @since 12680
+ */
+public class BulkChangeEvent extends DataChangedEvent {
+
+    private final Set<OsmPrimitive> added;
+    private final Set<OsmPrimitive> removed;
+    private final Set<OsmPrimitive> changed;
+    private final Set<DatasetEventType> changeTypes;
+
+    /**
+     * Constructs a new {@code BulkChangeEvent}.
+     * @param dataSet the dataset from which the event comes from
+     * @param events list of change events, or {@code null} if there were too many of them
+     * @param added the added primitives
+     * @param removed the removed primitives
+     * @param changed the primitives that have been changed, but not added or removed
+     * @param changeTypes the types of the events that occurred
+     */
+    public BulkChangeEvent(DataSet dataSet, List<AbstractDatasetChangedEvent> events, Set<OsmPrimitive> added,
+            Set<OsmPrimitive> removed, Set<OsmPrimitive> changed, Set<DatasetEventType> changeTypes) {
+        super(dataSet, events);
+        this.added = Collections.unmodifiableSet(added);
+        this.removed = Collections.unmodifiableSet(removed);
+        this.changed = Collections.unmodifiableSet(changed);
+        this.changeTypes = Collections.unmodifiableSet(changeTypes.isEmpty()
+                ? EnumSet.noneOf(DatasetEventType.class) : EnumSet.copyOf(changeTypes));
+    }
+
+    /**
+     * Returns the primitives that have been added to the data set, or that have been completed.
+     * @return the added primitives
+     */
+    public Set<OsmPrimitive> getAdded() {
+        return added;
+    }
+
+    /**
+     * Returns the primitives that have been removed from the data set, or that have been deleted.
+     * @return the removed primitives
+     */
+    public Set<OsmPrimitive> getRemoved() {
+        return removed;
+    }
+
+    /**
+     * Returns the primitives whose tags, coordinates, nodes, members, flags or changeset have changed.
+     * Ways and relations are not listed for changes of their nodes or members.
+     * @return the changed primitives
+     */
+    public Set<OsmPrimitive> getChanged() {
+        return changed;
+    }
+
+    /**
+     * Returns the types of the events that occurred.
+     * @return the event types, never {@link DatasetEventType#DATA_CHANGED}
+     */
+    public Set<DatasetEventType> getChangeTypes() {
+        return changeTypes;
+    }
+
+    /**
+     * Determines if only events of the given types occurred.
+     * @param types event types
+     * @return {@code true} if no other events occurred
+     */
+    public boolean hasOnly(DatasetEventType... types) {
+        Set<DatasetEventType> other = EnumSet.allOf(DatasetEventType.class);
+        for (DatasetEventType type : types) {
+            other.remove(type);
+        }
+        return Collections.disjoint(changeTypes, other);
+    }
+}
@@ -49,6 +49,12 @@ public class DatasetEventManager implements ActiveLayerChangeListener, Listener
 
                     dataSet = event.getDataset();
 
+                    // The primitives listed by a bulk event cannot be merged with other events
+                    if (consolidatedEvent instanceof BulkChangeEvent) {
+                        List<AbstractDatasetChangedEvent> evts = ((BulkChangeEvent) consolidatedEvent).getEvents();
+                        consolidatedEvent = new DataChangedEvent(dataSet, evts == null ? null : new ArrayList<>(evts));
+                    }
+
                     // Build consolidated event
                     if (event instanceof DataChangedEvent) {
                         // DataChangeEvent can contains other events, so it gets special handling
@@ -57,7 +63,8 @@ public class DatasetEventManager implements ActiveLayerChangeListener, Listener
                             consolidatedEvent = dataEvent; // Dataset was completely changed, we can ignore older events
                         } else {
                             if (consolidatedEvent == null) {
-                                consolidatedEvent = new DataChangedEvent(dataSet, dataEvent.getEvents());
+                                consolidatedEvent = dataEvent instanceof BulkChangeEvent
+                                        ? dataEvent : new DataChangedEvent(dataSet, dataEvent.getEvents());
                             } else if (consolidatedEvent instanceof DataChangedEvent) {
                                 List<AbstractDatasetChangedEvent> evts = ((DataChangedEvent) consolidatedEvent).getEvents();
                                 if (evts != null) {
@@ -25,6 +25,7 @@ import java.util.stream.Collectors;
 import org.openstreetmap.josm.Main;
 import org.openstreetmap.josm.data.Bounds;
 import org.openstreetmap.josm.data.coor.LatLon;
+import org.openstreetmap.josm.data.osm.DataSet;
 import org.openstreetmap.josm.data.osm.Node;
 import org.openstreetmap.josm.data.osm.OsmPrimitive;
 import org.openstreetmap.josm.data.osm.OsmPrimitiveType;
@@ -263,6 +264,10 @@ public class SearchCompiler {
 
         /**
          * Tests whether the primitive matches this criterion.
+         * <p>
+         * Filters call this method concurrently from worker threads, while the calling thread holds the write lock
+         * of the data set (see {@link org.openstreetmap.josm.data.osm.FilterWorker}). Implementations must therefore
+         * neither lock the data set nor access the GUI.
          * @param osm the primitive to test
          * @return true if the primitive matches this criterion
          */
@@ -523,7 +528,7 @@ public class SearchCompiler {
     /**
      * Matches objects with ID in the given range.
      */
-    private static class Id extends RangeMatch {
+    static class Id extends RangeMatch {
         Id(Range range) {
             super(range);
         }
@@ -871,6 +876,18 @@ public class SearchCompiler {
             throw new AssertionError("Missed state");
         }
 
+        String getKey() {
+            return key;
+        }
+
+        String getValue() {
+            return value;
+        }
+
+        Mode getMode() {
+            return mode;
+        }
+
         @Override
         public String toString() {
             return key + '=' + value;
@@ -948,7 +965,7 @@ public class SearchCompiler {
         }
     }
 
-    private static class ExactType extends Match {
+    static class ExactType extends Match {
         private final OsmPrimitiveType type;
 
         ExactType(String type) throws SearchParseError {
@@ -962,6 +979,10 @@ public class SearchCompiler {
             return type.equals(osm.getType());
         }
 
+        OsmPrimitiveType getType() {
+            return type;
+        }
+
         @Override
         public String toString() {
             return "type=" + type;
@@ -1100,6 +1121,14 @@ public class SearchCompiler {
 
         protected abstract String getString();
 
+        long getMin() {
+            return min;
+        }
+
+        long getMax() {
+            return max;
+        }
+
         @Override
         public boolean match(OsmPrimitive osm) {
             Long num = getNumber(osm);
@@ -1456,6 +1485,9 @@ public class SearchCompiler {
 
         protected final boolean all;
 
+        /** bounds computed in advance by {@link #prepare(DataSet)}, used instead of {@link #getBounds(OsmPrimitive)} */
+        private volatile Collection<Bounds> preparedBounds;
+
         /**
          * @param all if true, all way nodes or relation members have to be within source area;if false, one suffices.
          */
@@ -1465,13 +1497,46 @@ public class SearchCompiler {
 
         protected abstract Collection<Bounds> getBounds(OsmPrimitive primitive);
 
+        /**
+         * Returns the bounds used for all primitives of the given data set.
+         * They allow {@link SearchQueryPlanner} to look up matching primitives in the spatial index.
+         * @param ds the data set
+         * @return the bounds, or {@code null} if the bounds are not known in advance
+         * @since 12669
+         */
+        protected Collection<Bounds> getSearchBounds(DataSet ds) {
+            return null;
+        }
+
+        /**
+         * Computes the {@linkplain #getSearchBounds search bounds} of the given data set in the calling thread.
+         * They are used until {@link #release()} is called, so that the primitives can be matched in worker threads
+         * even if the bounds are read from the GUI.
+         * @param ds the data set, whose primitives will be tested
+         * @since 12689
+         */
+        public void prepare(DataSet ds) {
+            preparedBounds = getSearchBounds(ds);
+        }
+
+        /**
+         * Forgets the bounds computed by {@link #prepare(DataSet)}.
+         * @since 12689
+         */
+        public void release() {
+            preparedBounds = null;
+        }
+
         @Override
         public boolean match(OsmPrimitive osm) {
             if (!osm.isUsable())
                 return false;
             else if (osm instanceof Node) {
                 LatLon coordinate = ((Node) osm).getCoor();
-                Collection<Bounds> allBounds = getBounds(osm);
+                Collection<Bounds> allBounds = preparedBounds;
+                if (allBounds == null) {
+                    allBounds = getBounds(osm);
+                }
                 return coordinate != null && allBounds != null && allBounds.stream().anyMatch(bounds -> bounds.contains(coordinate));
             } else if (osm instanceof Way) {
                 Collection<Node> nodes = ((Way) osm).getNodes();
@@ -1499,7 +1564,12 @@ public class SearchCompiler {
 
         @Override
         protected Collection<Bounds> getBounds(OsmPrimitive primitive) {
-            return primitive.getDataSet() != null ? primitive.getDataSet().getDataSourceBounds() : null;
+            return getSearchBounds(primitive.getDataSet());
+        }
+
+        @Override
+        protected Collection<Bounds> getSearchBounds(DataSet ds) {
+            return ds != null ? ds.getDataSourceBounds() : null;
         }
 
         @Override
@@ -1522,8 +1592,8 @@ public class SearchCompiler {
         }
 
         @Override
-        protected Collection<Bounds> getBounds(OsmPrimitive primitive) {
-            final Collection<Bounds> bounds = super.getBounds(primitive);
+        protected Collection<Bounds> getSearchBounds(DataSet ds) {
+            final Collection<Bounds> bounds = super.getSearchBounds(ds);
             return bounds == null || bounds.isEmpty() ? Collections.singleton(Main.getProjection().getWorldBoundsLatLon()) : bounds;
         }
 
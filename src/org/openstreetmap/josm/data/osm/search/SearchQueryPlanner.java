@@ -0,0 +1,215 @@
+// License: GPL. For details, see LICENSE file.
+package org.openstreetmap.josm.data.osm.search;
+
+import java.util.Collection;
+import java.util.EnumSet;
+import java.util.HashSet;
+import java.util.Set;
+
+import org.openstreetmap.josm.data.Bounds;
+import org.openstreetmap.josm.data.osm.BBox;
+import org.openstreetmap.josm.data.osm.DataSet;
+import org.openstreetmap.josm.data.osm.OsmPrimitive;
+import org.openstreetmap.josm.data.osm.OsmPrimitiveType;
+import org.openstreetmap.josm.data.osm.Relation;
+import org.openstreetmap.josm.data.osm.Way;
+import org.openstreetmap.josm.data.osm.search.SearchCompiler.And;
+import org.openstreetmap.josm.data.osm.search.SearchCompiler.Child;
+import org.openstreetmap.josm.data.osm.search.SearchCompiler.ExactKeyValue;
+import org.openstreetmap.josm.data.osm.search.SearchCompiler.ExactType;
+import org.openstreetmap.josm.data.osm.search.SearchCompiler.Id;
+import org.openstreetmap.josm.data.osm.search.SearchCompiler.InArea;
+import org.openstreetmap.josm.data.osm.search.SearchCompiler.Match;
+import org.openstreetmap.josm.data.osm.search.SearchCompiler.Never;
+import org.openstreetmap.josm.data.osm.search.SearchCompiler.Or;
+import org.openstreetmap.josm.data.osm.search.SearchCompiler.Parent;
+
+/**
+ * Determines the primitives of a data set, that may match a compiled search expression, without evaluating it
+ * for every primitive.
+ * <p>
+ * Selective parts of the expression (tags, ids, primitive types, areas) are answered from the indexes of the data set,
+ * and combined according to the {@code &&}, {@code ||}, {@code parent} and {@code child} operators.
+ * The expression itself still has to be evaluated for the resulting candidates.
+ *
+ * @since 12669
+ */
+public final class SearchQueryPlanner {
+
+    /** Maximum length of id ranges, that are looked up id by id */
+    private static final long MAX_ID_LOOKUPS = 10_000;
+
+    private static final Set<OsmPrimitiveType> ALL_TYPES = EnumSet.of(OsmPrimitiveType.NODE, OsmPrimitiveType.WAY, OsmPrimitiveType.RELATION);
+
+    /**
+     * Superset of the primitives matching an expression.
+     */
+    private static final class Plan {
+        static final Plan UNRESTRICTED = new Plan(null, ALL_TYPES);
+
+        /** candidate primitives, or {@code null} if the candidates are not restricted by an index */
+        final Set<OsmPrimitive> primitives;
+        /** primitive types of the candidates */
+        final Set<OsmPrimitiveType> types;
+
+        Plan(Set<OsmPrimitive> primitives, Set<OsmPrimitiveType> types) {
+            this.primitives = primitives;
+            this.types = types;
+        }
+    }
+
+    private SearchQueryPlanner() {
+        // Hide default constructor for utils classes
+    }
+
+    /**
+     * Returns the primitives of the data set, that may match the expression.
+     * @param match the compiled search expression
+     * @param ds the data set
+     * @return a modifiable set containing (at least) all primitives matching the expression,
+     * or {@code null} if no index can be used and all primitives have to be tested
+     */
+    public static Set<OsmPrimitive> getCandidates(Match match, DataSet ds) {
+        Plan plan = plan(match, ds);
+        if (plan.primitives == null) {
+            return null;
+        }
+        Set<OsmPrimitive> result = new HashSet<>(plan.primitives);
+        if (!plan.types.containsAll(ALL_TYPES)) {
+            result.removeIf(p -> !plan.types.contains(p.getType()));
+        }
+        return result;
+    }
+
+    private static Plan plan(Match match, DataSet ds) {
+        if (match instanceof And) {
+            return intersect(plan(((And) match).getLhs(), ds), plan(((And) match).getRhs(), ds));
+        } else if (match instanceof Or) {
+            return union(plan(((Or) match).getLhs(), ds), plan(((Or) match).getRhs(), ds));
+        } else if (match instanceof Never) {
+            return new Plan(new HashSet<>(), ALL_TYPES);
+        } else if (match instanceof ExactKeyValue) {
+            return planTag((ExactKeyValue) match, ds);
+        } else if (match instanceof ExactType) {
+            return new Plan(null, EnumSet.of(((ExactType) match).getType()));
+        } else if (match instanceof Id) {
+            return planId((Id) match, ds);
+        } else if (match instanceof InArea) {
+            return planArea((InArea) match, ds);
+        } else if (match instanceof Parent) {
+            return planParent(plan(((Parent) match).getOperand(), ds));
+        } else if (match instanceof Child) {
+            return planChild(plan(((Child) match).getOperand(), ds));
+        }
+        return Plan.UNRESTRICTED;
+    }
+
+    private static Plan intersect(Plan a, Plan b) {
+        Set<OsmPrimitiveType> types = EnumSet.copyOf(a.types);
+        types.retainAll(b.types);
+        Set<OsmPrimitive> primitives;
+        if (a.primitives == null) {
+            primitives = b.primitives;
+        } else if (b.primitives == null) {
+            primitives = a.primitives;
+        } else {
+            Set<OsmPrimitive> smaller = a.primitives.size() <= b.primitives.size() ? a.primitives : b.primitives;
+            Set<OsmPrimitive> larger = smaller == a.primitives ? b.primitives : a.primitives;
+            primitives = new HashSet<>(smaller);
+            primitives.retainAll(larger);
+        }
+        return new Plan(primitives, types);
+    }
+
+    private static Plan union(Plan a, Plan b) {
+        Set<OsmPrimitiveType> types = EnumSet.copyOf(a.types);
+        types.addAll(b.types);
+        if (a.primitives == null || b.primitives == null) {
+            return new Plan(null, types);
+        }
+        Set<OsmPrimitive> primitives = new HashSet<>(a.primitives);
+        primitives.addAll(b.primitives);
+        return new Plan(primitives, types);
+    }
+
+    private static Plan planTag(ExactKeyValue tag, DataSet ds) {
+        switch (tag.getMode()) {
+        case EXACT:
+            return new Plan(new HashSet<>(ds.getPrimitivesWithTag(tag.getKey(), tag.getValue())), ALL_TYPES);
+        case ANY_VALUE:
+            return new Plan(new HashSet<>(ds.getPrimitivesWithKey(tag.getKey())), ALL_TYPES);
+        default:
+            return Plan.UNRESTRICTED;
+        }
+    }
+
+    private static Plan planId(Id id, DataSet ds) {
+        // new primitives are matched as id 0, and there is no index of them
+        long min = Math.max(1, id.getMin());
+        long max = id.getMax();
+        if (id.getMin() <= 0 && max >= 0 || max - min >= MAX_ID_LOOKUPS) {
+            return Plan.UNRESTRICTED;
+        }
+        Set<OsmPrimitive> primitives = new HashSet<>();
+        for (long i = min; i <= max; i++) {
+            for (OsmPrimitiveType type : ALL_TYPES) {
+                OsmPrimitive p = ds.getPrimitiveById(i, type);
+                if (p != null) {
+                    primitives.add(p);
+                }
+            }
+        }
+        return new Plan(primitives, ALL_TYPES);
+    }
+
+    private static Plan planArea(InArea area, DataSet ds) {
+        if (area.all) {
+            // empty ways and relations are all in any area
+            return Plan.UNRESTRICTED;
+        }
+        Collection<Bounds> allBounds = area.getSearchBounds(ds);
+        if (allBounds == null) {
+            return Plan.UNRESTRICTED;
+        }
+        Set<OsmPrimitive> primitives = new HashSet<>();
+        for (Bounds bounds : allBounds) {
+            if (bounds.crosses180thMeridian()) {
+                return Plan.UNRESTRICTED;
+            }
+            BBox bbox = bounds.toBBox();
+            primitives.addAll(ds.searchNodes(bbox));
+            primitives.addAll(ds.searchWays(bbox));
+            primitives.addAll(ds.searchRelations(bbox));
+        }
+        return new Plan(primitives, ALL_TYPES);
+    }
+
+    private static Plan planParent(Plan children) {
+        Set<OsmPrimitiveType> types = EnumSet.of(OsmPrimitiveType.WAY, OsmPrimitiveType.RELATION);
+        if (children.primitives == null) {
+            return new Plan(null, types);
+        }
+        Set<OsmPrimitive> primitives = new HashSet<>();
+        for (OsmPrimitive child : children.primitives) {
+            if (children.types.contains(child.getType())) {
+                primitives.addAll(child.getReferrers());
+            }
+        }
+        return new Plan(primitives, types);
+    }
+
+    private static Plan planChild(Plan parents) {
+        if (parents.primitives == null) {
+            return Plan.UNRESTRICTED;
+        }
+        Set<OsmPrimitive> primitives = new HashSet<>();
+        for (OsmPrimitive parent : parents.primitives) {
+            if (parent instanceof Way && parents.types.contains(OsmPrimitiveType.WAY)) {
+                primitives.addAll(((Way) parent).getNodes());
+            } else if (parent instanceof Relation && parents.types.contains(OsmPrimitiveType.RELATION)) {
+                primitives.addAll(((Relation) parent).getMemberPrimitivesList());
+            }
+        }
+        return new Plan(primitives, ALL_TYPES);
+    }
+}
@@ -16,6 +16,7 @@ import org.openstreetmap.josm.data.osm.OsmPrimitive;
 import org.openstreetmap.josm.data.osm.Relation;
 import org.openstreetmap.josm.data.osm.Way;
 import org.openstreetmap.josm.data.osm.event.AbstractDatasetChangedEvent;
+import org.openstreetmap.josm.data.osm.event.BulkChangeEvent;
 import org.openstreetmap.josm.data.osm.event.DataChangedEvent;
 import org.openstreetmap.josm.data.osm.event.DataSetListener;
 import org.openstreetmap.josm.data.osm.event.NodeMovedEvent;
@@ -250,6 +251,15 @@ public final class MultipolygonCache implements DataSetListener, LayerChangeList
 
     @Override
     public void dataChanged(DataChangedEvent event) {
+        if (event instanceof BulkChangeEvent) {
+            // Only drop the multipolygons referring to changed primitives, including completed members (see #7131)
+            BulkChangeEvent bulk = (BulkChangeEvent) event;
+            Collection<Map<Relation, Multipolygon>> maps = updateMultipolygonsReferringTo(
+                    event, bulk.getAdded(), event.getDataset(), null);
+            maps = updateMultipolygonsReferringTo(event, bulk.getRemoved(), event.getDataset(), maps);
+            updateMultipolygonsReferringTo(event, bulk.getChanged(), event.getDataset(), maps);
+            return;
+        }
         // Do not call updateMultipolygonsReferringTo as getPrimitives()
         // can return all the data set primitives for this event
         Collection<Map<Relation, Multipolygon>> maps = null;
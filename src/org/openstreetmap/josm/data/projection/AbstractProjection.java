@@ -12,6 +12,7 @@ import org.openstreetmap.josm.data.coor.EastNorth;
 import org.openstreetmap.josm.data.coor.ILatLon;
 import org.openstreetmap.josm.data.coor.LatLon;
 import org.openstreetmap.josm.data.projection.datum.Datum;
+import org.openstreetmap.josm.data.projection.datum.NullDatum;
 import org.openstreetmap.josm.data.projection.proj.Proj;
 import org.openstreetmap.josm.tools.Utils;
 
@@ -121,6 +122,27 @@ public abstract class AbstractProjection implements Projection {
         return new EastNorth((ellps.a * k0 * en[0] + x0) / toMeter, (ellps.a * k0 * en[1] + y0) / toMeter);
     }
 
+    @Override
+    public void latlon2eastNorth(double[] latNorth, double[] lonEast, int from, int to) {
+        boolean datumShift = !(datum instanceof NullDatum);
+        for (int i = from; i < to; i++) {
+            double lat = latNorth[i];
+            double lon = lonEast[i];
+            if (datumShift) {
+                LatLon ll = datum.fromWGS84(new LatLon(lat, lon));
+                lat = ll.lat();
+                lon = ll.lon();
+            }
+            latNorth[i] = Utils.toRadians(lat);
+            lonEast[i] = Utils.toRadians(LatLon.normalizeLon(lon - lon0 - pm));
+        }
+        proj.project(latNorth, lonEast, from, to);
+        for (int i = from; i < to; i++) {
+            lonEast[i] = (ellps.a * k0 * lonEast[i] + x0) / toMeter;
+            latNorth[i] = (ellps.a * k0 * latNorth[i] + y0) / toMeter;
+        }
+    }
+
     @Override
     public LatLon eastNorth2latlon(EastNorth en) {
         // We know it is a latlon. Nice would be to change this method return type to ILatLon
@@ -0,0 +1,133 @@
+// License: GPL. For details, see LICENSE file.
+package org.openstreetmap.josm.data.projection;
+
+import java.util.List;
+import java.util.concurrent.ForkJoinPool;
+import java.util.concurrent.ForkJoinTask;
+import java.util.concurrent.RecursiveAction;
+
+import org.openstreetmap.josm.data.coor.ILatLon;
+import org.openstreetmap.josm.tools.Utils;
+
+/**
+ * Projects large numbers of points at once, e.g. to fill the east/north caches of all nodes of a data set
+ * after the projection changed.
+ * <p>
+ * The points are projected in chunks using {@link Projection#latlon2eastNorth(double[], double[], int, int)},
+ * chunks are processed in parallel.
+ *
+ * @since 12672
+ */
+public final class BulkReprojection {
+
+    private static final ForkJoinPool THREAD_POOL =
+            Utils.newForkJoinPool("projection.numberOfThreads", "bulk-reprojection-%d", Thread.NORM_PRIORITY);
+
+    /**
+     * Number of points that are projected directly by one worker.
+     */
+    private static final int CHUNK_SIZE = 4096;
+
+    /**
+     * Receives the projected coordinates of a point.
+     * @param <T> type of the points
+     */
+    @FunctionalInterface
+    public interface EastNorthConsumer<T> {
+        /**
+         * Called with the projected coordinates of a point. May be called from several threads at once.
+         * @param point the point
+         * @param east the east coordinate of the point
+         * @param north the north coordinate of the point
+         */
+        void accept(T point, double east, double north);
+    }
+
+    private BulkReprojection() {
+        // Hide default constructor for utils classes
+    }
+
+    /**
+     * Projects the given points.
+     * @param <T> type of the points
+     * @param projection the projection to use
+     * @param points the points, a list with fast random access
+     * @param consumer receives the projected coordinates of every point
+     */
+    public static <T extends ILatLon> void project(Projection projection, List<T> points, EastNorthConsumer<T> consumer) {
+        projectChunks(points.size(), (from, to) -> projectChunk(projection, points, from, to, consumer));
+    }
+
+    /**
+     * Projects arrays of coordinates in place.
+     * @param projection the projection to use
+     * @param latNorth the latitudes (in WGS84), replaced by the north values
+     * @param lonEast the longitudes (in WGS84), replaced by the east values
+     * @see Projection#latlon2eastNorth(double[], double[], int, int)
+     * @since 12689
+     */
+    public static void project(Projection projection, double[] latNorth, double[] lonEast) {
+        projectChunks(latNorth.length, (from, to) -> projection.latlon2eastNorth(latNorth, lonEast, from, to));
+    }
+
+    private static void projectChunks(int size, ChunkProjector projector) {
+        if (size <= CHUNK_SIZE) {
+            projector.project(0, size);
+        } else {
+            THREAD_POOL.invoke(new Worker(0, size, projector));
+        }
+    }
+
+    private static <T extends ILatLon> void projectChunk(Projection projection, List<T> points, int from, int to,
+            EastNorthConsumer<T> consumer) {
+        int size = to - from;
+        double[] latNorth = new double[size];
+        double[] lonEast = new double[size];
+        for (int i = 0; i < size; i++) {
+            T point = points.get(from + i);
+            latNorth[i] = point.lat();
+            lonEast[i] = point.lon();
+        }
+        projection.latlon2eastNorth(latNorth, lonEast, 0, size);
+        for (int i = 0; i < size; i++) {
+            consumer.accept(points.get(from + i), lonEast[i], latNorth[i]);
+        }
+    }
+
+    /**
+     * Projects the points with indexes from {@code from} (inclusive) to {@code to} (exclusive).
+     */
+    @FunctionalInterface
+    private interface ChunkProjector {
+        void project(int from, int to);
+    }
+
+    /**
+     * Worker that projects a range of points, splitting it into chunks of {@link #CHUNK_SIZE} points.
+     */
+    private static class Worker extends RecursiveAction {
+
+        // Needed for Findbugs / Coverity because parent class is serializable
+        private static final long serialVersionUID = 1L;
+
+        private final int from;
+        private final int to;
+        private final transient ChunkProjector projector;
+
+        Worker(int from, int to, ChunkProjector projector) {
+            this.from = from;
+            this.to = to;
+            this.projector = projector;
+        }
+
+        @Override
+        protected void compute() {
+            if (to - from <= CHUNK_SIZE) {
+                projector.project(from, to);
+            } else {
+                int middle = from + (to - from) / 2;
+                ForkJoinTask.invokeAll(new Worker(from, middle, projector), new Worker(middle, to, projector));
+            }
+        }
+    }
+}
@@ -120,4 +120,26 @@ public interface Projection extends Projecting {
      * @return true if natural order of coordinates is North East, false if East North
      */
     boolean switchXY();
+
+    /**
+     * Convert arrays of lat/lon to east/north, in place.
+     * <p>
+     * Converts the points with indexes from {@code from} (inclusive) to {@code to} (exclusive), giving the same
+     * results as {@link #latlon2eastNorth(LatLon)}. The default implementation converts point by point,
+     * projections may override it to avoid the allocation of coordinate objects per point.
+     *
+     * @param latNorth the latitudes (in WGS84), replaced by the north values
+     * @param lonEast the longitudes (in WGS84), replaced by the east values
+     * @param from index of the first point to convert
+     * @param to index after the last point to convert
+     * @see BulkReprojection
+     * @since 12672
+     */
+    default void latlon2eastNorth(double[] latNorth, double[] lonEast, int from, int to) {
+        for (int i = from; i < to; i++) {
+            EastNorth en = latlon2eastNorth(new LatLon(latNorth[i], lonEast[i]));
+            lonEast[i] = en.east();
+            latNorth[i] = en.north();
+        }
+    }
 }
@@ -19,10 +19,20 @@
  */
 package org.openstreetmap.josm.data.projection.datum;
 
+import java.io.BufferedOutputStream;
+import java.io.File;
 import java.io.IOException;
 import java.io.InputStream;
+import java.io.OutputStream;
 import java.io.Serializable;
+import java.nio.ByteBuffer;
+import java.nio.ByteOrder;
+import java.nio.MappedByteBuffer;
+import java.nio.channels.FileChannel;
 import java.nio.charset.StandardCharsets;
+import java.nio.file.Files;
+import java.nio.file.StandardCopyOption;
+import java.nio.file.StandardOpenOption;
 import java.util.ArrayList;
 import java.util.HashMap;
 import java.util.List;
@@ -42,15 +52,15 @@ import org.openstreetmap.josm.tools.Logging;
  * The older 'Australian' binary format is not supported, only the
  * official Canadian format, which is now also used for the national
  * Australian Grid.
- * <p>Grid Shift files can be read as InputStreams or RandomAccessFiles.
+ * <p>Grid Shift files can be read as InputStreams or memory-mapped files.
  * Loading an InputStream places all the required node information
- * (accuracy data is optional) into heap based Java arrays. This is the
- * highest perfomance option, and is useful for large volume transformations.
+ * (accuracy data is optional) into heap based Java arrays.
  * Non-file data sources (eg using an SQL Blob) are also supported through
- * InputStream. The RandonAccessFile option has a much smaller memory
- * footprint as only the Sub Grid headers are stored in memory, but
- * transformation is slower because the file must be read a number of
- * times for each transformation.
+ * InputStream. The memory-mapped option has a much smaller heap
+ * footprint and loads faster, as only the Sub Grid headers are read,
+ * node data is read from the mapped file for each transformation.
+ * <p>Memory-mapped files may also be compact grid files, written by
+ * {@link #writeCompactGridFile}, that contain shift data only.
  * <p>Coordinates may be shifted Forward (ie from and to the Datums specified
  * in the Grid Shift File header) or Reverse. The reverse transformation
  * uses an iterative approach to approximate the Grid Shift, as the
@@ -62,11 +72,19 @@ import org.openstreetmap.josm.tools.Logging;
  * @author Peter Yuill
  * Modified for JOSM :
  * - removed the RandomAccessFile mode (Pieren)
+ * - added memory-mapped mode and compact grid files
  */
 public class NTV2GridShiftFile implements Serializable {
 
     private static final long serialVersionUID = 1L;
 
+    /** Size of a node record of NTv2 files (lat/lon shift and accuracy) */
+    static final int NODE_RECORD_SIZE = 16;
+    /** Size of a node record of compact grid files (lat/lon shift) */
+    private static final int COMPACT_NODE_RECORD_SIZE = 8;
+    /** Identifier at the beginning of compact grid files, followed by the NTv2 headers */
+    private static final String COMPACT_FILE_ID = "JOSMGRID";
+
     private int overviewHeaderCount;
     private int subGridHeaderCount;
     private int subGridCount;
@@ -160,6 +178,136 @@ public class NTV2GridShiftFile implements Serializable {
         lastSubGrid = topLevelSubGrid[0];
     }
 
+    /**
+     * Load a Grid Shift File by mapping it into memory. Only the headers are read,
+     * the node data is read from the mapped file when shifting coordinates.
+     * Both NTv2 files and compact grid files written by {@link #writeCompactGridFile} are supported.
+     *
+     * @param file NTv2 file or compact grid file
+     * @param loadAccuracy is Accuracy data to be used as well as shift data? Compact grid files have no accuracy data
+     * @throws IOException if any I/O error occurs
+     * @since 12673
+     */
+    public void loadGridShiftFile(File file, boolean loadAccuracy) throws IOException {
+        try {
+            loadGridShiftFile(map(file), loadAccuracy);
+        } catch (IndexOutOfBoundsException e) {
+            throw new IOException("Truncated grid shift file " + file, e);
+        }
+    }
+
+    private void loadGridShiftFile(ByteBuffer buffer, boolean loadAccuracy) {
+        int offset = 0;
+        int recordSize = NODE_RECORD_SIZE;
+        if (COMPACT_FILE_ID.equals(getString(buffer, 0))) {
+            offset = COMPACT_FILE_ID.length();
+            recordSize = COMPACT_NODE_RECORD_SIZE;
+        }
+        readOverviewHeader(buffer, offset);
+        NTV2SubGrid[] subGrid = new NTV2SubGrid[subGridCount];
+        int position = offset + overviewHeaderCount * 16;
+        for (int i = 0; i < subGridCount; i++) {
+            subGrid[i] = new NTV2SubGrid(buffer, position, subGridHeaderCount, recordSize, loadAccuracy);
+            position = subGrid[i].getDataEnd();
+        }
+        topLevelSubGrid = createSubGridTree(subGrid);
+        lastSubGrid = topLevelSubGrid[0];
+    }
+
+    /**
+     * Reads the overview header, and sets the byte order of the buffer to the byte order of the file.
+     * @param buffer the grid file
+     * @param offset position of the overview header
+     */
+    private void readOverviewHeader(ByteBuffer buffer, int offset) {
+        if (!"NUM_OREC".equals(getString(buffer, offset)))
+            throw new IllegalArgumentException("Input file is not an NTv2 grid shift file");
+        buffer.order(ByteOrder.BIG_ENDIAN);
+        if (buffer.getInt(offset + 8) != 11) {
+            buffer.order(ByteOrder.LITTLE_ENDIAN);
+            if (buffer.getInt(offset + 8) != 11)
+                throw new IllegalArgumentException("Input file is not an NTv2 grid shift file");
+        }
+        overviewHeaderCount = 11;
+        subGridHeaderCount = buffer.getInt(offset + 16 + 8);
+        subGridCount = buffer.getInt(offset + 32 + 8);
+        shiftType = getString(buffer, offset + 48 + 8);
+        version = getString(buffer, offset + 64 + 8);
+        fromEllipsoid = getString(buffer, offset + 80 + 8);
+        toEllipsoid = getString(buffer, offset + 96 + 8);
+        fromSemiMajorAxis = buffer.getDouble(offset + 112 + 8);
+        fromSemiMinorAxis = buffer.getDouble(offset + 128 + 8);
+        toSemiMajorAxis = buffer.getDouble(offset + 144 + 8);
+        toSemiMinorAxis = buffer.getDouble(offset + 160 + 8);
+    }
+
+    /**
+     * Writes a compact grid file, containing the headers and the shift data of an NTv2 file,
+     * but not its accuracy data. Compact grid files are half the size of NTv2 files,
+     * and can be loaded with {@link #loadGridShiftFile(File, boolean)}.
+     *
+     * @param ntv2File the NTv2 file
+     * @param compactFile the compact grid file to write
+     * @throws IOException if any I/O error occurs
+     * @since 12673
+     */
+    public static void writeCompactGridFile(File ntv2File, File compactFile) throws IOException {
+        ByteBuffer buffer = map(ntv2File);
+        NTV2GridShiftFile header = new NTV2GridShiftFile();
+        File tmp = new File(compactFile.getPath() + ".tmp");
+        boolean written = false;
+        try (OutputStream out = new BufferedOutputStream(Files.newOutputStream(tmp.toPath()))) {
+            header.readOverviewHeader(buffer, 0);
+            out.write(COMPACT_FILE_ID.getBytes(StandardCharsets.UTF_8));
+            int position = write(buffer, 0, header.overviewHeaderCount * 16, out);
+            int subGridHeaderSize = header.subGridHeaderCount * 16;
+            for (int i = 0; i < header.subGridCount; i++) {
+                int nodeCount = buffer.getInt(position + 160 + 8);
+                position = write(buffer, position, subGridHeaderSize, out);
+                for (int j = 0; j < nodeCount; j++) {
+                    write(buffer, position, COMPACT_NODE_RECORD_SIZE, out);
+                    position += NODE_RECORD_SIZE;
+                }
+            }
+            written = true;
+        } catch (IndexOutOfBoundsException e) {
+            throw new IOException("Truncated grid shift file " + ntv2File, e);
+        } finally {
+            if (!written) {
+                Files.deleteIfExists(tmp.toPath());
+            }
+        }
+        Files.move(tmp.toPath(), compactFile.toPath(), StandardCopyOption.REPLACE_EXISTING);
+    }
+
+    private static int write(ByteBuffer buffer, int position, int length, OutputStream out) throws IOException {
+        for (int i = position; i < position + length; i++) {
+            out.write(buffer.get(i));
+        }
+        return position + length;
+    }
+
+    private static MappedByteBuffer map(File file) throws IOException {
+        try (FileChannel channel = FileChannel.open(file.toPath(), StandardOpenOption.READ)) {
+            // the mapping remains valid after the channel is closed
+            return channel.map(FileChannel.MapMode.READ_ONLY, 0, channel.size());
+        }
+    }
+
+    /**
+     * Reads an 8 byte string of a header record.
+     * @param buffer the grid file
+     * @param offset position of the string
+     * @return the string
+     */
+    static String getString(ByteBuffer buffer, int offset) {
+        byte[] b8 = new byte[8];
+        for (int i = 0; i < b8.length; i++) {
+            b8[i] = buffer.get(offset + i);
+        }
+        return new String(b8, StandardCharsets.UTF_8);
+    }
+
     /**
      * Create a tree of Sub Grids by adding each Sub Grid to its parent (where
      * it has one), and returning an array of the top level Sub Grids
@@ -6,7 +6,9 @@ import java.io.IOException;
 import java.io.InputStream;
 
 import org.openstreetmap.josm.Main;
+import org.openstreetmap.josm.data.preferences.BooleanProperty;
 import org.openstreetmap.josm.io.CachedFile;
+import org.openstreetmap.josm.tools.Logging;
 
 /**
  * Wrapper for {@link NTV2GridShiftFile}.
@@ -16,6 +18,18 @@ import org.openstreetmap.josm.io.CachedFile;
  */
 public class NTV2GridShiftFileWrapper {
 
+    /**
+     * Map grid files into memory instead of loading them into the heap.
+     * @since 12673
+     */
+    public static final BooleanProperty MEMORY_MAPPED = new BooleanProperty("ntv2.memory-mapped", true);
+
+    /**
+     * Map compact copies of grid files, without accuracy data, that are stored in the cache directory.
+     * @since 12673
+     */
+    public static final BooleanProperty COMPACT_CACHE = new BooleanProperty("ntv2.compact-cache", false);
+
     private NTV2GridShiftFile instance;
     private final String gridFileName;
 
@@ -60,12 +74,42 @@ public class NTV2GridShiftFileWrapper {
             // If not, retrieve it from JOSM website
             String location = grid != null ? grid.getAbsolutePath() : (Main.getJOSMWebsite() + "/proj/" + gridFileName);
             // Try to load grid file
-            try (CachedFile cf = new CachedFile(location); InputStream is = cf.getInputStream()) {
+            try (CachedFile cf = new CachedFile(location)) {
+                File file = MEMORY_MAPPED.get() ? cf.getFile() : null;
                 NTV2GridShiftFile ntv2 = new NTV2GridShiftFile();
-                ntv2.loadGridShiftFile(is, false);
+                if (file != null) {
+                    ntv2.loadGridShiftFile(COMPACT_CACHE.get() ? getCompactFile(file) : file, false);
+                } else {
+                    try (InputStream is = cf.getInputStream()) {
+                        ntv2.loadGridShiftFile(is, false);
+                    }
+                }
                 instance = ntv2;
             }
         }
         return instance;
     }
+
+    /**
+     * Returns the compact copy of a grid file, writing it if it is missing or outdated.
+     * @param grid the grid file
+     * @return the compact grid file, or the grid file itself if the compact file cannot be written
+     */
+    private File getCompactFile(File grid) {
+        File dir = new File(Main.pref.getCacheDirectory(), "ntv2");
+        File compact = new File(dir, gridFileName + ".grid");
+        if (compact.isFile() && compact.lastModified() >= grid.lastModified()) {
+            return compact;
+        }
+        try {
+            if (!dir.isDirectory() && !dir.mkdirs()) {
+                throw new IOException("Unable to create directory " + dir);
+            }
+            NTV2GridShiftFile.writeCompactGridFile(grid, compact);
+            return compact;
+        } catch (IOException e) {
+            Logging.warn(e);
+            return grid;
+        }
+    }
 }
@@ -21,7 +21,11 @@ package org.openstreetmap.josm.data.projection.datum;
 
 import java.io.IOException;
 import java.io.InputStream;
+import java.io.ObjectInputStream;
+import java.io.ObjectOutputStream;
 import java.io.Serializable;
+import java.nio.ByteBuffer;
+import java.nio.ByteOrder;
 import java.nio.charset.StandardCharsets;
 
 import org.openstreetmap.josm.tools.Logging;
@@ -36,6 +40,7 @@ import org.openstreetmap.josm.tools.Utils;
  * - read grid file by single bytes. Workaround for a bug in some VM not supporting
  *   file reading by group of 4 bytes from a jar file.
  * - removed the Cloneable interface
+ * - added reading of memory-mapped grid files
  */
 public class NTV2SubGrid implements Serializable {
 
@@ -59,6 +64,13 @@ public class NTV2SubGrid implements Serializable {
     private final float[] lonShift;
     private float[] latAccuracy;
     private float[] lonAccuracy;
+    private final boolean accuracyAvailable;
+
+    /** node data of memory-mapped grid files, null if the node data is loaded into the arrays */
+    private transient ByteBuffer data;
+    /** position of the node data in {@link #data}, the node data is written by {@link #writeObject} */
+    private transient int dataOffset;
+    private final int recordSize;
 
     private NTV2SubGrid[] subGrid;
 
@@ -118,6 +130,10 @@ public class NTV2SubGrid implements Serializable {
             latAccuracy = new float[nodeCount];
             lonAccuracy = new float[nodeCount];
         }
+        accuracyAvailable = loadAccuracy;
+        data = null;
+        dataOffset = 0;
+        recordSize = NTV2GridShiftFile.NODE_RECORD_SIZE;
 
         for (int i = 0; i < nodeCount; i++) {
             // Read the grid file byte after byte. This is a workaround about a bug in
@@ -149,6 +165,86 @@ public class NTV2SubGrid implements Serializable {
         }
     }
 
+    /**
+     * Construct a Sub Grid from a memory-mapped grid file. Only the header is read,
+     * node data is read from the buffer when interpolating.
+     *
+     * @param buffer GridShiftFile buffer, with the byte order of the file
+     * @param offset position of the Sub Grid header in the buffer
+     * @param headerCount number of records of the Sub Grid header
+     * @param recordSize size of a node record in bytes, 16 for NTv2 files or 8 for compact files without accuracy data
+     * @param loadAccuracy is the node Accuracy data to be used?
+     */
+    NTV2SubGrid(ByteBuffer buffer, int offset, int headerCount, int recordSize, boolean loadAccuracy) {
+        subGridName = NTV2GridShiftFile.getString(buffer, offset + 8).trim();
+        parentSubGridName = NTV2GridShiftFile.getString(buffer, offset + 16 + 8).trim();
+        created = NTV2GridShiftFile.getString(buffer, offset + 32 + 8);
+        updated = NTV2GridShiftFile.getString(buffer, offset + 48 + 8);
+        minLat = buffer.getDouble(offset + 64 + 8);
+        maxLat = buffer.getDouble(offset + 80 + 8);
+        minLon = buffer.getDouble(offset + 96 + 8);
+        maxLon = buffer.getDouble(offset + 112 + 8);
+        latInterval = buffer.getDouble(offset + 128 + 8);
+        lonInterval = buffer.getDouble(offset + 144 + 8);
+        lonColumnCount = 1 + (int) ((maxLon - minLon) / lonInterval);
+        latRowCount = 1 + (int) ((maxLat - minLat) / latInterval);
+        nodeCount = buffer.getInt(offset + 160 + 8);
+        if (nodeCount != lonColumnCount * latRowCount)
+            throw new IllegalStateException("SubGrid " + subGridName + " has inconsistent grid dimesions");
+        latShift = null;
+        lonShift = null;
+        accuracyAvailable = loadAccuracy && recordSize == NTV2GridShiftFile.NODE_RECORD_SIZE;
+        data = buffer;
+        dataOffset = offset + headerCount * 16;
+        this.recordSize = recordSize;
+        if (getDataEnd() > buffer.limit())
+            throw new IllegalStateException("SubGrid " + subGridName + " exceeds the grid file");
+    }
+
+    /**
+     * Returns the position after the node data of a Sub Grid read from a buffer.
+     * @return the position of the next Sub Grid header in the buffer
+     */
+    int getDataEnd() {
+        return dataOffset + nodeCount * recordSize;
+    }
+
+    /**
+     * Returns a value of a grid node.
+     * @param values the values, if they are loaded into an array
+     * @param field index of the value in the node record (0 = lat shift, 1 = lon shift, 2 = lat accuracy, 3 = lon accuracy)
+     * @param index index of the node
+     * @return the value
+     */
+    private float getNodeValue(float[] values, int field, int index) {
+        return data == null ? values[index] : data.getFloat(dataOffset + index * recordSize + field * 4);
+    }
+
+    private void writeObject(ObjectOutputStream out) throws IOException {
+        out.defaultWriteObject();
+        out.writeBoolean(data != null);
+        if (data != null) {
+            // only the node data of this Sub Grid, not the entire grid file
+            ByteBuffer nodes = data.duplicate();
+            nodes.limit(getDataEnd()).position(dataOffset);
+            byte[] bytes = new byte[nodes.remaining()];
+            nodes.get(bytes);
+            out.writeBoolean(data.order() == ByteOrder.BIG_ENDIAN);
+            out.write(bytes);
+        }
+    }
+
+    private void readObject(ObjectInputStream in) throws IOException, ClassNotFoundException {
+        in.defaultReadObject();
+        if (in.readBoolean()) {
+            ByteOrder order = in.readBoolean() ? ByteOrder.BIG_ENDIAN : ByteOrder.LITTLE_ENDIAN;
+            byte[] bytes = new byte[nodeCount * recordSize];
+            in.readFully(bytes);
+            data = ByteBuffer.wrap(bytes).order(order);
+            dataOffset = 0;
+        }
+    }
+
     private static void readBytes(InputStream in, byte[] b) throws IOException {
         if (in.read(b) < b.length) {
             Logging.error("Failed to read expected amount of bytes ("+ b.length +") from stream");
@@ -214,13 +310,18 @@ public class NTV2SubGrid implements Serializable {
         (((double) a + (double) d - b - c) * x * y);
     }
 
+    private double interpolate(float[] values, int field, int indexA, int indexB, int indexC, int indexD, double x, double y) {
+        return interpolate(getNodeValue(values, field, indexA), getNodeValue(values, field, indexB),
+                getNodeValue(values, field, indexC), getNodeValue(values, field, indexD), x, y);
+    }
+
     /**
      * Interpolate shift and accuracy values for a coordinate in the 'from' datum
      * of the GridShiftFile. The algorithm is described in
      * 'GDAit Software Architecture Manual' produced by the <a
      * href='http://www.dtpli.vic.gov.au/property-and-land-titles/geodesy/geocentric-datum-of-australia-1994-gda94/gda94-useful-tools'>
      * Geomatics Department of the University of Melbourne</a>
-     * <p>This method is thread safe for both memory based and file based node data.
+     * <p>This method is thread safe for both memory based and memory-mapped node data.
      * @param gs GridShift object containing the coordinate to shift and the shift values
      */
     public void interpolateGridShift(NTV2GridShift gs) {
@@ -237,26 +338,15 @@ public class NTV2SubGrid implements Serializable {
         int indexC = indexA + lonColumnCount;
         int indexD = indexC + 1;
 
-        gs.setLonShiftPositiveWestSeconds(interpolate(
-                lonShift[indexA], lonShift[indexB], lonShift[indexC], lonShift[indexD], x, y));
-
-        gs.setLatShiftSeconds(interpolate(
-                latShift[indexA], latShift[indexB], latShift[indexC], latShift[indexD], x, y));
+        gs.setLonShiftPositiveWestSeconds(interpolate(lonShift, 1, indexA, indexB, indexC, indexD, x, y));
 
-        if (lonAccuracy == null) {
-            gs.setLonAccuracyAvailable(false);
-        } else {
-            gs.setLonAccuracyAvailable(true);
-            gs.setLonAccuracySeconds(interpolate(
-                    lonAccuracy[indexA], lonAccuracy[indexB], lonAccuracy[indexC], lonAccuracy[indexD], x, y));
-        }
+        gs.setLatShiftSeconds(interpolate(latShift, 0, indexA, indexB, indexC, indexD, x, y));
 
-        if (latAccuracy == null) {
-            gs.setLatAccuracyAvailable(false);
-        } else {
-            gs.setLatAccuracyAvailable(true);
-            gs.setLatAccuracySeconds(interpolate(
-                    latAccuracy[indexA], latAccuracy[indexB], latAccuracy[indexC], latAccuracy[indexD], x, y));
+        gs.setLonAccuracyAvailable(accuracyAvailable);
+        gs.setLatAccuracyAvailable(accuracyAvailable);
+        if (accuracyAvailable) {
+            gs.setLonAccuracySeconds(interpolate(lonAccuracy, 3, indexA, indexB, indexC, indexD, x, y));
+            gs.setLatAccuracySeconds(interpolate(latAccuracy, 2, indexA, indexB, indexC, indexD, x, y));
         }
     }
 
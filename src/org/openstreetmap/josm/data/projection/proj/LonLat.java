@@ -37,6 +37,14 @@ public class LonLat implements Proj {
         return new double[] {Utils.toDegrees(lonRad) / a, Utils.toDegrees(latRad) / a};
     }
 
+    @Override
+    public void project(double[] latNorth, double[] lonEast, int from, int to) {
+        for (int i = from; i < to; i++) {
+            latNorth[i] = Utils.toDegrees(latNorth[i]) / a;
+            lonEast[i] = Utils.toDegrees(lonEast[i]) / a;
+        }
+    }
+
     @Override
     public double[] invproject(double east, double north) {
         return new double[] {Utils.toRadians(north * a), Utils.toRadians(east * a)};
@@ -100,6 +100,21 @@ public class Mercator extends AbstractProj implements IScaleFactorProvider {
         return new double[] {x, y};
     }
 
+    @Override
+    public void project(double[] latNorth, double[] lonEast, int from, int to) {
+        for (int i = from; i < to; i++) {
+            double y = latNorth[i];
+            if (Math.abs(y) > (Math.PI/2 - EPSILON)) {
+                latNorth[i] = 0;
+                lonEast[i] = 0;
+            } else if (spherical) {
+                latNorth[i] = Math.log(Math.tan(Math.PI/4 + 0.5*y));
+            } else {
+                latNorth[i] = -Math.log(tsfn(y, Math.sin(y)));
+            }
+        }
+    }
+
     @Override
     public double[] invproject(double x, double y) {
         if (spherical) {
@@ -56,6 +56,29 @@ public interface Proj {
      */
     double[] project(double latRad, double lonRad);
 
+    /**
+     * Convert arrays of lat/lon to east/north, in place.
+     * <p>
+     * Converts the points with indexes from {@code from} (inclusive) to {@code to} (exclusive).
+     * The default implementation calls {@link #project(double, double)} for every point, projections
+     * may override it to avoid the allocation of a result array per point.
+     *
+     * @param latNorth the latitudes in radians, replaced by the north values in meters,
+     * divided by the semi major axis of the ellipsoid
+     * @param lonEast the longitudes in radians, replaced by the east values in meters,
+     * divided by the semi major axis of the ellipsoid
+     * @param from index of the first point to convert
+     * @param to index after the last point to convert
+     * @since 12672
+     */
+    default void project(double[] latNorth, double[] lonEast, int from, int to) {
+        for (int i = from; i < to; i++) {
+            double[] en = project(latNorth[i], lonEast[i]);
+            lonEast[i] = en[0];
+            latNorth[i] = en[1];
+        }
+    }
+
     /**
      * Convert east/north to lat/lon.
      *
@@ -164,6 +164,9 @@ public class MainApplication extends Main {
 
     private final MainFrame mainFrame;
 
+    /** Builds the main menu, needed by the initialization tasks which fill it */
+    private final InitializationTask mainWindowTask = new InitializationTask(tr("Building main menu"), this::initializeMainWindow);
+
     /**
      * The worker thread slave. This is for executing all long and intensive
      * calculations. The executed runnables are guaranteed to be executed separately and sequential.
@@ -212,9 +215,9 @@ public class MainApplication extends Main {
     @Override
     protected List<InitializationTask> beforeInitializationTasks() {
         return Arrays.asList(
-            new InitializationTask(tr("Starting file watcher"), fileWatcher::start),
+            new InitializationTask(tr("Starting file watcher"), fileWatcher::start).dependsOn(),
             new InitializationTask(tr("Executing platform startup hook"), platform::startupHook),
-            new InitializationTask(tr("Building main menu"), this::initializeMainWindow),
+            mainWindowTask,
             new InitializationTask(tr("Updating user interface"), () -> {
                 undoRedo.addCommandQueueListener(redoUndoListener);
                 // creating toolbar
@@ -222,14 +225,14 @@ public class MainApplication extends Main {
                 // help shortcut
                 registerActionShortcut(menu.help, Shortcut.registerShortcut("system:help", tr("Help"),
                         KeyEvent.VK_F1, Shortcut.DIRECT));
-            }),
-            // This needs to be done before RightAndLefthandTraffic::initialize is called
-            new InitializationTask(tr("Initializing internal boundaries data"), Territories::initialize)
+            })
         );
     }
 
     @Override
     protected Collection<InitializationTask> parallelInitializationTasks() {
+        InitializationTask territories = new InitializationTask(tr("Initializing internal boundaries data"), Territories::initialize)
+                .dependsOn();
         return Arrays.asList(
             new InitializationTask(tr("Initializing OSM API"), () -> {
                     // We try to establish an API connection early, so that any API
@@ -240,12 +243,14 @@ public class MainApplication extends Main {
                     } catch (OsmTransferCanceledException | OsmApiInitializationException e) {
                         Logging.warn(Logging.getErrorMessage(Utils.getRootCause(e)));
                     }
-                }),
-            new InitializationTask(tr("Initializing internal traffic data"), RightAndLefthandTraffic::initialize),
-            new InitializationTask(tr("Initializing validator"), OsmValidator::initialize),
-            new InitializationTask(tr("Initializing presets"), TaggingPresets::initialize),
-            new InitializationTask(tr("Initializing map styles"), MapPaintPreference::initialize),
-            new InitializationTask(tr("Loading imagery preferences"), ImageryPreference::initialize)
+                }).dependsOn(),
+            territories,
+            new InitializationTask(tr("Initializing internal traffic data"), RightAndLefthandTraffic::initialize).dependsOn(territories),
+            new InitializationTask(tr("Initializing validator"), OsmValidator::initialize).dependsOn(),
+            // The following tasks fill the menus and the toolbar
+            new InitializationTask(tr("Initializing presets"), TaggingPresets::initialize).dependsOn(mainWindowTask),
+            new InitializationTask(tr("Initializing map styles"), MapPaintPreference::initialize).dependsOn(mainWindowTask),
+            new InitializationTask(tr("Loading imagery preferences"), ImageryPreference::initialize).dependsOn(mainWindowTask)
         );
     }
 
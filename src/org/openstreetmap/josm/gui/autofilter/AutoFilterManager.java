@@ -6,7 +6,6 @@ import static org.openstreetmap.josm.tools.I18n.tr;
 import java.awt.Graphics2D;
 import java.util.ArrayList;
 import java.util.Arrays;
-import java.util.Collection;
 import java.util.Comparator;
 import java.util.Iterator;
 import java.util.List;
@@ -233,45 +232,45 @@ implements ZoomChangeListener, MapModeChangeListener, DataSetListener, Preferenc
 
     @Override
     public void dataChanged(DataChangedEvent event) {
-        updateFiltersFull();
+        updateFiltersEvent(event);
     }
 
     @Override
     public void nodeMoved(NodeMovedEvent event) {
-        updateFiltersFull();
+        updateFiltersEvent(event);
     }
 
     @Override
     public void otherDatasetChange(AbstractDatasetChangedEvent event) {
-        updateFiltersFull();
+        updateFiltersEvent(event);
     }
 
     @Override
     public void primitivesAdded(PrimitivesAddedEvent event) {
-        updateFiltersEvent(event, false);
+        updateFiltersEvent(event);
         updateButtons();
     }
 
     @Override
     public void primitivesRemoved(PrimitivesRemovedEvent event) {
-        updateFiltersFull();
+        updateFiltersEvent(event);
         updateButtons();
     }
 
     @Override
     public void relationMembersChanged(RelationMembersChangedEvent event) {
-        updateFiltersEvent(event, true);
+        updateFiltersEvent(event);
     }
 
     @Override
     public void tagsChanged(TagsChangedEvent event) {
-        updateFiltersEvent(event, true);
+        updateFiltersEvent(event);
         updateButtons();
     }
 
     @Override
     public void wayNodesChanged(WayNodesChangedEvent event) {
-        updateFiltersEvent(event, true);
+        updateFiltersEvent(event);
     }
 
     @Override
@@ -285,10 +284,9 @@ implements ZoomChangeListener, MapModeChangeListener, DataSetListener, Preferenc
         }
     }
 
-    private synchronized void updateFiltersEvent(AbstractDatasetChangedEvent event, boolean affectedOnly) {
+    private synchronized void updateFiltersEvent(AbstractDatasetChangedEvent event) {
         if (currentAutoFilter != null) {
-            Collection<? extends OsmPrimitive> prims = event.getPrimitives();
-            model.executeFilters(affectedOnly ? FilterModel.getAffectedPrimitives(prims) : prims);
+            model.executeFilters(event);
         }
     }
 
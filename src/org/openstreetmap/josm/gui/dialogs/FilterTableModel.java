@@ -13,6 +13,7 @@ import javax.swing.table.AbstractTableModel;
 import org.openstreetmap.josm.data.osm.Filter;
 import org.openstreetmap.josm.data.osm.FilterModel;
 import org.openstreetmap.josm.data.osm.OsmPrimitive;
+import org.openstreetmap.josm.data.osm.event.AbstractDatasetChangedEvent;
 import org.openstreetmap.josm.gui.MainApplication;
 import org.openstreetmap.josm.gui.MapFrame;
 import org.openstreetmap.josm.gui.autofilter.AutoFilterManager;
@@ -86,6 +87,19 @@ public class FilterTableModel extends AbstractTableModel {
         }
     }
 
+    /**
+     * Updates the filter state after a change of the edit data set.
+     * @param event the change of the edit data set
+     * @see FilterModel#executeFilters(AbstractDatasetChangedEvent)
+     * @since 12671
+     */
+    public void executeFilters(AbstractDatasetChangedEvent event) {
+        if (AutoFilterManager.getInstance().getCurrentAutoFilter() == null) {
+            model.executeFilters(event);
+            updateMap();
+        }
+    }
+
     private void updateMap() {
         MapFrame map = MainApplication.getMap();
         if (map != null && model.isChanged()) {
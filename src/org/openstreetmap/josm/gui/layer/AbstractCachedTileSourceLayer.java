@@ -1,20 +1,37 @@
 // License: GPL. For details, see LICENSE file.
 package org.openstreetmap.josm.gui.layer;
 
+import static org.openstreetmap.josm.tools.I18n.tr;
+
+import java.io.File;
 import java.io.IOException;
+import java.util.ArrayList;
+import java.util.Arrays;
+import java.util.List;
 import java.util.Map;
 import java.util.concurrent.ConcurrentHashMap;
 
+import javax.swing.Action;
+
 import org.apache.commons.jcs.access.CacheAccess;
 import org.apache.commons.jcs.access.behavior.ICacheAccess;
+import org.openstreetmap.gui.jmapviewer.Tile;
+import org.openstreetmap.gui.jmapviewer.TileXY;
 import org.openstreetmap.gui.jmapviewer.interfaces.TileLoader;
 import org.openstreetmap.gui.jmapviewer.tilesources.AbstractTMSTileSource;
+import org.openstreetmap.josm.data.Bounds;
 import org.openstreetmap.josm.data.cache.BufferedImageCacheEntry;
 import org.openstreetmap.josm.data.cache.JCSCacheManager;
 import org.openstreetmap.josm.data.imagery.CachedTileLoaderFactory;
 import org.openstreetmap.josm.data.imagery.ImageryInfo;
+import org.openstreetmap.josm.data.imagery.TMSCachedTileLoader;
 import org.openstreetmap.josm.data.imagery.TileLoaderFactory;
+import org.openstreetmap.josm.data.imagery.TilePackage;
+import org.openstreetmap.josm.data.imagery.TilePackageTileLoader;
 import org.openstreetmap.josm.data.preferences.IntegerProperty;
+import org.openstreetmap.josm.gui.layer.imagery.ExportTilePackageAction;
+import org.openstreetmap.josm.gui.progress.ProgressMonitor;
+import org.openstreetmap.josm.tools.CheckParameterUtil;
 import org.openstreetmap.josm.tools.Logging;
 
 /**
@@ -40,6 +57,7 @@ public abstract class AbstractCachedTileSourceLayer<T extends AbstractTMSTileSou
 
     private ICacheAccess<String, BufferedImageCacheEntry> cache;
     private volatile TileLoaderFactory loaderFactory;
+    private TilePackage tilePackage;
 
 
     /**
@@ -135,6 +153,116 @@ public abstract class AbstractCachedTileSourceLayer<T extends AbstractTMSTileSou
             }
     }
 
+    /**
+     * Makes this layer display the tiles of an offline package instead of loading them from the imagery server.
+     * Must be called before the layer is added to the map view. The package is closed when the layer is destroyed.
+     * @param tilePackage package containing the tiles of this layer
+     * @since 12667
+     */
+    public synchronized void setTilePackage(TilePackage tilePackage) {
+        CheckParameterUtil.ensureParameterNotNull(tilePackage, "tilePackage");
+        this.tilePackage = tilePackage;
+        this.loaderFactory = TilePackageTileLoader.getFactory(tilePackage);
+    }
+
+    /**
+     * Returns the offline package displayed by this layer.
+     * @return the offline package or null, if tiles are loaded from the imagery server
+     * @since 12667
+     */
+    public synchronized TilePackage getTilePackage() {
+        return tilePackage;
+    }
+
+    /**
+     * Exports the cached tiles of this layer to an offline package. Only tiles that are already in the cache are exported,
+     * tiles are not downloaded.
+     * @param file the package file to write
+     * @param bounds area to export
+     * @param minZoom the lowest zoom level to export
+     * @param maxZoom the highest zoom level to export
+     * @param progressMonitor progress monitor, the export stops when it is cancelled
+     * @return number of exported tiles
+     * @throws IOException if an I/O error occurs
+     * @since 12667
+     */
+    public int exportTilePackage(File file, Bounds bounds, int minZoom, int maxZoom, ProgressMonitor progressMonitor)
+            throws IOException {
+        CheckParameterUtil.ensureParameterNotNull(bounds, "bounds");
+        if (tileSource == null || tileLoader == null) {
+            throw new IOException(tr("Layer {0} is not initialized", getName()));
+        }
+        ICacheAccess<String, BufferedImageCacheEntry> tileCache = getCache();
+        if (tileCache == null && tilePackage == null) {
+            throw new IOException(tr("Tile cache of layer {0} is not available", getName()));
+        }
+        List<TileXY[]> ranges = new ArrayList<>();
+        long total = 0;
+        for (int zoom = minZoom; zoom <= maxZoom; zoom++) {
+            TileXY t1 = tileSource.latLonToTileXY(bounds.getMinLat(), bounds.getMinLon(), zoom);
+            TileXY t2 = tileSource.latLonToTileXY(bounds.getMaxLat(), bounds.getMaxLon(), zoom);
+            TileXY min = new TileXY(Math.max(Math.min(t1.getXIndex(), t2.getXIndex()), tileSource.getTileXMin(zoom)),
+                    Math.max(Math.min(t1.getYIndex(), t2.getYIndex()), tileSource.getTileYMin(zoom)));
+            TileXY max = new TileXY(Math.min(Math.max(t1.getXIndex(), t2.getXIndex()), tileSource.getTileXMax(zoom)),
+                    Math.min(Math.max(t1.getYIndex(), t2.getYIndex()), tileSource.getTileYMax(zoom)));
+            ranges.add(new TileXY[] {min, max});
+            total += Math.max(0L, (long) (max.getXIndex() - min.getXIndex() + 1) * (max.getYIndex() - min.getYIndex() + 1));
+        }
+        progressMonitor.beginTask(tr("Exporting tiles"), (int) Math.min(total, Integer.MAX_VALUE));
+        try (TilePackage.Writer writer = new TilePackage.Writer(file, info, tileSource.getServerCRS(), bounds, minZoom, maxZoom)) {
+            for (int zoom = minZoom; zoom <= maxZoom && !progressMonitor.isCanceled(); zoom++) {
+                TileXY[] range = ranges.get(zoom - minZoom);
+                for (int x = range[0].getXIndex(); x <= range[1].getXIndex() && !progressMonitor.isCanceled(); x++) {
+                    for (int y = range[0].getYIndex(); y <= range[1].getYIndex(); y++) {
+                        byte[] content = getCachedTileContent(tileCache, new Tile(tileSource, x, y, zoom));
+                        if (content != null && content.length > 0) {
+                            writer.addTile(zoom, x, y, content);
+                        }
+                    }
+                    progressMonitor.worked(range[1].getYIndex() - range[0].getYIndex() + 1);
+                    progressMonitor.setCustomText(tr("Exported {0} tiles", writer.getTileCount()));
+                }
+            }
+            return writer.getTileCount();
+        } finally {
+            progressMonitor.finishTask();
+        }
+    }
+
+    private byte[] getCachedTileContent(ICacheAccess<String, BufferedImageCacheEntry> tileCache, Tile tile) {
+        if (tilePackage != null) {
+            return tilePackage.getTile(tile.getZoom(), tile.getXtile(), tile.getYtile());
+        }
+        // let the tile loader compute the cache key, as it depends on the type of the layer
+        if (tileLoader instanceof TMSCachedTileLoader) {
+            String key = ((TMSCachedTileLoader) tileLoader).getCacheKey(tile);
+            BufferedImageCacheEntry entry = key == null ? null : tileCache.get(key);
+            if (entry != null) {
+                return entry.getContent();
+            }
+        }
+        return null;
+    }
+
+    @Override
+    public Action[] getCommonEntries() {
+        List<Action> actions = new ArrayList<>(Arrays.asList(super.getCommonEntries()));
+        actions.add(new ExportTilePackageAction(this));
+        return actions.toArray(new Action[actions.size()]);
+    }
+
+    @Override
+    public synchronized void destroy() {
+        super.destroy();
+        if (tilePackage != null) {
+            try {
+                tilePackage.close();
+            } catch (IOException e) {
+                Logging.warn(e);
+            }
+        }
+    }
+
     protected abstract Class<? extends TileLoader> getTileLoaderClass();
 
     protected int getDiskCacheSize() {
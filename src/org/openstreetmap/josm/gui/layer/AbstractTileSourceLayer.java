@@ -304,6 +304,7 @@ implements ImageObserver, TileLoaderListener, ZoomChangeListener, FilterChangeLi
             ((CachedTileLoader) tileLoader).clearCache(tileSource);
         }
         tileCache.clear();
+        ReprojectionTile.removeReprojections(tileSource);
     }
 
     /**
@@ -994,8 +995,13 @@ implements ImageObserver, TileLoaderListener, ZoomChangeListener, FilterChangeLi
                 // be correct, but for best image quality, the tile should be
                 // reprojected to the target scale. The original tile image should
                 // still be in disk cache, so this is fairly cheap.
-                ((ReprojectionTile) tile).invalidate();
-                loadTile(tile, false);
+                // If the tile was already reprojected at this scale, the cached image is used instead.
+                if (((ReprojectionTile) tile).useCachedReprojection(mapView.getScale())) {
+                    invalidateLater();
+                } else {
+                    ((ReprojectionTile) tile).invalidate();
+                    loadTile(tile, false);
+                }
             }
 
         }, missed::add);
@@ -1784,6 +1790,9 @@ implements ImageObserver, TileLoaderListener, ZoomChangeListener, FilterChangeLi
     public synchronized void destroy() {
         super.destroy();
         adjustAction.destroy();
+        if (tileSource != null) {
+            ReprojectionTile.removeReprojections(tileSource);
+        }
     }
 
     private class TileSourcePainter extends CompatibilityModeLayerPainter {
@@ -1837,5 +1846,8 @@ implements ImageObserver, TileLoaderListener, ZoomChangeListener, FilterChangeLi
         if (tileCache != null) {
             tileCache.clear();
         }
+        if (tileSource != null) {
+            ReprojectionTile.removeReprojections(tileSource);
+        }
     }
 }
@@ -14,12 +14,15 @@ import java.nio.charset.StandardCharsets;
 import java.nio.file.Files;
 import java.nio.file.Path;
 import java.util.ArrayList;
+import java.util.Collection;
 import java.util.Date;
 import java.util.Deque;
 import java.util.HashSet;
+import java.util.IdentityHashMap;
 import java.util.Iterator;
 import java.util.LinkedList;
 import java.util.List;
+import java.util.Map;
 import java.util.Set;
 import java.util.Timer;
 import java.util.TimerTask;
@@ -31,7 +34,14 @@ import java.util.regex.Pattern;
 import org.openstreetmap.josm.Main;
 import org.openstreetmap.josm.actions.OpenFileAction.OpenFileTask;
 import org.openstreetmap.josm.data.osm.DataSet;
+import org.openstreetmap.josm.data.osm.DataSetSnapshot;
+import org.openstreetmap.josm.data.osm.OsmPrimitive;
+import org.openstreetmap.josm.data.osm.PrimitiveId;
+import org.openstreetmap.josm.data.osm.SimplePrimitiveId;
 import org.openstreetmap.josm.data.osm.event.AbstractDatasetChangedEvent;
+import org.openstreetmap.josm.data.osm.event.AbstractDatasetChangedEvent.DatasetEventType;
+import org.openstreetmap.josm.data.osm.event.BulkChangeEvent;
+import org.openstreetmap.josm.data.osm.event.DataChangedEvent;
 import org.openstreetmap.josm.data.osm.event.DataSetListenerAdapter;
 import org.openstreetmap.josm.data.osm.event.DataSetListenerAdapter.Listener;
 import org.openstreetmap.josm.data.preferences.BooleanProperty;
@@ -45,6 +55,7 @@ import org.openstreetmap.josm.gui.layer.LayerManager.LayerRemoveEvent;
 import org.openstreetmap.josm.gui.util.GuiHelper;
 import org.openstreetmap.josm.io.OsmExporter;
 import org.openstreetmap.josm.io.OsmImporter;
+import org.openstreetmap.josm.io.OsmJournal;
 import org.openstreetmap.josm.tools.Logging;
 import org.openstreetmap.josm.tools.Utils;
 
@@ -64,6 +75,11 @@ import org.openstreetmap.josm.tools.Utils;
  *
  *      The deleted layers dir keeps at most PROP_DELETED_LAYERS files.
  *
+ * If PROP_JOURNAL is enabled, layers are saved as journals (see {@link OsmJournal}): the complete layer
+ * is saved once, then only the primitives changed since the last autosave are appended. The journal is
+ * compacted into a new one once the appended changes get larger than PROP_JOURNAL_COMPACTION percent of it.
+ * Journals are converted to .osm files when the layer is closed, or when they are recovered.
+ *
  * @since  3378 (creation)
  * @since 10386 (new LayerChangeListener interface)
  */
@@ -97,20 +113,56 @@ public class AutosaveTask extends TimerTask implements LayerChangeListener, List
      * Defines if a notification should be displayed after each autosave
      */
     public static final BooleanProperty PROP_NOTIFICATION = new BooleanProperty("autosave.notification", false);
+    /**
+     * Defines if only the changes are saved to a journal, instead of the complete layer
+     * @since 12685
+     */
+    public static final BooleanProperty PROP_JOURNAL = new BooleanProperty("autosave.journal", true);
+    /**
+     * The size of the changes appended to a journal before it gets compacted, in percent of the size of the layer
+     * @since 12685
+     */
+    public static final IntegerProperty PROP_JOURNAL_COMPACTION = new IntegerProperty("autosave.journal.compaction-percent", 100);
 
     protected static final class AutosaveLayerInfo {
         private final OsmDataLayer layer;
         private String layerName;
         private String layerFileName;
         private final Deque<File> backupFiles = new LinkedList<>();
+        private OsmJournal journal;
 
         AutosaveLayerInfo(OsmDataLayer layer) {
             this.layer = layer;
         }
     }
 
+    /**
+     * Changes of a dataset since the last autosave, for the journal.
+     */
+    private static final class JournalChanges {
+        private final Set<OsmPrimitive> changed = new HashSet<>();
+        private final Set<PrimitiveId> removed = new HashSet<>();
+        /** the changes are unknown, the complete dataset has to be saved */
+        private boolean rewrite;
+
+        void addRemoved(DataSet ds, Collection<? extends OsmPrimitive> primitives) {
+            for (OsmPrimitive p : primitives) {
+                if (p.getDataSet() == ds && p.isDeleted()) {
+                    changed.add(p);
+                } else if (p.getDataSet() == ds) {
+                    // removed and added again, the id may have changed (e.g. after upload, see OsmPrimitive#setOsmId),
+                    // and the previous id is unknown
+                    rewrite = true;
+                } else {
+                    removed.add(new SimplePrimitiveId(p.getUniqueId(), p.getType()));
+                }
+            }
+        }
+    }
+
     private final DataSetListenerAdapter datasetAdapter = new DataSetListenerAdapter(this);
     private final Set<DataSet> changedDatasets = new HashSet<>();
+    private final Map<DataSet, JournalChanges> journalChanges = new IdentityHashMap<>();
     private final List<AutosaveLayerInfo> layersInfo = new ArrayList<>();
     private final Object layersLock = new Object();
     private final Deque<File> deletedLayers = new LinkedList<>();
@@ -188,11 +240,15 @@ public class AutosaveTask extends TimerTask implements LayerChangeListener, List
     }
 
     protected File getNewLayerFile(AutosaveLayerInfo layer, Date now, int startIndex) {
+        return getNewLayerFile(layer, now, startIndex, Main.pref.get("autosave.extension", "osm"));
+    }
+
+    private File getNewLayerFile(AutosaveLayerInfo layer, Date now, int startIndex, String extension) {
         int index = startIndex;
         while (true) {
             String filename = String.format("%1$s_%2$tY%2$tm%2$td_%2$tH%2$tM%2$tS%2$tL%3$s",
                     layer.layerFileName, now, index == 0 ? "" : ('_' + Integer.toString(index)));
-            File result = new File(autosaveDir, filename + '.' + Main.pref.get("autosave.extension", "osm"));
+            File result = new File(autosaveDir, filename + '.' + extension);
             try {
                 if (index > PROP_INDEX_LIMIT.get())
                     throw new IOException("index limit exceeded");
@@ -223,8 +279,19 @@ public class AutosaveTask extends TimerTask implements LayerChangeListener, List
         if (!info.layer.getName().equals(info.layerName)) {
             setLayerFileName(info);
             info.layerName = info.layer.getName();
+            info.journal = null;
+        }
+        JournalChanges changes;
+        synchronized (journalChanges) {
+            changes = journalChanges.remove(info.layer.data);
         }
-        if (changedDatasets.remove(info.layer.data)) {
+        if (PROP_JOURNAL.get()) {
+            changedDatasets.remove(info.layer.data);
+            if (changes != null) {
+                saveJournal(info, changes);
+            }
+        } else if (changedDatasets.remove(info.layer.data)) {
+            info.journal = null;
             File file = getNewLayerFile(info, new Date(), 0);
             if (file != null) {
                 info.backupFiles.add(file);
@@ -239,6 +306,37 @@ public class AutosaveTask extends TimerTask implements LayerChangeListener, List
         }
     }
 
+    private void saveJournal(AutosaveLayerInfo info, JournalChanges changes) {
+        OsmJournal journal = info.journal;
+        try {
+            if (journal == null || changes.rewrite
+                    || journal.getAppendedSize() > journal.getBaseSize() * PROP_JOURNAL_COMPACTION.get() / 100) {
+                info.journal = null;
+                File file = getNewLayerFile(info, new Date(), 0, OsmJournal.EXTENSION);
+                if (file != null) {
+                    info.backupFiles.add(file);
+                    journal = new OsmJournal(file);
+                    try (DataSetSnapshot snapshot = info.layer.data.createSnapshot()) {
+                        journal.writeBase(snapshot);
+                    }
+                    info.journal = journal;
+                }
+            } else {
+                journal.append(info.layer.data, changes.changed, changes.removed);
+            }
+        } catch (IOException e) {
+            Logging.log(Logging.LEVEL_ERROR, tr("IOError while saving journal, the layer will be saved again: {0}", e.getMessage()), e);
+            info.journal = null;
+            getJournalChanges(info.layer.data).rewrite = true;
+        }
+    }
+
+    private JournalChanges getJournalChanges(DataSet ds) {
+        synchronized (journalChanges) {
+            return journalChanges.computeIfAbsent(ds, k -> new JournalChanges());
+        }
+    }
+
     @Override
     public void run() {
         synchronized (layersLock) {
@@ -297,7 +395,7 @@ public class AutosaveTask extends TimerTask implements LayerChangeListener, List
                         savelayer(info);
                         File lastFile = info.backupFiles.pollLast();
                         if (lastFile != null) {
-                            moveToDeletedLayersFolder(lastFile);
+                            moveToDeletedLayersFolder(replayJournal(lastFile));
                         }
                         for (File file: info.backupFiles) {
                             if (Utils.deleteFile(file)) {
@@ -308,13 +406,57 @@ public class AutosaveTask extends TimerTask implements LayerChangeListener, List
                         it.remove();
                     }
                 }
+                synchronized (journalChanges) {
+                    journalChanges.remove(osmLayer.data);
+                }
             }
         }
     }
 
     @Override
     public void processDatasetEvent(AbstractDatasetChangedEvent event) {
-        changedDatasets.add(event.getDataset());
+        DataSet ds = event.getDataset();
+        changedDatasets.add(ds);
+        synchronized (journalChanges) {
+            JournalChanges changes = getJournalChanges(ds);
+            if (event instanceof BulkChangeEvent) {
+                BulkChangeEvent bulk = (BulkChangeEvent) event;
+                changes.changed.addAll(bulk.getAdded());
+                changes.changed.addAll(bulk.getChanged());
+                changes.addRemoved(ds, bulk.getRemoved());
+                // a primitive removed and added again is listed as changed, and may have a new id, e.g. after upload
+                if (bulk.getChangeTypes().contains(DatasetEventType.PRIMITIVES_REMOVED)
+                        && bulk.getChangeTypes().contains(DatasetEventType.PRIMITIVES_ADDED)) {
+                    changes.rewrite = true;
+                }
+            } else if (event instanceof DataChangedEvent) {
+                changes.rewrite = true;
+            } else if (event.getType() == DatasetEventType.PRIMITIVES_REMOVED) {
+                changes.addRemoved(ds, event.getPrimitives());
+            } else {
+                changes.changed.addAll(event.getPrimitives());
+            }
+        }
+    }
+
+    /**
+     * Converts a journal to an .osm file with the same name, if the given file is a journal.
+     * @param file autosave file
+     * @return the .osm file, or the given file if it is not a journal or cannot be converted
+     */
+    private static File replayJournal(File file) {
+        if (!file.getName().endsWith('.' + OsmJournal.EXTENSION)) {
+            return file;
+        }
+        File osmFile = new File(file.getParentFile(), file.getName().replaceFirst("[.][^.]+$", ".osm"));
+        try {
+            OsmJournal.replay(file, osmFile);
+            Utils.deleteFile(file, marktr("Unable to delete journal {0}"));
+            return osmFile;
+        } catch (IOException e) {
+            Logging.log(Logging.LEVEL_ERROR, tr("Unable to convert journal {0}: {1}", file.getName(), e.getMessage()), e);
+            return file;
+        }
     }
 
     protected File getPidFile(File osmFile) {
@@ -328,32 +470,42 @@ public class AutosaveTask extends TimerTask implements LayerChangeListener, List
      */
     public List<File> getUnsavedLayersFiles() {
         List<File> result = new ArrayList<>();
+        // journals of a crashed instance are converted to .osm files first
+        File[] journals = autosaveDir.listFiles(file -> file.getName().endsWith('.' + OsmJournal.EXTENSION));
+        if (journals != null) {
+            for (File journal : journals) {
+                if (journal.isFile() && !isManagedByRunningInstance(journal)) {
+                    replayJournal(journal);
+                }
+            }
+        }
         File[] files = autosaveDir.listFiles(OsmImporter.FILE_FILTER);
         if (files == null)
             return result;
         for (File file: files) {
-            if (file.isFile()) {
-                boolean skipFile = false;
-                File pidFile = getPidFile(file);
-                if (pidFile.exists()) {
-                    try (BufferedReader reader = Files.newBufferedReader(pidFile.toPath(), StandardCharsets.UTF_8)) {
-                        String jvmId = reader.readLine();
-                        if (jvmId != null) {
-                            String pid = jvmId.split("@")[0];
-                            skipFile = jvmPerfDataFileExists(pid);
-                        }
-                    } catch (IOException | SecurityException t) {
-                        Logging.error(t);
-                    }
-                }
-                if (!skipFile) {
-                    result.add(file);
-                }
+            if (file.isFile() && !isManagedByRunningInstance(file)) {
+                result.add(file);
             }
         }
         return result;
     }
 
+    private boolean isManagedByRunningInstance(File file) {
+        File pidFile = getPidFile(file);
+        if (pidFile.exists()) {
+            try (BufferedReader reader = Files.newBufferedReader(pidFile.toPath(), StandardCharsets.UTF_8)) {
+                String jvmId = reader.readLine();
+                if (jvmId != null) {
+                    String pid = jvmId.split("@")[0];
+                    return jvmPerfDataFileExists(pid);
+                }
+            } catch (IOException | SecurityException t) {
+                Logging.error(t);
+            }
+        }
+        return false;
+    }
+
     private static boolean jvmPerfDataFileExists(final String jvmId) {
         File jvmDir = new File(System.getProperty("java.io.tmpdir") + File.separator + "hsperfdata_" + System.getProperty("user.name"));
         if (jvmDir.exists() && jvmDir.canRead()) {
@@ -297,7 +297,7 @@ public class GpxLayer extends Layer {
     @Override
     public void projectionChanged(Projection oldValue, Projection newValue) {
         if (newValue == null) return;
-        data.resetEastNorthCache();
+        data.updateEastNorthCache(newValue);
     }
 
     @Override
@@ -6,11 +6,14 @@ import static org.openstreetmap.josm.tools.I18n.tr;
 import java.awt.event.ActionEvent;
 import java.awt.geom.Area;
 import java.awt.geom.Rectangle2D;
+import java.util.List;
 
 import org.openstreetmap.josm.actions.DownloadAlongAction;
+import org.openstreetmap.josm.data.Bounds;
 import org.openstreetmap.josm.data.coor.LatLon;
 import org.openstreetmap.josm.data.gpx.GpxData;
 import org.openstreetmap.josm.data.gpx.GpxTrack;
+import org.openstreetmap.josm.data.gpx.GpxTrackIndex;
 import org.openstreetmap.josm.data.gpx.GpxTrackSegment;
 import org.openstreetmap.josm.data.gpx.WayPoint;
 import org.openstreetmap.josm.gui.MainApplication;
@@ -157,6 +160,18 @@ public class DownloadAlongTrackAction extends DownloadAlongAction {
                 return previous;
             }
 
+            /**
+             * determine if the given bounds, plus buffer zone, are completely inside the area.
+             */
+            private boolean isCovered(Bounds b) {
+                if (b == null || a.isEmpty()) {
+                    return false;
+                }
+                r.setRect(b.getMinLon() - bufferX, b.getMinLat() - bufferY,
+                        b.getMaxLon() - b.getMinLon() + 2 * bufferX, b.getMaxLat() - b.getMinLat() + 2 * bufferY);
+                return a.contains(r);
+            }
+
             @Override
             protected void realRun() {
                 progressMonitor.setTicksCount(totalTicks);
@@ -167,14 +182,23 @@ public class DownloadAlongTrackAction extends DownloadAlongAction {
                  */
                 LatLon previous = null;
                 if (near == NEAR_TRACK || near == NEAR_BOTH) {
-                    for (GpxTrack trk : data.tracks) {
-                        for (GpxTrackSegment segment : trk.getSegments()) {
-                            for (WayPoint p : segment.getWayPoints()) {
-                                if (cancel) {
-                                    return;
-                                }
-                                previous = calcAreaForWayPoint(p, previous);
+                    for (GpxTrackIndex.Run run : data.getTrackIndex().getRuns()) {
+                        if (cancel) {
+                            return;
+                        }
+                        List<WayPoint> points = run.getWayPoints();
+                        if (isCovered(run.getBounds())) {
+                            // all points of this run are already in the area, e.g. for tracks going back and forth
+                            for (int i = 0; i < points.size(); i++) {
+                                tick();
+                            }
+                            continue;
+                        }
+                        for (WayPoint p : points) {
+                            if (cancel) {
+                                return;
                             }
+                            previous = calcAreaForWayPoint(p, previous);
                         }
                     }
                 }
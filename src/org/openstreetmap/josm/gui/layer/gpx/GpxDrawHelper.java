@@ -28,7 +28,7 @@ import java.util.Collections;
 import java.util.Date;
 import java.util.LinkedList;
 import java.util.List;
-import java.util.Random;
+import java.util.Objects;
 
 import javax.swing.ImageIcon;
 
@@ -41,10 +41,14 @@ import org.openstreetmap.josm.data.gpx.GpxConstants;
 import org.openstreetmap.josm.data.gpx.GpxData;
 import org.openstreetmap.josm.data.gpx.GpxData.GpxDataChangeEvent;
 import org.openstreetmap.josm.data.gpx.GpxData.GpxDataChangeListener;
+import org.openstreetmap.josm.data.gpx.GpxRoute;
+import org.openstreetmap.josm.data.gpx.GpxTrack;
+import org.openstreetmap.josm.data.gpx.GpxTrackIndex;
+import org.openstreetmap.josm.data.gpx.GpxTrackSegment;
 import org.openstreetmap.josm.data.gpx.WayPoint;
 import org.openstreetmap.josm.data.preferences.ColorProperty;
+import org.openstreetmap.josm.data.preferences.DoubleProperty;
 import org.openstreetmap.josm.gui.MapView;
-import org.openstreetmap.josm.gui.MapViewState;
 import org.openstreetmap.josm.gui.layer.GpxLayer;
 import org.openstreetmap.josm.gui.layer.MapViewGraphics;
 import org.openstreetmap.josm.gui.layer.MapViewPaintable;
@@ -69,6 +73,12 @@ public class GpxDrawHelper implements SoMChangeListener, MapViewPaintable.LayerP
      */
     public static final ColorProperty DEFAULT_COLOR = new ColorProperty(marktr("gps point"), Color.magenta);
 
+    /**
+     * Deviation in pixels that is allowed when simplifying track lines for drawing. 0 draws all points.
+     * @since 12678
+     */
+    public static final DoubleProperty LOD_TOLERANCE = new DoubleProperty("draw.rawgps.lod.tolerance", 0.5);
+
     private final GpxData data;
     private final GpxLayer layer;
 
@@ -106,10 +116,7 @@ public class GpxDrawHelper implements SoMChangeListener, MapViewPaintable.LayerP
     private boolean computeCacheColorDynamic;
     private ColorMode computeCacheColored;
     private int computeCacheColorTracksTune;
-    private int computeCacheHeatMapDrawColorTableIdx;
-    private boolean computeCacheHeatMapDrawPointMode;
-    private int computeCacheHeatMapDrawGain;
-    private int computeCacheHeatMapDrawLowerLimit;
+    private int computeCacheSegmentUpdateCount;
 
     //// Color-related fields
     /** Mode of the line coloring **/
@@ -162,12 +169,9 @@ public class GpxDrawHelper implements SoMChangeListener, MapViewPaintable.LayerP
 
     // some cached values
     Rectangle heatMapCacheScreenBounds = new Rectangle();
-    MapViewState heatMapMapViewState;
-    int heatMapCacheLineWith;
 
-    // copied value for line drawing
-    private final List<Integer> heatMapPolyX = new ArrayList<>();
-    private final List<Integer> heatMapPolyY = new ArrayList<>();
+    // accumulated gray map, in tiles
+    private HeatMapTileCache heatMapTiles;
 
     // setup color maps used by heat map
     private static Color[] heatMapLutColorJosmInferno = createColorFromResource("inferno");
@@ -177,6 +181,9 @@ public class GpxDrawHelper implements SoMChangeListener, MapViewPaintable.LayerP
 
     // user defined heatmap color
     private Color[] heatMapLutColor = createColorLut(0, Color.BLACK, Color.WHITE);
+    private int heatMapLutColorTableIdx = -1;
+    private int heatMapLutLowerLimit;
+    private Color heatMapLutNeutralColor;
 
     // The heat map was invalidated since the last draw.
     private boolean gpxLayerInvalidated;
@@ -345,9 +352,14 @@ public class GpxDrawHelper implements SoMChangeListener, MapViewPaintable.LayerP
 
     @Override
     public void paint(MapViewGraphics graphics) {
-        List<WayPoint> visibleSegments = listVisibleSegments(graphics.getClipBounds().getLatLonBoundsBox());
+        readPreferences(layer.getName());
+        double tolerance = 0;
+        // points are only left out if they are not drawn, and do not change the heat map intensity
+        if (lines && !large && !hdopCircle && !heatMapEnabled && ColorMode.HEATMAP != colored) {
+            tolerance = graphics.getMapView().getDist100Pixel() / 100 * LOD_TOLERANCE.get();
+        }
+        List<WayPoint> visibleSegments = listVisibleSegments(graphics.getClipBounds().getLatLonBoundsBox(), tolerance);
         if (!visibleSegments.isEmpty()) {
-            readPreferences(layer.getName());
             drawAll(graphics.getDefaultGraphics(), graphics.getMapView(), visibleSegments);
             if (graphics.getMapView().getLayerManager().getActiveLayer() == layer) {
                 drawColorBar(graphics.getDefaultGraphics(), graphics.getMapView());
@@ -355,35 +367,91 @@ public class GpxDrawHelper implements SoMChangeListener, MapViewPaintable.LayerP
         }
     }
 
-    private List<WayPoint> listVisibleSegments(Bounds box) {
+    /**
+     * Lists the points to draw.
+     * @param box the visible area
+     * @param tolerance the distance in meters a simplified track line may deviate from the original one
+     * @return the visible points, starting a new line at points without {@link WayPoint#drawLine}
+     */
+    private List<WayPoint> listVisibleSegments(Bounds box, double tolerance) {
         WayPoint last = null;
         LinkedList<WayPoint> visibleSegments = new LinkedList<>();
 
         ensureTrackVisibilityLength();
-        for (Collection<WayPoint> segment : data.getLinesIterable(layer.trackVisibility)) {
-
-            for (WayPoint pt : segment) {
-                Bounds b = new Bounds(pt.getCoor());
-                if (pt.drawLine && last != null) {
-                    b.extend(last.getCoor());
+        GpxTrackIndex index = data.getTrackIndex();
+        GpxTrackIndex.Run lastRun = null;
+        // only look at track points near the visible area
+        for (GpxTrackIndex.Run run : index.search(box)) {
+            if (!layer.trackVisibility[run.getTrackIndex()]) {
+                continue;
+            }
+            WayPoint previous = run.getPrevious();
+            boolean continued = lastRun != null && lastRun.getSegment() == run.getSegment() && lastRun.getTo() == run.getFrom();
+            if (previous != null && !continued) {
+                last = previous;
+            }
+            lastRun = run;
+            List<WayPoint> points = run.getSegmentWayPoints();
+            float[] tolerances = tolerance > 0 ? index.getTolerances(run.getSegment()) : null;
+            for (int i = run.getFrom(); i < run.getTo(); i++) {
+                WayPoint pt = points.get(i);
+                // leave out points that do not change the drawn line noticeably
+                if (tolerances != null && tolerances[i] < tolerance && pt.drawLine && points.get(i + 1).drawLine) {
+                    continue;
                 }
-                if (b.intersects(box)) {
-                    if (last != null && (visibleSegments.isEmpty()
-                            || visibleSegments.getLast() != last)) {
-                        if (last.drawLine) {
-                            WayPoint l = new WayPoint(last);
-                            l.drawLine = false;
-                            visibleSegments.add(l);
-                        } else {
-                            visibleSegments.add(last);
+                last = addIfVisible(visibleSegments, box, pt, last);
+            }
+        }
+        if (!data.getRoutes().isEmpty()) {
+            last = getLastVisibleTrackPoint();
+        }
+        for (GpxRoute route : data.getRoutes()) {
+            for (WayPoint pt : route.routePoints) {
+                last = addIfVisible(visibleSegments, box, pt, last);
+            }
+        }
+        return visibleSegments;
+    }
+
+    private WayPoint getLastVisibleTrackPoint() {
+        WayPoint last = null;
+        int i = 0;
+        for (GpxTrack track : data.getTracks()) {
+            if (layer.trackVisibility[i++]) {
+                for (GpxTrackSegment segment : track.getSegments()) {
+                    Collection<WayPoint> points = segment.getWayPoints();
+                    if (points instanceof List && !points.isEmpty()) {
+                        last = ((List<WayPoint>) points).get(points.size() - 1);
+                    } else {
+                        for (WayPoint pt : points) {
+                            last = pt;
                         }
                     }
-                    visibleSegments.add(pt);
                 }
-                last = pt;
             }
         }
-        return visibleSegments;
+        return last;
+    }
+
+    private static WayPoint addIfVisible(LinkedList<WayPoint> visibleSegments, Bounds box, WayPoint pt, WayPoint last) {
+        Bounds b = new Bounds(pt.getCoor());
+        if (pt.drawLine && last != null) {
+            b.extend(last.getCoor());
+        }
+        if (b.intersects(box)) {
+            if (last != null && (visibleSegments.isEmpty()
+                    || visibleSegments.getLast() != last)) {
+                if (last.drawLine) {
+                    WayPoint l = new WayPoint(last);
+                    l.drawLine = false;
+                    visibleSegments.add(l);
+                } else {
+                    visibleSegments.add(last);
+                }
+            }
+            visibleSegments.add(pt);
+        }
+        return pt;
     }
 
     /** ensures the trackVisibility array has the correct length without losing data.
@@ -622,16 +690,8 @@ public class GpxDrawHelper implements SoMChangeListener, MapViewPaintable.LayerP
             }
         }
 
-        // heat mode
-        if (ColorMode.HEATMAP == colored) {
-
-            // get new user color map and refresh visibility level
-            heatMapLutColor = createColorLut(heatMapDrawLowerLimit,
-                                             selectColorMap(neutralColor != null ? neutralColor : Color.WHITE, heatMapDrawColorTableIdx));
-
-            // force redraw of image
-            heatMapMapViewState = null;
-        }
+        // line flags may have changed, accumulate the heat map again
+        heatMapTiles = null;
 
         computeCacheInSync = true;
     }
@@ -1084,63 +1144,6 @@ public class GpxDrawHelper implements SoMChangeListener, MapViewPaintable.LayerP
         return new ImageIcon(createImageGradientMap(size, size, selectColorMap(userColor, tableIdx)));
     }
 
-    /**
-     * Draw gray heat map with current Graphics2D setting
-     * @param gB              the common draw object to use
-     * @param mv              the meta data to current displayed area
-     * @param listSegm        segments visible in the current scope of mv
-     * @param foreComp        composite use to draw foreground objects
-     * @param foreStroke      stroke use to draw foreground objects
-     * @param backComp        composite use to draw background objects
-     * @param backStroke      stroke use to draw background objects
-     */
-    private void drawHeatGrayLineMap(Graphics2D gB, MapView mv, List<WayPoint> listSegm,
-                                     Composite foreComp, Stroke foreStroke,
-                                     Composite backComp, Stroke backStroke) {
-
-        // draw foreground
-        boolean drawForeground = foreComp != null && foreStroke != null;
-
-        // set initial values
-        gB.setStroke(backStroke); gB.setComposite(backComp);
-
-        // get last point in list
-        final WayPoint lastPnt = !listSegm.isEmpty() ? listSegm.get(listSegm.size() - 1) : null;
-
-        // for all points, draw single lines by using optimized drawing
-        for (WayPoint trkPnt : listSegm) {
-
-            // get transformed coordinates
-            final Point paintPnt = mv.getPoint(trkPnt.getEastNorth());
-
-            // end of line segment or end of list reached
-            if (!trkPnt.drawLine || (lastPnt == trkPnt)) {
-
-                // convert to primitive type
-                final int[] polyXArr = heatMapPolyX.stream().mapToInt(Integer::intValue).toArray();
-                final int[] polyYArr = heatMapPolyY.stream().mapToInt(Integer::intValue).toArray();
-
-                // a.) draw background
-                gB.drawPolyline(polyXArr, polyYArr, polyXArr.length);
-
-                // b.) draw extra foreground
-                if (drawForeground && heatMapDrawExtraLine) {
-
-                    gB.setStroke(foreStroke); gB.setComposite(foreComp);
-                    gB.drawPolyline(polyXArr, polyYArr, polyXArr.length);
-                    gB.setStroke(backStroke); gB.setComposite(backComp);
-                }
-
-                // drop used points
-                heatMapPolyX.clear(); heatMapPolyY.clear();
-            }
-
-            // store only the integer part (make sense because pixel is 1:1 here)
-            heatMapPolyX.add((int) paintPnt.getX());
-            heatMapPolyY.add((int) paintPnt.getY());
-        }
-    }
-
     /**
      * Map the gray map to heat map and draw them with current Graphics2D setting
      * @param g               the common draw object to use
@@ -1245,190 +1248,52 @@ public class GpxDrawHelper implements SoMChangeListener, MapViewPaintable.LayerP
      */
     private void drawHeatMap(Graphics2D g, MapView mv, List<WayPoint> visibleSegments) {
 
-        // get bounds of screen image and projection, zoom and adjust input parameters
+        // get bounds of screen image
         final Rectangle screenBounds = new Rectangle(mv.getWidth(), mv.getHeight());
-        final MapViewState mapViewState = mv.getState();
-        final double zoomScale = mv.getDist100Pixel() / 50.0f;
 
         // adjust global settings ( zero = default line width )
         final int globalLineWidth = (0 == lineWidth) ? 1 : Utils.clamp(lineWidth, 1, 20);
 
         // 1st setup virtual paint area ----------------------------------------
 
-        // new image buffer needed
-        final boolean imageSetup = null == heatMapImgGray || !heatMapCacheScreenBounds.equals(screenBounds);
-
         // screen bounds changed, need new image buffer ?
-        if (imageSetup) {
+        if (null == heatMapImgGray || !heatMapCacheScreenBounds.equals(screenBounds)) {
             // we would use a "pure" grayscale image, but there is not efficient way to map gray scale values to RGB)
             heatMapImgGray = new BufferedImage(screenBounds.width, screenBounds.height, BufferedImage.TYPE_INT_ARGB);
             heatMapGraph2d = heatMapImgGray.createGraphics();
-            heatMapGraph2d.setBackground(new Color(0, 0, 0, 255));
-            heatMapGraph2d.setColor(Color.WHITE);
-
-            // fast draw ( maybe help or not )
-            heatMapGraph2d.setRenderingHint(RenderingHints.KEY_ANTIALIASING, RenderingHints.VALUE_ANTIALIAS_OFF);
-            heatMapGraph2d.setRenderingHint(RenderingHints.KEY_RENDERING, RenderingHints.VALUE_RENDER_SPEED);
-            heatMapGraph2d.setRenderingHint(RenderingHints.KEY_ALPHA_INTERPOLATION, RenderingHints.VALUE_ALPHA_INTERPOLATION_SPEED);
-            heatMapGraph2d.setRenderingHint(RenderingHints.KEY_DITHERING, RenderingHints.VALUE_DITHER_DISABLE);
-            heatMapGraph2d.setRenderingHint(RenderingHints.KEY_INTERPOLATION, RenderingHints.VALUE_INTERPOLATION_NEAREST_NEIGHBOR);
-            heatMapGraph2d.setRenderingHint(RenderingHints.KEY_STROKE_CONTROL, RenderingHints.VALUE_STROKE_PURE);
-            heatMapGraph2d.setRenderingHint(RenderingHints.KEY_COLOR_RENDERING, RenderingHints.VALUE_COLOR_RENDER_SPEED);
 
             // cache it
             heatMapCacheScreenBounds = screenBounds;
         }
 
-        // 2nd. determine current scale factors -------------------------------
-
-        // the line width (foreground: draw extra small footprint line of track)
-        int lineWidthB = (int) Math.max(1.5f * (globalLineWidth / zoomScale) + 1, 2);
-        int lineWidthF = lineWidthB > 2 ? (globalLineWidth - 1) : 0;
-
-        // global alpha adjustment
-        float lineAlpha = (float) Utils.clamp((0.40 / zoomScale) / (globalLineWidth + 1), 0.01, 0.40);
-
-        // adjust 0.15 .. 1.85
-        float scaleAlpha = 1.0f + ((heatMapDrawGain/10.0f) * 0.85f);
-
-        // add to calculated values
-        float lineAlphaBPoint = (float) Utils.clamp((lineAlpha * 0.65) * scaleAlpha, 0.001, 0.90);
-        float lineAlphaBLine = (float) Utils.clamp((lineAlpha * 1.00) * scaleAlpha, 0.001, 0.90);
-        float lineAlphaFLine = (float) Utils.clamp((lineAlpha / 1.50) * scaleAlpha, 0.001, 0.90);
-
-        // 3rd Calculate the heat map data by draw GPX traces with alpha value ----------
-
-        // recalculation of image needed
-        final boolean imageRecalc = !mapViewState.equalsInWindow(heatMapMapViewState)
-                || gpxLayerInvalidated
-                || heatMapCacheLineWith != globalLineWidth;
-
-        // need re-generation of gray image ?
-        if (imageSetup || imageRecalc) {
-
-            // clear background
-            heatMapGraph2d.clearRect(0, 0, heatMapImgGray.getWidth(), heatMapImgGray.getHeight());
-
-            // point or line blending
-            if (heatMapDrawPointMode) {
-                heatMapGraph2d.setComposite(AlphaComposite.SrcOver.derive(lineAlphaBPoint));
-                drawHeatGrayDotMap(heatMapGraph2d, mv, visibleSegments, lineWidthB);
+        // 2nd. Calculate the heat map data by draw GPX traces with alpha value ----------
 
-            } else {
-                drawHeatGrayLineMap(heatMapGraph2d, mv, visibleSegments,
-                                    lineWidthF > 1 ? AlphaComposite.SrcOver.derive(lineAlphaFLine) : null,
-                                    new BasicStroke(lineWidthF, BasicStroke.CAP_ROUND, BasicStroke.JOIN_ROUND),
-                                    AlphaComposite.SrcOver.derive(lineAlphaBLine),
-                                    new BasicStroke(lineWidthB, BasicStroke.CAP_ROUND, BasicStroke.JOIN_ROUND));
-            }
-
-            // remember draw parameter
-            heatMapMapViewState = mapViewState;
-            heatMapCacheLineWith = globalLineWidth;
+        // tiles of the gray map can be reused, unless the data, the scale or the accumulation parameters changed
+        if (heatMapTiles == null || gpxLayerInvalidated
+                || !heatMapTiles.isValidFor(mv, globalLineWidth, heatMapDrawGain, heatMapDrawPointMode, heatMapDrawExtraLine)) {
+            heatMapTiles = new HeatMapTileCache(mv, globalLineWidth, heatMapDrawGain, heatMapDrawPointMode, heatMapDrawExtraLine,
+                    visibleSegments.size());
             gpxLayerInvalidated = false;
         }
+        heatMapTiles.paint(heatMapGraph2d, mv, box -> listVisibleSegments(box, 0));
 
-        // 4th. Draw data on target layer, map data via color lookup table --------------
-        drawHeatMapGrayMap(g, heatMapImgGray, lineWidthB > 2 ? (int) (lineWidthB*1.25f) : 1, lineWidth > 2 ? (lineWidth - 2) : 1);
-    }
-
-    /**
-     * Draw a dotted heat map
-     *
-     * @param gB              the common draw object to use
-     * @param mv              the meta data to current displayed area
-     * @param listSegm        segments visible in the current scope of mv
-     * @param drawSize        draw size of draw element
-     */
-    private static void drawHeatGrayDotMap(Graphics2D gB, MapView mv, List<WayPoint> listSegm, int drawSize) {
-
-        // typical rendering rate -> use realtime preview instead of accurate display
-        final double maxSegm = 25_000, nrSegms = listSegm.size();
-
-        // determine random drop rate
-        final double randomDrop = Math.min(nrSegms > maxSegm ? (nrSegms - maxSegm) / nrSegms : 0, 0.70f);
-
-        // http://www.nstb.tc.faa.gov/reports/PAN94_0716.pdf#page=22
-        // Global Average Position Domain Accuracy, typical -> not worst case !
-        // < 4.218 m Vertical
-        // < 2.168 m Horizontal
-        final double pixelRmsX = (100 / mv.getDist100Pixel()) * 2.168;
-        final double pixelRmsY = (100 / mv.getDist100Pixel()) * 4.218;
-
-        Point lastPnt = null;
-
-        // for all points, draw single lines
-        for (WayPoint trkPnt : listSegm) {
-
-            // get transformed coordinates
-            final Point paintPnt = mv.getPoint(trkPnt.getEastNorth());
-
-            // end of line segment or end of list reached
-            if (trkPnt.drawLine && null != lastPnt) {
-                drawHeatSurfaceLine(gB, paintPnt, lastPnt, drawSize, pixelRmsX, pixelRmsY, randomDrop);
-            }
-
-            // remember
-            lastPnt = paintPnt;
-        }
+        // 3rd. Draw data on target layer, map data via color lookup table --------------
+        updateHeatMapColorLut();
+        drawHeatMapGrayMap(g, heatMapImgGray, heatMapTiles.getSampleRaster(), lineWidth > 2 ? (lineWidth - 2) : 1);
     }
 
     /**
-     * Draw a dotted surface line
-     *
-     * @param g                 the common draw object to use
-     * @param fromPnt           start point
-     * @param toPnt             end point
-     * @param drawSize          size of draw elements
-     * @param rmsSizeX          RMS size of circle for X (width)
-     * @param rmsSizeY          RMS size of circle for Y (height)
-     * @param dropRate          Pixel render drop rate
+     * Creates the color lookup table of the heat map, if the color settings changed.
      */
-    private static void drawHeatSurfaceLine(Graphics2D g,
-            Point fromPnt, Point toPnt, int drawSize, double rmsSizeX, double rmsSizeY, double dropRate) {
-
-        // collect frequently used items
-        final int fromX = (int) fromPnt.getX(); final int deltaX = (int) (toPnt.getX() - fromX);
-        final int fromY = (int) fromPnt.getY(); final int deltaY = (int) (toPnt.getY() - fromY);
-
-        // use same random values for each point
-        final Random heatMapRandom = new Random(fromX+fromY+deltaX+deltaY);
-
-        // cache distance between start and end point
-        final int dist = (int) Math.abs(fromPnt.distance(toPnt));
-
-        // number of increment ( fill wide distance tracks )
-        double scaleStep = Math.max(1.0f / dist, dist > 100 ? 0.10f : 0.20f);
-
-        // number of additional random points
-        int rounds = Math.min(drawSize/2, 1)+1;
-
-        // decrease random noise at high drop rate ( more accurate draw of fewer points )
-        rmsSizeX *= (1.0d - dropRate);
-        rmsSizeY *= (1.0d - dropRate);
-
-        double scaleVal = 0;
-
-        // interpolate line draw ( needs separate point instead of line )
-        while (scaleVal < (1.0d-0.0001d)) {
-
-            // get position
-            final double pntX = fromX + scaleVal * deltaX;
-            final double pntY = fromY + scaleVal * deltaY;
-
-            // add random distribution around sampled point
-            for (int k = 0; k < rounds; k++) {
-
-                // add error distribution, first point with less error
-                int x = (int) (pntX + heatMapRandom.nextGaussian() * (k > 0 ? rmsSizeX : rmsSizeX/4));
-                int y = (int) (pntY + heatMapRandom.nextGaussian() * (k > 0 ? rmsSizeY : rmsSizeY/4));
-
-                // draw it, even drop is requested
-                if (heatMapRandom.nextDouble() >= dropRate) {
-                    g.fillRect(x-drawSize, y-drawSize, drawSize, drawSize);
-                }
-            }
-            scaleVal += scaleStep;
+    private void updateHeatMapColorLut() {
+        if (ColorMode.HEATMAP == colored && (heatMapLutColorTableIdx != heatMapDrawColorTableIdx
+                || heatMapLutLowerLimit != heatMapDrawLowerLimit || !Objects.equals(heatMapLutNeutralColor, neutralColor))) {
+            // get new user color map and refresh visibility level
+            heatMapLutColor = createColorLut(heatMapDrawLowerLimit,
+                                             selectColorMap(neutralColor != null ? neutralColor : Color.WHITE, heatMapDrawColorTableIdx));
+            heatMapLutColorTableIdx = heatMapDrawColorTableIdx;
+            heatMapLutLowerLimit = heatMapDrawLowerLimit;
+            heatMapLutNeutralColor = neutralColor;
         }
     }
 
@@ -1448,16 +1313,20 @@ public class GpxDrawHelper implements SoMChangeListener, MapViewPaintable.LayerP
      * Check cache validity set necessary flags
      */
     private void checkCache() {
+        // way points of compact segments may have been created again, without the cached colors
+        int segmentUpdateCount = 0;
+        for (GpxTrack track : data.getTracks()) {
+            for (GpxTrackSegment segment : track.getSegments()) {
+                segmentUpdateCount += segment.getUpdateCount();
+            }
+        }
         // CHECKSTYLE.OFF: BooleanExpressionComplexity
         if ((computeCacheMaxLineLengthUsed != maxLineLength)
                 || (computeCacheColored != colored)
                 || (computeCacheColorTracksTune != colorTracksTune)
                 || (computeCacheColorDynamic != colorModeDynamic)
-                || (computeCacheHeatMapDrawColorTableIdx != heatMapDrawColorTableIdx)
-                || (!neutralColor.equals(computeCacheColorUsed)
-                || (computeCacheHeatMapDrawPointMode != heatMapDrawPointMode)
-                || (computeCacheHeatMapDrawGain != heatMapDrawGain))
-                || (computeCacheHeatMapDrawLowerLimit != heatMapDrawLowerLimit)
+                || (!neutralColor.equals(computeCacheColorUsed))
+                || (computeCacheSegmentUpdateCount != segmentUpdateCount)
         ) {
             // CHECKSTYLE.ON: BooleanExpressionComplexity
             computeCacheMaxLineLengthUsed = maxLineLength;
@@ -1466,10 +1335,7 @@ public class GpxDrawHelper implements SoMChangeListener, MapViewPaintable.LayerP
             computeCacheColored = colored;
             computeCacheColorTracksTune = colorTracksTune;
             computeCacheColorDynamic = colorModeDynamic;
-            computeCacheHeatMapDrawColorTableIdx = heatMapDrawColorTableIdx;
-            computeCacheHeatMapDrawPointMode = heatMapDrawPointMode;
-            computeCacheHeatMapDrawGain = heatMapDrawGain;
-            computeCacheHeatMapDrawLowerLimit = heatMapDrawLowerLimit;
+            computeCacheSegmentUpdateCount = segmentUpdateCount;
         }
     }
 
@@ -0,0 +1,482 @@
+// License: GPL. For details, see LICENSE file.
+package org.openstreetmap.josm.gui.layer.gpx;
+
+import java.awt.AlphaComposite;
+import java.awt.BasicStroke;
+import java.awt.Color;
+import java.awt.Composite;
+import java.awt.Graphics2D;
+import java.awt.RenderingHints;
+import java.awt.Stroke;
+import java.awt.geom.Point2D;
+import java.awt.image.BufferedImage;
+import java.util.ArrayList;
+import java.util.Iterator;
+import java.util.LinkedHashMap;
+import java.util.List;
+import java.util.Map;
+import java.util.Objects;
+import java.util.Random;
+import java.util.concurrent.ForkJoinPool;
+import java.util.concurrent.ForkJoinTask;
+import java.util.concurrent.RecursiveAction;
+import java.util.function.Function;
+
+import org.openstreetmap.josm.data.Bounds;
+import org.openstreetmap.josm.data.ProjectionBounds;
+import org.openstreetmap.josm.data.coor.EastNorth;
+import org.openstreetmap.josm.data.gpx.WayPoint;
+import org.openstreetmap.josm.data.preferences.IntegerProperty;
+import org.openstreetmap.josm.data.projection.Projection;
+import org.openstreetmap.josm.gui.NavigatableComponent;
+import org.openstreetmap.josm.tools.Utils;
+
+/**
+ * Accumulation buffer of the gray heat map drawn by {@link GpxDrawHelper}.
+ * <p>
+ * The gray map is drawn in square tiles of projected space at a fixed scale. The tiles are kept while the map view
+ * is moved, so only newly exposed tiles have to be drawn. Missing tiles are drawn in parallel.
+ * A cache is only valid for one scale, projection and set of accumulation parameters, see {@link #isValidFor}.
+ *
+ * @since 12677
+ */
+final class HeatMapTileCache {
+
+    /**
+     * Width and height of a tile, in pixels.
+     */
+    static final int TILE_SIZE = 256;
+
+    /**
+     * Memory in megabytes used by the tiles of one heat map. The visible tiles are always kept.
+     */
+    static final IntegerProperty MAX_MEMORY = new IntegerProperty("draw.rawgps.heatmap.tile-cache-mb", 32);
+
+    /** memory used by one tile, in bytes */
+    private static final long TILE_MEMORY = (long) TILE_SIZE * TILE_SIZE * 4;
+
+    /** limit of pixel coordinates, far away points are moved to this distance */
+    private static final double MAX_PIXEL = 1 << 28;
+
+    private static final ForkJoinPool THREAD_POOL =
+            Utils.newForkJoinPool("gpx.heatmap.numberOfThreads", "gpx-heatmap-%d", Thread.NORM_PRIORITY);
+
+    // accumulation parameters
+    private final double scale;
+    private final Projection projection;
+    private final int globalLineWidth;
+    private final int gain;
+    private final boolean pointMode;
+    private final boolean extraLine;
+
+    // values derived from the parameters and the view when the cache was created
+    private final EastNorth anchor;
+    private final int lineWidthB;
+    private final int lineWidthF;
+    private final float lineAlphaBPoint;
+    private final float lineAlphaBLine;
+    private final float lineAlphaFLine;
+    private final double pixelRmsX;
+    private final double pixelRmsY;
+    private final double randomDrop;
+    private final int margin;
+
+    /** the tiles, by {@link #key}, least recently used first */
+    private final Map<Long, BufferedImage> tiles = new LinkedHashMap<>(16, 0.75f, true);
+
+    /**
+     * Track points of a tile, converted to pixels relative to the cache anchor.
+     */
+    private static final class TilePoints {
+        private final long key;
+        private final int offsetX;
+        private final int offsetY;
+        private final int[] x;
+        private final int[] y;
+        private final boolean[] drawLine;
+
+        TilePoints(int tileX, int tileY, int size) {
+            this.key = key(tileX, tileY);
+            this.offsetX = tileX * TILE_SIZE;
+            this.offsetY = tileY * TILE_SIZE;
+            this.x = new int[size];
+            this.y = new int[size];
+            this.drawLine = new boolean[size];
+        }
+    }
+
+    /**
+     * Creates a new, empty tile cache for the current state of the map view.
+     * @param mv the map view
+     * @param globalLineWidth the line width
+     * @param gain the heat map gain, between -10 and 10
+     * @param pointMode draw points instead of lines
+     * @param extraLine draw an extra foreground line
+     * @param visiblePoints the number of visible points, to determine the drop rate in point mode
+     */
+    HeatMapTileCache(NavigatableComponent mv, int globalLineWidth, int gain, boolean pointMode, boolean extraLine, int visiblePoints) {
+        this.scale = mv.getScale();
+        this.projection = mv.getProjection();
+        this.globalLineWidth = globalLineWidth;
+        this.gain = gain;
+        this.pointMode = pointMode;
+        this.extraLine = extraLine;
+        this.anchor = mv.getCenter();
+
+        final double zoomScale = mv.getDist100Pixel() / 50.0f;
+
+        // the line width (foreground: draw extra small footprint line of track)
+        lineWidthB = (int) Math.max(1.5f * (globalLineWidth / zoomScale) + 1, 2);
+        lineWidthF = lineWidthB > 2 ? (globalLineWidth - 1) : 0;
+
+        // global alpha adjustment
+        float lineAlpha = (float) Utils.clamp((0.40 / zoomScale) / (globalLineWidth + 1), 0.01, 0.40);
+
+        // adjust 0.15 .. 1.85
+        float scaleAlpha = 1.0f + ((gain/10.0f) * 0.85f);
+
+        // add to calculated values
+        lineAlphaBPoint = (float) Utils.clamp((lineAlpha * 0.65) * scaleAlpha, 0.001, 0.90);
+        lineAlphaBLine = (float) Utils.clamp((lineAlpha * 1.00) * scaleAlpha, 0.001, 0.90);
+        lineAlphaFLine = (float) Utils.clamp((lineAlpha / 1.50) * scaleAlpha, 0.001, 0.90);
+
+        // typical rendering rate -> use realtime preview instead of accurate display
+        final double maxSegm = 25_000;
+        randomDrop = Math.min(visiblePoints > maxSegm ? (visiblePoints - maxSegm) / visiblePoints : 0, 0.70f);
+
+        // http://www.nstb.tc.faa.gov/reports/PAN94_0716.pdf#page=22
+        // Global Average Position Domain Accuracy, typical -> not worst case !
+        // < 4.218 m Vertical
+        // < 2.168 m Horizontal
+        pixelRmsX = (100 / mv.getDist100Pixel()) * 2.168;
+        pixelRmsY = (100 / mv.getDist100Pixel()) * 4.218;
+
+        // points outside of a tile, that may still change pixels in it
+        margin = 2 + lineWidthB + (pointMode ? (int) Math.min(4 * Math.max(pixelRmsX, pixelRmsY), TILE_SIZE) : 0);
+    }
+
+    /**
+     * Determines if the tiles of this cache can be used to paint the map view with the given parameters.
+     * @param mv the map view
+     * @param globalLineWidth the line width
+     * @param gain the heat map gain
+     * @param pointMode draw points instead of lines
+     * @param extraLine draw an extra foreground line
+     * @return {@code true} if this cache can be used
+     */
+    boolean isValidFor(NavigatableComponent mv, int globalLineWidth, int gain, boolean pointMode, boolean extraLine) {
+        return scale == mv.getScale() && Objects.equals(projection, mv.getProjection())
+                && this.globalLineWidth == globalLineWidth && this.gain == gain
+                && this.pointMode == pointMode && this.extraLine == extraLine;
+    }
+
+    /**
+     * Returns the line width used to sample the gray map.
+     * @return the line width used to sample the gray map
+     */
+    int getSampleRaster() {
+        return lineWidthB > 2 ? (int) (lineWidthB*1.25f) : 1;
+    }
+
+    private static long key(int tileX, int tileY) {
+        return ((long) tileX << 32) | (tileY & 0xFFFF_FFFFL);
+    }
+
+    /**
+     * Draws the gray map of the map view into the given image, drawing missing tiles first.
+     * @param g the graphics of the image, covering the map view
+     * @param mv the map view
+     * @param visibleSegments returns the points to draw for the given bounds, see {@link GpxDrawHelper}
+     */
+    void paint(Graphics2D g, NavigatableComponent mv, Function<Bounds, List<WayPoint>> visibleSegments) {
+        // screen position of the cache origin
+        Point2D origin = mv.getPoint2D(anchor);
+        int originX = (int) Math.floor(origin.getX());
+        int originY = (int) Math.floor(origin.getY());
+        int minTileX = Math.floorDiv(-originX, TILE_SIZE);
+        int minTileY = Math.floorDiv(-originY, TILE_SIZE);
+        int maxTileX = Math.floorDiv(mv.getWidth() - 1 - originX, TILE_SIZE);
+        int maxTileY = Math.floorDiv(mv.getHeight() - 1 - originY, TILE_SIZE);
+
+        List<TilePoints> missing = new ArrayList<>();
+        for (int tileX = minTileX; tileX <= maxTileX; tileX++) {
+            for (int tileY = minTileY; tileY <= maxTileY; tileY++) {
+                if (!tiles.containsKey(key(tileX, tileY))) {
+                    missing.add(collectPoints(tileX, tileY, visibleSegments));
+                }
+            }
+        }
+        if (!missing.isEmpty()) {
+            List<BufferedImage> images = new ArrayList<>(missing.size());
+            for (int i = 0; i < missing.size(); i++) {
+                images.add(new BufferedImage(TILE_SIZE, TILE_SIZE, BufferedImage.TYPE_INT_ARGB));
+            }
+            THREAD_POOL.invoke(new TileWorker(this, missing, images, 0, missing.size()));
+            for (int i = 0; i < missing.size(); i++) {
+                tiles.put(missing.get(i).key, images.get(i));
+            }
+        }
+
+        Composite oldComposite = g.getComposite();
+        g.setComposite(AlphaComposite.Src);
+        for (int tileX = minTileX; tileX <= maxTileX; tileX++) {
+            for (int tileY = minTileY; tileY <= maxTileY; tileY++) {
+                g.drawImage(tiles.get(key(tileX, tileY)), originX + tileX * TILE_SIZE, originY + tileY * TILE_SIZE, null);
+            }
+        }
+        g.setComposite(oldComposite);
+
+        // keep the visible tiles, and as many others as memory allows
+        long maxTiles = Math.max((long) (maxTileX - minTileX + 1) * (maxTileY - minTileY + 1),
+                MAX_MEMORY.get() * 1024L * 1024L / TILE_MEMORY);
+        for (Iterator<Long> it = tiles.keySet().iterator(); tiles.size() > maxTiles && it.hasNext();) {
+            it.next();
+            it.remove();
+        }
+    }
+
+    /**
+     * Collects the points that may change pixels of the given tile. This must be done in the EDT.
+     * @param tileX the tile column
+     * @param tileY the tile row
+     * @param visibleSegments returns the points to draw for the given bounds
+     * @return the points, in tile cache pixels
+     */
+    private TilePoints collectPoints(int tileX, int tileY, Function<Bounds, List<WayPoint>> visibleSegments) {
+        double minX = (double) tileX * TILE_SIZE - margin;
+        double minY = (double) tileY * TILE_SIZE - margin;
+        double maxX = (double) (tileX + 1) * TILE_SIZE + margin;
+        double maxY = (double) (tileY + 1) * TILE_SIZE + margin;
+        Bounds box = projection.getLatLonBoundsBox(new ProjectionBounds(
+                anchor.east() + minX * scale, anchor.north() - maxY * scale,
+                anchor.east() + maxX * scale, anchor.north() - minY * scale));
+        List<WayPoint> points = visibleSegments.apply(box);
+        TilePoints result = new TilePoints(tileX, tileY, points.size());
+        int i = 0;
+        for (WayPoint trkPnt : points) {
+            EastNorth en = trkPnt.getEastNorth(projection);
+            if (en == null) {
+                result.x[i] = Integer.MIN_VALUE;
+            } else {
+                // same pixels for all tiles, so that lines and random dots match at tile borders
+                result.x[i] = (int) Utils.clamp(Math.floor((en.east() - anchor.east()) / scale), -MAX_PIXEL, MAX_PIXEL);
+                result.y[i] = (int) Utils.clamp(Math.floor((anchor.north() - en.north()) / scale), -MAX_PIXEL, MAX_PIXEL);
+            }
+            result.drawLine[i] = trkPnt.drawLine;
+            i++;
+        }
+        return result;
+    }
+
+    /**
+     * Draws the gray map of one tile.
+     * @param points the points of the tile
+     * @param image the image of the tile
+     */
+    private void drawTile(TilePoints points, BufferedImage image) {
+        Graphics2D g = image.createGraphics();
+        try {
+            g.setBackground(new Color(0, 0, 0, 255));
+            g.setColor(Color.WHITE);
+
+            // fast draw ( maybe help or not )
+            g.setRenderingHint(RenderingHints.KEY_ANTIALIASING, RenderingHints.VALUE_ANTIALIAS_OFF);
+            g.setRenderingHint(RenderingHints.KEY_RENDERING, RenderingHints.VALUE_RENDER_SPEED);
+            g.setRenderingHint(RenderingHints.KEY_ALPHA_INTERPOLATION, RenderingHints.VALUE_ALPHA_INTERPOLATION_SPEED);
+            g.setRenderingHint(RenderingHints.KEY_DITHERING, RenderingHints.VALUE_DITHER_DISABLE);
+            g.setRenderingHint(RenderingHints.KEY_INTERPOLATION, RenderingHints.VALUE_INTERPOLATION_NEAREST_NEIGHBOR);
+            g.setRenderingHint(RenderingHints.KEY_STROKE_CONTROL, RenderingHints.VALUE_STROKE_PURE);
+            g.setRenderingHint(RenderingHints.KEY_COLOR_RENDERING, RenderingHints.VALUE_COLOR_RENDER_SPEED);
+
+            g.clearRect(0, 0, TILE_SIZE, TILE_SIZE);
+            g.translate(-points.offsetX, -points.offsetY);
+
+            // point or line blending
+            if (pointMode) {
+                g.setComposite(AlphaComposite.SrcOver.derive(lineAlphaBPoint));
+                drawHeatGrayDotMap(g, points, lineWidthB, pixelRmsX, pixelRmsY, randomDrop);
+            } else {
+                drawHeatGrayLineMap(g, points,
+                        extraLine && lineWidthF > 1 ? AlphaComposite.SrcOver.derive(lineAlphaFLine) : null,
+                        new BasicStroke(lineWidthF, BasicStroke.CAP_ROUND, BasicStroke.JOIN_ROUND),
+                        AlphaComposite.SrcOver.derive(lineAlphaBLine),
+                        new BasicStroke(lineWidthB, BasicStroke.CAP_ROUND, BasicStroke.JOIN_ROUND));
+            }
+        } finally {
+            g.dispose();
+        }
+    }
+
+    /**
+     * Draw gray heat map with current Graphics2D setting
+     * @param gB              the common draw object to use
+     * @param points          the points to draw
+     * @param foreComp        composite use to draw foreground objects, or {@code null}
+     * @param foreStroke      stroke use to draw foreground objects
+     * @param backComp        composite use to draw background objects
+     * @param backStroke      stroke use to draw background objects
+     */
+    private static void drawHeatGrayLineMap(Graphics2D gB, TilePoints points,
+                                            Composite foreComp, Stroke foreStroke,
+                                            Composite backComp, Stroke backStroke) {
+        // set initial values
+        gB.setStroke(backStroke); gB.setComposite(backComp);
+
+        int[] polyX = new int[points.x.length];
+        int[] polyY = new int[points.x.length];
+        int count = 0;
+
+        // for all points, draw single lines by using optimized drawing
+        for (int i = 0; i <= points.x.length; i++) {
+
+            // end of line segment or end of list reached
+            if (i == points.x.length || !points.drawLine[i] || points.x[i] == Integer.MIN_VALUE) {
+
+                // a.) draw background
+                gB.drawPolyline(polyX, polyY, count);
+
+                // b.) draw extra foreground
+                if (foreComp != null) {
+                    gB.setStroke(foreStroke); gB.setComposite(foreComp);
+                    gB.drawPolyline(polyX, polyY, count);
+                    gB.setStroke(backStroke); gB.setComposite(backComp);
+                }
+
+                // drop used points
+                count = 0;
+            }
+
+            if (i < points.x.length && points.x[i] != Integer.MIN_VALUE) {
+                polyX[count] = points.x[i];
+                polyY[count] = points.y[i];
+                count++;
+            }
+        }
+    }
+
+    /**
+     * Draw a dotted heat map
+     *
+     * @param gB              the common draw object to use
+     * @param points          the points to draw
+     * @param drawSize        draw size of draw element
+     * @param pixelRmsX       RMS size of circle for X (width)
+     * @param pixelRmsY       RMS size of circle for Y (height)
+     * @param randomDrop      Pixel render drop rate
+     */
+    private static void drawHeatGrayDotMap(Graphics2D gB, TilePoints points, int drawSize,
+            double pixelRmsX, double pixelRmsY, double randomDrop) {
+        int lastX = Integer.MIN_VALUE;
+        int lastY = 0;
+
+        // for all points, draw single lines
+        for (int i = 0; i < points.x.length; i++) {
+            int x = points.x[i];
+            int y = points.y[i];
+
+            // end of line segment or end of list reached
+            if (points.drawLine[i] && x != Integer.MIN_VALUE && lastX != Integer.MIN_VALUE) {
+                drawHeatSurfaceLine(gB, x, y, lastX, lastY, drawSize, pixelRmsX, pixelRmsY, randomDrop);
+            }
+
+            // remember
+            lastX = x;
+            lastY = y;
+        }
+    }
+
+    /**
+     * Draw a dotted surface line
+     *
+     * @param g                 the common draw object to use
+     * @param fromX             start point x
+     * @param fromY             start point y
+     * @param toX               end point x
+     * @param toY               end point y
+     * @param drawSize          size of draw elements
+     * @param rmsSizeX          RMS size of circle for X (width)
+     * @param rmsSizeY          RMS size of circle for Y (height)
+     * @param dropRate          Pixel render drop rate
+     */
+    private static void drawHeatSurfaceLine(Graphics2D g,
+            int fromX, int fromY, int toX, int toY, int drawSize, double rmsSizeX, double rmsSizeY, double dropRate) {
+
+        // collect frequently used items
+        final int deltaX = toX - fromX;
+        final int deltaY = toY - fromY;
+
+        // use same random values for each point
+        final Random heatMapRandom = new Random(fromX+fromY+deltaX+deltaY);
+
+        // cache distance between start and end point
+        final int dist = (int) Math.abs(Point2D.distance(fromX, fromY, toX, toY));
+
+        // number of increment ( fill wide distance tracks )
+        double scaleStep = Math.max(1.0f / dist, dist > 100 ? 0.10f : 0.20f);
+
+        // number of additional random points
+        int rounds = Math.min(drawSize/2, 1)+1;
+
+        // decrease random noise at high drop rate ( more accurate draw of fewer points )
+        rmsSizeX *= (1.0d - dropRate);
+        rmsSizeY *= (1.0d - dropRate);
+
+        double scaleVal = 0;
+
+        // interpolate line draw ( needs separate point instead of line )
+        while (scaleVal < (1.0d-0.0001d)) {
+
+            // get position
+            final double pntX = fromX + scaleVal * deltaX;
+            final double pntY = fromY + scaleVal * deltaY;
+
+            // add random distribution around sampled point
+            for (int k = 0; k < rounds; k++) {
+
+                // add error distribution, first point with less error
+                int x = (int) (pntX + heatMapRandom.nextGaussian() * (k > 0 ? rmsSizeX : rmsSizeX/4));
+                int y = (int) (pntY + heatMapRandom.nextGaussian() * (k > 0 ? rmsSizeY : rmsSizeY/4));
+
+                // draw it, even drop is requested
+                if (heatMapRandom.nextDouble() >= dropRate) {
+                    g.fillRect(x-drawSize, y-drawSize, drawSize, drawSize);
+                }
+            }
+            scaleVal += scaleStep;
+        }
+    }
+
+    /**
+     * Draws a range of tiles, splitting it for parallel execution.
+     */
+    private static class TileWorker extends RecursiveAction {
+
+        // Needed for Findbugs / Coverity because parent class is serializable
+        private static final long serialVersionUID = 1L;
+
+        private final transient HeatMapTileCache cache;
+        private final transient List<TilePoints> points;
+        private final transient List<BufferedImage> images;
+        private final int from;
+        private final int to;
+
+        TileWorker(HeatMapTileCache cache, List<TilePoints> points, List<BufferedImage> images, int from, int to) {
+            this.cache = cache;
+            this.points = points;
+            this.images = images;
+            this.from = from;
+            this.to = to;
+        }
+
+        @Override
+        protected void compute() {
+            if (to - from == 1) {
+                cache.drawTile(points.get(from), images.get(from));
+            } else {
+                int middle = from + (to - from) / 2;
+                ForkJoinTask.invokeAll(new TileWorker(cache, points, images, from, middle),
+                        new TileWorker(cache, points, images, middle, to));
+            }
+        }
+    }
+}
@@ -0,0 +1,99 @@
+// License: GPL. For details, see LICENSE file.
+package org.openstreetmap.josm.gui.layer.imagery;
+
+import static org.openstreetmap.josm.tools.I18n.tr;
+import static org.openstreetmap.josm.tools.I18n.trn;
+
+import java.awt.GridBagLayout;
+import java.awt.event.ActionEvent;
+import java.io.File;
+import java.io.IOException;
+
+import javax.swing.AbstractAction;
+import javax.swing.JLabel;
+import javax.swing.JPanel;
+import javax.swing.JSpinner;
+import javax.swing.SpinnerNumberModel;
+
+import org.openstreetmap.josm.Main;
+import org.openstreetmap.josm.actions.SaveActionBase;
+import org.openstreetmap.josm.data.Bounds;
+import org.openstreetmap.josm.gui.ExtendedDialog;
+import org.openstreetmap.josm.gui.MainApplication;
+import org.openstreetmap.josm.gui.Notification;
+import org.openstreetmap.josm.gui.PleaseWaitRunnable;
+import org.openstreetmap.josm.gui.layer.AbstractCachedTileSourceLayer;
+import org.openstreetmap.josm.gui.layer.AbstractTileSourceLayer;
+import org.openstreetmap.josm.gui.progress.ProgressMonitor;
+import org.openstreetmap.josm.gui.util.GuiHelper;
+import org.openstreetmap.josm.io.TilePackageImporter;
+import org.openstreetmap.josm.tools.GBC;
+
+/**
+ * Export the cached tiles of the visible area to an offline imagery package.
+ * @since 12667
+ */
+public class ExportTilePackageAction extends AbstractAction {
+
+    private final AbstractCachedTileSourceLayer<?> layer;
+
+    /**
+     * Constructs a new {@code ExportTilePackageAction}.
+     * @param layer imagery layer
+     */
+    public ExportTilePackageAction(AbstractCachedTileSourceLayer<?> layer) {
+        super(tr("Export offline package..."));
+        putValue(SHORT_DESCRIPTION, tr("Export the cached tiles of the visible area for use without network connection"));
+        this.layer = layer;
+    }
+
+    @Override
+    public void actionPerformed(ActionEvent ae) {
+        int zoom = layer.getZoomLevel();
+        SpinnerNumberModel minZoom = new SpinnerNumberModel(zoom, AbstractTileSourceLayer.MIN_ZOOM, AbstractTileSourceLayer.MAX_ZOOM, 1);
+        SpinnerNumberModel maxZoom = new SpinnerNumberModel(Math.min(zoom + 2, AbstractTileSourceLayer.MAX_ZOOM),
+                AbstractTileSourceLayer.MIN_ZOOM, AbstractTileSourceLayer.MAX_ZOOM, 1);
+        JPanel panel = new JPanel(new GridBagLayout());
+        panel.add(new JLabel(tr("Only tiles of the visible area, that are already in the tile cache, are exported.")),
+                GBC.eol().insets(0, 0, 0, 10));
+        panel.add(new JLabel(tr("Minimum zoom level:")), GBC.std().insets(0, 0, 5, 0));
+        panel.add(new JSpinner(minZoom), GBC.eol());
+        panel.add(new JLabel(tr("Maximum zoom level:")), GBC.std().insets(0, 0, 5, 0));
+        panel.add(new JSpinner(maxZoom), GBC.eol());
+
+        ExtendedDialog ed = new ExtendedDialog(Main.parent, tr("Export offline package"), tr("Export"), tr("Cancel"));
+        ed.setButtonIcons("save", "cancel");
+        ed.setContent(panel, false);
+        if (ed.showDialog().getValue() != 1) {
+            return;
+        }
+        File file = SaveActionBase.createAndOpenSaveFileChooser(tr("Export offline package"), TilePackageImporter.FILE_FILTER);
+        if (file == null) {
+            return;
+        }
+        Bounds bounds = MainApplication.getMap().mapView.getRealBounds();
+        int min = Math.min(minZoom.getNumber().intValue(), maxZoom.getNumber().intValue());
+        int max = Math.max(minZoom.getNumber().intValue(), maxZoom.getNumber().intValue());
+        MainApplication.worker.execute(new PleaseWaitRunnable(tr("Export offline package")) {
+            private int count = -1;
+
+            @Override
+            protected void realRun() throws IOException {
+                count = layer.exportTilePackage(file, bounds, min, max, progressMonitor.createSubTaskMonitor(ProgressMonitor.ALL_TICKS, false));
+            }
+
+            @Override
+            protected void finish() {
+                if (count >= 0) {
+                    GuiHelper.runInEDT(() -> new Notification(
+                            trn("Exported {0} tile to {1}", "Exported {0} tiles to {1}", count, count, file.getName())).show());
+                }
+            }
+
+            @Override
+            protected void cancel() {
+                // export checks the progress monitor
+            }
+        });
+    }
+}
@@ -4,12 +4,20 @@ package org.openstreetmap.josm.gui.layer.imagery;
 import java.awt.Dimension;
 import java.awt.geom.Point2D;
 import java.awt.image.BufferedImage;
+import java.awt.image.DataBuffer;
+import java.util.Collections;
+import java.util.Iterator;
+import java.util.LinkedHashMap;
+import java.util.Map;
+import java.util.Objects;
+import java.util.function.Predicate;
 
 import org.openstreetmap.gui.jmapviewer.Tile;
 import org.openstreetmap.gui.jmapviewer.interfaces.TileSource;
 import org.openstreetmap.josm.Main;
 import org.openstreetmap.josm.data.ProjectionBounds;
 import org.openstreetmap.josm.data.coor.EastNorth;
+import org.openstreetmap.josm.data.preferences.IntegerProperty;
 import org.openstreetmap.josm.data.projection.Projection;
 import org.openstreetmap.josm.data.projection.Projections;
 import org.openstreetmap.josm.gui.MainApplication;
@@ -22,8 +30,134 @@ import org.openstreetmap.josm.tools.Utils;
  */
 public class ReprojectionTile extends Tile {
 
+    /**
+     * Number of discrete scales per zoom octave at which tiles are reprojected. The mapview scale is rounded
+     * to the nearest of these scales, so warp grids and reprojected images can be reused while zooming.
+     * @since 12665
+     */
+    public static final IntegerProperty SCALE_STEPS_PER_OCTAVE = new IntegerProperty("imagery.warp.scale-steps-per-octave", 4);
+
+    /**
+     * Maximum number of warp grids kept in memory, shared by all reprojected tiles.
+     * @since 12665
+     */
+    public static final IntegerProperty WARP_GRID_CACHE_SIZE = new IntegerProperty("imagery.warp.grid-cache-size", 256);
+
+    /**
+     * Memory in megabytes used to keep reprojected images of tiles at other scales, shared by all reprojected tiles.
+     * @since 12665
+     */
+    public static final IntegerProperty REPROJECTION_CACHE_SIZE = new IntegerProperty("imagery.warp.reprojection-cache-mb", 64);
+
+    /**
+     * Warp grids, keyed by source tile geometry, source and target projection and scale step
+     */
+    private static final Map<String, ImageWarp.PointTransform> WARP_GRIDS = Collections.synchronizedMap(
+            new LinkedHashMap<String, ImageWarp.PointTransform>(16, 0.75f, true) {
+                @Override
+                protected boolean removeEldestEntry(Map.Entry<String, ImageWarp.PointTransform> eldest) {
+                    return size() > WARP_GRID_CACHE_SIZE.get();
+                }
+            });
+
+    /**
+     * Reprojected images of all tiles, bounded by {@link #REPROJECTION_CACHE_SIZE}.
+     * <p>
+     * They are kept in memory rather than in the tile cache: the tile cache stores encoded images, and encoding
+     * and decoding a reprojected image costs about as much as warping it again.
+     */
+    private static final ReprojectionCache REPROJECTIONS = new ReprojectionCache();
+
+    /**
+     * Reprojected image of the tile at a given scale step.
+     */
+    private static final class Reprojection {
+        private final BufferedImage image;
+        private final TileAnchor anchor;
+        private final double nativeScale;
+        private final boolean maxZoomReached;
+
+        Reprojection(BufferedImage image, TileAnchor anchor, double nativeScale, boolean maxZoomReached) {
+            this.image = image;
+            this.anchor = anchor;
+            this.nativeScale = nativeScale;
+            this.maxZoomReached = maxZoomReached;
+        }
+
+        long getMemoryUsage() {
+            DataBuffer buffer = image.getRaster().getDataBuffer();
+            return (long) buffer.getSize() * buffer.getNumBanks() * DataBuffer.getDataTypeSize(buffer.getDataType()) / 8;
+        }
+    }
+
+    /**
+     * Key of a reprojected image: the tile (by identity), the scale step and the target projection.
+     */
+    private static final class ReprojectionKey {
+        private final ReprojectionTile tile;
+        private final int scaleStep;
+        private final String projectionCode;
+
+        ReprojectionKey(ReprojectionTile tile, int scaleStep, String projectionCode) {
+            this.tile = tile;
+            this.scaleStep = scaleStep;
+            this.projectionCode = projectionCode;
+        }
+
+        @Override
+        public boolean equals(Object obj) {
+            if (this == obj) return true;
+            if (obj == null || getClass() != obj.getClass()) return false;
+            ReprojectionKey that = (ReprojectionKey) obj;
+            return tile == that.tile && scaleStep == that.scaleStep && projectionCode.equals(that.projectionCode);
+        }
+
+        @Override
+        public int hashCode() {
+            return Objects.hash(System.identityHashCode(tile), scaleStep, projectionCode);
+        }
+    }
+
+    /**
+     * Least recently used reprojected images, limited by their total size in memory.
+     */
+    private static final class ReprojectionCache {
+        private final Map<ReprojectionKey, Reprojection> entries = new LinkedHashMap<>(16, 0.75f, true);
+        private long memoryUsage;
+
+        synchronized Reprojection get(ReprojectionKey key) {
+            return entries.get(key);
+        }
+
+        synchronized void put(ReprojectionKey key, Reprojection reprojection) {
+            Reprojection old = entries.put(key, reprojection);
+            if (old != null) {
+                memoryUsage -= old.getMemoryUsage();
+            }
+            memoryUsage += reprojection.getMemoryUsage();
+            long maxMemory = REPROJECTION_CACHE_SIZE.get() * 1024L * 1024L;
+            Iterator<Reprojection> it = entries.values().iterator();
+            while (memoryUsage > maxMemory && it.hasNext()) {
+                memoryUsage -= it.next().getMemoryUsage();
+                it.remove();
+            }
+        }
+
+        synchronized void removeIf(Predicate<ReprojectionTile> predicate) {
+            Iterator<Map.Entry<ReprojectionKey, Reprojection>> it = entries.entrySet().iterator();
+            while (it.hasNext()) {
+                Map.Entry<ReprojectionKey, Reprojection> e = it.next();
+                if (predicate.test(e.getKey().tile)) {
+                    memoryUsage -= e.getValue().getMemoryUsage();
+                    it.remove();
+                }
+            }
+        }
+    }
+
     protected TileAnchor anchor;
     private double nativeScale;
+    private int scaleStep = Integer.MIN_VALUE;
     protected boolean maxZoomReached;
 
     /**
@@ -37,6 +171,15 @@ public class ReprojectionTile extends Tile {
         super(source, xtile, ytile, zoom);
     }
 
+    /**
+     * Removes the cached reprojections of all tiles of the given tile source, e.g. when its layer is destroyed.
+     * @param source the tile source
+     * @since 12689
+     */
+    public static void removeReprojections(TileSource source) {
+        REPROJECTIONS.removeIf(tile -> tile.getTileSource() == source);
+    }
+
     /**
      * Get the position of the tile inside the image.
      * @return the position of the tile inside the image
@@ -63,14 +206,51 @@ public class ReprojectionTile extends Tile {
      *
      * When the maximum zoom is exceeded, this method will generally return false.
      * @param currentScale the current mapview scale
-     * @return true if the tile should be reprojected again from the source image.
+     * @return true if the tile should be reprojected again, from a cached reprojection (see {@link #useCachedReprojection})
+     * or from the source image.
      */
     public synchronized boolean needsUpdate(double currentScale) {
-        if (Utils.equalsEpsilon(nativeScale, currentScale))
+        if (getScaleStep(currentScale) == scaleStep || Utils.equalsEpsilon(nativeScale, currentScale))
             return false;
         return !maxZoomReached || currentScale >= nativeScale;
     }
 
+    /**
+     * Uses the reprojection of the tile at the scale step of the given scale, if it is still cached.
+     * @param currentScale the current mapview scale
+     * @return true if a cached reprojection is now used, false if the tile has to be reprojected from the source image
+     * @since 12665
+     */
+    public boolean useCachedReprojection(double currentScale) {
+        int step = getScaleStep(currentScale);
+        Reprojection cached = REPROJECTIONS.get(new ReprojectionKey(this, step, Main.getProjection().toCode()));
+        if (cached == null)
+            return false;
+        apply(cached, step);
+        return true;
+    }
+
+    /**
+     * Returns the scale step for the given scale.
+     * @param scale mapview scale
+     * @return the index of the nearest scale step (exponent of 2, multiplied by the number of steps per octave)
+     */
+    private static int getScaleStep(double scale) {
+        return (int) Math.round(Math.log(scale) / Math.log(2) * SCALE_STEPS_PER_OCTAVE.get());
+    }
+
+    private static double getScale(int scaleStep) {
+        return Math.pow(2, scaleStep / (double) SCALE_STEPS_PER_OCTAVE.get());
+    }
+
+    private synchronized void apply(Reprojection reprojection, int step) {
+        this.image = reprojection.image;
+        this.anchor = reprojection.anchor;
+        this.nativeScale = reprojection.nativeScale;
+        this.maxZoomReached = reprojection.maxZoomReached;
+        this.scaleStep = step;
+    }
+
     @Override
     public void setImage(BufferedImage image) {
         if (image == null) {
@@ -93,7 +273,10 @@ public class ReprojectionTile extends Tile {
     private synchronized void reset() {
         this.image = null;
         this.anchor = null;
+        this.nativeScale = 0;
+        this.scaleStep = Integer.MIN_VALUE;
         this.maxZoomReached = false;
+        REPROJECTIONS.removeIf(tile -> tile == this);
     }
 
     /**
@@ -105,7 +288,8 @@ public class ReprojectionTile extends Tile {
             reset();
             return;
         }
-        double scaleMapView = MainApplication.getMap().mapView.getScale();
+        int step = getScaleStep(MainApplication.getMap().mapView.getScale());
+        double scaleMapView = getScale(step);
         ImageWarp.Interpolation interpolation;
         switch (Main.pref.get("imagery.warp.pixel-interpolation", "bilinear")) {
             case "nearest_neighbor":
@@ -152,22 +336,30 @@ public class ReprojectionTile extends Tile {
                 (en11Current.east() - pbTargetAligned.minEast) / scale,
                 (pbTargetAligned.maxNorth - en11Current.north()) / scale);
 
+        Dimension dimTarget = getDimension(pbTargetAligned, scale);
         ImageWarp.PointTransform transform;
         int stride = Main.pref.getInteger("imagery.warp.projection-interpolation.stride", 7);
         if (stride > 0) {
-            transform = new ImageWarp.GridTransform(pointTransform, stride);
+            // the grid only depends on the tile geometry, both projections and the scale, so it can be shared
+            String gridKey = new StringBuilder(128)
+                    .append(projServer.toCode()).append('|').append(projCurrent.toCode()).append('|')
+                    .append(en00Server.east()).append(',').append(en00Server.north()).append(',')
+                    .append(en11Server.east()).append(',').append(en11Server.north()).append('|')
+                    .append(source.getTileSize()).append('|').append(step).append('|').append(stride)
+                    .toString();
+            transform = WARP_GRIDS.get(gridKey);
+            if (transform == null) {
+                // computed outside of the map lock, so other tiles are not blocked meanwhile
+                transform = new ImageWarp.PrecomputedGridTransform(pointTransform, stride, dimTarget);
+                WARP_GRIDS.put(gridKey, transform);
+            }
         } else {
             transform = pointTransform;
         }
-        BufferedImage imageOut = ImageWarp.warp(
-                imageIn, getDimension(pbTargetAligned, scale),
-                transform, interpolation);
-        synchronized (this) {
-            this.image = imageOut;
-            this.anchor = new TileAnchor(p00Img, p11Img);
-            this.nativeScale = scale;
-            this.maxZoomReached = scaleFix != null;
-        }
+        BufferedImage imageOut = ImageWarp.warpParallel(imageIn, dimTarget, transform, interpolation);
+        Reprojection reprojection = new Reprojection(imageOut, new TileAnchor(p00Img, p11Img), scale, scaleFix != null);
+        REPROJECTIONS.put(new ReprojectionKey(this, step, projCurrent.toCode()), reprojection);
+        apply(reprojection, step);
     }
 
     // add margin and align to pixel grid
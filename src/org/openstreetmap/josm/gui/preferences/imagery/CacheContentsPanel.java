@@ -14,6 +14,7 @@ import java.util.Set;
 import java.util.concurrent.ConcurrentHashMap;
 
 import javax.swing.AbstractAction;
+import javax.swing.JButton;
 import javax.swing.JLabel;
 import javax.swing.JPanel;
 import javax.swing.JScrollPane;
@@ -50,6 +51,10 @@ public class CacheContentsPanel extends JPanel {
      */
     public CacheContentsPanel() {
         super(new GridBagLayout());
+        JButton metrics = new JButton(tr("Cache statistics..."));
+        metrics.setToolTipText(tr("Show hit rates and latencies of all caches"));
+        metrics.addActionListener(e -> new CacheMetricsDialog(this).showDialog());
+        add(metrics, GBC.eol().anchor(GBC.EAST).insets(5, 5, 5, 0));
         MainApplication.worker.submit(() -> {
             addToPanel(TMSLayer.getCache(), "TMS");
             addToPanel(WMSLayer.getCache(), "WMS");
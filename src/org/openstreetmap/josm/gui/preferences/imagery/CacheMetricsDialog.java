@@ -0,0 +1,99 @@
+// License: GPL. For details, see LICENSE file.
+package org.openstreetmap.josm.gui.preferences.imagery;
+
+import static org.openstreetmap.josm.tools.I18n.tr;
+
+import java.awt.Component;
+import java.awt.Dimension;
+import java.awt.Font;
+import java.awt.GridBagLayout;
+import java.io.File;
+import java.io.IOException;
+import java.io.Writer;
+import java.nio.charset.StandardCharsets;
+import java.nio.file.Files;
+
+import javax.swing.JButton;
+import javax.swing.JOptionPane;
+import javax.swing.JPanel;
+import javax.swing.JScrollPane;
+
+import org.openstreetmap.josm.actions.SaveActionBase;
+import org.openstreetmap.josm.data.cache.CacheMetrics;
+import org.openstreetmap.josm.gui.ExtendedDialog;
+import org.openstreetmap.josm.gui.widgets.JosmTextArea;
+import org.openstreetmap.josm.tools.GBC;
+import org.openstreetmap.josm.tools.Logging;
+
+/**
+ * Dialog showing usage statistics of all cache regions: hit rates, evictions and latency of cache and disk operations.
+ * @since 12668
+ */
+public class CacheMetricsDialog extends ExtendedDialog {
+
+    private final JosmTextArea report = new JosmTextArea();
+
+    /**
+     * Constructs a new {@code CacheMetricsDialog}.
+     * @param parent parent component
+     */
+    public CacheMetricsDialog(Component parent) {
+        super(parent, tr("Cache statistics"), tr("Close"));
+        report.setEditable(false);
+        report.setFont(new Font(Font.MONOSPACED, Font.PLAIN, report.getFont().getSize()));
+
+        JButton refresh = new JButton(tr("Refresh"));
+        refresh.addActionListener(e -> updateReport());
+        JButton reset = new JButton(tr("Reset"));
+        reset.setToolTipText(tr("Start collecting statistics from now"));
+        reset.addActionListener(e -> {
+            CacheMetrics.resetAll();
+            updateReport();
+        });
+        JButton save = new JButton(tr("Save to file..."));
+        save.addActionListener(e -> saveReport());
+
+        JPanel panel = new JPanel(new GridBagLayout());
+        JScrollPane scroll = new JScrollPane(report);
+        scroll.setPreferredSize(new Dimension(700, 400));
+        panel.add(scroll, GBC.eol().fill(GBC.BOTH));
+        JPanel buttons = new JPanel();
+        buttons.add(refresh);
+        buttons.add(reset);
+        buttons.add(save);
+        panel.add(buttons, GBC.eol().anchor(GBC.EAST));
+
+        setButtonIcons("ok");
+        setContent(panel, false);
+        updateReport();
+    }
+
+    private static String getReport() {
+        StringBuilder sb = new StringBuilder();
+        try {
+            CacheMetrics.dumpAll(sb);
+        } catch (IOException e) {
+            // StringBuilder does not throw
+            Logging.error(e);
+        }
+        return sb.toString();
+    }
+
+    private void updateReport() {
+        report.setText(getReport());
+        report.setCaretPosition(0);
+    }
+
+    private void saveReport() {
+        File file = SaveActionBase.createAndOpenSaveFileChooser(tr("Save cache statistics"), "txt");
+        if (file != null) {
+            try (Writer writer = Files.newBufferedWriter(file.toPath(), StandardCharsets.UTF_8)) {
+                CacheMetrics.dumpAll(writer);
+            } catch (IOException e) {
+                Logging.warn(e);
+                JOptionPane.showMessageDialog(this, tr("Could not write file {0}: {1}", file, e.getMessage()),
+                        tr("Error"), JOptionPane.ERROR_MESSAGE);
+            }
+        }
+    }
+}
@@ -19,6 +19,8 @@ import org.openstreetmap.josm.data.osm.OsmPrimitive;
 import org.openstreetmap.josm.data.osm.Relation;
 import org.openstreetmap.josm.data.osm.RelationMember;
 import org.openstreetmap.josm.data.osm.event.AbstractDatasetChangedEvent;
+import org.openstreetmap.josm.data.osm.event.AbstractDatasetChangedEvent.DatasetEventType;
+import org.openstreetmap.josm.data.osm.event.BulkChangeEvent;
 import org.openstreetmap.josm.data.osm.event.DataChangedEvent;
 import org.openstreetmap.josm.data.osm.event.DataSetListener;
 import org.openstreetmap.josm.data.osm.event.NodeMovedEvent;
@@ -419,6 +421,15 @@ public class AutoCompletionManager implements DataSetListener {
 
     @Override
     public void dataChanged(DataChangedEvent event) {
-        dirty = true;
+        if (event instanceof BulkChangeEvent && ((BulkChangeEvent) event).hasOnly(DatasetEventType.PRIMITIVES_ADDED,
+                DatasetEventType.NODE_MOVED, DatasetEventType.WAY_NODES_CHANGED, DatasetEventType.CHANGESET_ID_CHANGED,
+                DatasetEventType.PRIMITIVE_FLAGS_CHANGED)) {
+            // no tags have been changed or removed, like in moves
+            if (!dirty) {
+                cachePrimitives(((BulkChangeEvent) event).getAdded());
+            }
+        } else {
+            dirty = true;
+        }
     }
 }
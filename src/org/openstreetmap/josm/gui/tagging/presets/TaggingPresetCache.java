@@ -0,0 +1,259 @@
+// License: GPL. For details, see LICENSE file.
+package org.openstreetmap.josm.gui.tagging.presets;
+
+import java.io.BufferedOutputStream;
+import java.io.ByteArrayInputStream;
+import java.io.ByteArrayOutputStream;
+import java.io.DataInputStream;
+import java.io.DataOutputStream;
+import java.io.File;
+import java.io.FileOutputStream;
+import java.io.IOException;
+import java.nio.charset.StandardCharsets;
+import java.nio.file.Files;
+import java.nio.file.StandardCopyOption;
+import java.security.MessageDigest;
+import java.security.NoSuchAlgorithmException;
+import java.util.ArrayList;
+import java.util.Arrays;
+import java.util.HashMap;
+import java.util.List;
+import java.util.Map;
+
+import org.openstreetmap.josm.Main;
+import org.openstreetmap.josm.data.preferences.BooleanProperty;
+import org.openstreetmap.josm.tools.JosmRuntimeException;
+import org.openstreetmap.josm.tools.Logging;
+import org.openstreetmap.josm.tools.Utils;
+import org.openstreetmap.josm.tools.XmlObjectParser;
+import org.xml.sax.Attributes;
+import org.xml.sax.ContentHandler;
+import org.xml.sax.SAXException;
+import org.xml.sax.helpers.AttributesImpl;
+import org.xml.sax.helpers.DefaultHandler;
+
+/**
+ * Binary cache of tagging preset sources.
+ * <p>
+ * The elements of a preset source, with their attributes and text, are recorded while the XML document is parsed,
+ * and stored under the cache directory. The next time the same source is read with the same content, the recorded
+ * elements are sent to the {@link XmlObjectParser} without parsing XML again.
+ * @since 12688
+ */
+public final class TaggingPresetCache {
+
+    /**
+     * Determines if parsed tagging preset sources are cached.
+     */
+    public static final BooleanProperty PROP_CACHE = new BooleanProperty("taggingpreset.cache", true);
+
+    private static final byte[] MAGIC = "JOSMTPRC".getBytes(StandardCharsets.US_ASCII);
+    private static final int FORMAT_VERSION = 1;
+
+    private static final byte END = 0;
+    private static final byte START_ELEMENT = 1;
+    private static final byte END_ELEMENT = 2;
+    private static final byte CHARACTERS = 3;
+
+    private static final int NEW_STRING = -1;
+
+    private TaggingPresetCache() {
+        // Hide default constructor for utils classes
+    }
+
+    /**
+     * Records the element and character events of a preset source, to be saved with {@link #save}.
+     */
+    static final class Recorder extends DefaultHandler {
+
+        private final ByteArrayOutputStream bytes = new ByteArrayOutputStream();
+        private final DataOutputStream out = new DataOutputStream(bytes);
+        private final Map<String, Integer> strings = new HashMap<>();
+        private final StringBuilder characters = new StringBuilder();
+        /** set if the events cannot be recorded, e.g. because of a very long string. The parsing goes on anyway */
+        private boolean failed;
+
+        @Override
+        public void startElement(String uri, String localName, String qName, Attributes atts) {
+            try {
+                flushCharacters();
+                out.writeByte(START_ELEMENT);
+                writeString(qName);
+                out.writeInt(atts.getLength());
+                for (int i = 0; i < atts.getLength(); i++) {
+                    writeString(atts.getQName(i));
+                    writeString(atts.getValue(i));
+                }
+            } catch (IOException e) {
+                fail(e);
+            }
+        }
+
+        @Override
+        public void endElement(String uri, String localName, String qName) {
+            try {
+                flushCharacters();
+                out.writeByte(END_ELEMENT);
+                writeString(qName);
+            } catch (IOException e) {
+                fail(e);
+            }
+        }
+
+        private void fail(IOException e) {
+            if (!failed) {
+                Logging.debug(e);
+                failed = true;
+            }
+        }
+
+        @Override
+        public void characters(char[] ch, int start, int length) {
+            characters.append(ch, start, length);
+        }
+
+        /**
+         * Writes the characters found since the last element event. They are only used trimmed, so whitespace is skipped.
+         * @throws IOException if an I/O error occurs
+         */
+        private void flushCharacters() throws IOException {
+            if (!Utils.isStripEmpty(characters.toString())) {
+                out.writeByte(CHARACTERS);
+                writeString(characters.toString());
+            }
+            characters.setLength(0);
+        }
+
+        private void writeString(String s) throws IOException {
+            Integer index = strings.get(s);
+            if (index != null) {
+                out.writeInt(index);
+            } else {
+                strings.put(s, strings.size());
+                out.writeInt(NEW_STRING);
+                out.writeUTF(s);
+            }
+        }
+
+        /**
+         * Saves the recorded events as the cached content of the given source.
+         * @param source the preset source
+         * @param contentHash the hash of the source content, see {@link TaggingPresetCache#hash}
+         */
+        void save(String source, String contentHash) {
+            if (failed) {
+                return;
+            }
+            File file = getCacheFile(source);
+            File tmpFile = new File(file.getPath() + ".tmp");
+            try {
+                flushCharacters();
+                out.writeByte(END);
+                Utils.mkDirs(file.getParentFile());
+                try (DataOutputStream header = new DataOutputStream(new BufferedOutputStream(new FileOutputStream(tmpFile)))) {
+                    header.write(MAGIC);
+                    header.writeInt(FORMAT_VERSION);
+                    header.writeUTF(source);
+                    header.writeUTF(contentHash);
+                    bytes.writeTo(header);
+                }
+                Files.move(tmpFile.toPath(), file.toPath(), StandardCopyOption.REPLACE_EXISTING);
+            } catch (IOException e) {
+                Logging.warn("Unable to cache tagging preset source " + source + ": " + e);
+                Utils.deleteFile(tmpFile);
+            }
+        }
+    }
+
+    /**
+     * Returns the hash of the content of a preset source, used to check that cached events are up to date.
+     * @param content the content of the preset source
+     * @return the hash of the content
+     */
+    static String hash(byte[] content) {
+        try {
+            return Utils.toHexString(MessageDigest.getInstance("SHA-256").digest(content));
+        } catch (NoSuchAlgorithmException e) {
+            throw new JosmRuntimeException(e);
+        }
+    }
+
+    /**
+     * Loads the cached events of the given source.
+     * @param source the preset source
+     * @param contentHash the hash of the current source content, see {@link #hash}
+     * @return the cached events, or {@code null} if the source is not cached, or has changed since
+     */
+    static XmlObjectParser.EventSource load(String source, String contentHash) {
+        File file = getCacheFile(source);
+        if (!file.isFile()) {
+            return null;
+        }
+        try {
+            byte[] content = Files.readAllBytes(file.toPath());
+            DataInputStream in = new DataInputStream(new ByteArrayInputStream(content));
+            byte[] magic = new byte[MAGIC.length];
+            in.readFully(magic);
+            if (!Arrays.equals(MAGIC, magic) || in.readInt() != FORMAT_VERSION
+                    || !source.equals(in.readUTF()) || !contentHash.equals(in.readUTF())) {
+                return null;
+            }
+            return handler -> {
+                try {
+                    replay(in, handler);
+                } catch (IOException e) {
+                    throw new SAXException(e);
+                }
+            };
+        } catch (IOException e) {
+            Logging.warn("Unable to read cached tagging preset source " + source + ": " + e);
+            return null;
+        }
+    }
+
+    private static void replay(DataInputStream in, ContentHandler handler) throws IOException, SAXException {
+        List<String> strings = new ArrayList<>();
+        AttributesImpl atts = new AttributesImpl();
+        byte kind;
+        while ((kind = in.readByte()) != END) {
+            switch (kind) {
+            case START_ELEMENT:
+                String qName = readString(in, strings);
+                atts.clear();
+                int count = in.readInt();
+                for (int i = 0; i < count; i++) {
+                    String name = readString(in, strings);
+                    atts.addAttribute("", name, name, "CDATA", readString(in, strings));
+                }
+                handler.startElement("", qName, qName, atts);
+                break;
+            case END_ELEMENT:
+                String name = readString(in, strings);
+                handler.endElement("", name, name);
+                break;
+            case CHARACTERS:
+                char[] ch = readString(in, strings).toCharArray();
+                handler.characters(ch, 0, ch.length);
+                break;
+            default:
+                throw new IOException("Unexpected event: " + kind);
+            }
+        }
+    }
+
+    private static String readString(DataInputStream in, List<String> strings) throws IOException {
+        int index = in.readInt();
+        if (index == NEW_STRING) {
+            String s = in.readUTF();
+            strings.add(s);
+            return s;
+        } else if (index < 0 || index >= strings.size()) {
+            throw new IOException("Illegal string reference: " + index);
+        }
+        return strings.get(index);
+    }
+
+    static File getCacheFile(String source) {
+        return new File(new File(Main.pref.getCacheDirectory(), "presets"), Utils.md5Hex(source) + ".bin");
+    }
+}
@@ -4,6 +4,7 @@ package org.openstreetmap.josm.gui.tagging.presets;
 import static org.openstreetmap.josm.tools.I18n.tr;
 
 import java.io.BufferedReader;
+import java.io.ByteArrayInputStream;
 import java.io.File;
 import java.io.IOException;
 import java.io.InputStream;
@@ -151,7 +152,51 @@ public final class TaggingPresetReader {
      */
     static Collection<TaggingPreset> readAll(Reader in, boolean validate, HashSetWithLast<TaggingPreset> all) throws SAXException {
         XmlObjectParser parser = buildParser();
+        if (validate) {
+            parser.startWithValidation(in, Main.getXMLBase()+"/tagging-preset-1.0", "resource://data/tagging-preset.xsd");
+        } else {
+            parser.start(in);
+        }
+        return readAll(parser, all);
+    }
+
+    /**
+     * Reads all tagging presets from the given content, using the cached result of an earlier parsing if available.
+     * @param source the source of the content
+     * @param content the XML content
+     * @param all the accumulator for parsed tagging presets
+     * @return the accumulator
+     * @throws SAXException if any XML error occurs
+     * @throws IOException if any I/O error occurs
+     * @see TaggingPresetCache
+     */
+    private static Collection<TaggingPreset> readAllCached(String source, byte[] content, HashSetWithLast<TaggingPreset> all)
+            throws SAXException, IOException {
+        String hash = TaggingPresetCache.hash(content);
+        XmlObjectParser.EventSource cached = TaggingPresetCache.load(source, hash);
+        if (cached != null) {
+            List<TaggingPreset> previous = new ArrayList<>(all);
+            try {
+                XmlObjectParser parser = buildParser();
+                parser.start(cached);
+                return readAll(parser, all);
+            } catch (SAXException e) {
+                Logging.warn("Unable to use cached tagging preset source " + source + ": " + e.getMessage());
+                all.clear();
+                all.addAll(previous);
+            }
+        }
+        XmlObjectParser parser = buildParser();
+        TaggingPresetCache.Recorder recorder = new TaggingPresetCache.Recorder();
+        try (InputStreamReader r = UTFInputStreamReader.create(new ByteArrayInputStream(content))) {
+            parser.startRecording(new BufferedReader(r), recorder);
+        }
+        Collection<TaggingPreset> tp = readAll(parser, all);
+        recorder.save(source, hash);
+        return tp;
+    }
 
+    private static Collection<TaggingPreset> readAll(XmlObjectParser parser, HashSetWithLast<TaggingPreset> all) throws SAXException {
         /** to detect end of {@code <group>} */
         TaggingPresetMenu lastmenu = null;
         /** to detect end of reused {@code <group>} */
@@ -164,11 +209,6 @@ public final class TaggingPresetReader {
         /** lastIdIterators contains non empty iterators of items to be handled before obtaining the next item from the XML parser */
         final Deque<Iterator<Object>> lastIdIterators = new ArrayDeque<>();
 
-        if (validate) {
-            parser.startWithValidation(in, Main.getXMLBase()+"/tagging-preset-1.0", "resource://data/tagging-preset.xsd");
-        } else {
-            parser.start(in);
-        }
         while (parser.hasNext() || !lastIdIterators.isEmpty()) {
             final Object o;
             if (!lastIdIterators.isEmpty()) {
@@ -330,8 +370,13 @@ public final class TaggingPresetReader {
             if (zip != null) {
                 zipIcons = cf.getFile();
             }
-            try (InputStreamReader r = UTFInputStreamReader.create(zip == null ? cf.getInputStream() : zip)) {
-                tp = readAll(new BufferedReader(r), validate, all);
+            InputStream in = zip == null ? cf.getInputStream() : zip;
+            if (!validate && TaggingPresetCache.PROP_CACHE.get()) {
+                tp = readAllCached(source, Utils.readBytesFromStream(in), all);
+            } else {
+                try (InputStreamReader r = UTFInputStreamReader.create(in)) {
+                    tp = readAll(new BufferedReader(r), validate, all);
+                }
             }
         }
         return tp;
@@ -13,6 +13,10 @@ import java.util.LinkedList;
 import java.util.List;
 import java.util.Map;
 import java.util.Stack;
+import java.util.concurrent.Callable;
+import java.util.concurrent.ForkJoinPool;
+import java.util.concurrent.ForkJoinTask;
+import java.util.stream.Collectors;
 
 import javax.xml.parsers.ParserConfigurationException;
 
@@ -23,8 +27,12 @@ import org.openstreetmap.josm.data.gpx.GpxConstants;
 import org.openstreetmap.josm.data.gpx.GpxData;
 import org.openstreetmap.josm.data.gpx.GpxLink;
 import org.openstreetmap.josm.data.gpx.GpxRoute;
+import org.openstreetmap.josm.data.gpx.GpxTrack;
+import org.openstreetmap.josm.data.gpx.GpxTrackSegment;
 import org.openstreetmap.josm.data.gpx.ImmutableGpxTrack;
 import org.openstreetmap.josm.data.gpx.WayPoint;
+import org.openstreetmap.josm.data.preferences.BooleanProperty;
+import org.openstreetmap.josm.data.preferences.DoubleProperty;
 import org.openstreetmap.josm.tools.Logging;
 import org.openstreetmap.josm.tools.Utils;
 import org.xml.sax.Attributes;
@@ -57,6 +65,23 @@ public class GpxReader implements GpxConstants {
         COPYRIGHT
     }
 
+    /**
+     * Whether finished track segments are built by worker threads, while the rest of the file is parsed.
+     * Tracks are added to the {@link GpxData} all at once, at the end of the document.
+     * @since 12675
+     */
+    public static final BooleanProperty PARALLEL = new BooleanProperty("gpx.reader.parallel", true);
+
+    /**
+     * Minimum distance in meters between consecutive track points. Closer points are dropped while reading.
+     * The default value 0 keeps all points.
+     * @since 12675
+     */
+    public static final DoubleProperty MIN_POINT_DISTANCE = new DoubleProperty("gpx.reader.min-point-distance", 0.0);
+
+    private static final ForkJoinPool THREAD_POOL =
+            Utils.newForkJoinPool("gpx.reader.numberOfThreads", "gpx-reader-%d", Thread.NORM_PRIORITY);
+
     private String version;
     /** The resulting gpx data */
     private GpxData gpxData;
@@ -65,9 +90,9 @@ public class GpxReader implements GpxConstants {
     private class Parser extends DefaultHandler {
 
         private GpxData data;
-        private Collection<Collection<WayPoint>> currentTrack;
+        private List<ForkJoinTask<GpxTrackSegment>> currentTrack;
         private Map<String, Object> currentTrackAttr;
-        private Collection<WayPoint> currentTrackSeg;
+        private List<WayPoint> currentTrackSeg;
         private GpxRoute currentRoute;
         private WayPoint currentWayPoint;
 
@@ -80,6 +105,11 @@ public class GpxReader implements GpxConstants {
 
         private StringBuilder accumulator = new StringBuilder();
 
+        /** tracks whose segments may still be built by worker threads, in document order */
+        private final List<ForkJoinTask<GpxTrack>> pendingTracks = new ArrayList<>();
+        private final boolean parallel = PARALLEL.get();
+        private final double minPointDistance = MIN_POINT_DISTANCE.get();
+
         private boolean nokiaSportsTrackerBug;
 
         @Override
@@ -457,7 +487,10 @@ public class GpxReader implements GpxConstants {
             case TRKSEG:
                 if ("trkseg".equals(localName)) {
                     currentState = states.pop();
-                    currentTrack.add(currentTrackSeg);
+                    if (!currentTrackSeg.isEmpty()) {
+                        final List<WayPoint> wayPoints = currentTrackSeg;
+                        currentTrack.add(fork(() -> createSegment(wayPoints)));
+                    }
                 }
                 break;
             case TRK:
@@ -465,7 +498,10 @@ public class GpxReader implements GpxConstants {
                 case "trk":
                     currentState = states.pop();
                     convertUrlToLink(currentTrackAttr);
-                    data.addTrack(new ImmutableGpxTrack(currentTrack, currentTrackAttr));
+                    final List<ForkJoinTask<GpxTrackSegment>> segments = currentTrack;
+                    final Map<String, Object> attributes = currentTrackAttr;
+                    pendingTracks.add(ForkJoinTask.adapt(() -> ImmutableGpxTrack.fromSegments(
+                            segments.stream().map(ForkJoinTask::join).collect(Collectors.toList()), attributes)));
                     break;
                 case "name":
                 case "cmt":
@@ -503,8 +539,41 @@ public class GpxReader implements GpxConstants {
             }
         }
 
+        /**
+         * Runs the given task in a worker thread, or directly if parallel reading is disabled.
+         * @param <T> type of the result
+         * @param task the task
+         * @return the task, to be joined for the result
+         */
+        private <T> ForkJoinTask<T> fork(Callable<T> task) {
+            ForkJoinTask<T> result = ForkJoinTask.adapt(task);
+            if (parallel) {
+                THREAD_POOL.execute(result);
+            } else {
+                result.invoke();
+            }
+            return result;
+        }
+
+        private GpxTrackSegment createSegment(List<WayPoint> wayPoints) {
+            return ImmutableGpxTrack.createSegment(minPointDistance > 0 ? reduce(wayPoints, minPointDistance) : wayPoints);
+        }
+
+        /**
+         * Adds the parsed tracks to the data, once all their segments are built.
+         */
+        private void addPendingTracks() {
+            List<GpxTrack> tracks = new ArrayList<>(pendingTracks.size());
+            for (ForkJoinTask<GpxTrack> track : pendingTracks) {
+                tracks.add(track.invoke());
+            }
+            pendingTracks.clear();
+            data.addTracks(tracks);
+        }
+
         @Override
         public void endDocument() throws SAXException {
+            addPendingTracks();
             if (!states.empty())
                 throw new SAXException(tr("Parse error: invalid document structure for GPX document."));
             Extensions metaExt = (Extensions) data.get(META_EXTENSIONS);
@@ -542,6 +611,26 @@ public class GpxReader implements GpxConstants {
         }
     }
 
+    /**
+     * Removes track points closer than the given distance to the previous kept point.
+     * The first and the last point are always kept.
+     * @param wayPoints the track points
+     * @param minDistance the minimum distance between points, in meters
+     * @return the kept points
+     */
+    static List<WayPoint> reduce(List<WayPoint> wayPoints, double minDistance) {
+        List<WayPoint> result = new ArrayList<>(wayPoints.size());
+        WayPoint last = null;
+        for (int i = 0; i < wayPoints.size(); i++) {
+            WayPoint wpt = wayPoints.get(i);
+            if (last == null || i == wayPoints.size() - 1 || last.getCoor().greatCircleDistance(wpt.getCoor()) >= minDistance) {
+                result.add(wpt);
+                last = wpt;
+            }
+        }
+        return result;
+    }
+
     /**
      * Constructs a new {@code GpxReader}, which can later parse the input stream
      * and store the result in trackData and markerData
@@ -4,10 +4,15 @@ package org.openstreetmap.josm.io;
 import static org.openstreetmap.josm.tools.I18n.tr;
 import static org.openstreetmap.josm.tools.I18n.trn;
 
+import java.io.BufferedWriter;
+import java.io.ByteArrayOutputStream;
 import java.io.IOException;
+import java.io.OutputStream;
+import java.io.OutputStreamWriter;
 import java.io.PrintWriter;
 import java.io.StringReader;
 import java.io.StringWriter;
+import java.io.Writer;
 import java.net.ConnectException;
 import java.net.HttpURLConnection;
 import java.net.MalformedURLException;
@@ -19,6 +24,8 @@ import java.util.Collections;
 import java.util.HashMap;
 import java.util.List;
 import java.util.Map;
+import java.util.zip.GZIPInputStream;
+import java.util.zip.GZIPOutputStream;
 
 import javax.xml.parsers.ParserConfigurationException;
 
@@ -29,6 +36,7 @@ import org.openstreetmap.josm.data.osm.Changeset;
 import org.openstreetmap.josm.data.osm.IPrimitive;
 import org.openstreetmap.josm.data.osm.OsmPrimitive;
 import org.openstreetmap.josm.data.osm.OsmPrimitiveType;
+import org.openstreetmap.josm.data.preferences.BooleanProperty;
 import org.openstreetmap.josm.gui.MainApplication;
 import org.openstreetmap.josm.gui.layer.ImageryLayer;
 import org.openstreetmap.josm.gui.layer.Layer;
@@ -74,6 +82,13 @@ public class OsmApi extends OsmConnection {
      */
     public static final String DEFAULT_API_URL = "https://api.openstreetmap.org/api";
 
+    /**
+     * Determines if diff upload requests are sent gzip-compressed ({@code Content-Encoding: gzip}).
+     * Disabled by default, as not all API servers accept compressed request bodies.
+     * @since 12683
+     */
+    public static final BooleanProperty UPLOAD_COMPRESSION = new BooleanProperty("osm-server.upload-compression", false);
+
     // The collection of instantiated OSM APIs
     private static Map<String, OsmApi> instances = new HashMap<>();
 
@@ -515,25 +530,81 @@ public class OsmApi extends OsmConnection {
             throws OsmTransferException {
         try {
             monitor.beginTask("", list.size() * 2);
-            if (changeset == null)
-                throw new OsmTransferException(tr("No changeset present for diff upload."));
-
             initialize(monitor);
 
             // prepare upload request
             //
-            OsmChangeBuilder changeBuilder = new OsmChangeBuilder(changeset);
             monitor.subTask(tr("Preparing upload request..."));
+            byte[] diffUploadRequest = buildDiffUploadRequest(list);
+
+            return sendDiffUpload(list, diffUploadRequest, monitor);
+        } finally {
+            monitor.finishTask();
+        }
+    }
+
+    /**
+     * Uploads a list of changes in "diff" form to the server, using a request built beforehand.
+     *
+     * @param list the list of changed OSM Primitives
+     * @param request the diff upload request built by {@link #buildDiffUploadRequest} for {@code list}
+     * @param  monitor the progress monitor
+     * @return list of processed primitives
+     * @throws OsmTransferException if something is wrong
+     * @since 12683
+     */
+    public Collection<OsmPrimitive> uploadDiff(Collection<? extends OsmPrimitive> list, byte[] request, ProgressMonitor monitor)
+            throws OsmTransferException {
+        try {
+            monitor.beginTask("", list.size() * 2);
+            initialize(monitor);
+            return sendDiffUpload(list, request, monitor);
+        } finally {
+            monitor.finishTask();
+        }
+    }
+
+    /**
+     * Builds the body of a diff upload request to the current changeset. The osmChange document is streamed into
+     * an UTF-8 encoded byte array, gzip-compressed if {@link #UPLOAD_COMPRESSION} is enabled, without building it
+     * as a string first.
+     * <p>
+     * The primitives are only read, so that the request of the next chunk of an upload can be built while the
+     * previous chunk is being uploaded.
+     *
+     * @param list the list of changed OSM Primitives
+     * @return the request body
+     * @throws OsmTransferException if no changeset is present, or if the request cannot be written
+     * @since 12683
+     */
+    public byte[] buildDiffUploadRequest(Collection<? extends OsmPrimitive> list) throws OsmTransferException {
+        Changeset cs = changeset;
+        if (cs == null)
+            throw new OsmTransferException(tr("No changeset present for diff upload."));
+        ByteArrayOutputStream bytes = new ByteArrayOutputStream();
+        try (OutputStream out = UPLOAD_COMPRESSION.get() ? new GZIPOutputStream(bytes) : bytes;
+             Writer writer = new BufferedWriter(new OutputStreamWriter(out, StandardCharsets.UTF_8))) {
+            OsmChangeBuilder changeBuilder = new OsmChangeBuilder(cs, null, writer);
             changeBuilder.start();
             changeBuilder.append(list);
             changeBuilder.finish();
-            String diffUploadRequest = changeBuilder.getDocument();
+        } catch (IOException e) {
+            throw new OsmTransferException(e);
+        }
+        return bytes.toByteArray();
+    }
 
+    private Collection<OsmPrimitive> sendDiffUpload(Collection<? extends OsmPrimitive> list, byte[] request, ProgressMonitor monitor)
+            throws OsmTransferException {
+        if (changeset == null)
+            throw new OsmTransferException(tr("No changeset present for diff upload."));
+        try {
             // Upload to the server
             //
             monitor.indeterminateSubTask(
                     trn("Uploading {0} object...", "Uploading {0} objects...", list.size(), list.size()));
-            String diffUploadResponse = sendRequest("POST", "changeset/" + changeset.getId() + "/upload", diffUploadRequest, monitor);
+            String diffUploadResponse = sendRequestBody("POST", "changeset/" + changeset.getId() + "/upload", request, monitor,
+                    true, false);
 
             // Process the response from the server
             //
@@ -543,12 +614,8 @@ public class OsmApi extends OsmConnection {
                     getChangeset(),
                     monitor.createSubTaskMonitor(ProgressMonitor.ALL_TICKS, false)
             );
-        } catch (OsmTransferException e) {
-            throw e;
         } catch (XmlParsingException e) {
             throw new OsmTransferException(e);
-        } finally {
-            monitor.finishTask();
         }
     }
 
@@ -623,6 +690,12 @@ public class OsmApi extends OsmConnection {
      */
     protected final String sendRequest(String requestMethod, String urlSuffix, String requestBody, ProgressMonitor monitor,
             boolean doAuthenticate, boolean fastFail) throws OsmTransferException {
+        return sendRequestBody(requestMethod, urlSuffix, (requestBody != null ? requestBody : "").getBytes(StandardCharsets.UTF_8),
+                monitor, doAuthenticate, fastFail);
+    }
+
+    private String sendRequestBody(String requestMethod, String urlSuffix, byte[] requestBody, ProgressMonitor monitor,
+            boolean doAuthenticate, boolean fastFail) throws OsmTransferException {
         int retries = fastFail ? 0 : getMaxRetries();
 
         while (true) { // the retry loop
@@ -643,13 +716,16 @@ public class OsmApi extends OsmConnection {
 
                 if ("PUT".equals(requestMethod) || "POST".equals(requestMethod) || "DELETE".equals(requestMethod)) {
                     client.setHeader("Content-Type", "text/xml");
+                    if (isGzipped(requestBody)) {
+                        client.setHeader("Content-Encoding", "gzip");
+                    }
                     // It seems that certain bits of the Ruby API are very unhappy upon
                     // receipt of a PUT/POST message without a Content-length header,
                     // even if the request has no payload.
                     // Since Java will not generate a Content-length header unless
                     // we use the output stream, we create an output stream for PUT/POST
                     // even if there is no payload.
-                    client.setRequestBody((requestBody != null ? requestBody : "").getBytes(StandardCharsets.UTF_8));
+                    client.setRequestBody(requestBody);
                 }
 
                 final HttpClient.Response response = client.connect();
@@ -706,6 +782,12 @@ public class OsmApi extends OsmConnection {
         }
     }
 
+    private static boolean isGzipped(byte[] requestBody) {
+        return requestBody.length >= 2
+            && requestBody[0] == (byte) GZIPInputStream.GZIP_MAGIC
+            && requestBody[1] == (byte) (GZIPInputStream.GZIP_MAGIC >> 8);
+    }
+
     /**
      * Replies the API capabilities.
      *
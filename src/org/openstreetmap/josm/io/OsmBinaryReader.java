@@ -0,0 +1,346 @@
+// License: GPL. For details, see LICENSE file.
+package org.openstreetmap.josm.io;
+
+import static org.openstreetmap.josm.tools.I18n.tr;
+
+import java.io.EOFException;
+import java.io.IOException;
+import java.io.InputStream;
+import java.nio.charset.StandardCharsets;
+import java.util.ArrayList;
+import java.util.Arrays;
+import java.util.Collection;
+import java.util.Collections;
+import java.util.HashMap;
+import java.util.List;
+import java.util.Map;
+
+import org.openstreetmap.josm.data.Bounds;
+import org.openstreetmap.josm.data.DataSource;
+import org.openstreetmap.josm.data.coor.LatLon;
+import org.openstreetmap.josm.data.osm.DataSet;
+import org.openstreetmap.josm.data.osm.DataSet.UploadPolicy;
+import org.openstreetmap.josm.data.osm.Node;
+import org.openstreetmap.josm.data.osm.NodeData;
+import org.openstreetmap.josm.data.osm.OsmPrimitive;
+import org.openstreetmap.josm.data.osm.OsmPrimitiveType;
+import org.openstreetmap.josm.data.osm.PrimitiveData;
+import org.openstreetmap.josm.data.osm.Relation;
+import org.openstreetmap.josm.data.osm.RelationData;
+import org.openstreetmap.josm.data.osm.RelationMemberData;
+import org.openstreetmap.josm.data.osm.User;
+import org.openstreetmap.josm.data.osm.Way;
+import org.openstreetmap.josm.data.osm.WayData;
+import org.openstreetmap.josm.gui.progress.NullProgressMonitor;
+import org.openstreetmap.josm.gui.progress.ProgressMonitor;
+import org.openstreetmap.josm.tools.CheckParameterUtil;
+
+/**
+ * Reads a dataset written by {@link OsmBinaryWriter}.
+ * <p>
+ * The primitives are created directly from the decoded data and added to the dataset in one update,
+ * without the overhead of parsing XML.
+ * @since 12686
+ */
+public class OsmBinaryReader extends AbstractReader {
+
+    private static final OsmPrimitiveType[] TYPES = OsmPrimitiveType.values();
+    /** number of primitives read between checks for cancellation */
+    private static final int CANCEL_CHECK_INTERVAL = 1 << 14;
+
+    private final List<String> strings = new ArrayList<>();
+    private final List<User> users = new ArrayList<>();
+
+    private final long[] lastId = new long[3];
+    private int lastTimestamp;
+    private long lastLat;
+    private long lastLon;
+
+    private InputStream in;
+    private final byte[] buffer = new byte[1 << 16];
+    private int position;
+    private int limit;
+
+    /**
+     * Constructs a new {@code OsmBinaryReader}.
+     */
+    protected OsmBinaryReader() {
+        // Restricts visibility
+    }
+
+    private void parse(ProgressMonitor progressMonitor) throws IOException, IllegalDataException {
+        byte[] magic = new byte[OsmBinaryWriter.MAGIC.length];
+        for (int i = 0; i < magic.length; i++) {
+            magic[i] = readByte();
+        }
+        if (!Arrays.equals(OsmBinaryWriter.MAGIC, magic)) {
+            throw new IllegalDataException(tr("Unsupported binary OSM data"));
+        }
+        int formatVersion = readVarInt();
+        if (formatVersion != OsmBinaryWriter.FORMAT_VERSION) {
+            throw new IllegalDataException(tr("Unsupported version: {0}", formatVersion));
+        }
+        ds.setVersion(readString());
+        String uploadPolicy = readString();
+        if (uploadPolicy != null) {
+            try {
+                ds.setUploadPolicy(UploadPolicy.valueOf(uploadPolicy));
+            } catch (IllegalArgumentException e) {
+                throw new IllegalDataException(e);
+            }
+        }
+        int dataSources = readVarInt();
+        for (int i = 0; i < dataSources; i++) {
+            Bounds bounds = new Bounds(readDouble(), readDouble(), readDouble(), readDouble());
+            ds.addDataSource(new DataSource(bounds, readString()));
+        }
+        int count = 0;
+        byte kind;
+        while ((kind = readByte()) != OsmBinaryWriter.END) {
+            if (kind < 1 || kind > TYPES.length) {
+                throw new IllegalDataException(tr("Unexpected primitive type: {0}", kind));
+            }
+            switch (TYPES[kind - 1]) {
+            case NODE:
+                readNode();
+                break;
+            case WAY:
+                readWay();
+                break;
+            default:
+                readRelation();
+            }
+            if (++count % CANCEL_CHECK_INTERVAL == 0 && progressMonitor.isCanceled()) {
+                throw new IllegalDataException(tr("Reading was canceled"));
+            }
+        }
+    }
+
+    private void readNode() throws IOException, IllegalDataException {
+        NodeData nd = new NodeData();
+        boolean hasCoordinates = readCommon(nd);
+        if (hasCoordinates) {
+            lastLat += readVarLong();
+            lastLon += readVarLong();
+            nd.setCoor(new LatLon(lastLat / OsmBinaryWriter.COORDINATE_SCALE, lastLon / OsmBinaryWriter.COORDINATE_SCALE));
+        }
+        Node n = new Node(nd.getId(), nd.getVersion());
+        add(n, nd);
+    }
+
+    private void readWay() throws IOException, IllegalDataException {
+        WayData wd = new WayData();
+        readCommon(wd);
+        Way w = new Way(wd.getId(), wd.getVersion());
+        add(w, wd);
+        int count = readVarInt();
+        List<Long> nodeIds = new ArrayList<>(count);
+        long last = 0;
+        for (int i = 0; i < count; i++) {
+            last += readVarLong();
+            nodeIds.add(last);
+        }
+        ways.put(wd.getUniqueId(), w.isDeleted() ? Collections.<Long>emptyList() : nodeIds);
+    }
+
+    private void readRelation() throws IOException, IllegalDataException {
+        RelationData rd = new RelationData();
+        readCommon(rd);
+        Relation r = new Relation(rd.getId(), rd.getVersion());
+        add(r, rd);
+        int count = readVarInt();
+        Collection<RelationMemberData> members = new ArrayList<>(count);
+        long last = 0;
+        for (int i = 0; i < count; i++) {
+            int type = readByte();
+            if (type < 0 || type >= TYPES.length) {
+                throw new IllegalDataException(tr("Unexpected primitive type: {0}", type));
+            }
+            last += readVarLong();
+            members.add(new RelationMemberData(readString(), TYPES[type], last));
+        }
+        relations.put(rd.getUniqueId(), r.isDeleted() ? Collections.<RelationMemberData>emptyList() : members);
+    }
+
+    private void add(OsmPrimitive p, PrimitiveData data) {
+        p.setVisible(data.isVisible());
+        p.load(data);
+        externalIdMap.put(data.getPrimitiveId(), p);
+    }
+
+    private boolean readCommon(PrimitiveData current) throws IOException, IllegalDataException {
+        int type = current.getType().ordinal();
+        lastId[type] += readVarLong();
+        if (lastId[type] == 0) {
+            throw new IllegalDataException(tr("Illegal object with ID=0."));
+        }
+        current.setId(lastId[type]);
+        current.setVersion(readVarInt());
+        current.setChangesetId(readVarInt());
+        lastTimestamp += readVarInt();
+        current.setRawTimestamp(lastTimestamp);
+        byte flags = readByte();
+        current.setUser(readUser());
+        int count = readVarInt();
+        if (count > 0) {
+            Map<String, String> tags = new HashMap<>(count * 2);
+            for (int i = 0; i < count; i++) {
+                tags.put(readString(), readString());
+            }
+            current.setKeys(tags);
+        }
+        if ((flags & OsmBinaryWriter.INVISIBLE) != 0) {
+            current.setVisible(false);
+        }
+        current.setDeleted((flags & OsmBinaryWriter.DELETED) != 0);
+        current.setModified((flags & OsmBinaryWriter.MODIFIED) != 0);
+        return (flags & OsmBinaryWriter.HAS_COORDINATES) != 0;
+    }
+
+    private User readUser() throws IOException, IllegalDataException {
+        int index = readVarInt();
+        switch (index) {
+        case OsmBinaryWriter.NO_USER:
+            return null;
+        case OsmBinaryWriter.NEW_OSM_USER:
+            long uid = readVarLong();
+            User osmUser = User.createOsmUser(uid, readString());
+            users.add(osmUser);
+            return osmUser;
+        case OsmBinaryWriter.NEW_LOCAL_USER:
+            User localUser = User.createLocalUser(readString());
+            users.add(localUser);
+            return localUser;
+        default:
+            index -= OsmBinaryWriter.NEW_LOCAL_USER + 1;
+            if (index < 0 || index >= users.size()) {
+                throw new IllegalDataException(tr("Illegal user reference: {0}", index));
+            }
+            return users.get(index);
+        }
+    }
+
+    private String readString() throws IOException, IllegalDataException {
+        int index = readVarInt();
+        if (index == OsmBinaryWriter.NULL_STRING) {
+            return null;
+        } else if (index == OsmBinaryWriter.NEW_STRING) {
+            int length = readVarInt();
+            if (length < 0) {
+                throw new IllegalDataException(tr("Illegal string length: {0}", length));
+            }
+            String s;
+            if (length <= buffer.length) {
+                ensureAvailable(length);
+                s = new String(buffer, position, length, StandardCharsets.UTF_8);
+                position += length;
+            } else {
+                byte[] utf8 = new byte[length];
+                for (int i = 0; i < length; i++) {
+                    utf8[i] = readByte();
+                }
+                s = new String(utf8, StandardCharsets.UTF_8);
+            }
+            if (strings.size() < OsmBinaryWriter.MAX_STRINGS) {
+                strings.add(s);
+            }
+            return s;
+        }
+        index -= OsmBinaryWriter.NEW_STRING + 1;
+        if (index < 0 || index >= strings.size()) {
+            throw new IllegalDataException(tr("Illegal string reference: {0}", index));
+        }
+        return strings.get(index);
+    }
+
+    private double readDouble() throws IOException {
+        long bits = 0;
+        for (int i = 0; i < 8; i++) {
+            bits = (bits << 8) | (readByte() & 0xFF);
+        }
+        return Double.longBitsToDouble(bits);
+    }
+
+    private int readVarInt() throws IOException {
+        return (int) readVarLong();
+    }
+
+    private long readVarLong() throws IOException {
+        long v = 0;
+        int shift = 0;
+        byte b;
+        do {
+            b = readByte();
+            v |= (long) (b & 0x7F) << shift;
+            shift += 7;
+        } while (b < 0 && shift < 64);
+        return (v >>> 1) ^ -(v & 1);
+    }
+
+    private byte readByte() throws IOException {
+        if (position == limit) {
+            ensureAvailable(1);
+        }
+        return buffer[position++];
+    }
+
+    /**
+     * Ensures that at least the given number of bytes is available in the buffer.
+     * @param length number of bytes, at most the size of the buffer
+     * @throws IOException if an I/O error occurs, or the end of the stream is reached
+     */
+    private void ensureAvailable(int length) throws IOException {
+        if (limit - position >= length) {
+            return;
+        }
+        System.arraycopy(buffer, position, buffer, 0, limit - position);
+        limit -= position;
+        position = 0;
+        while (limit < length) {
+            int n = in.read(buffer, limit, buffer.length - limit);
+            if (n < 0) {
+                throw new EOFException();
+            }
+            limit += n;
+        }
+    }
+
+    @Override
+    protected DataSet doParseDataSet(InputStream source, ProgressMonitor progressMonitor) throws IllegalDataException {
+        if (progressMonitor == null) {
+            progressMonitor = NullProgressMonitor.INSTANCE;
+        }
+        CheckParameterUtil.ensureParameterNotNull(source, "source");
+        try {
+            progressMonitor.beginTask(tr("Prepare OSM data..."), 2);
+            progressMonitor.indeterminateSubTask(tr("Reading OSM data..."));
+            in = source;
+            parse(progressMonitor);
+            progressMonitor.worked(1);
+
+            progressMonitor.indeterminateSubTask(tr("Preparing data set..."));
+            prepareDataSet();
+            progressMonitor.worked(1);
+            return getDataSet();
+        } catch (IOException | IllegalArgumentException | IllegalStateException e) {
+            throw new IllegalDataException(e);
+        } finally {
+            in = null;
+            progressMonitor.finishTask();
+        }
+    }
+
+    /**
+     * Parse the given input source and return the dataset.
+     *
+     * @param source the source input stream. Must not be null.
+     * @param progressMonitor the progress monitor. If null, {@link NullProgressMonitor#INSTANCE} is assumed
+     *
+     * @return the dataset with the parsed data
+     * @throws IllegalDataException if an error was found while parsing the data from the source
+     * @throws IllegalArgumentException if source is null
+     */
+    public static DataSet parseDataSet(InputStream source, ProgressMonitor progressMonitor) throws IllegalDataException {
+        return new OsmBinaryReader().doParseDataSet(source, progressMonitor);
+    }
+}
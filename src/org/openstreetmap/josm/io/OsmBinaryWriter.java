@@ -0,0 +1,223 @@
+// License: GPL. For details, see LICENSE file.
+package org.openstreetmap.josm.io;
+
+import java.io.BufferedOutputStream;
+import java.io.DataOutputStream;
+import java.io.IOException;
+import java.io.OutputStream;
+import java.io.UncheckedIOException;
+import java.nio.charset.StandardCharsets;
+import java.util.HashMap;
+import java.util.List;
+import java.util.Map;
+import java.util.Map.Entry;
+
+import org.openstreetmap.josm.data.DataSource;
+import org.openstreetmap.josm.data.coor.LatLon;
+import org.openstreetmap.josm.data.osm.DataSetSnapshot;
+import org.openstreetmap.josm.data.osm.NodeData;
+import org.openstreetmap.josm.data.osm.PrimitiveData;
+import org.openstreetmap.josm.data.osm.RelationData;
+import org.openstreetmap.josm.data.osm.RelationMemberData;
+import org.openstreetmap.josm.data.osm.User;
+import org.openstreetmap.josm.data.osm.WayData;
+
+/**
+ * Writes a dataset in a compact binary format, read by {@link OsmBinaryReader}.
+ * <p>
+ * The format is meant for data written and read by JOSM itself, e.g. in session files: it keeps the
+ * modification state of primitives like the .osm format does, but is much faster to read. Ids, timestamps
+ * and coordinates are delta-coded as variable-length integers, strings and users are written once and then
+ * referred to by index.
+ * <p>
+ * Coordinates are stored as fixed-point numbers with the precision of the .osm format written by {@link OsmWriter}.
+ * @since 12686
+ */
+public class OsmBinaryWriter {
+
+    static final byte[] MAGIC = "JOSMOSMB".getBytes(StandardCharsets.US_ASCII);
+    static final int FORMAT_VERSION = 1;
+    /** fixed-point scale of coordinates, 11 decimals like {@link LatLon#cDdHighPecisionFormatter} */
+    static final double COORDINATE_SCALE = 1e11;
+    /** maximum number of strings referred to by index */
+    static final int MAX_STRINGS = 1 << 20;
+
+    static final byte END = 0;
+
+    static final byte MODIFIED = 1;
+    static final byte DELETED = 2;
+    static final byte INVISIBLE = 4;
+    static final byte HAS_COORDINATES = 8;
+
+    static final int NULL_STRING = 0;
+    static final int NEW_STRING = 1;
+    static final int NO_USER = 0;
+    static final int NEW_OSM_USER = 1;
+    static final int NEW_LOCAL_USER = 2;
+
+    private final DataOutputStream out;
+    private final Map<String, Integer> strings = new HashMap<>();
+    private final Map<User, Integer> users = new HashMap<>();
+
+    private final long[] lastId = new long[3];
+    private int lastTimestamp;
+    private long lastLat;
+    private long lastLon;
+
+    /**
+     * Constructs a new {@code OsmBinaryWriter}.
+     * @param out the output stream. It is not closed
+     */
+    public OsmBinaryWriter(OutputStream out) {
+        this.out = new DataOutputStream(new BufferedOutputStream(out, 1 << 16));
+    }
+
+    /**
+     * Writes the given snapshot of a dataset: the data sources, then nodes, ways and relations.
+     * Like {@link OsmWriter#writeSnapshot}, incomplete primitives and deleted new primitives are skipped.
+     * @param snapshot The snapshot to write
+     * @throws IOException if an I/O error occurs
+     */
+    public void writeSnapshot(DataSetSnapshot snapshot) throws IOException {
+        out.write(MAGIC);
+        writeVarInt(FORMAT_VERSION);
+        writeString(snapshot.getVersion());
+        writeString(snapshot.getUploadPolicy() != null ? snapshot.getUploadPolicy().name() : null);
+        List<DataSource> dataSources = snapshot.getDataSources();
+        writeVarInt(dataSources.size());
+        for (DataSource source : dataSources) {
+            out.writeDouble(source.bounds.getMinLat());
+            out.writeDouble(source.bounds.getMinLon());
+            out.writeDouble(source.bounds.getMaxLat());
+            out.writeDouble(source.bounds.getMaxLon());
+            writeString(source.origin);
+        }
+        try {
+            snapshot.forEachNode(this::write);
+            snapshot.forEachWay(this::write);
+            snapshot.forEachRelation(this::write);
+        } catch (UncheckedIOException e) {
+            throw e.getCause();
+        }
+        out.writeByte(END);
+        out.flush();
+    }
+
+    private void write(PrimitiveData data) {
+        if (data.isIncomplete() || (data.isNewOrUndeleted() && data.isDeleted())) {
+            return;
+        }
+        try {
+            writeCommon(data);
+            if (data instanceof NodeData) {
+                LatLon coor = ((NodeData) data).getCoor();
+                if (coor != null) {
+                    long lat = Math.round(coor.lat() * COORDINATE_SCALE);
+                    long lon = Math.round(coor.lon() * COORDINATE_SCALE);
+                    writeVarLong(lat - lastLat);
+                    writeVarLong(lon - lastLon);
+                    lastLat = lat;
+                    lastLon = lon;
+                }
+            } else if (data instanceof WayData) {
+                List<Long> nodes = ((WayData) data).getNodes();
+                writeVarInt(nodes.size());
+                long last = 0;
+                for (long node : nodes) {
+                    writeVarLong(node - last);
+                    last = node;
+                }
+            } else if (data instanceof RelationData) {
+                List<RelationMemberData> members = ((RelationData) data).getMembers();
+                writeVarInt(members.size());
+                long last = 0;
+                for (RelationMemberData member : members) {
+                    out.writeByte(member.getMemberType().ordinal());
+                    writeVarLong(member.getMemberId() - last);
+                    writeString(member.getRole());
+                    last = member.getMemberId();
+                }
+            }
+        } catch (IOException e) {
+            throw new UncheckedIOException(e);
+        }
+    }
+
+    private void writeCommon(PrimitiveData data) throws IOException {
+        int type = data.getType().ordinal();
+        out.writeByte(type + 1);
+        writeVarLong(data.getUniqueId() - lastId[type]);
+        lastId[type] = data.getUniqueId();
+        writeVarInt(data.getVersion());
+        writeVarInt(data.getChangesetId());
+        writeVarInt(data.getRawTimestamp() - lastTimestamp);
+        lastTimestamp = data.getRawTimestamp();
+        boolean hasCoordinates = data instanceof NodeData && ((NodeData) data).getCoor() != null;
+        out.writeByte((data.isModified() ? MODIFIED : 0) | (data.isDeleted() ? DELETED : 0)
+                | (data.isVisible() ? 0 : INVISIBLE) | (hasCoordinates ? HAS_COORDINATES : 0));
+        writeUser(data.getUser());
+        Map<String, String> tags = data.getKeys();
+        writeVarInt(tags.size());
+        for (Entry<String, String> tag : tags.entrySet()) {
+            writeString(tag.getKey());
+            writeString(tag.getValue());
+        }
+    }
+
+    private void writeUser(User user) throws IOException {
+        if (user == null) {
+            writeVarInt(NO_USER);
+            return;
+        }
+        Integer index = users.get(user);
+        if (index != null) {
+            writeVarInt(index + NEW_LOCAL_USER + 1);
+        } else {
+            users.put(user, users.size());
+            if (user.isOsmUser()) {
+                writeVarInt(NEW_OSM_USER);
+                writeVarLong(user.getId());
+            } else {
+                writeVarInt(NEW_LOCAL_USER);
+            }
+            writeString(user.getName());
+        }
+    }
+
+    private void writeString(String s) throws IOException {
+        if (s == null) {
+            writeVarInt(NULL_STRING);
+            return;
+        }
+        Integer index = strings.get(s);
+        if (index != null) {
+            writeVarInt(index + NEW_STRING + 1);
+        } else {
+            if (strings.size() < MAX_STRINGS) {
+                strings.put(s, strings.size());
+            }
+            byte[] utf8 = s.getBytes(StandardCharsets.UTF_8);
+            writeVarInt(NEW_STRING);
+            writeVarInt(utf8.length);
+            out.write(utf8);
+        }
+    }
+
+    /**
+     * Writes a signed integer in zigzag encoding, using 1 byte for values between -64 and 63.
+     * @param value value to write
+     * @throws IOException if an I/O error occurs
+     */
+    private void writeVarInt(int value) throws IOException {
+        writeVarLong(value);
+    }
+
+    private void writeVarLong(long value) throws IOException {
+        long v = (value << 1) ^ (value >> 63);
+        while ((v & ~0x7FL) != 0) {
+            out.writeByte((int) ((v & 0x7F) | 0x80));
+            v >>>= 7;
+        }
+        out.writeByte((int) v);
+    }
+}
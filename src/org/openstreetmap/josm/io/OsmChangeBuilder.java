@@ -5,6 +5,7 @@ import static org.openstreetmap.josm.tools.I18n.tr;
 
 import java.io.PrintWriter;
 import java.io.StringWriter;
+import java.io.Writer;
 import java.util.Collection;
 
 import org.openstreetmap.josm.data.osm.Changeset;
@@ -40,9 +41,21 @@ public class OsmChangeBuilder {
      * @param apiVersion OSM API version
      */
     public OsmChangeBuilder(Changeset changeset, String apiVersion) {
+        this(changeset, apiVersion, new StringWriter());
+    }
+
+    /**
+     * Constructs a new {@code OsmChangeBuilder} that streams the document to the given writer,
+     * instead of building it in memory.
+     * @param changeset changeset
+     * @param apiVersion OSM API version
+     * @param out the writer to which the document is written. It is flushed by {@link #finish()}, but not closed.
+     * @since 12683
+     */
+    public OsmChangeBuilder(Changeset changeset, String apiVersion, Writer out) {
         this.apiVersion = apiVersion == null ? DEFAULT_API_VERSION : apiVersion;
-        swriter = new StringWriter();
-        writer = new PrintWriter(swriter);
+        swriter = out instanceof StringWriter ? (StringWriter) out : null;
+        writer = new PrintWriter(out);
         osmwriter = OsmWriterFactory.createOsmWriter(writer, false, apiVersion);
         osmwriter.setChangeset(changeset);
         osmwriter.setIsOsmChange(true);
@@ -140,13 +153,17 @@ public class OsmChangeBuilder {
             writer.println(">");
         }
         writer.println("</osmChange>");
+        writer.flush();
     }
 
     /**
      * Returns XML document.
      * @return XML document
+     * @throws IllegalStateException if the document has been streamed to a writer
      */
     public String getDocument() {
+        if (swriter == null)
+            throw new IllegalStateException("OsmChange document has been streamed to a writer");
         return swriter.toString();
     }
 }
@@ -9,13 +9,18 @@ import java.io.OutputStream;
 import java.io.OutputStreamWriter;
 import java.io.PrintWriter;
 import java.io.Writer;
+import java.nio.channels.Channels;
+import java.nio.channels.FileChannel;
+import java.nio.channels.WritableByteChannel;
 import java.nio.charset.StandardCharsets;
+import java.nio.file.StandardOpenOption;
 import java.text.MessageFormat;
 
 import javax.swing.JOptionPane;
 
 import org.openstreetmap.josm.Main;
 import org.openstreetmap.josm.actions.ExtensionFileFilter;
+import org.openstreetmap.josm.data.osm.DataSetSnapshot;
 import org.openstreetmap.josm.gui.layer.Layer;
 import org.openstreetmap.josm.gui.layer.OsmDataLayer;
 import org.openstreetmap.josm.tools.Logging;
@@ -118,18 +123,37 @@ public class OsmExporter extends FileExporter {
         }
     }
 
+    /**
+     * Opens a channel to the given file, which compresses the data if needed.
+     * @param file Output file
+     * @return the channel
+     * @throws IOException if the file cannot be opened
+     * @since 12684
+     */
+    protected static WritableByteChannel getChannel(File file) throws IOException {
+        if (Compression.byExtension(file.getName()) == Compression.NONE) {
+            return FileChannel.open(file.toPath(), StandardOpenOption.CREATE, StandardOpenOption.TRUNCATE_EXISTING, StandardOpenOption.WRITE);
+        }
+        return Channels.newChannel(getOutputStream(file));
+    }
+
     protected void doSave(File file, OsmDataLayer layer) throws IOException {
-        // create outputstream and wrap it with gzip or bzip, if necessary
-        try (
-            OutputStream out = getOutputStream(file);
-            Writer writer = new OutputStreamWriter(out, StandardCharsets.UTF_8);
-            OsmWriter w = OsmWriterFactory.createOsmWriter(new PrintWriter(writer), false, layer.data.getVersion())
-        ) {
-            layer.data.getReadLock().lock();
-            try {
-                w.writeLayer(layer);
-            } finally {
-                layer.data.getReadLock().unlock();
+        // write a snapshot, so that the layer can be edited meanwhile (autosave)
+        try (DataSetSnapshot snapshot = layer.data.createSnapshot()) {
+            if (snapshot.size() >= ParallelOsmWriter.PARALLEL_THRESHOLD.get()) {
+                // encode large layers in parallel
+                try (WritableByteChannel channel = getChannel(file)) {
+                    new ParallelOsmWriter(false, layer.data.getVersion()).writeSnapshot(snapshot, channel);
+                }
+            } else {
+                // create outputstream and wrap it with gzip or bzip, if necessary
+                try (
+                    OutputStream out = getOutputStream(file);
+                    Writer writer = new OutputStreamWriter(out, StandardCharsets.UTF_8);
+                    OsmWriter w = OsmWriterFactory.createOsmWriter(new PrintWriter(writer), false, layer.data.getVersion())
+                ) {
+                    w.writeSnapshot(snapshot);
+                }
             }
         }
     }
@@ -0,0 +1,558 @@
+// License: GPL. For details, see LICENSE file.
+package org.openstreetmap.josm.io;
+
+import java.io.BufferedInputStream;
+import java.io.ByteArrayInputStream;
+import java.io.ByteArrayOutputStream;
+import java.io.DataInputStream;
+import java.io.DataOutputStream;
+import java.io.EOFException;
+import java.io.File;
+import java.io.IOException;
+import java.io.InputStream;
+import java.io.OutputStream;
+import java.io.OutputStreamWriter;
+import java.io.PrintWriter;
+import java.io.UncheckedIOException;
+import java.nio.ByteBuffer;
+import java.nio.channels.FileChannel;
+import java.nio.charset.StandardCharsets;
+import java.nio.file.Files;
+import java.nio.file.StandardCopyOption;
+import java.nio.file.StandardOpenOption;
+import java.util.ArrayList;
+import java.util.Arrays;
+import java.util.Collection;
+import java.util.HashMap;
+import java.util.LinkedHashMap;
+import java.util.List;
+import java.util.Map;
+import java.util.Map.Entry;
+import java.util.function.Consumer;
+import java.util.zip.CRC32;
+
+import org.openstreetmap.josm.data.Bounds;
+import org.openstreetmap.josm.data.DataSource;
+import org.openstreetmap.josm.data.coor.LatLon;
+import org.openstreetmap.josm.data.osm.DataSet;
+import org.openstreetmap.josm.data.osm.DataSet.UploadPolicy;
+import org.openstreetmap.josm.data.osm.DataSetSnapshot;
+import org.openstreetmap.josm.data.osm.NodeData;
+import org.openstreetmap.josm.data.osm.OsmPrimitive;
+import org.openstreetmap.josm.data.osm.OsmPrimitiveType;
+import org.openstreetmap.josm.data.osm.PrimitiveData;
+import org.openstreetmap.josm.data.osm.PrimitiveId;
+import org.openstreetmap.josm.data.osm.RelationData;
+import org.openstreetmap.josm.data.osm.RelationMemberData;
+import org.openstreetmap.josm.data.osm.SimplePrimitiveId;
+import org.openstreetmap.josm.data.osm.User;
+import org.openstreetmap.josm.data.osm.WayData;
+import org.openstreetmap.josm.tools.Logging;
+
+/**
+ * Journal of the changes of a dataset, used by autosave instead of rewriting the complete dataset periodically.
+ * <p>
+ * A journal file starts with a base snapshot of the dataset, followed by records of the primitives that have been
+ * changed or removed since. Primitives are stored in a compact binary form with their ids, including the negative
+ * ids of new primitives, so that records can refer to primitives of previous records. Each record is checksummed:
+ * a record truncated by a crash is detected, and ignored on recovery. Once enough changes have been appended,
+ * the journal should be compacted by writing a new base snapshot.
+ * <p>
+ * On recovery, the journal is replayed into an .osm file, see {@link #replay(File, File)}.
+ * @since 12685
+ */
+public class OsmJournal {
+
+    /** File extension of journals */
+    public static final String EXTENSION = "osmjournal";
+
+    private static final byte[] MAGIC = "JOSMJRNL".getBytes(StandardCharsets.US_ASCII);
+    private static final int FORMAT_VERSION = 1;
+    /** maximum number of primitives per record */
+    private static final int RECORD_SIZE = 10_000;
+
+    private static final byte RESET = 1;
+    private static final byte UPDATE = 0;
+
+    private static final byte MODIFIED = 1;
+    private static final byte DELETED = 2;
+    private static final byte INVISIBLE = 4;
+    private static final byte INCOMPLETE = 8;
+
+    private static final byte NO_USER = 0;
+    private static final byte OSM_USER = 1;
+    private static final byte LOCAL_USER = 2;
+
+    private final File file;
+    private long baseSize;
+    private long appendedSize;
+
+    /**
+     * Constructs a new {@code OsmJournal}.
+     * @param file the journal file
+     */
+    public OsmJournal(File file) {
+        this.file = file;
+    }
+
+    /**
+     * Returns the journal file.
+     * @return the journal file
+     */
+    public File getFile() {
+        return file;
+    }
+
+    /**
+     * Returns the size of the base snapshot.
+     * @return the size of the base snapshot, in bytes
+     */
+    public long getBaseSize() {
+        return baseSize;
+    }
+
+    /**
+     * Returns the size of the records appended since the base snapshot has been written.
+     * @return the size of the appended records, in bytes
+     */
+    public long getAppendedSize() {
+        return appendedSize;
+    }
+
+    /**
+     * Writes the base snapshot, replacing the content of the journal.
+     * The journal is written to a temporary file first, so that a crash does not leave an incomplete journal.
+     * @param snapshot the snapshot of the dataset
+     * @throws IOException if an I/O error occurs
+     */
+    public void writeBase(DataSetSnapshot snapshot) throws IOException {
+        File tmpFile = new File(file.getPath() + ".tmp");
+        try (FileChannel channel = FileChannel.open(tmpFile.toPath(),
+                StandardOpenOption.CREATE, StandardOpenOption.TRUNCATE_EXISTING, StandardOpenOption.WRITE)) {
+            ByteBuffer header = ByteBuffer.allocate(MAGIC.length + 4);
+            header.put(MAGIC).putInt(FORMAT_VERSION).flip();
+            write(channel, header);
+            Header h = new Header(snapshot.getVersion(), snapshot.getUploadPolicy(), snapshot.getDataSources());
+            List<PrimitiveData> primitives = new ArrayList<>(RECORD_SIZE);
+            byte[] kind = {RESET};
+            Consumer<PrimitiveData> add = data -> {
+                primitives.add(data);
+                if (primitives.size() == RECORD_SIZE) {
+                    writeRecord(channel, kind[0], h, primitives, null);
+                    kind[0] = UPDATE;
+                    primitives.clear();
+                }
+            };
+            try {
+                snapshot.forEachNode(add);
+                snapshot.forEachWay(add);
+                snapshot.forEachRelation(add);
+                writeRecord(channel, kind[0], h, primitives, null);
+            } catch (UncheckedIOException e) {
+                throw e.getCause();
+            }
+            channel.force(true);
+            baseSize = channel.size();
+        }
+        Files.move(tmpFile.toPath(), file.toPath(), StandardCopyOption.REPLACE_EXISTING);
+        appendedSize = 0;
+    }
+
+    /**
+     * Appends the current state of the given changed primitives, and the removal of the given primitives.
+     * @param ds the dataset
+     * @param changed the primitives that have been added or changed. Primitives that are no longer in the dataset are ignored
+     * @param removed the ids of the primitives that have been removed from the dataset
+     * @throws IOException if an I/O error occurs
+     */
+    public void append(DataSet ds, Collection<? extends OsmPrimitive> changed, Collection<? extends PrimitiveId> removed)
+            throws IOException {
+        try (FileChannel channel = FileChannel.open(file.toPath(), StandardOpenOption.WRITE, StandardOpenOption.APPEND)) {
+            long size = channel.size();
+            List<OsmPrimitive> all = new ArrayList<>(changed);
+            List<PrimitiveData> primitives = new ArrayList<>(Math.min(RECORD_SIZE, all.size()));
+            int start = 0;
+            do {
+                int end = Math.min(start + RECORD_SIZE, all.size());
+                Header h;
+                ds.getReadLock().lock();
+                try {
+                    h = new Header(ds.getVersion(), ds.getUploadPolicy(), ds.getDataSources());
+                    for (OsmPrimitive p : all.subList(start, end)) {
+                        if (p.getDataSet() == ds) {
+                            primitives.add(p.save());
+                        }
+                    }
+                } finally {
+                    ds.getReadLock().unlock();
+                }
+                // removals are written first, a primitive removed and added again is present
+                writeRecord(channel, UPDATE, h, primitives, start == 0 ? removed : null);
+                primitives.clear();
+                start = end;
+            } while (start < all.size());
+            channel.force(false);
+            appendedSize += channel.size() - size;
+        } catch (UncheckedIOException e) {
+            throw e.getCause();
+        }
+    }
+
+    /**
+     * Replays a journal: writes the dataset it describes to an .osm file, like {@link OsmWriter#writeSnapshot}.
+     * Records truncated or corrupted by a crash are ignored, with a warning.
+     * @param journal the journal file
+     * @param osmFile the .osm file to write
+     * @throws IOException if the journal cannot be read, or the .osm file cannot be written
+     */
+    public static void replay(File journal, File osmFile) throws IOException {
+        State state = read(journal);
+        try (OutputStream out = Files.newOutputStream(osmFile.toPath());
+             OsmWriter w = OsmWriterFactory.createOsmWriter(
+                     new PrintWriter(new OutputStreamWriter(out, StandardCharsets.UTF_8)), false, state.header.version)) {
+            w.header(state.header.uploadPolicy);
+            w.writeDataSources(state.header.dataSources);
+            w.setWithVisible(UploadPolicy.NORMAL.equals(state.header.uploadPolicy));
+            for (OsmPrimitiveType type : Arrays.asList(OsmPrimitiveType.NODE, OsmPrimitiveType.WAY, OsmPrimitiveType.RELATION)) {
+                List<PrimitiveData> primitives = new ArrayList<>();
+                for (Entry<PrimitiveId, PrimitiveData> e : state.primitives.entrySet()) {
+                    if (e.getKey().getType() == type) {
+                        primitives.add(e.getValue());
+                    }
+                }
+                primitives.sort(OsmWriter.byIdComparator);
+                primitives.forEach(w::writeData);
+            }
+            w.footer();
+        }
+    }
+
+    static State read(File journal) throws IOException {
+        State state = new State();
+        try (DataInputStream in = new DataInputStream(new BufferedInputStream(Files.newInputStream(journal.toPath())))) {
+            byte[] magic = new byte[MAGIC.length];
+            in.readFully(magic);
+            if (!Arrays.equals(MAGIC, magic) || in.readInt() != FORMAT_VERSION) {
+                throw new IOException("Not a JOSM journal: " + journal);
+            }
+            CRC32 crc = new CRC32();
+            long remaining = journal.length() - MAGIC.length - 4;
+            while (true) {
+                byte[] payload;
+                try {
+                    int length = in.readInt();
+                    long checksum = in.readInt() & 0xffffffffL;
+                    remaining -= 8;
+                    if (length < 0 || length > remaining) {
+                        Logging.warn("Ignoring corrupted end of journal " + journal);
+                        break;
+                    }
+                    remaining -= length;
+                    payload = new byte[length];
+                    in.readFully(payload);
+                    crc.reset();
+                    crc.update(payload);
+                    if (crc.getValue() != checksum) {
+                        Logging.warn("Ignoring corrupted end of journal " + journal);
+                        break;
+                    }
+                } catch (EOFException e) {
+                    Logging.trace(e);
+                    break;
+                }
+                state.apply(new DataInputStream(new ByteArrayInputStream(payload)));
+            }
+        } catch (EOFException e) {
+            throw new IOException("Not a JOSM journal: " + journal, e);
+        }
+        if (state.header == null) {
+            throw new IOException("Journal without base snapshot: " + journal);
+        }
+        return state;
+    }
+
+    private static void write(FileChannel channel, ByteBuffer buffer) throws IOException {
+        while (buffer.hasRemaining()) {
+            channel.write(buffer);
+        }
+    }
+
+    private static void writeRecord(FileChannel channel, byte kind, Header header, List<PrimitiveData> primitives,
+            Collection<? extends PrimitiveId> removed) {
+        try {
+            RecordOutput out = new RecordOutput();
+            out.writeByte(kind);
+            header.write(out);
+            out.writeInt(removed == null ? 0 : removed.size());
+            if (removed != null) {
+                for (PrimitiveId id : removed) {
+                    out.writeByte(id.getType().ordinal());
+                    out.writeLong(id.getUniqueId());
+                }
+            }
+            out.writeInt(primitives.size());
+            for (PrimitiveData data : primitives) {
+                out.writePrimitive(data);
+            }
+            out.flush();
+            byte[] payload = out.bytes.toByteArray();
+            CRC32 crc = new CRC32();
+            crc.update(payload);
+            ByteBuffer frame = ByteBuffer.allocate(8 + payload.length);
+            frame.putInt(payload.length).putInt((int) crc.getValue()).put(payload).flip();
+            write(channel, frame);
+        } catch (IOException e) {
+            throw new UncheckedIOException(e);
+        }
+    }
+
+    /**
+     * Dataset properties, written in each record.
+     */
+    private static final class Header {
+        private final String version;
+        private final UploadPolicy uploadPolicy;
+        private final List<DataSource> dataSources;
+
+        Header(String version, UploadPolicy uploadPolicy, Collection<DataSource> dataSources) {
+            this.version = version;
+            this.uploadPolicy = uploadPolicy;
+            this.dataSources = new ArrayList<>(dataSources);
+        }
+
+        void write(RecordOutput out) throws IOException {
+            out.writeString(version);
+            out.writeString(uploadPolicy != null ? uploadPolicy.name() : null);
+            out.writeInt(dataSources.size());
+            for (DataSource source : dataSources) {
+                out.writeDouble(source.bounds.getMinLat());
+                out.writeDouble(source.bounds.getMinLon());
+                out.writeDouble(source.bounds.getMaxLat());
+                out.writeDouble(source.bounds.getMaxLon());
+                out.writeString(source.origin);
+            }
+        }
+
+        static Header read(RecordInput in) throws IOException {
+            String version = in.readString();
+            String policy = in.readString();
+            int n = in.readInt();
+            List<DataSource> dataSources = new ArrayList<>(n);
+            for (int i = 0; i < n; i++) {
+                Bounds bounds = new Bounds(in.readDouble(), in.readDouble(), in.readDouble(), in.readDouble());
+                dataSources.add(new DataSource(bounds, in.readString()));
+            }
+            return new Header(version, policy != null ? UploadPolicy.valueOf(policy) : null, dataSources);
+        }
+    }
+
+    /**
+     * Writes the content of a record. Strings are written once per record, then referred to by index.
+     */
+    private static final class RecordOutput extends DataOutputStream {
+        private final ByteArrayOutputStream bytes;
+        private final Map<String, Integer> strings = new HashMap<>();
+
+        RecordOutput() {
+            this(new ByteArrayOutputStream());
+        }
+
+        private RecordOutput(ByteArrayOutputStream bytes) {
+            super(bytes);
+            this.bytes = bytes;
+        }
+
+        void writeString(String s) throws IOException {
+            if (s == null) {
+                writeInt(-1);
+                return;
+            }
+            Integer index = strings.get(s);
+            if (index != null) {
+                writeInt(index);
+            } else {
+                strings.put(s, strings.size());
+                byte[] utf8 = s.getBytes(StandardCharsets.UTF_8);
+                writeInt(-2);
+                writeInt(utf8.length);
+                write(utf8);
+            }
+        }
+
+        void writePrimitive(PrimitiveData data) throws IOException {
+            writeByte(data.getType().ordinal());
+            writeLong(data.getUniqueId());
+            writeInt(data.getVersion());
+            writeInt(data.getChangesetId());
+            writeInt(data.getRawTimestamp());
+            writeByte((data.isModified() ? MODIFIED : 0) | (data.isDeleted() ? DELETED : 0)
+                    | (data.isVisible() ? 0 : INVISIBLE) | (data.isIncomplete() ? INCOMPLETE : 0));
+            User user = data.getUser();
+            if (user == null) {
+                writeByte(NO_USER);
+            } else if (user.isOsmUser()) {
+                writeByte(OSM_USER);
+                writeLong(user.getId());
+                writeString(user.getName());
+            } else {
+                writeByte(LOCAL_USER);
+                writeString(user.getName());
+            }
+            Map<String, String> tags = data.getKeys();
+            writeInt(tags.size());
+            for (Entry<String, String> tag : tags.entrySet()) {
+                writeString(tag.getKey());
+                writeString(tag.getValue());
+            }
+            if (data instanceof NodeData) {
+                LatLon coor = ((NodeData) data).getCoor();
+                writeBoolean(coor != null);
+                if (coor != null) {
+                    writeDouble(coor.lat());
+                    writeDouble(coor.lon());
+                }
+            } else if (data instanceof WayData) {
+                List<Long> nodes = ((WayData) data).getNodes();
+                writeInt(nodes.size());
+                for (Long node : nodes) {
+                    writeLong(node);
+                }
+            } else if (data instanceof RelationData) {
+                List<RelationMemberData> members = ((RelationData) data).getMembers();
+                writeInt(members.size());
+                for (RelationMemberData member : members) {
+                    writeByte(member.getMemberType().ordinal());
+                    writeLong(member.getMemberId());
+                    writeString(member.getRole());
+                }
+            }
+        }
+    }
+
+    /**
+     * Reads the content of a record.
+     */
+    private static final class RecordInput extends DataInputStream {
+        private final List<String> strings = new ArrayList<>();
+        private final Map<String, User> localUsers;
+
+        RecordInput(InputStream in, Map<String, User> localUsers) {
+            super(in);
+            this.localUsers = localUsers;
+        }
+
+        String readString() throws IOException {
+            int index = readInt();
+            if (index == -1) {
+                return null;
+            } else if (index == -2) {
+                byte[] utf8 = new byte[readInt()];
+                readFully(utf8);
+                String s = new String(utf8, StandardCharsets.UTF_8);
+                strings.add(s);
+                return s;
+            }
+            return strings.get(index);
+        }
+
+        OsmPrimitiveType readType() throws IOException {
+            return OsmPrimitiveType.values()[readByte()];
+        }
+
+        PrimitiveData readPrimitive() throws IOException {
+            OsmPrimitiveType type = readType();
+            long id = readLong();
+            PrimitiveData data;
+            switch (type) {
+            case NODE: data = new NodeData(id); break;
+            case WAY: data = new WayData(id); break;
+            case RELATION: data = new RelationData(id); break;
+            default: throw new IOException("Unexpected primitive type: " + type);
+            }
+            data.setVersion(readInt());
+            data.setChangesetId(readInt());
+            data.setRawTimestamp(readInt());
+            byte flags = readByte();
+            switch (readByte()) {
+            case OSM_USER:
+                long uid = readLong();
+                data.setUser(User.createOsmUser(uid, readString()));
+                break;
+            case LOCAL_USER:
+                data.setUser(localUsers.computeIfAbsent(readString(), User::createLocalUser));
+                break;
+            default:
+                break;
+            }
+            int n = readInt();
+            Map<String, String> tags = new HashMap<>(n);
+            for (int i = 0; i < n; i++) {
+                tags.put(readString(), readString());
+            }
+            data.setKeys(tags);
+            if (data instanceof NodeData) {
+                if (readBoolean()) {
+                    ((NodeData) data).setCoor(new LatLon(readDouble(), readDouble()));
+                }
+            } else if (data instanceof WayData) {
+                int count = readInt();
+                List<Long> nodes = new ArrayList<>(count);
+                for (int i = 0; i < count; i++) {
+                    nodes.add(readLong());
+                }
+                ((WayData) data).setNodes(nodes);
+            } else {
+                int count = readInt();
+                List<RelationMemberData> members = new ArrayList<>(count);
+                for (int i = 0; i < count; i++) {
+                    OsmPrimitiveType memberType = readType();
+                    long memberId = readLong();
+                    members.add(new RelationMemberData(readString(), memberType, memberId));
+                }
+                ((RelationData) data).setMembers(members);
+            }
+            if ((flags & INVISIBLE) != 0) {
+                data.setVisible(false);
+            }
+            data.setDeleted((flags & DELETED) != 0);
+            data.setModified((flags & MODIFIED) != 0);
+            data.setIncomplete((flags & INCOMPLETE) != 0);
+            return data;
+        }
+    }
+
+    /**
+     * The dataset described by a journal.
+     */
+    static final class State {
+        private Header header;
+        private final Map<PrimitiveId, PrimitiveData> primitives = new LinkedHashMap<>();
+        private final Map<String, User> localUsers = new HashMap<>();
+
+        void apply(DataInputStream payload) throws IOException {
+            RecordInput in = new RecordInput(payload, localUsers);
+            if (in.readByte() == RESET) {
+                primitives.clear();
+            }
+            header = Header.read(in);
+            int removed = in.readInt();
+            for (int i = 0; i < removed; i++) {
+                OsmPrimitiveType type = in.readType();
+                primitives.remove(new SimplePrimitiveId(in.readLong(), type));
+            }
+            int changed = in.readInt();
+            for (int i = 0; i < changed; i++) {
+                PrimitiveData data = in.readPrimitive();
+                primitives.put(new SimplePrimitiveId(data.getUniqueId(), data.getType()), data);
+            }
+        }
+
+        /**
+         * Returns the primitives of the dataset.
+         * @return the primitives of the dataset
+         */
+        Collection<PrimitiveData> getPrimitives() {
+            return primitives.values();
+        }
+    }
+}
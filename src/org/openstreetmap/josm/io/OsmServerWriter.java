@@ -7,19 +7,30 @@ import static org.openstreetmap.josm.tools.I18n.trn;
 
 import java.util.ArrayList;
 import java.util.Collection;
+import java.util.HashSet;
 import java.util.Iterator;
 import java.util.LinkedList;
 import java.util.List;
+import java.util.Set;
+import java.util.concurrent.ExecutionException;
+import java.util.concurrent.ExecutorService;
+import java.util.concurrent.Executors;
+import java.util.concurrent.Future;
 import java.util.concurrent.TimeUnit;
 
 import org.openstreetmap.josm.data.osm.Changeset;
+import org.openstreetmap.josm.data.osm.Node;
 import org.openstreetmap.josm.data.osm.OsmPrimitive;
 import org.openstreetmap.josm.data.osm.OsmPrimitiveType;
+import org.openstreetmap.josm.data.osm.Relation;
+import org.openstreetmap.josm.data.osm.RelationMember;
+import org.openstreetmap.josm.data.osm.Way;
 import org.openstreetmap.josm.gui.JosmUserIdentityManager;
 import org.openstreetmap.josm.gui.io.UploadStrategySpecification;
 import org.openstreetmap.josm.gui.progress.NullProgressMonitor;
 import org.openstreetmap.josm.gui.progress.ProgressMonitor;
 import org.openstreetmap.josm.tools.CheckParameterUtil;
+import org.openstreetmap.josm.tools.Utils;
 
 /**
  * Class that uploads all changes to the osm server.
@@ -140,7 +151,11 @@ public class OsmServerWriter {
     }
 
     /**
-     * Upload all changes in one diff upload
+     * Upload all changes in chunks of diff uploads.
+     * <p>
+     * The upload is pipelined: the request of the next chunk is built in a background thread while the current
+     * chunk is uploaded, unless the next chunk refers to primitives created by the current chunk, whose ids
+     * are only known once the response of the server has been processed.
      *
      * @param primitives the collection of primitives to upload
      * @param progressMonitor  the progress monitor
@@ -152,33 +167,89 @@ public class OsmServerWriter {
             throws OsmTransferException {
         if (chunkSize <= 0)
             throw new IllegalArgumentException(tr("Value >0 expected for parameter ''{0}'', got {1}", "chunkSize", chunkSize));
+        ExecutorService requestBuilder = Executors.newSingleThreadExecutor(
+                Utils.newThreadFactory("upload-request-builder-%d", Thread.NORM_PRIORITY));
         try {
             progressMonitor.beginTask(tr("Starting to upload in chunks..."));
-            List<OsmPrimitive> chunk = new ArrayList<>(chunkSize);
+            List<List<OsmPrimitive>> chunks = new ArrayList<>();
             Iterator<? extends OsmPrimitive> it = primitives.iterator();
-            int numChunks = (int) Math.ceil((double) primitives.size() / (double) chunkSize);
-            int i = 0;
             while (it.hasNext()) {
-                i++;
-                if (canceled) return;
-                int j = 0;
-                chunk.clear();
-                while (it.hasNext() && j < chunkSize) {
-                    if (canceled) return;
-                    j++;
+                List<OsmPrimitive> chunk = new ArrayList<>(chunkSize);
+                while (it.hasNext() && chunk.size() < chunkSize) {
                     chunk.add(it.next());
                 }
+                chunks.add(chunk);
+            }
+            Future<byte[]> nextRequest = null;
+            for (int i = 0; i < chunks.size(); i++) {
+                if (canceled) return;
+                List<OsmPrimitive> chunk = chunks.get(i);
+                byte[] request = nextRequest != null ? getRequest(nextRequest) : api.buildDiffUploadRequest(chunk);
+                nextRequest = null;
+                if (i + 1 < chunks.size() && !refersToCreatedPrimitives(chunks.get(i + 1), chunk)) {
+                    List<OsmPrimitive> next = chunks.get(i + 1);
+                    nextRequest = requestBuilder.submit(() -> api.buildDiffUploadRequest(next));
+                }
                 progressMonitor.setCustomText(
                         trn("({0}/{1}) Uploading {2} object...",
                                 "({0}/{1}) Uploading {2} objects...",
-                                chunk.size(), i, numChunks, chunk.size()));
-                processed.addAll(api.uploadDiff(chunk, progressMonitor.createSubTaskMonitor(ProgressMonitor.ALL_TICKS, false)));
+                                chunk.size(), i + 1, chunks.size(), chunk.size()));
+                processed.addAll(api.uploadDiff(chunk, request, progressMonitor.createSubTaskMonitor(ProgressMonitor.ALL_TICKS, false)));
             }
         } finally {
+            requestBuilder.shutdownNow();
             progressMonitor.finishTask();
         }
     }
 
+    private static byte[] getRequest(Future<byte[]> request) throws OsmTransferException {
+        try {
+            return request.get();
+        } catch (InterruptedException e) {
+            Thread.currentThread().interrupt();
+            throw new OsmTransferCanceledException(e);
+        } catch (ExecutionException e) {
+            if (e.getCause() instanceof OsmTransferException)
+                throw (OsmTransferException) e.getCause();
+            throw new OsmTransferException(e.getCause());
+        }
+    }
+
+    /**
+     * Determines if the primitives of a chunk refer to new primitives uploaded in the previous chunk.
+     * If so, the request of the chunk cannot be built before the previous chunk has been uploaded.
+     * @param chunk the primitives of a chunk
+     * @param previous the primitives of the previous chunk
+     * @return {@code true} if a way or relation of {@code chunk} refers to a new primitive of {@code previous}
+     */
+    static boolean refersToCreatedPrimitives(Collection<? extends OsmPrimitive> chunk, Collection<? extends OsmPrimitive> previous) {
+        Set<OsmPrimitive> created = new HashSet<>();
+        for (OsmPrimitive p : previous) {
+            if (p.isNew()) {
+                created.add(p);
+            }
+        }
+        if (created.isEmpty())
+            return false;
+        for (OsmPrimitive p : chunk) {
+            if (p.isDeleted()) {
+                continue;
+            }
+            if (p instanceof Way) {
+                for (Node n : ((Way) p).getNodes()) {
+                    if (created.contains(n))
+                        return true;
+                }
+            } else if (p instanceof Relation) {
+                for (RelationMember m : ((Relation) p).getMembers()) {
+                    if (created.contains(m.getMember()))
+                        return true;
+                }
+            }
+        }
+        return false;
+    }
+
     /**
      * Send the dataset to the server.
      *
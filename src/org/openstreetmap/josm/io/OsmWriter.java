@@ -4,11 +4,14 @@ package org.openstreetmap.josm.io;
 import static org.openstreetmap.josm.tools.I18n.tr;
 
 import java.io.PrintWriter;
+import java.text.DecimalFormat;
 import java.util.ArrayList;
 import java.util.Collection;
 import java.util.Comparator;
 import java.util.Date;
+import java.util.HashMap;
 import java.util.List;
+import java.util.Map;
 import java.util.Map.Entry;
 
 import org.openstreetmap.josm.data.DataSource;
@@ -18,12 +21,14 @@ import org.openstreetmap.josm.data.osm.AbstractPrimitive;
 import org.openstreetmap.josm.data.osm.Changeset;
 import org.openstreetmap.josm.data.osm.DataSet;
 import org.openstreetmap.josm.data.osm.DataSet.UploadPolicy;
+import org.openstreetmap.josm.data.osm.DataSetSnapshot;
 import org.openstreetmap.josm.data.osm.INode;
 import org.openstreetmap.josm.data.osm.IPrimitive;
 import org.openstreetmap.josm.data.osm.IRelation;
 import org.openstreetmap.josm.data.osm.IWay;
 import org.openstreetmap.josm.data.osm.Node;
 import org.openstreetmap.josm.data.osm.OsmPrimitive;
+import org.openstreetmap.josm.data.osm.PrimitiveData;
 import org.openstreetmap.josm.data.osm.Relation;
 import org.openstreetmap.josm.data.osm.Tagged;
 import org.openstreetmap.josm.data.osm.Way;
@@ -41,12 +46,19 @@ public class OsmWriter extends XmlWriter implements PrimitiveVisitor {
     /** Default OSM API version */
     public static final String DEFAULT_API_VERSION = "0.6";
 
+    /** Maximum number of encoded tag keys, values and roles cached by a writer */
+    private static final int ENCODED_CACHE_SIZE = 10_000;
+
     private final boolean osmConform;
     private boolean withBody = true;
     private boolean withVisible = true;
     private boolean isOsmChange;
     private String version;
     private Changeset changeset;
+    /** Tag keys, values and roles are very repetitive, encode each of them once */
+    private Map<String, String> encoded = new HashMap<>();
+    /** DecimalFormat is not thread-safe, each writer needs its own instance */
+    private final DecimalFormat coordinateFormat = (DecimalFormat) LatLon.cDdHighPecisionFormatter.clone();
 
     /**
      * Constructs a new {@code OsmWriter}.
@@ -78,6 +90,14 @@ public class OsmWriter extends XmlWriter implements PrimitiveVisitor {
         this.withVisible = wv;
     }
 
+    /**
+     * Sets the cache of encoded tag keys, values and roles, so that it can be shared by several writers.
+     * @param encoded the cache, which must be thread-safe if the writers are used by different threads
+     */
+    void setEncodedCache(Map<String, String> encoded) {
+        this.encoded = encoded;
+    }
+
     public void setIsOsmChange(boolean isOsmChange) {
         this.isOsmChange = isOsmChange;
     }
@@ -136,6 +156,28 @@ public class OsmWriter extends XmlWriter implements PrimitiveVisitor {
         footer();
     }
 
+    /**
+     * Writes the given snapshot of a dataset: the data sources, then nodes, ways and relations sorted by id.
+     * The dataset can be edited while the snapshot is written.
+     * @param snapshot The snapshot to write
+     * @since 12681
+     */
+    public void writeSnapshot(DataSetSnapshot snapshot) {
+        header(snapshot.getUploadPolicy());
+        writeDataSources(snapshot.getDataSources());
+        setWithVisible(UploadPolicy.NORMAL.equals(snapshot.getUploadPolicy()));
+        snapshot.forEachNode(this::writeData);
+        snapshot.forEachWay(this::writeData);
+        snapshot.forEachRelation(this::writeData);
+        footer();
+    }
+
+    void writeData(PrimitiveData data) {
+        if (!data.isNewOrUndeleted() || !data.isDeleted()) {
+            data.accept(this);
+        }
+    }
+
     /**
      * Writes the contents of the given dataset (nodes, then ways, then relations)
      * @param ds The dataset to write
@@ -191,7 +233,16 @@ public class OsmWriter extends XmlWriter implements PrimitiveVisitor {
     }
 
     public void writeDataSources(DataSet ds) {
-        for (DataSource s : ds.getDataSources()) {
+        writeDataSources(ds.getDataSources());
+    }
+
+    /**
+     * Writes the given data sources as bounds.
+     * @param dataSources The data sources to write
+     * @since 12684
+     */
+    public void writeDataSources(Collection<DataSource> dataSources) {
+        for (DataSource s : dataSources) {
             out.println("  <bounds minlat='"
                     + s.bounds.getMin().latToString(CoordinateFormat.DECIMAL_DEGREES)
                     +"' minlon='"
@@ -212,8 +263,8 @@ public class OsmWriter extends XmlWriter implements PrimitiveVisitor {
             out.println("/>");
         } else {
             if (n.getCoor() != null) {
-                out.print(" lat='"+LatLon.cDdHighPecisionFormatter.format(n.getCoor().lat())+
-                          "' lon='"+LatLon.cDdHighPecisionFormatter.format(n.getCoor().lon())+'\'');
+                out.print(" lat='"+coordinateFormat.format(n.getCoor().lat())+
+                          "' lon='"+coordinateFormat.format(n.getCoor().lon())+'\'');
             }
             addTags(n, "node", true);
         }
@@ -246,7 +297,7 @@ public class OsmWriter extends XmlWriter implements PrimitiveVisitor {
                 out.print("    <member type='");
                 out.print(e.getMemberType(i).getAPIName());
                 out.println("' ref='"+e.getMemberId(i)+"' role='" +
-                        XmlWriter.encode(e.getRole(i)) + "' />");
+                        encodeCached(e.getRole(i)) + "' />");
             }
             addTags(e, "relation", false);
         }
@@ -289,8 +340,8 @@ public class OsmWriter extends XmlWriter implements PrimitiveVisitor {
             List<Entry<String, String>> entries = new ArrayList<>(osm.getKeys().entrySet());
             entries.sort(byKeyComparator);
             for (Entry<String, String> e : entries) {
-                out.println("    <tag k='"+ XmlWriter.encode(e.getKey()) +
-                        "' v='"+XmlWriter.encode(e.getValue())+ "' />");
+                out.println("    <tag k='"+ encodeCached(e.getKey()) +
+                        "' v='"+encodeCached(e.getValue())+ "' />");
             }
             out.println("  </" + tagname + '>');
         } else if (tagOpen) {
@@ -300,6 +351,17 @@ public class OsmWriter extends XmlWriter implements PrimitiveVisitor {
         }
     }
 
+    private String encodeCached(String unencoded) {
+        String result = encoded.get(unencoded);
+        if (result == null) {
+            result = XmlWriter.encode(unencoded);
+            if (result != null && encoded.size() < ENCODED_CACHE_SIZE) {
+                encoded.put(unencoded, result);
+            }
+        }
+        return result;
+    }
+
     /**
      * Add the common part as the form of the tag as well as the XML attributes
      * id, action, user, and visible.
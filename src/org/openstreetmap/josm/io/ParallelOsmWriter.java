@@ -0,0 +1,172 @@
+// License: GPL. For details, see LICENSE file.
+package org.openstreetmap.josm.io;
+
+import java.io.ByteArrayOutputStream;
+import java.io.IOException;
+import java.io.OutputStreamWriter;
+import java.io.PrintWriter;
+import java.io.UncheckedIOException;
+import java.nio.ByteBuffer;
+import java.nio.channels.WritableByteChannel;
+import java.nio.charset.StandardCharsets;
+import java.util.ArrayDeque;
+import java.util.ArrayList;
+import java.util.Deque;
+import java.util.List;
+import java.util.Map;
+import java.util.concurrent.ConcurrentHashMap;
+import java.util.concurrent.ExecutionException;
+import java.util.concurrent.ForkJoinPool;
+import java.util.concurrent.Future;
+import java.util.function.Consumer;
+
+import org.openstreetmap.josm.data.osm.DataSet.UploadPolicy;
+import org.openstreetmap.josm.data.osm.DataSetSnapshot;
+import org.openstreetmap.josm.data.osm.PrimitiveData;
+import org.openstreetmap.josm.data.preferences.IntegerProperty;
+import org.openstreetmap.josm.tools.Utils;
+
+/**
+ * Writes a snapshot of a dataset in the same format as {@link OsmWriter#writeSnapshot}, for large datasets.
+ * <p>
+ * The primitives are split into segments, which are encoded in parallel by {@link OsmWriter}s into UTF-8 byte
+ * buffers. The buffers are written in order to a channel, typically a {@link java.nio.channels.FileChannel}.
+ * The output is identical to the output of a single {@code OsmWriter}. Only a few segments are held in memory
+ * at once.
+ * @since 12684
+ */
+public class ParallelOsmWriter {
+
+    /**
+     * Minimum number of primitives of a dataset to save it with a {@code ParallelOsmWriter}.
+     */
+    public static final IntegerProperty PARALLEL_THRESHOLD = new IntegerProperty("save.parallel.threshold", 100_000);
+
+    private static final ForkJoinPool THREAD_POOL = Utils.newForkJoinPool(
+            "save.numberOfThreads", "osm-writer-%d", Thread.NORM_PRIORITY);
+
+    /** number of primitives encoded by a task */
+    private static final int SEGMENT_SIZE = 4096;
+
+    private final boolean osmConform;
+    private final String version;
+
+    private WritableByteChannel channel;
+    private boolean withVisible;
+    private List<PrimitiveData> segment;
+    /** encoded tag keys, values and roles, shared by the writers of all segments */
+    private Map<String, String> encoded;
+    private final Deque<Future<ByteBuffer>> pending = new ArrayDeque<>();
+
+    /**
+     * Constructs a new {@code ParallelOsmWriter}.
+     * @param osmConform if {@code true}, prevents modification attributes to be written to the common part
+     * @param version OSM API version (0.6)
+     */
+    public ParallelOsmWriter(boolean osmConform, String version) {
+        this.osmConform = osmConform;
+        this.version = version;
+    }
+
+    /**
+     * Writes the given snapshot of a dataset: the data sources, then nodes, ways and relations sorted by id.
+     * The dataset can be edited while the snapshot is written.
+     * @param snapshot The snapshot to write
+     * @param channel The channel to write to. It is not closed.
+     * @throws IOException if an I/O error occurs
+     */
+    public void writeSnapshot(DataSetSnapshot snapshot, WritableByteChannel channel) throws IOException {
+        this.channel = channel;
+        this.withVisible = UploadPolicy.NORMAL.equals(snapshot.getUploadPolicy());
+        this.segment = new ArrayList<>(SEGMENT_SIZE);
+        this.encoded = new ConcurrentHashMap<>();
+        try {
+            write(encode(w -> {
+                w.header(snapshot.getUploadPolicy());
+                w.writeDataSources(snapshot.getDataSources());
+            }));
+            snapshot.forEachNode(this::add);
+            snapshot.forEachWay(this::add);
+            snapshot.forEachRelation(this::add);
+            submitSegment();
+            while (!pending.isEmpty()) {
+                writePending();
+            }
+            write(encode(OsmWriter::footer));
+        } catch (UncheckedIOException e) {
+            throw e.getCause();
+        } finally {
+            for (Future<ByteBuffer> future : pending) {
+                future.cancel(false);
+            }
+            pending.clear();
+            this.channel = null;
+            this.segment = null;
+            this.encoded = null;
+        }
+    }
+
+    private void add(PrimitiveData data) {
+        segment.add(data);
+        if (segment.size() == SEGMENT_SIZE) {
+            submitSegment();
+        }
+    }
+
+    private void submitSegment() {
+        if (!segment.isEmpty()) {
+            List<PrimitiveData> primitives = segment;
+            segment = new ArrayList<>(SEGMENT_SIZE);
+            pending.add(THREAD_POOL.submit(() -> encode(w -> primitives.forEach(w::writeData))));
+            // keep a few segments ahead of the channel, to bound memory
+            while (pending.size() > 2 * THREAD_POOL.getParallelism()) {
+                writePending();
+            }
+        }
+    }
+
+    private void writePending() {
+        try {
+            write(pending.poll().get());
+        } catch (InterruptedException e) {
+            Thread.currentThread().interrupt();
+            throw new UncheckedIOException(new IOException(e));
+        } catch (ExecutionException e) {
+            throw new UncheckedIOException(new IOException(e.getCause()));
+        }
+    }
+
+    private void write(ByteBuffer buffer) {
+        try {
+            while (buffer.hasRemaining()) {
+                channel.write(buffer);
+            }
+        } catch (IOException e) {
+            throw new UncheckedIOException(e);
+        }
+    }
+
+    private ByteBuffer encode(Consumer<OsmWriter> action) {
+        Buffer buffer = new Buffer();
+        OsmWriter w = OsmWriterFactory.createOsmWriter(
+                new PrintWriter(new OutputStreamWriter(buffer, StandardCharsets.UTF_8)), osmConform, version);
+        w.setWithVisible(withVisible);
+        w.setEncodedCache(encoded);
+        action.accept(w);
+        w.flush();
+        return buffer.toByteBuffer();
+    }
+
+    /**
+     * Gives access to the bytes written without copying them.
+     */
+    private static final class Buffer extends ByteArrayOutputStream {
+        Buffer() {
+            super(SEGMENT_SIZE * 128);
+        }
+
+        ByteBuffer toByteBuffer() {
+            return ByteBuffer.wrap(buf, 0, count);
+        }
+    }
+}
@@ -0,0 +1,64 @@
+// License: GPL. For details, see LICENSE file.
+package org.openstreetmap.josm.io;
+
+import static org.openstreetmap.josm.tools.I18n.tr;
+
+import java.io.File;
+import java.io.IOException;
+
+import org.openstreetmap.josm.actions.ExtensionFileFilter;
+import org.openstreetmap.josm.data.Bounds;
+import org.openstreetmap.josm.data.imagery.TilePackage;
+import org.openstreetmap.josm.gui.MainApplication;
+import org.openstreetmap.josm.gui.layer.AbstractCachedTileSourceLayer;
+import org.openstreetmap.josm.gui.layer.ImageryLayer;
+import org.openstreetmap.josm.gui.progress.ProgressMonitor;
+import org.openstreetmap.josm.gui.util.GuiHelper;
+import org.openstreetmap.josm.tools.CheckParameterUtil;
+
+/**
+ * Opens an offline imagery package, previously exported from an imagery layer, as a new imagery layer.
+ * Tiles are read from the package, no network connection is needed.
+ * @since 12667
+ */
+public class TilePackageImporter extends FileImporter {
+
+    /**
+     * The file filter used in "open" and "save" dialogs for offline imagery packages.
+     */
+    public static final ExtensionFileFilter FILE_FILTER = new ExtensionFileFilter(
+            TilePackage.EXTENSION, TilePackage.EXTENSION, tr("Offline imagery packages (*.{0})", TilePackage.EXTENSION));
+
+    /**
+     * Constructs a new {@code TilePackageImporter}.
+     */
+    public TilePackageImporter() {
+        super(FILE_FILTER);
+    }
+
+    @Override
+    public void importData(File file, ProgressMonitor progressMonitor) throws IOException, IllegalDataException {
+        CheckParameterUtil.ensureParameterNotNull(file, "file");
+        TilePackage tilePackage = new TilePackage(file);
+        final ImageryLayer layer;
+        try {
+            layer = ImageryLayer.create(tilePackage.getImageryInfo());
+            if (!(layer instanceof AbstractCachedTileSourceLayer)) {
+                throw new IllegalDataException(tr("Imagery type of package {0} is not supported", file.getName()));
+            }
+            ((AbstractCachedTileSourceLayer<?>) layer).setTilePackage(tilePackage);
+        } catch (IllegalDataException | RuntimeException e) {
+            tilePackage.close();
+            throw e;
+        }
+        final Bounds bounds = tilePackage.getBounds();
+
+        // FIXME: remove UI stuff from IO subsystem
+        GuiHelper.runInEDT(() -> {
+            MainApplication.getLayerManager().addLayer(layer);
+            if (bounds != null) {
+                MainApplication.getMap().mapView.zoomTo(bounds);
+            }
+        });
+    }
+}
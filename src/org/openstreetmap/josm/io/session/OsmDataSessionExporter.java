@@ -1,13 +1,17 @@
 // License: GPL. For details, see LICENSE file.
 package org.openstreetmap.josm.io.session;
 
+import java.io.IOException;
 import java.io.OutputStream;
 import java.io.OutputStreamWriter;
 import java.io.PrintWriter;
 import java.io.Writer;
 import java.nio.charset.StandardCharsets;
 
+import org.openstreetmap.josm.data.osm.DataSetSnapshot;
+import org.openstreetmap.josm.data.preferences.BooleanProperty;
 import org.openstreetmap.josm.gui.layer.OsmDataLayer;
+import org.openstreetmap.josm.io.OsmBinaryWriter;
 import org.openstreetmap.josm.io.OsmWriter;
 import org.openstreetmap.josm.io.OsmWriterFactory;
 
@@ -17,24 +21,44 @@ import org.openstreetmap.josm.io.OsmWriterFactory;
  */
 public class OsmDataSessionExporter extends GenericSessionExporter<OsmDataLayer> {
 
+    /**
+     * Defines if data included in session files is written in the binary format of {@link OsmBinaryWriter},
+     * which is much faster to load than .osm files, but cannot be read by older versions of JOSM.
+     * @since 12686
+     */
+    public static final BooleanProperty BINARY = new BooleanProperty("session.osm-data.binary", false);
+
+    /** File extension of binary OSM data in session files */
+    static final String BINARY_EXTENSION = "osmbin";
+
+    private final boolean binary;
+
     /**
      * Constructs a new {@code OsmDataSessionExporter}.
      * @param layer Data layer to export
      */
     public OsmDataSessionExporter(OsmDataLayer layer) { // NO_UCD (test only)
-        super(layer, "osm-data", "0.1", "osm");
+        this(layer, BINARY.get());
+    }
+
+    private OsmDataSessionExporter(OsmDataLayer layer, boolean binary) {
+        super(layer, "osm-data", "0.1", binary ? BINARY_EXTENSION : "osm");
+        this.binary = binary;
     }
 
     @Override
-    protected void addDataFile(OutputStream out) {
+    protected void addDataFile(OutputStream out) throws IOException {
+        if (binary) {
+            try (DataSetSnapshot snapshot = layer.data.createSnapshot()) {
+                new OsmBinaryWriter(out).writeSnapshot(snapshot);
+            }
+            return;
+        }
         Writer writer = new OutputStreamWriter(out, StandardCharsets.UTF_8);
         OsmWriter w = OsmWriterFactory.createOsmWriter(new PrintWriter(writer), false, layer.data.getVersion());
-        layer.data.getReadLock().lock();
-        try {
-            w.writeLayer(layer);
+        try (DataSetSnapshot snapshot = layer.data.createSnapshot()) {
+            w.writeSnapshot(snapshot);
             w.flush();
-        } finally {
-            layer.data.getReadLock().unlock();
         }
     }
 }
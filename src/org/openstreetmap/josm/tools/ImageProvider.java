@@ -669,6 +669,19 @@ public class ImageProvider {
                 : CompletableFuture.completedFuture(getResource());
     }
 
+    /**
+     * Load the image in a background thread, including local images.
+     *
+     * Unlike {@link #getResourceAsync()}, this method always returns immediately. The images are loaded one after
+     * another, by the same thread as remote images.
+     *
+     * @return the future of the requested image
+     * @since 12688
+     */
+    public CompletableFuture<ImageResource> getResourceInBackground() {
+        return CompletableFuture.supplyAsync(this::getResource, IMAGE_FETCHER);
+    }
+
     /**
      * Load an image with a given file name.
      *
@@ -1807,6 +1820,41 @@ public class ImageProvider {
         }
     }
 
+    /**
+     * Converts the given image to a standard pixel layout that Java2D can draw (and image filters can process)
+     * without converting its colour model on each paint. Images using indexed, grayscale or custom colour models
+     * are converted to {@link BufferedImage#TYPE_3BYTE_BGR}, or {@link BufferedImage#TYPE_4BYTE_ABGR} if they are
+     * not opaque. Images already using a standard RGB layout are returned unchanged.
+     * @param img the image to convert, can be null
+     * @return the converted image, or {@code img} if no conversion is needed
+     * @since 12664
+     */
+    public static BufferedImage toStandardImageType(BufferedImage img) {
+        if (img == null) {
+            return null;
+        }
+        switch (img.getType()) {
+        case BufferedImage.TYPE_3BYTE_BGR:
+        case BufferedImage.TYPE_4BYTE_ABGR:
+        case BufferedImage.TYPE_4BYTE_ABGR_PRE:
+        case BufferedImage.TYPE_INT_RGB:
+        case BufferedImage.TYPE_INT_ARGB:
+        case BufferedImage.TYPE_INT_ARGB_PRE:
+        case BufferedImage.TYPE_INT_BGR:
+            return img;
+        default:
+            int type = img.getTransparency() == Transparency.OPAQUE ? BufferedImage.TYPE_3BYTE_BGR : BufferedImage.TYPE_4BYTE_ABGR;
+            BufferedImage result = new BufferedImage(img.getWidth(), img.getHeight(), type);
+            Graphics2D g = result.createGraphics();
+            try {
+                g.drawImage(img, 0, 0, null);
+            } finally {
+                g.dispose();
+            }
+            return result;
+        }
+    }
+
     /**
      * Returns a transparent version of the given image, based on the given transparent color.
      * @param bi The image to convert
@@ -9,6 +9,10 @@ import java.util.HashMap;
 import java.util.HashSet;
 import java.util.Map;
 import java.util.Set;
+import java.util.concurrent.ForkJoinPool;
+import java.util.concurrent.ForkJoinTask;
+import java.util.concurrent.RecursiveAction;
+import java.util.function.IntConsumer;
 
 /**
  * Image warping algorithm.
@@ -18,6 +22,14 @@ import java.util.Set;
  */
 public class ImageWarp {
 
+    private static final ForkJoinPool THREAD_POOL =
+            Utils.newForkJoinPool("imagery.warp.numberOfThreads", "image-warp-%d", Thread.NORM_PRIORITY);
+
+    /**
+     * Number of rows that are processed directly by one worker of {@link #warpParallel}.
+     */
+    private static final int STRIPE_HEIGHT = 32;
+
     /**
      * Transformation that translates the pixel coordinates.
      */
@@ -122,6 +134,103 @@ public class ImageWarp {
         }
     }
 
+    /**
+     * Transform that spans a grid with certain step size over a target image of known dimension
+     * and evaluates the potentially expensive master transform at all grid points up front.
+     * Values in between are approximated by bilinear interpolation.
+     * <p>
+     * Unlike {@link GridTransform}, this transform is random access and immutable once constructed,
+     * so it can be used by several threads at once (see {@link ImageWarp#warpParallel}) and reused
+     * to warp several images of the same geometry.
+     * @since 12665
+     */
+    public static class PrecomputedGridTransform implements ImageWarp.PointTransform {
+
+        private final double stride;
+        private final int columns;
+        private final int rows;
+        private final double[] xValues;
+        private final double[] yValues;
+
+        /**
+         * Create a new PrecomputedGridTransform. The grid points are computed in parallel.
+         * @param trfm the master transform, that needs to be optimized. It must be thread-safe
+         * @param stride step size
+         * @param targetDim dimension of the target image the grid has to cover
+         */
+        public PrecomputedGridTransform(ImageWarp.PointTransform trfm, double stride, Dimension targetDim) {
+            this.stride = stride;
+            this.columns = (int) Math.floor(targetDim.width / stride) + 2;
+            this.rows = (int) Math.floor(targetDim.height / stride) + 2;
+            this.xValues = new double[columns * rows];
+            this.yValues = new double[columns * rows];
+            runInStripes(rows, yIdx -> {
+                for (int xIdx = 0; xIdx < columns; xIdx++) {
+                    Point2D val = trfm.transform(new Point2D.Double(xIdx * stride, yIdx * stride));
+                    xValues[yIdx * columns + xIdx] = val.getX();
+                    yValues[yIdx * columns + xIdx] = val.getY();
+                }
+            });
+        }
+
+        @Override
+        public Point2D transform(Point2D pt) {
+            int xIdx = Utils.clamp((int) Math.floor(pt.getX() / stride), 0, columns - 2);
+            int yIdx = Utils.clamp((int) Math.floor(pt.getY() / stride), 0, rows - 2);
+            double dx = pt.getX() / stride - xIdx;
+            double dy = pt.getY() / stride - yIdx;
+            int i00 = yIdx * columns + xIdx;
+            int i10 = i00 + 1;
+            int i01 = i00 + columns;
+            int i11 = i01 + 1;
+            double valueX = (xValues[i00] * (1-dx) + xValues[i10] * dx) * (1-dy) +
+                    (xValues[i01] * (1-dx) + xValues[i11] * dx) * dy;
+            double valueY = (yValues[i00] * (1-dx) + yValues[i10] * dx) * (1-dy) +
+                    (yValues[i01] * (1-dx) + yValues[i11] * dx) * dy;
+            return new Point2D.Double(valueX, valueY);
+        }
+    }
+
+    /**
+     * Worker that processes a range of rows, splitting it into stripes of {@link #STRIPE_HEIGHT} rows.
+     */
+    private static class StripeWorker extends RecursiveAction {
+
+        private static final long serialVersionUID = 1L;
+
+        private final int from;
+        private final int to;
+        private final transient IntConsumer rowAction;
+
+        StripeWorker(int from, int to, IntConsumer rowAction) {
+            this.from = from;
+            this.to = to;
+            this.rowAction = rowAction;
+        }
+
+        @Override
+        protected void compute() {
+            if (to - from <= STRIPE_HEIGHT) {
+                for (int row = from; row < to; row++) {
+                    rowAction.accept(row);
+                }
+            } else {
+                int middle = from + (to - from) / 2;
+                ForkJoinTask.invokeAll(new StripeWorker(from, middle, rowAction), new StripeWorker(middle, to, rowAction));
+            }
+        }
+    }
+
+    private static void runInStripes(int rows, IntConsumer rowAction) {
+        if (rows <= STRIPE_HEIGHT) {
+            for (int row = 0; row < rows; row++) {
+                rowAction.accept(row);
+            }
+        } else {
+            THREAD_POOL.invoke(new StripeWorker(0, rows, rowAction));
+        }
+    }
+
     /**
      * Interpolation method.
      */
@@ -151,26 +260,52 @@ public class ImageWarp {
      * @return the warped image
      */
     public static BufferedImage warp(BufferedImage srcImg, Dimension targetDim, PointTransform invTransform, Interpolation interpolation) {
-        BufferedImage imgTarget = new BufferedImage(targetDim.width, targetDim.height, BufferedImage.TYPE_INT_ARGB);
-        Rectangle2D srcRect = new Rectangle2D.Double(0, 0, srcImg.getWidth(), srcImg.getHeight());
-        for (int j = 0; j < imgTarget.getHeight(); j++) {
-            for (int i = 0; i < imgTarget.getWidth(); i++) {
+        return warp(srcImg, targetDim, invTransform, interpolation, false);
+    }
+
+    /**
+     * Warp an image, processing stripes of rows in parallel.
+     * @param srcImg the original image
+     * @param targetDim dimension of the target image
+     * @param invTransform inverse transformation (translates pixel coordinates
+     * of the target image to pixel coordinates of the original image). It must be thread-safe and
+     * random access, like {@link PrecomputedGridTransform}, i.e. not a {@link GridTransform}
+     * @param interpolation the interpolation method
+     * @return the warped image
+     * @since 12665
+     */
+    public static BufferedImage warpParallel(BufferedImage srcImg, Dimension targetDim, PointTransform invTransform,
+            Interpolation interpolation) {
+        return warp(srcImg, targetDim, invTransform, interpolation, true);
+    }
+
+    private static BufferedImage warp(BufferedImage srcImg, Dimension targetDim, PointTransform invTransform,
+            Interpolation interpolation, boolean parallel) {
+        final int srcWidth = srcImg.getWidth();
+        final int srcHeight = srcImg.getHeight();
+        final int targetWidth = targetDim.width;
+        // read source pixels once, getRGB per pixel is slow for most image types
+        final int[] src = srcImg.getRGB(0, 0, srcWidth, srcHeight, null, 0, srcWidth);
+        final int[] target = new int[targetWidth * targetDim.height];
+        Rectangle2D srcRect = new Rectangle2D.Double(0, 0, srcWidth, srcHeight);
+        IntConsumer rowAction = j -> {
+            for (int i = 0; i < targetWidth; i++) {
                 Point2D srcCoord = invTransform.transform(new Point2D.Double(i, j));
                 if (srcRect.contains(srcCoord)) {
                     int rgba;
                     switch (interpolation) {
                         case NEAREST_NEIGHBOR:
-                            rgba = getColor((int) Math.round(srcCoord.getX()), (int) Math.round(srcCoord.getY()), srcImg);
+                            rgba = getColor((int) Math.round(srcCoord.getX()), (int) Math.round(srcCoord.getY()), src, srcWidth, srcHeight);
                             break;
                         case BILINEAR:
                             int x0 = (int) Math.floor(srcCoord.getX());
                             double dx = srcCoord.getX() - x0;
                             int y0 = (int) Math.floor(srcCoord.getY());
                             double dy = srcCoord.getY() - y0;
-                            int c00 = getColor(x0, y0, srcImg);
-                            int c01 = getColor(x0, y0 + 1, srcImg);
-                            int c10 = getColor(x0 + 1, y0, srcImg);
-                            int c11 = getColor(x0 + 1, y0 + 1, srcImg);
+                            int c00 = getColor(x0, y0, src, srcWidth, srcHeight);
+                            int c01 = getColor(x0, y0 + 1, src, srcWidth, srcHeight);
+                            int c10 = getColor(x0 + 1, y0, src, srcWidth, srcHeight);
+                            int c11 = getColor(x0 + 1, y0 + 1, src, srcWidth, srcHeight);
                             rgba = 0;
                             // loop over color components: blue, green, red, alpha
                             for (int ch = 0; ch <= 3; ch++) {
@@ -184,17 +319,24 @@ public class ImageWarp {
                         default:
                             throw new AssertionError();
                     }
-                    imgTarget.setRGB(i, j, rgba);
+                    target[j * targetWidth + i] = rgba;
                 }
             }
+        };
+        if (parallel) {
+            runInStripes(targetDim.height, rowAction);
+        } else {
+            for (int j = 0; j < targetDim.height; j++) {
+                rowAction.accept(j);
+            }
         }
+        BufferedImage imgTarget = new BufferedImage(targetWidth, targetDim.height, BufferedImage.TYPE_INT_ARGB);
+        imgTarget.setRGB(0, 0, targetWidth, targetDim.height, target, 0, targetWidth);
         return imgTarget;
     }
 
-    private static int getColor(int x, int y, BufferedImage img) {
+    private static int getColor(int x, int y, int[] pixels, int width, int height) {
         // border strategy: continue with the color of the outermost pixel,
-        return img.getRGB(
-                Utils.clamp(x, 0, img.getWidth() - 1),
-                Utils.clamp(y, 0, img.getHeight() - 1));
+        return pixels[Utils.clamp(y, 0, height - 1) * width + Utils.clamp(x, 0, width - 1)];
     }
 }
@@ -64,6 +64,51 @@ public class XmlObjectParser implements Iterable<Object> {
         }
     }
 
+    /**
+     * A source of SAX events, e.g. events recorded while parsing a XML document earlier.
+     * @since 12688
+     */
+    @FunctionalInterface
+    public interface EventSource {
+        /**
+         * Sends the SAX events to the given handler.
+         * @param handler the handler receiving the events
+         * @throws SAXException if any error occurs
+         */
+        void send(ContentHandler handler) throws SAXException;
+    }
+
+    /**
+     * Forwards the element and character events to a second handler, e.g. to record them.
+     */
+    private static class RecordingFilter extends XMLFilterImpl {
+
+        private final ContentHandler recorder;
+
+        RecordingFilter(ContentHandler handler, ContentHandler recorder) {
+            setContentHandler(handler);
+            this.recorder = recorder;
+        }
+
+        @Override
+        public void startElement(String uri, String localName, String qName, Attributes atts) throws SAXException {
+            recorder.startElement(uri, localName, qName, atts);
+            super.startElement(uri, localName, qName, atts);
+        }
+
+        @Override
+        public void endElement(String uri, String localName, String qName) throws SAXException {
+            recorder.endElement(uri, localName, qName);
+            super.endElement(uri, localName, qName);
+        }
+
+        @Override
+        public void characters(char[] ch, int start, int length) throws SAXException {
+            recorder.characters(ch, start, length);
+            super.characters(ch, start, length);
+        }
+    }
+
     private class Parser extends DefaultHandler {
         private final Stack<Object> current = new Stack<>();
         private StringBuilder characters = new StringBuilder(64);
@@ -276,6 +321,36 @@ public class XmlObjectParser implements Iterable<Object> {
         }
     }
 
+    /**
+     * Starts parsing from the given input reader, without validation.
+     * The start and end of elements and their characters are sent to the given recorder as well.
+     * @param in The input reader
+     * @param recorder content handler receiving the element and character events
+     * @return iterable collection of objects
+     * @throws SAXException if any XML or I/O error occurs
+     * @since 12688
+     */
+    public Iterable<Object> startRecording(final Reader in, ContentHandler recorder) throws SAXException {
+        try {
+            return start(in, new RecordingFilter(parser, recorder));
+        } catch (IOException e) {
+            throw new SAXException(e);
+        }
+    }
+
+    /**
+     * Starts parsing from the given SAX events, without parsing any XML document.
+     * @param source the source of SAX events, for instance events recorded by {@link #startRecording}
+     * @return iterable collection of objects
+     * @throws SAXException if any error occurs
+     * @since 12688
+     */
+    public Iterable<Object> start(EventSource source) throws SAXException {
+        source.send(parser);
+        queueIterator = queue.iterator();
+        return this;
+    }
+
     /**
      * Starts parsing from the given input reader, with XSD validation.
      * @param in The input reader
@@ -0,0 +1,92 @@
+// License: GPL. For details, see LICENSE file.
+package org.openstreetmap.josm.data.osm;
+
+import static org.junit.Assert.assertEquals;
+
+import java.io.File;
+import java.io.IOException;
+import java.io.InputStream;
+
+import org.junit.BeforeClass;
+import org.junit.Rule;
+import org.junit.Test;
+import org.junit.rules.Timeout;
+import org.openstreetmap.josm.JOSMFixture;
+import org.openstreetmap.josm.PerformanceTestUtils;
+import org.openstreetmap.josm.io.Compression;
+import org.openstreetmap.josm.io.IllegalDataException;
+import org.openstreetmap.josm.io.OsmReader;
+
+import edu.umd.cs.findbugs.annotations.SuppressFBWarnings;
+
+/**
+ * This test measures the throughput of {@link DataSetMerger}, merging sequentially and in parallel.
+ * <p>
+ * For this, we use the neubrandenburg-file, which is a good real world example of an OSM file.
+ */
+public class DataSetMergerPerformanceTest {
+    private static final int TIMES = 5;
+    private static final String DATA_FILE = "data_nodist/neubrandenburg.osm.bz2";
+
+    /**
+     * Global timeout applied to all test methods.
+     */
+    @Rule
+    @SuppressFBWarnings(value = "URF_UNREAD_PUBLIC_OR_PROTECTED_FIELD")
+    public Timeout globalTimeout = Timeout.seconds(15*60);
+
+    /**
+     * Prepare the test.
+     */
+    @BeforeClass
+    public static void createJOSMFixture() {
+        JOSMFixture.createPerformanceTestFixture().init(true);
+    }
+
+    private static DataSet read() throws IOException, IllegalDataException {
+        try (InputStream is = Compression.getUncompressedFileInputStream(new File(DATA_FILE))) {
+            return OsmReader.parseDataSet(is, null);
+        }
+    }
+
+    /**
+     * Merges a download into an empty layer: all primitives are added.
+     * @throws Exception if an error occurs
+     */
+    @Test
+    public void testMergeIntoEmpty() throws Exception {
+        runTest("new", false);
+    }
+
+    /**
+     * Merges a download into a layer containing the same data: all primitives are looked up and merged.
+     * @throws Exception if an error occurs
+     */
+    @Test
+    public void testMergeIntoExisting() throws Exception {
+        runTest("existing", true);
+    }
+
+    private void runTest(String what, boolean existing) throws IOException, IllegalDataException {
+        for (boolean parallel : new boolean[] {false, true}) {
+            DataSetMerger.PARALLEL_THRESHOLD.put(parallel ? 0 : Integer.MAX_VALUE);
+            long time = 0;
+            int size = 0;
+            for (int i = 0; i < TIMES; i++) {
+                DataSet target = existing ? read() : new DataSet();
+                DataSet source = read();
+                size = source.allPrimitives().size();
+                long start = System.nanoTime();
+                DataSetMerger merger = new DataSetMerger(target, source);
+                merger.merge();
+                time += (System.nanoTime() - start) / 1000000;
+                assertEquals(size, target.allPrimitives().size());
+                assertEquals(0, merger.getConflicts().size());
+            }
+            String name = "merge into " + what + (parallel ? " (parallel)" : " (sequential)");
+            PerformanceTestUtils.measurementPlotsPluginOutput(name + " [ms]", (double) time / TIMES);
+            PerformanceTestUtils.measurementPlotsPluginOutput(name + " [primitives/s]", 1000.0 * size * TIMES / Math.max(time, 1));
+        }
+        DataSetMerger.PARALLEL_THRESHOLD.remove();
+    }
+}
@@ -18,6 +18,7 @@ import org.openstreetmap.josm.JOSMFixture;
 import org.openstreetmap.josm.PerformanceTestUtils;
 import org.openstreetmap.josm.PerformanceTestUtils.PerformanceTestTimer;
 import org.openstreetmap.josm.data.osm.DataSet;
+import org.openstreetmap.josm.data.osm.DataSetSnapshot;
 
 import edu.umd.cs.findbugs.annotations.SuppressFBWarnings;
 
@@ -65,6 +66,27 @@ public class OsmReaderPerformanceTest {
         runTest(".osm-file", true);
     }
 
+    /**
+     * Simulates a plain read of the same data in the binary format of {@link OsmBinaryWriter} (from memory)
+     * @throws Exception if an error occurs
+     */
+    @Test
+    public void testBinary() throws Exception {
+        ByteArrayOutputStream binary = new ByteArrayOutputStream();
+        try (DataSetSnapshot snapshot = OsmReader.parseDataSet(loadFile(true), null).createSnapshot()) {
+            new OsmBinaryWriter(binary).writeSnapshot(snapshot);
+        }
+        InputStream is = new ByteArrayInputStream(binary.toByteArray());
+        PerformanceTestTimer timer = PerformanceTestUtils.startTimer("load binary " + TIMES + " times");
+        DataSet ds = null;
+        for (int i = 0; i < TIMES; i++) {
+            is.reset();
+            ds = OsmBinaryReader.parseDataSet(is, null);
+        }
+        timer.done();
+        assertNotNull(ds);
+    }
+
     private void runTest(String what, boolean decompressBeforeRead) throws IllegalDataException, IOException {
         InputStream is = loadFile(decompressBeforeRead);
         PerformanceTestTimer timer = PerformanceTestUtils.startTimer("load " + what + " " + TIMES + " times");
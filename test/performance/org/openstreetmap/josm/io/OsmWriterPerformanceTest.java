@@ -0,0 +1,109 @@
+// License: GPL. For details, see LICENSE file.
+package org.openstreetmap.josm.io;
+
+import java.io.File;
+import java.io.IOException;
+import java.io.InputStream;
+import java.io.OutputStream;
+import java.io.OutputStreamWriter;
+import java.io.PrintWriter;
+import java.nio.channels.Channels;
+import java.nio.channels.WritableByteChannel;
+import java.nio.charset.StandardCharsets;
+
+import org.junit.BeforeClass;
+import org.junit.Rule;
+import org.junit.Test;
+import org.junit.rules.Timeout;
+import org.openstreetmap.josm.JOSMFixture;
+import org.openstreetmap.josm.PerformanceTestUtils;
+import org.openstreetmap.josm.data.osm.DataSet;
+import org.openstreetmap.josm.data.osm.DataSetSnapshot;
+
+import edu.umd.cs.findbugs.annotations.SuppressFBWarnings;
+
+/**
+ * This test measures how fast we are at writing an OSM file, with {@link OsmWriter} and {@link ParallelOsmWriter}.
+ * <p>
+ * For this, we use the neubrandenburg-file, which is a good real world example of an OSM file. We ignore disk access times.
+ */
+public class OsmWriterPerformanceTest {
+    private static final int TIMES = 4;
+    private static final String DATA_FILE = "data_nodist/neubrandenburg.osm.bz2";
+
+    private static DataSet ds;
+
+    /**
+     * Global timeout applied to all test methods.
+     */
+    @Rule
+    @SuppressFBWarnings(value = "URF_UNREAD_PUBLIC_OR_PROTECTED_FIELD")
+    public Timeout globalTimeout = Timeout.seconds(15*60);
+
+    /**
+     * Prepare the test.
+     * @throws Exception if the data cannot be loaded
+     */
+    @BeforeClass
+    public static void createJOSMFixture() throws Exception {
+        JOSMFixture.createPerformanceTestFixture().init(true);
+        try (InputStream is = Compression.getUncompressedFileInputStream(new File(DATA_FILE))) {
+            ds = OsmReader.parseDataSet(is, null);
+        }
+    }
+
+    /**
+     * Writes the dataset with {@link OsmWriter}.
+     * @throws IOException never
+     */
+    @Test
+    public void testOsmWriter() throws IOException {
+        runTest("OsmWriter", false);
+    }
+
+    /**
+     * Writes the dataset with {@link ParallelOsmWriter}.
+     * @throws IOException never
+     */
+    @Test
+    public void testParallelOsmWriter() throws IOException {
+        runTest("ParallelOsmWriter", true);
+    }
+
+    private static void runTest(String what, boolean parallel) throws IOException {
+        long time = 0;
+        int size = 0;
+        for (int i = 0; i < TIMES; i++) {
+            try (DataSetSnapshot snapshot = ds.createSnapshot()) {
+                size = snapshot.size();
+                long start = System.nanoTime();
+                OutputStream out = new NullOutputStream();
+                if (parallel) {
+                    try (WritableByteChannel channel = Channels.newChannel(out)) {
+                        new ParallelOsmWriter(false, ds.getVersion()).writeSnapshot(snapshot, channel);
+                    }
+                } else {
+                    try (OsmWriter w = OsmWriterFactory.createOsmWriter(
+                            new PrintWriter(new OutputStreamWriter(out, StandardCharsets.UTF_8)), false, ds.getVersion())) {
+                        w.writeSnapshot(snapshot);
+                    }
+                }
+                time += (System.nanoTime() - start) / 1000000;
+            }
+        }
+        PerformanceTestUtils.measurementPlotsPluginOutput("write " + what + " [ms]", (double) time / TIMES);
+        PerformanceTestUtils.measurementPlotsPluginOutput("write " + what + " [primitives/s]", 1000.0 * size * TIMES / Math.max(time, 1));
+    }
+
+    private static class NullOutputStream extends OutputStream {
+        @Override
+        public void write(int b) {
+            // discard
+        }
+
+        @Override
+        public void write(byte[] b, int off, int len) {
+            // discard
+        }
+    }
+}
@@ -9,8 +9,16 @@ import static org.junit.Assert.assertTrue;
 
 import java.net.MalformedURLException;
 import java.net.URL;
+import java.util.ArrayList;
+import java.util.Arrays;
 import java.util.Collection;
+import java.util.Collections;
+import java.util.List;
 import java.util.Map;
+import java.util.concurrent.CountDownLatch;
+import java.util.concurrent.ExecutorService;
+import java.util.concurrent.Executors;
+import java.util.concurrent.TimeUnit;
 
 import org.junit.Rule;
 import org.junit.Test;
@@ -18,6 +26,7 @@ import org.openstreetmap.josm.Main.InitStatusListener;
 import org.openstreetmap.josm.Main.InitializationTask;
 import org.openstreetmap.josm.io.OnlineResource;
 import org.openstreetmap.josm.testutils.JOSMTestRules;
+import org.openstreetmap.josm.tools.JosmRuntimeException;
 
 import edu.umd.cs.findbugs.annotations.SuppressFBWarnings;
 
@@ -150,4 +159,43 @@ public class MainTest {
         assertTrue(listener.updated);
         assertTrue(listener.finished);
     }
+
+    /**
+     * Unit test of {@link Main#runInitializationTasks} with the default order and declared dependencies.
+     * @throws InterruptedException if the test is interrupted
+     */
+    @Test
+    public void testRunInitializationTasks() throws InterruptedException {
+        List<String> done = Collections.synchronizedList(new ArrayList<>());
+        CountDownLatch latch = new CountDownLatch(1);
+        ExecutorService service = Executors.newFixedThreadPool(3);
+        try {
+            InitializationTask first = new InitializationTask("first", () -> done.add("first"));
+            InitializationTask waiting = new InitializationTask("waiting", () -> {
+                try {
+                    // only possible if the independent parallel task does not wait for the tasks run before
+                    assertTrue(latch.await(10, TimeUnit.SECONDS));
+                } catch (InterruptedException e) {
+                    throw new JosmRuntimeException(e);
+                }
+                done.add("waiting");
+            });
+            InitializationTask independent = new InitializationTask("independent", () -> {
+                done.add("independent");
+                latch.countDown();
+            }).dependsOn();
+            InitializationTask dependent = new InitializationTask("dependent", () -> done.add("dependent")).dependsOn(first);
+            InitializationTask parallel = new InitializationTask("parallel", () -> done.add("parallel"));
+            InitializationTask last = new InitializationTask("last", () -> done.add("last"));
+            Main.runInitializationTasks(service, Arrays.asList(first, waiting), Arrays.asList(independent, dependent, parallel),
+                    Collections.singletonList(last));
+            assertEquals(6, done.size());
+            assertTrue(done.indexOf("independent") < done.indexOf("waiting"));
+            assertTrue(done.indexOf("first") < done.indexOf("dependent"));
+            assertTrue(done.indexOf("waiting") < done.indexOf("parallel"));
+            assertEquals("last", done.get(5));
+        } finally {
+            service.shutdownNow();
+        }
+    }
 }
@@ -106,6 +106,32 @@ public class ChangePropertyCommandTest {
         assertFalse(node2.isModified());
     }
 
+    /**
+     * Checks that {@link ChangePropertyCommand} can be undone after {@link Command#compactUndoData()}
+     */
+    @Test
+    public void testCompactUndoData() {
+        Node node1 = testData.createNode(14);
+        Node node2 = testData.createNode(15);
+        node1.put("name", "test");
+        node1.put("note", "kept");
+
+        ChangePropertyCommand command = new ChangePropertyCommand(Arrays.<OsmPrimitive>asList(node1, node2), "name", "new");
+        command.executeCommand();
+        long size = command.estimateMemoryUsage();
+        command.compactUndoData();
+        assertTrue(command.estimateMemoryUsage() < size);
+        assertEquals("test", command.getOrig(node1).get("name"));
+
+        command.undoCommand();
+        assertEquals("test", node1.get("name"));
+        assertEquals("kept", node1.get("note"));
+        assertEquals("existing", node2.get("existing"));
+        assertNull(node2.get("name"));
+        assertFalse(node1.isModified());
+        assertFalse(node2.isModified());
+    }
+
     /**
      * Checks that {@link ChangePropertyCommand} adds/updates multiple properties
      */
@@ -0,0 +1,87 @@
+// License: GPL. For details, see LICENSE file.
+package org.openstreetmap.josm.data.cache;
+
+import static org.junit.Assert.assertEquals;
+import static org.junit.Assert.assertNull;
+import static org.junit.Assert.assertTrue;
+
+import java.io.IOException;
+import java.util.concurrent.TimeUnit;
+
+import org.apache.commons.jcs.access.CacheAccess;
+import org.junit.Rule;
+import org.junit.Test;
+import org.openstreetmap.josm.data.cache.CacheMetrics.Operation;
+import org.openstreetmap.josm.testutils.JOSMTestRules;
+
+import edu.umd.cs.findbugs.annotations.SuppressFBWarnings;
+
+/**
+ * Unit tests for class {@link CacheMetrics}.
+ */
+public class CacheMetricsTest {
+
+    /**
+     * Setup test.
+     */
+    @Rule
+    @SuppressFBWarnings(value = "URF_UNREAD_PUBLIC_OR_PROTECTED_FIELD")
+    public JOSMTestRules test = new JOSMTestRules().preferences();
+
+    /**
+     * Test that cache operations are recorded.
+     * @throws IOException if any I/O error occurs
+     */
+    @Test
+    public void testCacheOperations() throws IOException {
+        CacheAccess<String, String> cache = JCSCacheManager.getCache("testCacheMetrics", 2, 100, "foobar");
+        cache.clear();
+        CacheMetrics metrics = CacheMetrics.forRegion("testCacheMetrics");
+        metrics.reset();
+
+        cache.put("a", "1");
+        cache.put("b", "2");
+        cache.put("c", "3");
+        assertEquals(3, metrics.getCount(Operation.WRITE));
+        // elements are spooled to disk in chunks, the most recent one stays in memory
+        assertTrue(metrics.getMemorySize() < 3);
+        assertEquals(3 - metrics.getMemorySize(), metrics.getMemoryEvictions());
+
+        assertEquals("3", cache.get("c"));
+        assertEquals(1, metrics.getCount(Operation.MEMORY_HIT));
+        assertEquals("1", cache.get("a"));
+        assertEquals(1, metrics.getCount(Operation.DISK_HIT));
+        assertNull(cache.get("x"));
+        assertEquals(1, metrics.getCount(Operation.MISS));
+        assertEquals(2.0 / 3, metrics.getHitRate(), 1e-9);
+        assertTrue(metrics.getCount(Operation.DISK_READ) >= 2);
+
+        StringBuilder sb = new StringBuilder();
+        CacheMetrics.dumpAll(sb);
+        assertTrue(sb.toString(), sb.toString().contains("Region testCacheMetrics: hit rate 66.7%"));
+
+        metrics.reset();
+        assertEquals(0, metrics.getCount(Operation.WRITE));
+        assertEquals(0, metrics.getMemoryEvictions());
+    }
+
+    /**
+     * Test latency histogram.
+     */
+    @Test
+    public void testHistogram() {
+        CacheMetrics metrics = CacheMetrics.forRegion("testHistogram");
+        metrics.reset();
+        for (int i = 0; i < 99; i++) {
+            metrics.record(Operation.MISS, TimeUnit.MICROSECONDS.toNanos(10));
+        }
+        metrics.record(Operation.MISS, TimeUnit.MILLISECONDS.toNanos(5));
+        CacheMetrics.Histogram h = metrics.getHistogram(Operation.MISS);
+        assertEquals(100, h.getCount());
+        assertEquals(16, h.getPercentile(0.5));
+        assertEquals(16, h.getPercentile(0.99));
+        assertEquals(5000, h.getPercentile(1));
+        assertEquals(5000, h.getMax());
+        assertEquals((99 * 10 + 5000) / 100.0, h.getMean(), 1e-9);
+    }
+}
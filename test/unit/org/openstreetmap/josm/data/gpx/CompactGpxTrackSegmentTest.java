@@ -0,0 +1,142 @@
+// License: GPL. For details, see LICENSE file.
+package org.openstreetmap.josm.data.gpx;
+
+import static org.junit.Assert.assertEquals;
+import static org.junit.Assert.assertSame;
+import static org.junit.Assert.assertTrue;
+
+import java.util.ArrayList;
+import java.util.Collections;
+import java.util.Date;
+import java.util.List;
+import java.util.concurrent.atomic.AtomicInteger;
+
+import org.junit.Rule;
+import org.junit.Test;
+import org.openstreetmap.josm.data.coor.EastNorth;
+import org.openstreetmap.josm.data.coor.ILatLon;
+import org.openstreetmap.josm.data.coor.LatLon;
+import org.openstreetmap.josm.data.projection.Projecting;
+import org.openstreetmap.josm.data.projection.Projection;
+import org.openstreetmap.josm.data.projection.Projections;
+import org.openstreetmap.josm.data.projection.ShiftedProjecting;
+import org.openstreetmap.josm.testutils.JOSMTestRules;
+
+import edu.umd.cs.findbugs.annotations.SuppressFBWarnings;
+
+/**
+ * Unit tests for class {@link CompactGpxTrackSegment}.
+ */
+public class CompactGpxTrackSegmentTest {
+
+    /**
+     * Setup test.
+     */
+    @Rule
+    @SuppressFBWarnings(value = "URF_UNREAD_PUBLIC_OR_PROTECTED_FIELD")
+    public JOSMTestRules test = new JOSMTestRules().preferences();
+
+    private static List<WayPoint> createWayPoints() {
+        List<WayPoint> points = new ArrayList<>();
+        for (int i = 0; i < 100; i++) {
+            WayPoint wpt = new WayPoint(new LatLon(47 + i * 0.001, 8 - i * 0.0013));
+            if (i % 10 != 3) {
+                wpt.setTime(new Date(1_500_000_000_000L + i * 1500L));
+            }
+            if (i % 2 == 0) {
+                wpt.put(GpxConstants.PT_ELE, Float.toString(400 + i * 0.1f));
+            } else if (i % 3 == 0) {
+                wpt.put(GpxConstants.PT_ELE, Integer.toString(400 + i));
+            } else if (i % 5 == 0) {
+                wpt.put(GpxConstants.PT_ELE, "0400.50");
+            }
+            if (i % 7 == 0) {
+                wpt.put("speed", Double.toString(1.0 / (i + 3)));
+            } else if (i % 7 == 1) {
+                wpt.put("speed", "12.5");
+            }
+            if (i % 11 == 0) {
+                wpt.put("hdop", 1.5f);
+                wpt.addExtension("heartrate", "120");
+            }
+            points.add(wpt);
+        }
+        // time attribute, that does not match the time field
+        points.get(5).put(GpxConstants.PT_TIME, "2017-07-14T02:40:00.000+00:00");
+        return points;
+    }
+
+    /**
+     * Test that the way points are restored with all their attributes.
+     */
+    @Test
+    public void testWayPoints() {
+        List<WayPoint> points = createWayPoints();
+        CompactGpxTrackSegment segment = new CompactGpxTrackSegment(points);
+        ImmutableGpxTrackSegment expected = new ImmutableGpxTrackSegment(points);
+        assertEquals(points.size(), segment.size());
+        assertEquals(points, new ArrayList<>(segment.getWayPoints()));
+        assertEquals(expected.getBounds(), segment.getBounds());
+        assertEquals(expected.length(), segment.length(), 1e-6);
+        assertEquals(new CompactGpxTrackSegment(points), segment);
+    }
+
+    /**
+     * Test that the way points are created once, as long as memory allows.
+     */
+    @Test
+    public void testUpdateCount() {
+        CompactGpxTrackSegment segment = new CompactGpxTrackSegment(createWayPoints());
+        assertEquals(0, segment.getUpdateCount());
+        assertSame(segment.getWayPoints(), segment.getWayPoints());
+        assertEquals(1, segment.getUpdateCount());
+    }
+
+    /**
+     * Test that large segments of immutable tracks are stored compactly.
+     */
+    @Test
+    public void testImmutableGpxTrack() {
+        CompactGpxTrackSegment.MIN_POINTS.put(50);
+        List<WayPoint> points = createWayPoints();
+        ImmutableGpxTrack track = new ImmutableGpxTrack(
+                Collections.singletonList(points), Collections.emptyMap());
+        assertTrue(track.getSegments().iterator().next() instanceof CompactGpxTrackSegment);
+        track = new ImmutableGpxTrack(Collections.singletonList(points.subList(0, 10)), Collections.emptyMap());
+        assertTrue(track.getSegments().iterator().next() instanceof ImmutableGpxTrackSegment);
+    }
+
+    /**
+     * Test that projected coordinates are kept in the segment and restored in created way points.
+     */
+    @Test
+    public void testEastNorthCache() {
+        Projection projection = Projections.getProjectionByCode("EPSG:3857");
+        AtomicInteger projected = new AtomicInteger();
+        // counts the points projected again, with the cache key of the projection
+        Projecting counting = new ShiftedProjecting(projection, new EastNorth(0, 0)) {
+            @Override
+            public EastNorth latlon2eastNorth(ILatLon ll) {
+                projected.incrementAndGet();
+                return super.latlon2eastNorth(ll);
+            }
+
+            @Override
+            public Object getCacheKey() {
+                return projection.getCacheKey();
+            }
+        };
+        CompactGpxTrackSegment segment = new CompactGpxTrackSegment(createWayPoints());
+        segment.updateEastNorthCache(projection);
+        for (WayPoint wpt : segment.getWayPoints()) {
+            EastNorth expected = projection.latlon2eastNorth(wpt.getCoor());
+            EastNorth actual = wpt.getEastNorth(counting);
+            assertEquals(expected.east(), actual.east(), 1e-6);
+            assertEquals(expected.north(), actual.north(), 1e-6);
+        }
+        assertEquals(0, projected.get());
+        segment.invalidateEastNorthCache();
+        segment.getWayPoints().forEach(wpt -> wpt.getEastNorth(counting));
+        assertEquals(segment.size(), projected.get());
+    }
+}
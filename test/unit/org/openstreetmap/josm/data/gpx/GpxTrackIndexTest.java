@@ -0,0 +1,198 @@
+// License: GPL. For details, see LICENSE file.
+package org.openstreetmap.josm.data.gpx;
+
+import static org.junit.Assert.assertEquals;
+import static org.junit.Assert.assertFalse;
+import static org.junit.Assert.assertNotNull;
+import static org.junit.Assert.assertNotSame;
+import static org.junit.Assert.assertSame;
+
+import java.util.ArrayList;
+import java.util.Arrays;
+import java.util.Collections;
+import java.util.List;
+
+import org.junit.Rule;
+import org.junit.Test;
+import org.openstreetmap.josm.Main;
+import org.openstreetmap.josm.data.Bounds;
+import org.openstreetmap.josm.data.coor.EastNorth;
+import org.openstreetmap.josm.data.coor.LatLon;
+import org.openstreetmap.josm.io.GpxReaderTest;
+import org.openstreetmap.josm.testutils.JOSMTestRules;
+import org.openstreetmap.josm.tools.Geometry;
+
+import edu.umd.cs.findbugs.annotations.SuppressFBWarnings;
+
+/**
+ * Unit tests for class {@link GpxTrackIndex}.
+ */
+public class GpxTrackIndexTest {
+
+    /**
+     * Setup test.
+     */
+    @Rule
+    @SuppressFBWarnings(value = "URF_UNREAD_PUBLIC_OR_PROTECTED_FIELD")
+    public JOSMTestRules test = new JOSMTestRules().preferences().projection();
+
+    /**
+     * Test that searching the index finds the same runs as checking all runs.
+     * @throws Exception if the test data cannot be read
+     */
+    @Test
+    public void testSearch() throws Exception {
+        GpxData data = GpxReaderTest.parseGpxData("data_nodist/munich.gpx");
+        GpxTrackIndex index = data.getTrackIndex();
+        List<GpxTrackIndex.Run> runs = index.getRuns();
+        assertFalse(runs.isEmpty());
+        int points = 0;
+        for (GpxTrackIndex.Run run : runs) {
+            points += run.getTo() - run.getFrom();
+        }
+        assertEquals(data.getTrackPoints().count(), points);
+
+        for (Bounds box : new Bounds[] {new Bounds(48.1, 11.5, 48.15, 11.6), new Bounds(48.2, 11.4, 48.21, 11.41),
+                new Bounds(0, 0, 1, 1), new Bounds(-90, -180, 90, 180)}) {
+            List<GpxTrackIndex.Run> expected = new ArrayList<>();
+            for (GpxTrackIndex.Run run : runs) {
+                if (run.getBounds() != null && run.getBounds().intersects(box)) {
+                    expected.add(run);
+                }
+            }
+            assertEquals(box.toString(), expected, index.search(box));
+        }
+    }
+
+    /**
+     * Test that long segments are split into runs, and that the index is dropped when the data changes.
+     */
+    @Test
+    public void testRuns() {
+        List<WayPoint> points = new ArrayList<>();
+        for (int i = 0; i < 1000; i++) {
+            points.add(new WayPoint(new LatLon(48 + i * 0.0001, 11)));
+        }
+        GpxData data = new GpxData();
+        data.addTrack(new ImmutableGpxTrack(Collections.singletonList(points), Collections.emptyMap()));
+        GpxTrackIndex index = data.getTrackIndex();
+        assertSame(index, data.getTrackIndex());
+        List<GpxTrackIndex.Run> runs = index.getRuns();
+        assertEquals((1000 + GpxTrackIndex.RUN_SIZE - 1) / GpxTrackIndex.RUN_SIZE, runs.size());
+        GpxTrackIndex.Run second = runs.get(1);
+        assertEquals(GpxTrackIndex.RUN_SIZE, second.getFrom());
+        assertSame(points.get(GpxTrackIndex.RUN_SIZE - 1), second.getPrevious());
+        assertEquals(Collections.singletonList(second), index.search(new Bounds(new LatLon(48.0065, 11))));
+
+        data.addTrack(new ImmutableGpxTrack(Collections.singletonList(Collections.singletonList(new WayPoint(LatLon.ZERO))),
+                Collections.emptyMap()));
+        assertNotSame(index, data.getTrackIndex());
+        GpxTrackIndex.Run last = data.getTrackIndex().getRuns().get(runs.size());
+        assertEquals(1, last.getTrackIndex());
+        assertSame(points.get(999), last.getPrevious());
+    }
+
+    /**
+     * Test {@link GpxData#nearestPointOnTrack} on a long segment.
+     */
+    @Test
+    public void testNearestPointOnTrack() {
+        List<WayPoint> points = new ArrayList<>();
+        for (int i = 0; i < 1000; i++) {
+            WayPoint wpt = new WayPoint(Main.getProjection().eastNorth2latlon(new EastNorth(i * 10, (i % 2) * 10)));
+            wpt.time = i;
+            points.add(wpt);
+        }
+        GpxData data = new GpxData();
+        data.addTrack(new ImmutableGpxTrack(Collections.singletonList(points), Collections.emptyMap()));
+        // on the line between the points 639 and 640, at the border of two runs
+        WayPoint close = data.nearestPointOnTrack(new EastNorth(6395, 5.5), 2);
+        assertNotNull(close);
+        assertEquals(639.5, close.time, 0.05);
+        // first and last points
+        assertEquals(0, data.nearestPointOnTrack(new EastNorth(-1, -1), 2).time, 0);
+        assertEquals(999, data.nearestPointOnTrack(new EastNorth(9991, 11), 2).time, 0);
+    }
+
+    /**
+     * Test {@link GpxTrackIndex#computeTolerances}.
+     */
+    @Test
+    public void testTolerances() {
+        List<WayPoint> points = new ArrayList<>();
+        for (int i = 0; i < 5; i++) {
+            points.add(new WayPoint(new LatLon(0, i * 0.001)));
+        }
+        // about 11 m north of the line
+        points.set(2, new WayPoint(new LatLon(0.0001, 0.002)));
+        float[] tolerances = GpxTrackIndex.computeTolerances(points);
+        assertEquals(Float.POSITIVE_INFINITY, tolerances[0], 0);
+        assertEquals(Float.POSITIVE_INFINITY, tolerances[4], 0);
+        assertEquals(11.1, tolerances[2], 0.1);
+        // about 5.6 m to the lines from the end points to the point 2
+        assertEquals(5.6, tolerances[1], 0.1);
+        assertEquals(5.6, tolerances[3], 0.1);
+
+        // a point far from a short line is limited to the tolerance of the point splitting the enclosing line
+        tolerances = GpxTrackIndex.computeTolerances(Arrays.asList(points.get(0), new WayPoint(new LatLon(-0.00015, 0.001)),
+                new WayPoint(new LatLon(0.0002, 0.002)), points.get(4)));
+        assertEquals(22.2, tolerances[2], 0.1);
+        assertEquals(tolerances[2], tolerances[1], 0);
+        assertEquals(0, GpxTrackIndex.computeTolerances(Arrays.asList(points.get(0), points.get(4), points.get(4)))[1], 0);
+        assertEquals(Float.POSITIVE_INFINITY, GpxTrackIndex.computeTolerances(Collections.singletonList(points.get(0)))[0], 0);
+    }
+
+    /**
+     * Test that the tolerances give the Douglas-Peucker simplifications of a real track.
+     * @throws Exception if the test data cannot be read
+     */
+    @Test
+    public void testSimplification() throws Exception {
+        GpxData data = GpxReaderTest.parseGpxData("data_nodist/munich.gpx");
+        GpxTrackIndex index = data.getTrackIndex();
+        for (GpxTrack track : data.getTracks()) {
+            for (GpxTrackSegment segment : track.getSegments()) {
+                List<WayPoint> points = GpxTrackIndex.asList(segment.getWayPoints());
+                float[] tolerances = index.getTolerances(segment);
+                assertEquals(points.size(), tolerances.length);
+                for (double tolerance : new double[] {1, 10, 100}) {
+                    boolean[] expected = new boolean[points.size()];
+                    expected[0] = true;
+                    expected[points.size() - 1] = true;
+                    simplify(points, 0, points.size() - 1, tolerance, expected);
+                    for (int i = 0; i < tolerances.length; i++) {
+                        assertEquals(Integer.toString(i), expected[i], tolerances[i] >= tolerance);
+                    }
+                }
+            }
+        }
+    }
+
+    /**
+     * Recursive Douglas-Peucker simplification.
+     */
+    private static void simplify(List<WayPoint> points, int from, int to, double tolerance, boolean[] keep) {
+        double scaleX = Math.cos(Math.toRadians(points.get(0).lat()));
+        int split = -1;
+        double maxDist = 0;
+        for (int i = from + 1; i < to; i++) {
+            double dist = distance(points.get(i), points.get(from), points.get(to), scaleX);
+            if (dist > maxDist) {
+                maxDist = dist;
+                split = i;
+            }
+        }
+        if (split >= 0 && maxDist >= tolerance) {
+            keep[split] = true;
+            simplify(points, from, split, tolerance, keep);
+            simplify(points, split, to, tolerance, keep);
+        }
+    }
+
+    private static double distance(WayPoint p, WayPoint a, WayPoint b, double scaleX) {
+        EastNorth en = new EastNorth(p.lon() * scaleX, p.lat());
+        EastNorth closest = Geometry.closestPointToSegment(new EastNorth(a.lon() * scaleX, a.lat()),
+                new EastNorth(b.lon() * scaleX, b.lat()), en);
+        return Math.toRadians(en.distance(closest)) * 6_371_000;
+    }
+}
@@ -4,6 +4,11 @@ package org.openstreetmap.josm.data.imagery;
 import static org.junit.Assert.assertEquals;
 import static org.junit.Assert.assertTrue;
 
+import java.text.DecimalFormat;
+import java.text.DecimalFormatSymbols;
+import java.text.NumberFormat;
+import java.util.Locale;
+
 import org.junit.Rule;
 import org.junit.Test;
 import org.openstreetmap.gui.jmapviewer.TileXY;
@@ -151,6 +156,29 @@ public class TemplatedWMSTileSourceTest {
         verifyLocation(source, new LatLon(60, 18.1));
     }
 
+    /**
+     * Test GetMap requests covering several tiles at once (meta tiles).
+     */
+    @Test
+    public void testMetaTileUrl() {
+        Projection projection = Projections.getProjectionByCode("EPSG:3857");
+        Main.setProjection(projection);
+        ImageryInfo info = new ImageryInfo("test imagery",
+                "http://localhost/?w={w}&s={s}&e={e}&n={n}&width={width}&height={height}", "wms", null, null);
+        info.setMetaTileSize(2);
+        TemplatedWMSTileSource source = new TemplatedWMSTileSource(info, projection);
+        assertEquals(2, source.getMetaTileSize());
+        int size = source.getTileSize();
+        EastNorth nw = source.getTileEastNorth(2, 4, 5);
+        EastNorth se = source.getTileEastNorth(4, 7, 5);
+        NumberFormat format = new DecimalFormat("###0.0000000", new DecimalFormatSymbols(Locale.US));
+        assertEquals("http://localhost/?w=" + format.format(nw.east()) + "&s=" + format.format(se.north())
+                + "&e=" + format.format(se.east()) + "&n=" + format.format(nw.north())
+                + "&width=" + (2 * size) + "&height=" + (3 * size),
+                source.getTileUrl(5, 2, 4, 2, 3));
+        assertEquals(source.getTileUrl(5, 2, 4), source.getTileUrl(5, 2, 4, 1, 1));
+    }
+
     private void verifyMercatorTile(TemplatedWMSTileSource source, int x, int y, int z) {
         TemplatedTMSTileSource verifier = new TemplatedTMSTileSource(testImageryTMS);
         LatLon result = getTileLatLon(source, x, y, z);
@@ -0,0 +1,123 @@
+// License: GPL. For details, see LICENSE file.
+package org.openstreetmap.josm.data.imagery;
+
+import static org.junit.Assert.assertArrayEquals;
+import static org.junit.Assert.assertEquals;
+import static org.junit.Assert.assertNull;
+
+import java.io.File;
+import java.io.IOException;
+import java.nio.charset.StandardCharsets;
+import java.nio.file.Files;
+import java.util.Arrays;
+import java.util.Collections;
+
+import org.junit.Rule;
+import org.junit.Test;
+import org.openstreetmap.josm.data.Bounds;
+import org.openstreetmap.josm.data.imagery.ImageryInfo.ImageryType;
+import org.openstreetmap.josm.testutils.JOSMTestRules;
+import org.openstreetmap.josm.tools.Utils;
+
+import edu.umd.cs.findbugs.annotations.SuppressFBWarnings;
+
+/**
+ * Unit tests for class {@link TilePackage}.
+ */
+public class TilePackageTest {
+
+    /**
+     * Setup test.
+     */
+    @Rule
+    @SuppressFBWarnings(value = "URF_UNREAD_PUBLIC_OR_PROTECTED_FIELD")
+    public JOSMTestRules test = new JOSMTestRules().preferences();
+
+    private static byte[] content(String s) {
+        return s.getBytes(StandardCharsets.UTF_8);
+    }
+
+    /**
+     * Test writing and reading a package.
+     * @throws IOException if an I/O error occurs
+     */
+    @Test
+    public void testWriteRead() throws IOException {
+        File file = File.createTempFile("josm.TilePackageTest", "." + TilePackage.EXTENSION);
+        try {
+            ImageryInfo info = new ImageryInfo("test imagery", "http://localhost/{zoom}/{x}/{y}.png", "tms", null, null);
+            Bounds bounds = new Bounds(50, 19, 51, 20);
+            try (TilePackage.Writer writer = new TilePackage.Writer(file, info, "EPSG:3857", bounds, 10, 12)) {
+                // tiles are added out of order
+                writer.addTile(12, 2270, 1323, content("c"));
+                writer.addTile(10, 567, 330, content("a"));
+                writer.addTile(11, 1135, 661, content("b"));
+                writer.addTile(11, 1135, 662, new byte[0]);
+                writer.addTile(10, 567, 330, content("duplicate"));
+                assertEquals(5, writer.getTileCount());
+            }
+            try (TilePackage tilePackage = new TilePackage(file)) {
+                assertEquals(4, tilePackage.getTileCount());
+                assertArrayEquals(content("a"), tilePackage.getTile(10, 567, 330));
+                assertArrayEquals(content("b"), tilePackage.getTile(11, 1135, 661));
+                assertArrayEquals(new byte[0], tilePackage.getTile(11, 1135, 662));
+                assertArrayEquals(content("c"), tilePackage.getTile(12, 2270, 1323));
+                assertNull(tilePackage.getTile(12, 2270, 1324));
+                assertNull(tilePackage.getTile(13, 0, 0));
+                assertEquals("EPSG:3857", tilePackage.getProjectionCode());
+                assertEquals(10, tilePackage.getMinZoom());
+                assertEquals(12, tilePackage.getMaxZoom());
+                assertEquals(bounds, tilePackage.getBounds());
+
+                ImageryInfo offline = tilePackage.getImageryInfo();
+                assertEquals(ImageryType.TMS, offline.getImageryType());
+                assertEquals(info.getUrl(), offline.getUrl());
+                assertEquals(10, offline.getMinZoom());
+                assertEquals(12, offline.getMaxZoom());
+            }
+            TilePackage closed = new TilePackage(file);
+            closed.close();
+            assertNull(closed.getTile(10, 567, 330));
+            closed.close();
+        } finally {
+            Utils.deleteFile(file);
+        }
+    }
+
+    /**
+     * Test that tiles of WMS packages are requested in the projection of the package.
+     * @throws IOException if an I/O error occurs
+     */
+    @Test
+    public void testWmsProjection() throws IOException {
+        File file = File.createTempFile("josm.TilePackageTest", "." + TilePackage.EXTENSION);
+        try {
+            ImageryInfo info = new ImageryInfo("test imagery", "http://localhost/?bbox={bbox}", "wms", null, null);
+            info.setServerProjections(Arrays.asList("EPSG:4326", "EPSG:2180"));
+            try (TilePackage.Writer writer = new TilePackage.Writer(file, info, "EPSG:2180", null, 5, 5)) {
+                writer.addTile(5, 1, 1, content("a"));
+            }
+            try (TilePackage tilePackage = new TilePackage(file)) {
+                assertNull(tilePackage.getBounds());
+                assertEquals(Collections.singletonList("EPSG:2180"), tilePackage.getImageryInfo().getServerProjections());
+            }
+        } finally {
+            Utils.deleteFile(file);
+        }
+    }
+
+    /**
+     * Test that other files are rejected.
+     * @throws IOException if an I/O error occurs
+     */
+    @Test(expected = IOException.class)
+    public void testInvalidFile() throws IOException {
+        File file = File.createTempFile("josm.TilePackageTest", "." + TilePackage.EXTENSION);
+        try {
+            Files.write(file.toPath(), content("this is not an imagery package, but it is long enough"));
+            new TilePackage(file).close();
+        } finally {
+            Utils.deleteFile(file);
+        }
+    }
+}
@@ -1054,4 +1054,65 @@ public class DataSetMergerTest {
         assertEquals(new LatLon(1, 1), n.getCoor());
         assertTrue(n.isModified());
     }
+
+    /**
+     * Creates a dataset of nodes in ways, with some changes depending on the version.
+     * @param version version of the primitives
+     * @param modified modulo of ids of the modified primitives
+     * @return a new dataset
+     */
+    private static DataSet createData(int version, int modified) {
+        DataSet ds = new DataSet();
+        ds.setVersion("0.6");
+        Node[] nodes = new Node[2000];
+        for (int i = 0; i < nodes.length; i++) {
+            nodes[i] = new Node(i + 1, version);
+            nodes[i].setCoor(new LatLon(i / 1000.0, version / 1000.0));
+            nodes[i].put("ref", Integer.toString(version));
+            nodes[i].setModified(i % modified == 0);
+            ds.addPrimitive(nodes[i]);
+        }
+        for (int i = 0; i + 10 < nodes.length; i += 10) {
+            Way w = new Way(i + 1, version);
+            w.setNodes(Arrays.asList(Arrays.copyOfRange(nodes, i, i + 5 + version)));
+            w.setModified(i % modified == 0);
+            ds.addPrimitive(w);
+        }
+        Relation r = new Relation(1, version);
+        r.addMember(new RelationMember("", ds.getPrimitiveById(1, OsmPrimitiveType.WAY)));
+        r.addMember(new RelationMember("", nodes[version]));
+        ds.addPrimitive(r);
+        // new primitives, one of them equal in both datasets
+        ds.addPrimitive(new Node(LatLon.ZERO));
+        ds.addPrimitive(new Node(new LatLon(version, version)));
+        return ds;
+    }
+
+    /**
+     * Test that merging in parallel gives the same result as merging sequentially.
+     */
+    @Test
+    public void testParallelMerge() {
+        DataSet[] results = new DataSet[2];
+        int[] conflicts = new int[2];
+        for (int i = 0; i < results.length; i++) {
+            DataSetMerger.PARALLEL_THRESHOLD.put(i == 0 ? Integer.MAX_VALUE : 0);
+            results[i] = createData(1, 7);
+            DataSetMerger merger = new DataSetMerger(results[i], createData(2, 11));
+            merger.merge();
+            conflicts[i] = merger.getConflicts().size();
+            runConsistencyTests(results[i]);
+        }
+        assertTrue(conflicts[0] > 0);
+        assertEquals(conflicts[0], conflicts[1]);
+        assertEquals(results[0].allPrimitives().size(), results[1].allPrimitives().size());
+        for (OsmPrimitive p : results[0].allPrimitives()) {
+            if (!p.isNew()) {
+                OsmPrimitive other = results[1].getPrimitiveById(p);
+                assertNotNull(other);
+                assertTrue(p.hasEqualSemanticAttributes(other, false));
+                assertTrue(p.hasEqualTechnicalAttributes(other));
+            }
+        }
+    }
 }
@@ -0,0 +1,169 @@
+// License: GPL. For details, see LICENSE file.
+package org.openstreetmap.josm.data.osm;
+
+import static org.junit.Assert.assertEquals;
+import static org.junit.Assert.assertFalse;
+import static org.junit.Assert.assertNull;
+import static org.junit.Assert.assertTrue;
+
+import java.io.IOException;
+import java.io.PrintWriter;
+import java.io.StringWriter;
+import java.util.ArrayList;
+import java.util.Arrays;
+import java.util.List;
+
+import org.junit.Before;
+import org.junit.Rule;
+import org.junit.Test;
+import org.openstreetmap.josm.data.Bounds;
+import org.openstreetmap.josm.data.DataSource;
+import org.openstreetmap.josm.data.coor.LatLon;
+import org.openstreetmap.josm.gui.layer.OsmDataLayer;
+import org.openstreetmap.josm.io.OsmWriter;
+import org.openstreetmap.josm.io.OsmWriterFactory;
+import org.openstreetmap.josm.testutils.JOSMTestRules;
+
+import edu.umd.cs.findbugs.annotations.SuppressFBWarnings;
+
+/**
+ * Unit tests of {@link DataSetSnapshot} class.
+ */
+public class DataSetSnapshotTest {
+
+    /**
+     * Setup test.
+     */
+    @Rule
+    @SuppressFBWarnings(value = "URF_UNREAD_PUBLIC_OR_PROTECTED_FIELD")
+    public JOSMTestRules test = new JOSMTestRules().preferences();
+
+    private DataSet ds;
+    private final List<Node> nodes = new ArrayList<>();
+    private Way way;
+    private Relation relation;
+
+    /**
+     * Creates the test data.
+     */
+    @Before
+    public void setUp() {
+        ds = new DataSet();
+        ds.addDataSource(new DataSource(new Bounds(0, 0, 1, 1), "test"));
+        for (int i = 0; i < 5; i++) {
+            Node n = new Node(new LatLon(i / 10.0, i / 10.0));
+            n.put("ref", Integer.toString(i));
+            ds.addPrimitive(n);
+            nodes.add(n);
+        }
+        way = new Way();
+        way.setNodes(nodes.subList(0, 4));
+        way.put("highway", "residential");
+        ds.addPrimitive(way);
+        relation = new Relation();
+        relation.addMember(new RelationMember("", way));
+        relation.put("type", "route");
+        ds.addPrimitive(relation);
+    }
+
+    private static String write(OsmDataLayer layer) throws IOException {
+        StringWriter out = new StringWriter();
+        try (OsmWriter w = OsmWriterFactory.createOsmWriter(new PrintWriter(out), false, "0.6")) {
+            w.writeLayer(layer);
+        }
+        return out.toString();
+    }
+
+    private static String write(DataSetSnapshot snapshot) throws IOException {
+        StringWriter out = new StringWriter();
+        try (OsmWriter w = OsmWriterFactory.createOsmWriter(new PrintWriter(out), false, "0.6")) {
+            w.writeSnapshot(snapshot);
+        }
+        return out.toString();
+    }
+
+    /**
+     * Test that a snapshot keeps the state of changed primitives.
+     */
+    @Test
+    public void testChanges() {
+        try (DataSetSnapshot snapshot = ds.createSnapshot()) {
+            assertEquals(7, snapshot.size());
+            nodes.get(0).setCoor(new LatLon(0.5, 0.5));
+            nodes.get(1).put("ref", "changed");
+            way.removeNode(nodes.get(3));
+            relation.setMembers(null);
+            ds.removePrimitive(nodes.get(4));
+            ds.addPrimitive(new Node(LatLon.ZERO));
+
+            List<NodeData> nodeData = new ArrayList<>();
+            snapshot.forEachNode(nodeData::add);
+            assertEquals(5, nodeData.size());
+            assertEquals(new LatLon(0, 0), nodeData.get(0).getCoor());
+            assertEquals("1", nodeData.get(1).get("ref"));
+            assertEquals("4", nodeData.get(4).get("ref"));
+            snapshot.forEachWay(w -> assertEquals(4, w.getNodesCount()));
+            snapshot.forEachRelation(r -> assertEquals(1, r.getMembersCount()));
+        }
+        // once closed, the state of primitives is no longer saved
+        nodes.get(0).setCoor(new LatLon(0.25, 0.25));
+        try (DataSetSnapshot snapshot = ds.createSnapshot()) {
+            assertEquals(7, snapshot.size());
+            List<NodeData> nodeData = new ArrayList<>();
+            snapshot.forEachNode(nodeData::add);
+            assertEquals(new LatLon(0.25, 0.25), nodeData.get(0).getCoor());
+        }
+    }
+
+    /**
+     * Test that the snapshot is sorted by id.
+     */
+    @Test
+    public void testOrder() {
+        Node existing1 = new Node(5, 1);
+        Node existing2 = new Node(3, 1);
+        existing1.setCoor(LatLon.ZERO);
+        existing2.setCoor(LatLon.ZERO);
+        ds.addPrimitive(existing1);
+        ds.addPrimitive(existing2);
+        try (DataSetSnapshot snapshot = ds.createSnapshot()) {
+            List<Long> ids = new ArrayList<>();
+            snapshot.forEachNode(n -> ids.add(n.getUniqueId()));
+            long first = nodes.get(0).getUniqueId();
+            assertEquals(Arrays.asList(first, first - 1, first - 2, first - 3, first - 4, 3L, 5L), ids);
+        }
+    }
+
+    /**
+     * Test that a written snapshot is identical to the written layer, even if the data set is edited meanwhile.
+     * @throws IOException never
+     */
+    @Test
+    public void testWriter() throws IOException {
+        OsmDataLayer layer = new OsmDataLayer(ds, null, null);
+        String expected = write(layer);
+        assertTrue(expected.contains("<bounds"));
+        try (DataSetSnapshot snapshot = ds.createSnapshot()) {
+            nodes.get(2).setCoor(new LatLon(0.75, 0.75));
+            way.put("highway", "primary");
+            ds.removePrimitive(relation);
+            assertFalse(expected.equals(write(layer)));
+            assertEquals(expected, write(snapshot));
+        }
+    }
+
+    /**
+     * Test that the referrers of a primitive keep its former id when it gets uploaded.
+     */
+    @Test
+    public void testIdChange() {
+        Node n = nodes.get(0);
+        long oldId = n.getUniqueId();
+        try (DataSetSnapshot snapshot = ds.createSnapshot()) {
+            n.setOsmId(42, 1);
+            snapshot.forEachWay(w -> assertEquals(oldId, w.getNodeId(0)));
+        }
+        assertEquals(42, way.getNodeId(0));
+        assertNull(ds.getPrimitiveById(oldId, OsmPrimitiveType.NODE));
+    }
+}
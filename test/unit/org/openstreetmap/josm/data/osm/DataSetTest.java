@@ -2,18 +2,27 @@
 package org.openstreetmap.josm.data.osm;
 
 import static org.junit.Assert.assertEquals;
+import static org.junit.Assert.assertFalse;
+import static org.junit.Assert.assertNull;
 import static org.junit.Assert.assertTrue;
 
 import java.util.ArrayList;
 import java.util.Arrays;
+import java.util.Collections;
+import java.util.EnumSet;
 import java.util.HashSet;
 import java.util.List;
+import java.util.Map;
 
 import org.junit.Assert;
 import org.junit.Rule;
 import org.junit.Test;
 import org.openstreetmap.josm.data.coor.LatLon;
 import org.openstreetmap.josm.data.osm.DataSet.UploadPolicy;
+import org.openstreetmap.josm.data.osm.event.AbstractDatasetChangedEvent.DatasetEventType;
+import org.openstreetmap.josm.data.osm.event.BulkChangeEvent;
+import org.openstreetmap.josm.data.osm.event.DataChangedEvent;
+import org.openstreetmap.josm.data.osm.event.DataSetListenerAdapter;
 import org.openstreetmap.josm.testutils.JOSMTestRules;
 
 import edu.umd.cs.findbugs.annotations.SuppressFBWarnings;
@@ -193,6 +202,78 @@ public class DataSetTest {
         assertEqualsDataSet(ds, new DataSet(ds));
     }
 
+    /**
+     * Unit test for {@link DataSet#getPrimitivesWithTag} and the other queries of the tag index.
+     */
+    @Test
+    public void testTagIndex() {
+        DataSet ds = new DataSet();
+        Node n1 = new Node(LatLon.ZERO);
+        n1.put("amenity", "bench");
+        Node n2 = new Node(LatLon.ZERO);
+        ds.addPrimitive(n1);
+        ds.addPrimitive(n2);
+        assertEquals(Arrays.asList(n1), ds.getPrimitivesWithTag("amenity", "bench"));
+        assertEquals(new HashSet<>(Arrays.asList("amenity")), ds.getTagKeys());
+
+        // the index is updated after it has been created
+        n2.put("amenity", "bench");
+        assertEquals(new HashSet<>(Arrays.asList(n1, n2)), new HashSet<>(ds.getPrimitivesWithTag("amenity", "bench")));
+        n1.put("amenity", "waste_basket");
+        n1.put("backrest", "no");
+        assertEquals(Arrays.asList(n2), ds.getPrimitivesWithTag("amenity", "bench"));
+        assertEquals(new HashSet<>(Arrays.asList(n1, n2)), new HashSet<>(ds.getPrimitivesWithKey("amenity")));
+        assertEquals(new HashSet<>(Arrays.asList("bench", "waste_basket")), ds.getTagValues("amenity"));
+        assertEquals(new HashSet<>(Arrays.asList("amenity", "backrest")), ds.getTagKeys());
+
+        Node n3 = new Node(LatLon.ZERO);
+        n3.put("backrest", "no");
+        ds.addPrimitive(n3);
+        ds.removePrimitive(n1);
+        assertEquals(Arrays.asList(n3), ds.getPrimitivesWithKey("backrest"));
+        assertTrue(ds.getPrimitivesWithTag("amenity", "waste_basket").isEmpty());
+        assertTrue(ds.getTagValues("foo").isEmpty());
+
+        // new ids after upload
+        n3.setOsmId(1, 1);
+        assertEquals(Arrays.asList(n3), ds.getPrimitivesWithKey("backrest"));
+
+        ds.clear();
+        assertTrue(ds.getTagKeys().isEmpty());
+    }
+
+    /**
+     * Unit test of {@link TagIndex} for keys having more values than indexed.
+     */
+    @Test
+    public void testTagIndexMaxValues() {
+        List<OsmPrimitive> nodes = new ArrayList<>();
+        for (String name : Arrays.asList("a", "b", "c", "c")) {
+            Node n = new Node(LatLon.ZERO);
+            n.put("name", name);
+            nodes.add(n);
+        }
+        TagIndex index = new TagIndex(nodes.subList(0, 2), 2);
+        assertEquals(Arrays.asList(nodes.get(0)), index.getPrimitives("name", "a"));
+
+        // third value, only the key is indexed from now on
+        index.add(nodes.get(2));
+        index.add(nodes.get(3));
+        assertEquals(Arrays.asList(nodes.get(0)), index.getPrimitives("name", "a"));
+        assertEquals(new HashSet<>(nodes.subList(2, 4)), new HashSet<>(index.getPrimitives("name", "c")));
+        assertEquals(new HashSet<>(nodes), new HashSet<>(index.getPrimitives("name")));
+        assertEquals(new HashSet<>(Arrays.asList("a", "b", "c")), index.getValues("name"));
+
+        Map<String, String> originalKeys = nodes.get(0).getKeys();
+        nodes.get(0).put("name", "c");
+        index.tagsChanged(nodes.get(0), originalKeys);
+        assertTrue(index.getPrimitives("name", "a").isEmpty());
+        assertEquals(3, index.getPrimitives("name", "c").size());
+
+        nodes.forEach(index::remove);
+        assertTrue(index.getKeys().isEmpty());
+    }
+
     private static void assertEqualsDataSet(DataSet ds1, DataSet ds2) {
         assertEquals(new ArrayList<>(ds1.getNodes()), new ArrayList<>(ds2.getNodes()));
         assertEquals(new ArrayList<>(ds1.getWays()), new ArrayList<>(ds2.getWays()));
@@ -201,4 +282,70 @@ public class DataSetTest {
         assertEquals(ds1.getUploadPolicy(), ds2.getUploadPolicy());
         assertEquals(ds1.getVersion(), ds2.getVersion());
     }
+
+    /**
+     * Unit test of {@link BulkChangeEvent}s fired by {@link DataSet#endUpdate}.
+     */
+    @Test
+    public void testBulkChangeEvent() {
+        DataSet ds = new DataSet();
+        List<Node> nodes = new ArrayList<>();
+        for (int i = 0; i < 100; i++) {
+            Node n = new Node(new LatLon(0, i * 0.001));
+            ds.addPrimitive(n);
+            nodes.add(n);
+        }
+        Way way = new Way();
+        way.setNodes(nodes.subList(0, 10));
+        ds.addPrimitive(way);
+        List<DataChangedEvent> events = new ArrayList<>();
+        ds.addDataSetListener(new DataSetListenerAdapter(e -> {
+            if (e instanceof DataChangedEvent) {
+                events.add((DataChangedEvent) e);
+            }
+        }));
+
+        Node added = new Node(LatLon.NORTH_POLE);
+        Node temporary = new Node(LatLon.SOUTH_POLE);
+        ds.beginUpdate();
+        try {
+            for (Node n : nodes) {
+                n.setCoor(new LatLon(1, n.lon()));
+            }
+            ds.addPrimitive(added);
+            ds.addPrimitive(temporary);
+            ds.removePrimitive(temporary);
+            ds.removePrimitive(nodes.get(99));
+            ds.addPrimitive(nodes.get(99));
+        } finally {
+            ds.endUpdate();
+        }
+        assertEquals(1, events.size());
+        BulkChangeEvent event = (BulkChangeEvent) events.get(0);
+        assertEquals(Collections.singleton(added), event.getAdded());
+        assertTrue(event.getRemoved().isEmpty());
+        assertEquals(new HashSet<>(nodes), event.getChanged());
+        assertEquals(EnumSet.of(DatasetEventType.NODE_MOVED, DatasetEventType.PRIMITIVES_ADDED, DatasetEventType.PRIMITIVES_REMOVED),
+                event.getChangeTypes());
+        assertFalse(event.hasOnly(DatasetEventType.NODE_MOVED, DatasetEventType.PRIMITIVES_ADDED));
+        assertTrue(event.hasOnly(DatasetEventType.NODE_MOVED, DatasetEventType.PRIMITIVES_ADDED, DatasetEventType.PRIMITIVES_REMOVED));
+
+        // more events than kept for a DataChangedEvent
+        events.clear();
+        ds.beginUpdate();
+        try {
+            for (int i = 0; i < 20; i++) {
+                for (Node n : nodes) {
+                    n.put("name", Integer.toString(i));
+                }
+            }
+            ds.removePrimitive(added);
+        } finally {
+            ds.endUpdate();
+        }
+        event = (BulkChangeEvent) events.get(0);
+        assertNull(event.getEvents());
+        assertEquals(Collections.singleton(added), event.getRemoved());
+        assertEquals(100, event.getChanged().size());
+    }
 }
@@ -7,6 +7,7 @@ import static org.junit.Assert.assertTrue;
 
 import java.io.FileInputStream;
 import java.io.InputStream;
+import java.util.ArrayList;
 import java.util.Arrays;
 import java.util.Collection;
 import java.util.HashSet;
@@ -190,6 +191,97 @@ public class FilterTest {
         }
     }
 
+    /**
+     * Unit test of filtering many primitives in parallel.
+     * @throws SearchParseError never
+     */
+    @Test
+    public void testParallel() throws SearchParseError {
+        DataSet ds = new DataSet();
+        List<Way> ways = new ArrayList<>();
+        for (int i = 0; i < 5000; i++) {
+            Node n1 = new Node(new LatLon(i * 0.001, 0));
+            Node n2 = new Node(new LatLon(i * 0.001, 1));
+            ds.addPrimitive(n1);
+            ds.addPrimitive(n2);
+            Way w = new Way();
+            w.setNodes(Arrays.asList(n1, n2));
+            w.put("highway", i % 2 == 0 ? "track" : "residential");
+            ds.addPrimitive(w);
+            ways.add(w);
+        }
+        Filter f = new Filter();
+        f.text = "highway=track";
+        f.hiding = true;
+        FilterWorker.executeFilters(ds.allPrimitives(), FilterMatcher.of(f));
+
+        for (int i = 0; i < ways.size(); i++) {
+            Way w = ways.get(i);
+            assertEquals(w.toString(), i % 2 == 0, w.isDisabledAndHidden());
+            // untagged nodes of hidden ways are hidden as well
+            assertEquals(w.toString(), i % 2 == 0, w.firstNode().isDisabledAndHidden());
+        }
+    }
+
+    /**
+     * Unit test of {@link FilterModel#getDependentPrimitives}.
+     */
+    @Test
+    public void testDependentPrimitives() {
+        DataSet ds = new DataSet();
+        Node n1 = new Node(LatLon.ZERO);
+        Node n2 = new Node(LatLon.ZERO);
+        Node n3 = new Node(LatLon.ZERO);
+        ds.addPrimitive(n1);
+        ds.addPrimitive(n2);
+        ds.addPrimitive(n3);
+        Way w1 = new Way();
+        w1.setNodes(Arrays.asList(n1, n2));
+        Way w2 = new Way();
+        w2.setNodes(Arrays.asList(n2, n3));
+        ds.addPrimitive(w1);
+        ds.addPrimitive(w2);
+        Relation r = new Relation();
+        r.addMember(new RelationMember("outer", w1));
+        ds.addPrimitive(r);
+
+        assertEquals(new HashSet<>(Arrays.asList(n1)), FilterModel.getDependentPrimitives(Arrays.asList(n1), 0));
+        assertEquals(new HashSet<>(Arrays.asList(n1, w1)), FilterModel.getDependentPrimitives(Arrays.asList(n1), 1));
+        assertEquals(new HashSet<>(Arrays.asList(n1, w1, n2, r)), FilterModel.getDependentPrimitives(Arrays.asList(n1), 2));
+        assertEquals(new HashSet<>(Arrays.asList(r, w1, n1, n2)), FilterModel.getDependentPrimitives(Arrays.asList(r), 2));
+        assertEquals(new HashSet<>(Arrays.asList(n1, n2, w1, w2, r)), FilterModel.getDependentPrimitives(Arrays.asList(r), 3));
+        assertEquals(new HashSet<>(Arrays.asList(n1, n2, n3, w1, w2, r)), FilterModel.getDependentPrimitives(Arrays.asList(r), 4));
+    }
+
+    /**
+     * Unit test of {@link FilterModel#getAllReferrers}.
+     */
+    @Test
+    public void testAllReferrers() {
+        DataSet ds = new DataSet();
+        Node n1 = new Node(LatLon.ZERO);
+        Node n2 = new Node(LatLon.ZERO);
+        ds.addPrimitive(n1);
+        ds.addPrimitive(n2);
+        Way w = new Way();
+        w.setNodes(Arrays.asList(n1, n2));
+        ds.addPrimitive(w);
+        Relation r1 = new Relation();
+        r1.addMember(new RelationMember("", w));
+        ds.addPrimitive(r1);
+        Relation r2 = new Relation();
+        r2.addMember(new RelationMember("", r1));
+        ds.addPrimitive(r2);
+        Relation r3 = new Relation();
+        r3.addMember(new RelationMember("", r2));
+        ds.addPrimitive(r3);
+
+        assertEquals(new HashSet<>(Arrays.asList(n1, w, r1, r2, r3)), FilterModel.getAllReferrers(Arrays.asList(n1)));
+        assertEquals(new HashSet<>(Arrays.asList(r2, r3)), FilterModel.getAllReferrers(Arrays.asList(r2)));
+        // the super-relations three levels above the node are filtered again
+        assertTrue(FilterModel.getDependentPrimitives(FilterModel.getAllReferrers(Arrays.asList(n1)), 2).contains(r3));
+    }
+
     /**
      * Unit tests of {@link Filter.FilterPreferenceEntry} class.
      */
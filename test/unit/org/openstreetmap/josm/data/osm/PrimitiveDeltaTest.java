@@ -0,0 +1,144 @@
+// License: GPL. For details, see LICENSE file.
+package org.openstreetmap.josm.data.osm;
+
+import static org.junit.Assert.assertEquals;
+import static org.junit.Assert.assertFalse;
+import static org.junit.Assert.assertTrue;
+
+import java.util.ArrayList;
+import java.util.Arrays;
+import java.util.Collections;
+import java.util.List;
+
+import org.junit.Before;
+import org.junit.Rule;
+import org.junit.Test;
+import org.openstreetmap.josm.data.coor.LatLon;
+import org.openstreetmap.josm.testutils.JOSMTestRules;
+
+import edu.umd.cs.findbugs.annotations.SuppressFBWarnings;
+
+/**
+ * Unit tests of {@link PrimitiveDelta} class.
+ */
+public class PrimitiveDeltaTest {
+
+    /**
+     * Setup test.
+     */
+    @Rule
+    @SuppressFBWarnings(value = "URF_UNREAD_PUBLIC_OR_PROTECTED_FIELD")
+    public JOSMTestRules test = new JOSMTestRules().preferences();
+
+    private DataSet ds;
+    private final List<Node> nodes = new ArrayList<>();
+    private Way way;
+    private Relation relation;
+
+    /**
+     * Creates the test data.
+     */
+    @Before
+    public void setUp() {
+        ds = new DataSet();
+        for (int i = 0; i < 10; i++) {
+            Node n = new Node(new LatLon(i, i));
+            ds.addPrimitive(n);
+            nodes.add(n);
+        }
+        way = new Way();
+        way.setNodes(nodes.subList(0, 8));
+        way.put("highway", "residential");
+        way.put("name", "Main Street");
+        ds.addPrimitive(way);
+        relation = new Relation();
+        relation.addMember(new RelationMember("outer", way));
+        relation.addMember(new RelationMember("", nodes.get(8)));
+        relation.put("type", "multipolygon");
+        ds.addPrimitive(relation);
+    }
+
+    /**
+     * Changes the primitive, and checks that the compact delta restores its former state.
+     * @param primitive the primitive
+     * @param copy a copy of the primitive
+     * @param change the change
+     * @return the compact delta
+     */
+    private static PrimitiveDelta assertRevert(OsmPrimitive primitive, OsmPrimitive copy, Runnable change) {
+        PrimitiveDelta delta = new PrimitiveDelta(primitive.save());
+        assertFalse(delta.isCompact());
+        change.run();
+        PrimitiveDelta compact = delta.compact(primitive.save());
+        assertTrue(compact.isCompact());
+        assertTrue(compact.estimateMemoryUsage() <= delta.estimateMemoryUsage());
+        primitive.load(compact.revert(primitive));
+        assertTrue(primitive.hasEqualSemanticAttributes(copy, false));
+        assertTrue(primitive.hasEqualTechnicalAttributes(copy));
+        assertEquals(copy.getKeys(), primitive.getKeys());
+        return compact;
+    }
+
+    /**
+     * Test node coordinates and tags.
+     */
+    @Test
+    public void testNode() {
+        Node n = nodes.get(0);
+        n.put("amenity", "bench");
+        assertRevert(n, new Node(n), () -> {
+            n.setCoor(new LatLon(0.5, 0.5));
+            n.setModified(true);
+        });
+        assertRevert(n, new Node(n), () -> {
+            n.put("amenity", "waste_basket");
+            n.put("note", "new");
+            n.setCoor(null);
+        });
+        assertRevert(n, new Node(n), () -> n.remove("amenity"));
+    }
+
+    /**
+     * Test changes of way nodes.
+     */
+    @Test
+    public void testWay() {
+        assertRevert(way, new Way(way), () -> way.addNode(3, nodes.get(9)));
+        assertRevert(way, new Way(way), () -> way.removeNode(nodes.get(0)));
+        assertRevert(way, new Way(way), () -> way.removeNode(nodes.get(7)));
+        assertRevert(way, new Way(way), () -> way.setNodes(Arrays.asList(nodes.get(0), nodes.get(7))));
+        assertRevert(way, new Way(way), () -> way.setNodes(null));
+        // a closed way with a repeated node
+        way.addNode(nodes.get(0));
+        assertRevert(way, new Way(way), () -> way.addNode(1, nodes.get(0)));
+        // only the changed tag is stored
+        PrimitiveDelta delta = assertRevert(way, new Way(way), () -> way.put("name", "High Street"));
+        assertTrue(delta.estimateMemoryUsage() < new PrimitiveDelta(way.save()).estimateMemoryUsage());
+    }
+
+    /**
+     * Test changes of relation members.
+     */
+    @Test
+    public void testRelation() {
+        assertRevert(relation, new Relation(relation), () -> relation.addMember(new RelationMember("inner", nodes.get(9))));
+        assertRevert(relation, new Relation(relation), () -> relation.setMember(0, new RelationMember("inner", way)));
+        assertRevert(relation, new Relation(relation), () -> relation.removeMembersFor(Collections.singleton(way)));
+        assertRevert(relation, new Relation(relation), () -> {
+            relation.setMembers(null);
+            relation.setDeleted(true);
+        });
+    }
+
+    /**
+     * Test that a delta is rejected if the primitive lost nodes after the delta was compacted.
+     */
+    @Test(expected = IllegalStateException.class)
+    public void testRevertChangedWay() {
+        PrimitiveDelta delta = new PrimitiveDelta(way.save());
+        way.removeNode(nodes.get(7));
+        delta = delta.compact(way.save());
+        way.setNodes(nodes.subList(0, 3));
+        delta.revert(way);
+    }
+}
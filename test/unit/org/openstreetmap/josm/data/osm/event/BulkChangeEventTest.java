@@ -0,0 +1,51 @@
+// License: GPL. For details, see LICENSE file.
+package org.openstreetmap.josm.data.osm.event;
+
+import static org.junit.Assert.assertEquals;
+import static org.junit.Assert.assertFalse;
+import static org.junit.Assert.assertTrue;
+
+import java.util.Collections;
+import java.util.EnumSet;
+
+import org.junit.Rule;
+import org.junit.Test;
+import org.openstreetmap.josm.data.osm.event.AbstractDatasetChangedEvent.DatasetEventType;
+import org.openstreetmap.josm.testutils.JOSMTestRules;
+
+import edu.umd.cs.findbugs.annotations.SuppressFBWarnings;
+
+/**
+ * Unit tests of {@link BulkChangeEvent} class.
+ */
+public class BulkChangeEventTest {
+
+    /**
+     * Setup test.
+     */
+    @Rule
+    @SuppressFBWarnings(value = "URF_UNREAD_PUBLIC_OR_PROTECTED_FIELD")
+    public JOSMTestRules test = new JOSMTestRules();
+
+    /**
+     * Unit test of {@link BulkChangeEvent#toString}.
+     */
+    @Test
+    public void testToString() {
+        assertEquals("DATA_CHANGED", new BulkChangeEvent(null, null, Collections.emptySet(), Collections.emptySet(),
+                Collections.emptySet(), Collections.emptySet()).toString());
+    }
+
+    /**
+     * Unit test of {@link BulkChangeEvent#hasOnly}.
+     */
+    @Test
+    public void testHasOnly() {
+        BulkChangeEvent event = new BulkChangeEvent(null, null, Collections.emptySet(), Collections.emptySet(),
+                Collections.emptySet(), EnumSet.of(DatasetEventType.NODE_MOVED, DatasetEventType.TAGS_CHANGED));
+        assertTrue(event.hasOnly(DatasetEventType.NODE_MOVED, DatasetEventType.TAGS_CHANGED, DatasetEventType.PRIMITIVES_ADDED));
+        assertFalse(event.hasOnly(DatasetEventType.NODE_MOVED));
+        assertTrue(new BulkChangeEvent(null, null, Collections.emptySet(), Collections.emptySet(),
+                Collections.emptySet(), Collections.emptySet()).hasOnly());
+    }
+}
@@ -18,6 +18,7 @@ import java.util.Collections;
 import org.junit.Rule;
 import org.junit.Test;
 import org.openstreetmap.josm.TestUtils;
+import org.openstreetmap.josm.data.Bounds;
 import org.openstreetmap.josm.data.coor.LatLon;
 import org.openstreetmap.josm.data.osm.DataSet;
 import org.openstreetmap.josm.data.osm.Node;
@@ -685,4 +686,34 @@ public class SearchCompilerTest {
             ctx.match(osm, false);
         }
     }
+
+    /**
+     * Unit test of {@link SearchCompiler.InArea#prepare}: the bounds computed in advance are used instead of the bounds
+     * of each primitive, until they are released.
+     */
+    @Test
+    public void testInAreaPrepare() {
+        DataSet ds = new DataSet();
+        Node inside = new Node(new LatLon(1, 1));
+        Node outside = new Node(new LatLon(5, 5));
+        ds.addPrimitive(inside);
+        ds.addPrimitive(outside);
+        SearchCompiler.InArea area = new SearchCompiler.InArea(false) {
+            @Override
+            protected Collection<Bounds> getBounds(OsmPrimitive primitive) {
+                return Collections.emptySet();
+            }
+
+            @Override
+            protected Collection<Bounds> getSearchBounds(DataSet dataSet) {
+                return Collections.singleton(new Bounds(0, 0, 2, 2));
+            }
+        };
+        assertFalse(area.match(inside));
+        area.prepare(ds);
+        assertTrue(area.match(inside));
+        assertFalse(area.match(outside));
+        area.release();
+        assertFalse(area.match(inside));
+    }
 }
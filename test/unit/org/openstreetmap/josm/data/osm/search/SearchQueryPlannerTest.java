@@ -0,0 +1,162 @@
+// License: GPL. For details, see LICENSE file.
+package org.openstreetmap.josm.data.osm.search;
+
+import static org.junit.Assert.assertEquals;
+import static org.junit.Assert.assertNull;
+import static org.junit.Assert.assertTrue;
+
+import java.util.Arrays;
+import java.util.Collections;
+import java.util.HashSet;
+import java.util.Set;
+
+import org.junit.Before;
+import org.junit.Rule;
+import org.junit.Test;
+import org.openstreetmap.josm.data.Bounds;
+import org.openstreetmap.josm.data.DataSource;
+import org.openstreetmap.josm.data.coor.LatLon;
+import org.openstreetmap.josm.data.osm.DataSet;
+import org.openstreetmap.josm.data.osm.Node;
+import org.openstreetmap.josm.data.osm.OsmPrimitive;
+import org.openstreetmap.josm.data.osm.Relation;
+import org.openstreetmap.josm.data.osm.RelationMember;
+import org.openstreetmap.josm.data.osm.Way;
+import org.openstreetmap.josm.testutils.JOSMTestRules;
+
+import edu.umd.cs.findbugs.annotations.SuppressFBWarnings;
+
+/**
+ * Unit tests for class {@link SearchQueryPlanner}.
+ */
+public class SearchQueryPlannerTest {
+
+    /**
+     * We need prefs for this. We access preferences when creating OSM primitives.
+     */
+    @Rule
+    @SuppressFBWarnings(value = "URF_UNREAD_PUBLIC_OR_PROTECTED_FIELD")
+    public JOSMTestRules test = new JOSMTestRules().preferences().projection();
+
+    private DataSet ds;
+    private Node n1;
+    private Node n2;
+    private Node n3;
+    private Way w1;
+    private Way w2;
+    private Relation r1;
+
+    /**
+     * Setup test data.
+     */
+    @Before
+    public void setUp() {
+        ds = new DataSet();
+        n1 = new Node(1, 1);
+        n1.setCoor(new LatLon(1, 1));
+        n1.put("highway", "traffic_signals");
+        n2 = new Node(2, 1);
+        n2.setCoor(new LatLon(2, 2));
+        n3 = new Node(3, 1);
+        n3.setCoor(new LatLon(20, 20));
+        ds.addPrimitive(n1);
+        ds.addPrimitive(n2);
+        ds.addPrimitive(n3);
+        w1 = new Way(1, 1);
+        w1.setNodes(Arrays.asList(n1, n2));
+        w1.put("highway", "primary");
+        w2 = new Way(2, 1);
+        w2.setNodes(Arrays.asList(n2, n3));
+        w2.put("highway", "secondary");
+        ds.addPrimitive(w1);
+        ds.addPrimitive(w2);
+        r1 = new Relation(3, 1);
+        r1.addMember(new RelationMember("", w2));
+        ds.addPrimitive(r1);
+        ds.addPrimitive(new Node(LatLon.ZERO));
+        ds.addDataSource(new DataSource(new Bounds(0, 0, 5, 5), "test"));
+    }
+
+    private Set<OsmPrimitive> candidates(String expression) throws SearchParseError {
+        SearchCompiler.Match match = SearchCompiler.compile(expression);
+        Set<OsmPrimitive> candidates = SearchQueryPlanner.getCandidates(match, ds);
+        if (candidates != null) {
+            for (OsmPrimitive p : ds.allPrimitives()) {
+                assertTrue(expression + ": " + p, candidates.contains(p) || !match.match(p));
+            }
+        }
+        return candidates;
+    }
+
+    private static Set<OsmPrimitive> set(OsmPrimitive... primitives) {
+        return new HashSet<>(Arrays.asList(primitives));
+    }
+
+    /**
+     * Test lookup of ids.
+     * @throws SearchParseError never
+     */
+    @Test
+    public void testId() throws SearchParseError {
+        assertEquals(set(n2, w2), candidates("id:2"));
+        assertEquals(set(n2, n3, w2, r1), candidates("id:2-3"));
+        assertEquals(set(w1, w2), candidates("type:way id:1-3"));
+        assertEquals(set(n1, w1, n3, r1), candidates("id:1 or id:3"));
+        assertEquals(Collections.emptySet(), candidates("id:1 id:2"));
+        // new primitives have id 0
+        assertNull(candidates("id:0-2"));
+    }
+
+    /**
+     * Test lookup of areas.
+     * @throws SearchParseError never
+     */
+    @Test
+    public void testArea() throws SearchParseError {
+        assertEquals(set(n1, n2, w1, w2, r1, ds.getNodes().stream().filter(Node::isNew).findFirst().get()),
+                candidates("indownloadedarea"));
+        assertEquals(set(w1, w2), candidates("indownloadedarea type:way"));
+        assertNull(candidates("allindownloadedarea"));
+    }
+
+    /**
+     * Test parent and child operators.
+     * @throws SearchParseError never
+     */
+    @Test
+    public void testParentChild() throws SearchParseError {
+        assertEquals(set(w1), candidates("parent id:1"));
+        assertEquals(set(w1, w2, r1), candidates("parent id:2"));
+        assertEquals(set(n2, n3), candidates("child (type:way id:2)"));
+        assertEquals(set(w2), candidates("child id:3"));
+    }
+
+    /**
+     * Test lookup of tags.
+     * @throws SearchParseError never
+     */
+    @Test
+    public void testTag() throws SearchParseError {
+        assertEquals(set(w1), candidates("highway=primary"));
+        assertEquals(set(n1, w1, w2), candidates("highway=*"));
+        assertEquals(set(w1, w2), candidates("type:way highway=*"));
+        assertEquals(set(n1, w1), candidates("id:1 or highway=primary"));
+        assertEquals(set(n1, n2, n3), candidates("child highway=*"));
+        w2.put("highway", "primary");
+        assertEquals(set(w1, w2), candidates("highway=primary"));
+    }
+
+    /**
+     * Test expressions without suitable index.
+     * @throws SearchParseError never
+     */
+    @Test
+    public void testUnrestricted() throws SearchParseError {
+        assertNull(candidates("highway:prim"));
+        assertNull(candidates("id:1 or highway:prim"));
+        assertNull(candidates("-id:1"));
+        assertNull(candidates("parent highway:prim"));
+        assertNull(candidates("highway~prim.*"));
+        assertEquals(set(w1), candidates("id:1 type:way highway:prim"));
+    }
+}
@@ -0,0 +1,88 @@
+// License: GPL. For details, see LICENSE file.
+package org.openstreetmap.josm.data.projection;
+
+import static org.junit.Assert.assertEquals;
+
+import java.util.ArrayList;
+import java.util.Arrays;
+import java.util.List;
+import java.util.Map;
+import java.util.Random;
+import java.util.concurrent.ConcurrentHashMap;
+
+import org.junit.Rule;
+import org.junit.Test;
+import org.openstreetmap.josm.data.Bounds;
+import org.openstreetmap.josm.data.coor.EastNorth;
+import org.openstreetmap.josm.data.coor.LatLon;
+import org.openstreetmap.josm.testutils.JOSMTestRules;
+
+import edu.umd.cs.findbugs.annotations.SuppressFBWarnings;
+
+/**
+ * Unit tests for class {@link BulkReprojection}.
+ */
+public class BulkReprojectionTest {
+
+    /**
+     * Setup test.
+     */
+    @Rule
+    @SuppressFBWarnings(value = "URF_UNREAD_PUBLIC_OR_PROTECTED_FIELD")
+    public JOSMTestRules test = new JOSMTestRules().preferences();
+
+    private static List<LatLon> randomPoints(Projection projection, int count) {
+        Random rand = new Random(42);
+        Bounds b = projection.getWorldBoundsLatLon();
+        List<LatLon> points = new ArrayList<>(count);
+        for (int i = 0; i < count; i++) {
+            points.add(new LatLon(b.getMinLat() + rand.nextDouble() * (b.getMaxLat() - b.getMinLat()),
+                    b.getMinLon() + rand.nextDouble() * (b.getMaxLon() - b.getMinLon())));
+        }
+        return points;
+    }
+
+    /**
+     * Test that bulk projection of arrays gives the same results as projection point by point.
+     */
+    @Test
+    public void testArrays() {
+        // lat/lon, mercator, transverse mercators, lambert with seven parameter datum
+        for (String code : Arrays.asList("EPSG:4326", "EPSG:3857", "EPSG:32633", "EPSG:2180", "EPSG:31370")) {
+            Projection projection = Projections.getProjectionByCode(code);
+            List<LatLon> points = randomPoints(projection, 100);
+            double[] latNorth = new double[points.size() + 2];
+            double[] lonEast = new double[points.size() + 2];
+            for (int i = 0; i < points.size(); i++) {
+                latNorth[i + 1] = points.get(i).lat();
+                lonEast[i + 1] = points.get(i).lon();
+            }
+            projection.latlon2eastNorth(latNorth, lonEast, 1, points.size() + 1);
+            for (int i = 0; i < points.size(); i++) {
+                EastNorth en = projection.latlon2eastNorth(points.get(i));
+                assertEquals(code, en.east(), lonEast[i + 1], 1e-9);
+                assertEquals(code, en.north(), latNorth[i + 1], 1e-9);
+            }
+            // points outside of the range are untouched
+            assertEquals(0, latNorth[0], 0);
+            assertEquals(0, lonEast[points.size() + 1], 0);
+        }
+    }
+
+    /**
+     * Test parallel projection of a large number of points.
+     */
+    @Test
+    public void testParallel() {
+        Projection projection = Projections.getProjectionByCode("EPSG:3857");
+        List<LatLon> points = randomPoints(projection, 50_000);
+        Map<LatLon, EastNorth> result = new ConcurrentHashMap<>();
+        BulkReprojection.project(projection, points, (ll, east, north) -> result.put(ll, new EastNorth(east, north)));
+        assertEquals(points.size(), result.size());
+        for (LatLon ll : points) {
+            EastNorth en = projection.latlon2eastNorth(ll);
+            assertEquals(en.east(), result.get(ll).east(), 1e-9);
+            assertEquals(en.north(), result.get(ll).north(), 1e-9);
+        }
+    }
+}
@@ -0,0 +1,132 @@
+// License: GPL. For details, see LICENSE file.
+package org.openstreetmap.josm.data.projection.datum;
+
+import static org.junit.Assert.assertEquals;
+import static org.junit.Assert.assertTrue;
+
+import java.io.ByteArrayInputStream;
+import java.io.ByteArrayOutputStream;
+import java.io.File;
+import java.io.IOException;
+import java.io.InputStream;
+import java.io.ObjectInputStream;
+import java.io.ObjectOutputStream;
+import java.nio.file.Files;
+import java.util.Arrays;
+
+import org.junit.Test;
+import org.openstreetmap.josm.data.coor.LatLon;
+import org.openstreetmap.josm.tools.Utils;
+
+/**
+ * Unit tests for class {@link NTV2GridShiftFile}.
+ */
+public class NTV2GridShiftFileTest {
+
+    private static final File GRID = new File("data_nodist/projection/ntf_r93.gsb");
+
+    private static NTV2GridShiftFile loadStream(File file, boolean loadAccuracy) throws IOException {
+        NTV2GridShiftFile ntv2 = new NTV2GridShiftFile();
+        try (InputStream in = Files.newInputStream(file.toPath())) {
+            ntv2.loadGridShiftFile(in, loadAccuracy);
+        }
+        return ntv2;
+    }
+
+    private static NTV2GridShiftFile loadMapped(File file, boolean loadAccuracy) throws IOException {
+        NTV2GridShiftFile ntv2 = new NTV2GridShiftFile();
+        ntv2.loadGridShiftFile(file, loadAccuracy);
+        return ntv2;
+    }
+
+    private static void assertSameShifts(NTV2GridShiftFile expected, NTV2GridShiftFile actual, boolean accuracy) {
+        assertEquals(expected.getFromEllipsoid(), actual.getFromEllipsoid());
+        assertEquals(expected.getToEllipsoid(), actual.getToEllipsoid());
+        int inside = 0;
+        for (double lat = 40; lat < 53; lat += 0.37) {
+            for (double lon = -6; lon < 11; lon += 0.53) {
+                NTV2GridShift gs1 = new NTV2GridShift(new LatLon(lat, lon));
+                NTV2GridShift gs2 = new NTV2GridShift(new LatLon(lat, lon));
+                boolean found = expected.gridShiftForward(gs1);
+                assertEquals(found, actual.gridShiftForward(gs2));
+                if (found) {
+                    inside++;
+                    assertEquals(gs1.getLatShiftSeconds(), gs2.getLatShiftSeconds(), 0);
+                    assertEquals(gs1.getLonShiftPositiveWestSeconds(), gs2.getLonShiftPositiveWestSeconds(), 0);
+                    assertEquals(accuracy, gs2.isLatAccuracyAvailable());
+                    assertEquals(accuracy, gs2.isLonAccuracyAvailable());
+                    if (accuracy) {
+                        assertEquals(gs1.getLatAccuracySeconds(), gs2.getLatAccuracySeconds(), 0);
+                        assertEquals(gs1.getLonAccuracySeconds(), gs2.getLonAccuracySeconds(), 0);
+                    }
+                    gs1 = new NTV2GridShift(new LatLon(lat, lon));
+                    gs2 = new NTV2GridShift(new LatLon(lat, lon));
+                    assertEquals(expected.gridShiftReverse(gs1), actual.gridShiftReverse(gs2));
+                    assertEquals(gs1.getShiftedLatDegrees(), gs2.getShiftedLatDegrees(), 0);
+                    assertEquals(gs1.getShiftedLonPositiveEastDegrees(), gs2.getShiftedLonPositiveEastDegrees(), 0);
+                }
+            }
+        }
+        assertTrue(inside > 10);
+    }
+
+    /**
+     * Test that memory-mapped grid files give the same shifts as grid files loaded into the heap.
+     * @throws IOException if an I/O error occurs
+     */
+    @Test
+    public void testMemoryMapped() throws IOException {
+        for (String name : Arrays.asList("ntf_r93.gsb", "BETA2007.gsb", "CHENYX06_etrs.gsb")) {
+            File grid = new File("data_nodist/projection", name);
+            assertSameShifts(loadStream(grid, true), loadMapped(grid, true), true);
+            assertSameShifts(loadStream(grid, false), loadMapped(grid, false), false);
+        }
+    }
+
+    /**
+     * Test that compact grid files give the same shifts as NTv2 files.
+     * @throws IOException if an I/O error occurs
+     */
+    @Test
+    public void testCompactGridFile() throws IOException {
+        File compact = File.createTempFile("josm.NTV2GridShiftFileTest", ".grid");
+        try {
+            NTV2GridShiftFile.writeCompactGridFile(GRID, compact);
+            assertTrue(compact.length() < GRID.length() * 2 / 3);
+            assertSameShifts(loadStream(GRID, false), loadMapped(compact, true), false);
+        } finally {
+            Utils.deleteFile(compact);
+        }
+    }
+
+    /**
+     * Test that memory-mapped grid files can be serialized.
+     * @throws Exception if an error occurs
+     */
+    @Test
+    public void testSerialization() throws Exception {
+        NTV2GridShiftFile mapped = loadMapped(GRID, true);
+        ByteArrayOutputStream bytes = new ByteArrayOutputStream();
+        try (ObjectOutputStream out = new ObjectOutputStream(bytes)) {
+            out.writeObject(mapped);
+        }
+        try (ObjectInputStream in = new ObjectInputStream(new ByteArrayInputStream(bytes.toByteArray()))) {
+            assertSameShifts(mapped, (NTV2GridShiftFile) in.readObject(), true);
+        }
+    }
+
+    /**
+     * Test that truncated files are rejected.
+     * @throws IOException if an I/O error occurs
+     */
+    @Test(expected = IOException.class)
+    public void testTruncatedFile() throws IOException {
+        File file = File.createTempFile("josm.NTV2GridShiftFileTest", ".gsb");
+        try {
+            Files.write(file.toPath(), new byte[4]);
+            loadMapped(file, false);
+        } finally {
+            Utils.deleteFile(file);
+        }
+    }
+}
@@ -10,6 +10,7 @@ import static org.junit.Assert.assertTrue;
 import java.io.BufferedWriter;
 import java.io.File;
 import java.io.IOException;
+import java.io.InputStream;
 import java.nio.charset.StandardCharsets;
 import java.nio.file.Files;
 import java.nio.file.Paths;
@@ -21,11 +22,14 @@ import java.util.List;
 import org.junit.Before;
 import org.junit.Rule;
 import org.junit.Test;
+import org.openstreetmap.josm.actions.ExtensionFileFilter;
 import org.openstreetmap.josm.data.coor.LatLon;
 import org.openstreetmap.josm.data.osm.DataSet;
 import org.openstreetmap.josm.data.osm.Node;
+import org.openstreetmap.josm.data.osm.OsmPrimitiveType;
 import org.openstreetmap.josm.gui.MainApplication;
 import org.openstreetmap.josm.gui.layer.AutosaveTask.AutosaveLayerInfo;
+import org.openstreetmap.josm.io.OsmReader;
 import org.openstreetmap.josm.testutils.JOSMTestRules;
 
 import edu.umd.cs.findbugs.annotations.SuppressFBWarnings;
@@ -49,6 +53,8 @@ public class AutosaveTaskTest {
      */
     @Before
     public void setUp() throws IOException {
+        // load the file importers before OsmImporter, to avoid a class initialization cycle when recovering layers
+        ExtensionFileFilter.getImporters();
         task = new AutosaveTask();
     }
 
@@ -141,7 +147,7 @@ public class AutosaveTaskTest {
     }
 
     private int countFiles() {
-        String[] files = task.getAutosaveDir().toFile().list((dir, name) -> name.endsWith(".osm"));
+        String[] files = task.getAutosaveDir().toFile().list((dir, name) -> name.endsWith(".osm") || name.endsWith(".osmjournal"));
         return files != null ? files.length : 0;
     }
 
@@ -158,6 +164,7 @@ public class AutosaveTaskTest {
      */
     @Test
     public void testAutosaveSavesLayerMultipleTimes() {
+        AutosaveTask.PROP_JOURNAL.put(false);
         AutosaveTask.PROP_FILES_PER_LAYER.put(3);
         runAutosaveTaskSeveralTimes(5);
     }
@@ -242,4 +249,81 @@ public class AutosaveTaskTest {
 
         assertEquals(1, countFiles());
     }
+
+    /**
+     * Tests that {@link AutosaveTask#run()} appends changes to a journal, which is converted to an .osm file when recovered.
+     * @throws Exception if an error occurs
+     */
+    @Test
+    public void testAutosaveJournal() throws Exception {
+        DataSet data = new DataSet();
+        OsmDataLayer layer = new OsmDataLayer(data, "OsmData", null);
+        MainApplication.getLayerManager().addLayer(layer);
+        try {
+            task.schedule();
+            data.addPrimitive(new Node(new LatLon(10, 10)));
+            task.run();
+            File[] journals = task.getAutosaveDir().toFile().listFiles((dir, name) -> name.endsWith(".osmjournal"));
+            assertEquals(1, journals.length);
+            long size = journals[0].length();
+
+            data.addPrimitive(new Node(new LatLon(20, 20)));
+            task.run();
+            assertEquals(1, countFiles());
+            assertTrue(journals[0].length() > size);
+
+            // simulate a crash
+            assertTrue(task.getPidFile(journals[0]).delete());
+            List<File> files = task.getUnsavedLayersFiles();
+            assertEquals(1, files.size());
+            assertFalse(journals[0].exists());
+            try (InputStream in = Files.newInputStream(files.get(0).toPath())) {
+                assertEquals(2, OsmReader.parseDataSet(in, null).getNodes().size());
+            }
+        } finally {
+            task.cancel();
+        }
+    }
+
+    /**
+     * Tests that a primitive, whose id changed after an upload, is not duplicated when the journal is replayed.
+     * @throws Exception if an error occurs
+     */
+    @Test
+    public void testAutosaveJournalUploadedPrimitive() throws Exception {
+        DataSet data = new DataSet();
+        OsmDataLayer layer = new OsmDataLayer(data, "OsmData", null);
+        MainApplication.getLayerManager().addLayer(layer);
+        try {
+            task.schedule();
+            Node n = new Node(new LatLon(10, 10));
+            data.addPrimitive(n);
+            task.run();
+            data.addPrimitive(new Node(new LatLon(20, 20)));
+            task.run();
+
+            // like an upload of the node
+            data.beginUpdate();
+            try {
+                n.setOsmId(1234, 1);
+            } finally {
+                data.endUpdate();
+            }
+            task.run();
+
+            // simulate a crash
+            File[] journals = task.getAutosaveDir().toFile().listFiles((dir, name) -> name.endsWith(".osmjournal"));
+            assertEquals(1, journals.length);
+            assertTrue(task.getPidFile(journals[0]).delete());
+            List<File> files = task.getUnsavedLayersFiles();
+            assertEquals(1, files.size());
+            try (InputStream in = Files.newInputStream(files.get(0).toPath())) {
+                DataSet recovered = OsmReader.parseDataSet(in, null);
+                assertEquals(2, recovered.getNodes().size());
+                assertNotNull(recovered.getPrimitiveById(1234, OsmPrimitiveType.NODE));
+            }
+        } finally {
+            task.cancel();
+        }
+    }
 }
@@ -0,0 +1,183 @@
+// License: GPL. For details, see LICENSE file.
+package org.openstreetmap.josm.gui.layer.gpx;
+
+import static org.junit.Assert.assertEquals;
+import static org.junit.Assert.assertFalse;
+import static org.junit.Assert.assertTrue;
+
+import java.awt.Graphics2D;
+import java.awt.Point;
+import java.awt.Rectangle;
+import java.awt.image.BufferedImage;
+import java.util.ArrayList;
+import java.util.List;
+import java.util.concurrent.atomic.AtomicInteger;
+import java.util.function.Function;
+
+import javax.swing.JPanel;
+
+import org.junit.Before;
+import org.junit.Rule;
+import org.junit.Test;
+import org.openstreetmap.josm.data.Bounds;
+import org.openstreetmap.josm.data.coor.EastNorth;
+import org.openstreetmap.josm.data.gpx.GpxData;
+import org.openstreetmap.josm.data.gpx.GpxTrackIndex;
+import org.openstreetmap.josm.data.gpx.WayPoint;
+import org.openstreetmap.josm.gui.NavigatableComponent;
+import org.openstreetmap.josm.gui.util.GuiHelper;
+import org.openstreetmap.josm.io.GpxReaderTest;
+import org.openstreetmap.josm.testutils.JOSMTestRules;
+
+import edu.umd.cs.findbugs.annotations.SuppressFBWarnings;
+
+/**
+ * Unit tests of {@link HeatMapTileCache} class.
+ */
+public class HeatMapTileCacheTest {
+
+    private static final class NavigatableComponentMock extends NavigatableComponent {
+        @Override
+        public Point getLocationOnScreen() {
+            return new Point(30, 40);
+        }
+
+        @Override
+        protected boolean isVisibleOnScreen() {
+            return true;
+        }
+    }
+
+    private static final int HEIGHT = 300;
+    private static final int WIDTH = 600;
+    private static final int BLACK = 0xFF000000;
+
+    /**
+     * Setup test.
+     */
+    @Rule
+    @SuppressFBWarnings(value = "URF_UNREAD_PUBLIC_OR_PROTECTED_FIELD")
+    public JOSMTestRules test = new JOSMTestRules().preferences().platform().projection();
+
+    private NavigatableComponentMock component;
+    private Function<Bounds, List<WayPoint>> points;
+
+    /**
+     * Creates the map view and the data.
+     * @throws Exception if the test data cannot be read
+     */
+    @Before
+    public void setUp() throws Exception {
+        component = new NavigatableComponentMock();
+        component.setBounds(new Rectangle(WIDTH, HEIGHT));
+        // wait for the event to be propagated.
+        GuiHelper.runInEDTAndWait(() -> { });
+        component.setVisible(true);
+        JPanel parent = new JPanel();
+        parent.add(component);
+
+        GpxData data = GpxReaderTest.parseGpxData("data_nodist/munich.gpx");
+        data.getTracks().forEach(t -> t.getSegments().forEach(s -> {
+            s.getWayPoints().forEach(p -> p.drawLine = true);
+            s.getWayPoints().iterator().next().drawLine = false;
+        }));
+        // like GpxDrawHelper, start each run with a line from the previous point
+        points = box -> {
+            List<WayPoint> result = new ArrayList<>();
+            for (GpxTrackIndex.Run run : data.getTrackIndex().search(box)) {
+                if (run.getFrom() > 0) {
+                    WayPoint previous = new WayPoint(run.getPrevious());
+                    previous.drawLine = false;
+                    result.add(previous);
+                }
+                result.addAll(run.getWayPoints());
+            }
+            return result;
+        };
+        component.zoomTo(new Bounds(48.10, 11.50, 48.16, 11.62));
+    }
+
+    private BufferedImage paint(HeatMapTileCache cache) {
+        BufferedImage image = new BufferedImage(WIDTH, HEIGHT, BufferedImage.TYPE_INT_ARGB);
+        Graphics2D g = image.createGraphics();
+        cache.paint(g, component, points);
+        g.dispose();
+        return image;
+    }
+
+    private static boolean hasData(BufferedImage image) {
+        for (int y = 0; y < image.getHeight(); y++) {
+            for (int x = 0; x < image.getWidth(); x++) {
+                if (image.getRGB(x, y) != BLACK) {
+                    return true;
+                }
+            }
+        }
+        return false;
+    }
+
+    private static boolean isShifted(BufferedImage expected, BufferedImage actual, int dx) {
+        for (int y = 0; y < actual.getHeight(); y++) {
+            for (int x = 0; x + dx < expected.getWidth(); x++) {
+                if (expected.getRGB(x + dx, y) != actual.getRGB(x, y)) {
+                    return false;
+                }
+            }
+        }
+        return true;
+    }
+
+    /**
+     * Test that tiles are reused when the view is moved, and give the same image.
+     */
+    @Test
+    public void testPan() {
+        for (boolean pointMode : new boolean[] {false, true}) {
+            component.zoomTo(new Bounds(48.10, 11.50, 48.16, 11.62));
+            HeatMapTileCache cache = new HeatMapTileCache(component, 2, 0, pointMode, false, 1000);
+            BufferedImage before = paint(cache);
+            assertTrue(hasData(before));
+
+            component.zoomTo(component.getCenter().add(100 * component.getScale(), 0));
+            assertTrue(cache.isValidFor(component, 2, 0, pointMode, false));
+            assertFalse(cache.isValidFor(component, 2, 1, pointMode, false));
+            BufferedImage after = paint(cache);
+            assertTrue(isShifted(before, after, 99) || isShifted(before, after, 100) || isShifted(before, after, 101));
+
+            component.zoomTo(component.getCenter(), component.getScale() / 2);
+            assertFalse(cache.isValidFor(component, 2, 0, pointMode, false));
+        }
+    }
+
+    /**
+     * Test that the tiles are limited by the memory preference, but visible tiles are kept.
+     */
+    @Test
+    public void testMaxMemory() {
+        AtomicInteger drawn = new AtomicInteger();
+        Function<Bounds, List<WayPoint>> allPoints = points;
+        points = box -> {
+            drawn.incrementAndGet();
+            return allPoints.apply(box);
+        };
+        for (int maxMemory : new int[] {0, 32}) {
+            HeatMapTileCache.MAX_MEMORY.put(maxMemory);
+            component.zoomTo(new Bounds(48.10, 11.50, 48.16, 11.62));
+            HeatMapTileCache cache = new HeatMapTileCache(component, 2, 0, false, false, 1000);
+            paint(cache);
+            assertTrue(drawn.get() > 0);
+            drawn.set(0);
+            paint(cache);
+            assertEquals(0, drawn.get());
+
+            EastNorth center = component.getCenter();
+            component.zoomTo(center.add(10 * WIDTH * component.getScale(), 0));
+            paint(cache);
+            drawn.set(0);
+            component.zoomTo(center);
+            paint(cache);
+            assertEquals(maxMemory == 0, drawn.get() > 0);
+            drawn.set(0);
+        }
+    }
+}
@@ -0,0 +1,118 @@
+// License: GPL. For details, see LICENSE file.
+package org.openstreetmap.josm.gui.tagging.presets;
+
+import static org.junit.Assert.assertEquals;
+import static org.junit.Assert.assertFalse;
+import static org.junit.Assert.assertTrue;
+
+import java.io.File;
+import java.io.IOException;
+import java.nio.charset.StandardCharsets;
+import java.nio.file.Files;
+import java.util.Arrays;
+import java.util.Collection;
+import java.util.List;
+import java.util.stream.Collectors;
+
+import org.junit.After;
+import org.junit.Rule;
+import org.junit.Test;
+import org.junit.rules.TemporaryFolder;
+import org.openstreetmap.josm.TestUtils;
+import org.openstreetmap.josm.gui.tagging.presets.items.KeyedItem;
+import org.openstreetmap.josm.testutils.JOSMTestRules;
+import org.openstreetmap.josm.tools.Utils;
+import org.xml.sax.SAXException;
+
+import edu.umd.cs.findbugs.annotations.SuppressFBWarnings;
+
+/**
+ * Unit tests of {@link TaggingPresetCache} class.
+ */
+public class TaggingPresetCacheTest {
+
+    /**
+     * Setup rule
+     */
+    @Rule
+    @SuppressFBWarnings(value = "URF_UNREAD_PUBLIC_OR_PROTECTED_FIELD")
+    public JOSMTestRules test = new JOSMTestRules().preferences();
+
+    /**
+     * Temporary folder.
+     */
+    @Rule
+    @SuppressFBWarnings(value = "URF_UNREAD_PUBLIC_OR_PROTECTED_FIELD")
+    public TemporaryFolder folder = new TemporaryFolder();
+
+    /**
+     * Restores the default preferences.
+     */
+    @After
+    public void tearDown() {
+        TaggingPresetCache.PROP_CACHE.remove();
+    }
+
+    private static List<String> describe(Collection<TaggingPreset> presets) {
+        return presets.stream().map(p -> p.getClass().getSimpleName() + ' ' + p.getRawName() + ' ' + p + ' '
+                + p.data.stream().map(item -> item.getClass().getSimpleName()
+                        + (item instanceof KeyedItem ? item + " " + ((KeyedItem) item).getValues() : ""))
+                .collect(Collectors.toList()))
+            .collect(Collectors.toList());
+    }
+
+    private static List<String> read(String source, boolean cache) throws SAXException, IOException {
+        TaggingPresetCache.PROP_CACHE.put(cache);
+        return describe(TaggingPresetReader.readAll(source, false));
+    }
+
+    /**
+     * Test that presets read from the cache are identical to the parsed ones.
+     * @throws SAXException if any XML error occurs
+     * @throws IOException if any I/O error occurs
+     */
+    @Test
+    public void testDefaultPresets() throws SAXException, IOException {
+        TaggingPresetReader.setLoadIcons(false);
+        try {
+            String source = "resource://data/defaultpresets.xml";
+            Utils.deleteFile(TaggingPresetCache.getCacheFile(source));
+            List<String> expected = read(source, false);
+            assertFalse(TaggingPresetCache.getCacheFile(source).exists());
+            // recorded while parsing
+            assertEquals(expected, read(source, true));
+            assertTrue(TaggingPresetCache.getCacheFile(source).exists());
+            // read from the cache
+            assertEquals(expected, read(source, true));
+        } finally {
+            TaggingPresetReader.setLoadIcons(true);
+        }
+    }
+
+    /**
+     * Test that the cache is not used when the source has changed, nor when it is corrupted.
+     * @throws SAXException if any XML error occurs
+     * @throws IOException if any I/O error occurs
+     */
+    @Test
+    public void testChangedSource() throws SAXException, IOException {
+        File file = folder.newFile("preset_chunk.xml");
+        String xml = new String(Files.readAllBytes(new File(TestUtils.getTestDataRoot(), "preset_chunk.xml").toPath()),
+                StandardCharsets.UTF_8);
+        Files.write(file.toPath(), xml.getBytes(StandardCharsets.UTF_8));
+        String source = file.getAbsolutePath();
+        List<String> expected = read(source, false);
+        assertEquals(expected, read(source, true));
+        assertEquals(expected, read(source, true));
+
+        Files.write(file.toPath(), xml.replace("B2", "B4").getBytes(StandardCharsets.UTF_8));
+        List<String> changed = read(source, true);
+        assertEquals(read(source, false), changed);
+        assertTrue(changed.toString().contains("key=B4"));
+
+        File cacheFile = TaggingPresetCache.getCacheFile(source);
+        byte[] cached = Files.readAllBytes(cacheFile.toPath());
+        Files.write(cacheFile.toPath(), Arrays.copyOf(cached, cached.length - 10));
+        assertEquals(changed, read(source, true));
+    }
+}
@@ -10,18 +10,31 @@ import java.io.FileInputStream;
 import java.io.IOException;
 import java.nio.charset.StandardCharsets;
 import java.util.ArrayList;
+import java.util.Arrays;
+import java.util.List;
 
+import org.junit.Rule;
 import org.junit.Test;
 import org.openstreetmap.josm.data.coor.LatLon;
 import org.openstreetmap.josm.data.gpx.GpxData;
 import org.openstreetmap.josm.data.gpx.WayPoint;
+import org.openstreetmap.josm.testutils.JOSMTestRules;
 import org.xml.sax.SAXException;
 
+import edu.umd.cs.findbugs.annotations.SuppressFBWarnings;
+
 /**
  * Tests the {@link GpxReader}.
  */
 public class GpxReaderTest {
 
+    /**
+     * Setup test.
+     */
+    @Rule
+    @SuppressFBWarnings(value = "URF_UNREAD_PUBLIC_OR_PROTECTED_FIELD")
+    public JOSMTestRules test = new JOSMTestRules().preferences();
+
     /**
      * Parses a GPX file and returns the parsed data
      * @param filename the GPX file to parse
@@ -63,4 +76,34 @@ public class GpxReaderTest {
     public void testException() throws Exception {
         new GpxReader(new ByteArrayInputStream("--foo--bar--".getBytes(StandardCharsets.UTF_8))).parse(true);
     }
+
+    /**
+     * Tests that building track segments in worker threads gives the same data.
+     * @throws Exception if something goes wrong
+     */
+    @Test
+    public void testParallel() throws Exception {
+        GpxReader.PARALLEL.put(false);
+        final GpxData expected = parseGpxData("data_nodist/munich.gpx");
+        GpxReader.PARALLEL.put(true);
+        final GpxData result = parseGpxData("data_nodist/munich.gpx");
+        assertEquals(new ArrayList<>(expected.getTracks()), new ArrayList<>(result.getTracks()));
+        assertEquals(new ArrayList<>(expected.getWaypoints()), new ArrayList<>(result.getWaypoints()));
+        assertEquals(expected.length(), result.length(), 1e-6);
+    }
+
+    /**
+     * Tests the removal of close track points.
+     */
+    @Test
+    public void testReduce() {
+        WayPoint p1 = new WayPoint(new LatLon(48, 11));
+        WayPoint p2 = new WayPoint(new LatLon(48.00001, 11));
+        WayPoint p3 = new WayPoint(new LatLon(48.001, 11));
+        WayPoint p4 = new WayPoint(new LatLon(48.00101, 11));
+        List<WayPoint> points = Arrays.asList(p1, p2, p3, p4);
+        assertEquals(Arrays.asList(p1, p3, p4), GpxReader.reduce(points, 5));
+        assertEquals(Arrays.asList(p1, p4), GpxReader.reduce(points, 500));
+        assertEquals(points, GpxReader.reduce(points, 0));
+    }
 }
@@ -2,16 +2,27 @@
 package org.openstreetmap.josm.io;
 
 import static org.junit.Assert.assertEquals;
+import static org.junit.Assert.assertTrue;
 
 import java.io.ByteArrayInputStream;
+import java.io.IOException;
+import java.io.InputStream;
 import java.nio.charset.StandardCharsets;
+import java.util.Arrays;
+import java.util.List;
+import java.util.zip.GZIPInputStream;
 
 import org.junit.BeforeClass;
 import org.junit.Test;
 import org.openstreetmap.josm.JOSMFixture;
+import org.openstreetmap.josm.data.coor.LatLon;
 import org.openstreetmap.josm.data.osm.Changeset;
+import org.openstreetmap.josm.data.osm.Node;
+import org.openstreetmap.josm.data.osm.OsmPrimitive;
 import org.openstreetmap.josm.data.osm.User;
+import org.openstreetmap.josm.data.osm.Way;
 import org.openstreetmap.josm.gui.progress.NullProgressMonitor;
+import org.openstreetmap.josm.tools.Utils;
 
 /**
  * Unit tests of {@link OsmApi} class.
@@ -47,4 +58,55 @@ public class OsmApiTest {
                 NullProgressMonitor.INSTANCE).iterator().next();
         assertEquals(User.getAnonymous(), cs2.getUser());
     }
+
+    /**
+     * Test that the streamed diff upload request is identical to the document built in memory, compressed or not.
+     * @throws Exception if an error occurs
+     */
+    @Test
+    public void testBuildDiffUploadRequest() throws Exception {
+        Changeset cs = new Changeset(42);
+        cs.setOpen(true);
+        Node n1 = new Node(new LatLon(1, 2));
+        Node n2 = new Node(3, 1);
+        n2.setCoor(LatLon.ZERO);
+        n2.put("name", "\u00e9t\u00e9 & <hiver>");
+        Way w = new Way(4, 1);
+        w.setDeleted(true);
+        List<OsmPrimitive> list = Arrays.asList(n1, n2, w);
+
+        OsmChangeBuilder builder = new OsmChangeBuilder(cs);
+        builder.start();
+        builder.append(list);
+        builder.finish();
+        String expected = builder.getDocument();
+
+        OsmApi api = OsmApi.getOsmApi();
+        api.setChangeset(cs);
+        try {
+            assertEquals(expected, new String(api.buildDiffUploadRequest(list), StandardCharsets.UTF_8));
+            OsmApi.UPLOAD_COMPRESSION.put(true);
+            byte[] compressed = api.buildDiffUploadRequest(list);
+            assertTrue(compressed[0] == (byte) GZIPInputStream.GZIP_MAGIC);
+            assertEquals(expected, gunzip(compressed));
+        } finally {
+            OsmApi.UPLOAD_COMPRESSION.remove();
+            api.setChangeset(null);
+        }
+    }
+
+    private static String gunzip(byte[] bytes) throws IOException {
+        try (InputStream in = new GZIPInputStream(new ByteArrayInputStream(bytes))) {
+            return new String(Utils.readBytesFromStream(in), StandardCharsets.UTF_8);
+        }
+    }
+
+    /**
+     * Test that a diff upload request cannot be built without changeset.
+     * @throws OsmTransferException always
+     */
+    @Test(expected = OsmTransferException.class)
+    public void testBuildDiffUploadRequestWithoutChangeset() throws OsmTransferException {
+        OsmApi.getOsmApi().buildDiffUploadRequest(Arrays.asList(new Node(LatLon.ZERO)));
+    }
 }
@@ -0,0 +1,188 @@
+// License: GPL. For details, see LICENSE file.
+package org.openstreetmap.josm.io;
+
+import static org.junit.Assert.assertEquals;
+import static org.junit.Assert.assertTrue;
+import static org.junit.Assert.fail;
+
+import java.io.ByteArrayInputStream;
+import java.io.ByteArrayOutputStream;
+import java.io.IOException;
+import java.io.InputStream;
+import java.io.PrintWriter;
+import java.io.StringWriter;
+import java.nio.charset.StandardCharsets;
+import java.util.Arrays;
+import java.util.HashMap;
+import java.util.Map;
+import java.util.regex.Matcher;
+import java.util.regex.Pattern;
+
+import org.junit.Rule;
+import org.junit.Test;
+import org.openstreetmap.josm.data.Bounds;
+import org.openstreetmap.josm.data.DataSource;
+import org.openstreetmap.josm.data.coor.LatLon;
+import org.openstreetmap.josm.data.osm.DataSet;
+import org.openstreetmap.josm.data.osm.DataSet.UploadPolicy;
+import org.openstreetmap.josm.data.osm.DataSetSnapshot;
+import org.openstreetmap.josm.data.osm.Node;
+import org.openstreetmap.josm.data.osm.OsmPrimitiveType;
+import org.openstreetmap.josm.data.osm.Relation;
+import org.openstreetmap.josm.data.osm.RelationMember;
+import org.openstreetmap.josm.data.osm.User;
+import org.openstreetmap.josm.data.osm.Way;
+import org.openstreetmap.josm.testutils.JOSMTestRules;
+
+import edu.umd.cs.findbugs.annotations.SuppressFBWarnings;
+
+/**
+ * Unit tests of {@link OsmBinaryReader} and {@link OsmBinaryWriter} classes.
+ */
+public class OsmBinaryReaderTest {
+
+    /**
+     * Setup test.
+     */
+    @Rule
+    @SuppressFBWarnings(value = "URF_UNREAD_PUBLIC_OR_PROTECTED_FIELD")
+    public JOSMTestRules test = new JOSMTestRules().preferences();
+
+    private static byte[] writeBinary(DataSet ds) throws IOException {
+        ByteArrayOutputStream out = new ByteArrayOutputStream();
+        try (DataSetSnapshot snapshot = ds.createSnapshot()) {
+            new OsmBinaryWriter(out).writeSnapshot(snapshot);
+        }
+        return out.toByteArray();
+    }
+
+    private static String writeXml(DataSet ds) throws IOException {
+        StringWriter out = new StringWriter();
+        try (OsmWriter w = OsmWriterFactory.createOsmWriter(new PrintWriter(out), false, "0.6");
+             DataSetSnapshot snapshot = ds.createSnapshot()) {
+            w.writeSnapshot(snapshot);
+        }
+        return out.toString();
+    }
+
+    /**
+     * Replaces the ids of new primitives, which are assigned when reading, by their order of appearance.
+     * @param xml written dataset
+     * @return the written dataset, with normalized ids
+     */
+    private static String normalizeNewIds(String xml) {
+        Map<String, String> ids = new HashMap<>();
+        Matcher m = Pattern.compile("'-(\\d+)'").matcher(xml);
+        StringBuffer sb = new StringBuffer();
+        while (m.find()) {
+            m.appendReplacement(sb, "'new" + ids.computeIfAbsent(m.group(1), k -> Integer.toString(ids.size())) + '\'');
+        }
+        return m.appendTail(sb).toString();
+    }
+
+    private static DataSet createDataSet() {
+        DataSet ds = new DataSet();
+        ds.addDataSource(new DataSource(new Bounds(52.5, 13.3, 52.6, 13.4), "test"));
+        Node existing = new Node(123456789, 3);
+        existing.setCoor(new LatLon(52.5234567, 13.3765432));
+        existing.setUser(User.createOsmUser(1, "user"));
+        existing.setChangesetId(42);
+        existing.setRawTimestamp(1500000000);
+        existing.put("name", "existing");
+        existing.put("amenity", "cafe");
+        ds.addPrimitive(existing);
+        Node modified = new Node(123456700, 1);
+        modified.setCoor(new LatLon(52.5, 13.3));
+        modified.setUser(User.createOsmUser(2, "other user"));
+        modified.setRawTimestamp(1400000000);
+        ds.addPrimitive(modified);
+        modified.setCoor(new LatLon(52.50000000012, -13.30000000001));
+        modified.setModified(true);
+        Node deleted = new Node(123456701, 2);
+        deleted.setCoor(new LatLon(52.51, 13.31));
+        ds.addPrimitive(deleted);
+        deleted.setDeleted(true);
+        Node incomplete = new Node(987654321);
+        ds.addPrimitive(incomplete);
+        Node[] nodes = new Node[4];
+        for (int i = 0; i < nodes.length; i++) {
+            nodes[i] = new Node(new LatLon(52.55 + i / 1000.0, 13.35 - i / 1000.0));
+            nodes[i].put("ref", Integer.toString(i));
+            nodes[i].setUser(User.createLocalUser("local"));
+            ds.addPrimitive(nodes[i]);
+        }
+        Node newDeleted = new Node(LatLon.ZERO);
+        ds.addPrimitive(newDeleted);
+        newDeleted.setDeleted(true);
+        Way way = new Way();
+        way.setNodes(Arrays.asList(nodes[0], nodes[1], existing, nodes[2], nodes[0]));
+        way.put("highway", "residential");
+        way.put("name", "existing");
+        ds.addPrimitive(way);
+        Way existingWay = new Way(1000, 5);
+        existingWay.setNodes(Arrays.asList(modified, incomplete));
+        ds.addPrimitive(existingWay);
+        Relation relation = new Relation();
+        relation.addMember(new RelationMember("outer", way));
+        relation.addMember(new RelationMember("", existing));
+        relation.addMember(new RelationMember("sub", existingWay));
+        relation.put("type", "multipolygon");
+        ds.addPrimitive(relation);
+        Relation parent = new Relation();
+        parent.addMember(new RelationMember("child", relation));
+        ds.addPrimitive(parent);
+        return ds;
+    }
+
+    /**
+     * Test that a dataset read from binary data is identical to the written one.
+     * @throws Exception if an error occurs
+     */
+    @Test
+    public void testRoundTrip() throws Exception {
+        DataSet ds = createDataSet();
+        byte[] binary = writeBinary(ds);
+        DataSet read = OsmBinaryReader.parseDataSet(new ByteArrayInputStream(binary), null);
+        assertEquals(normalizeNewIds(writeXml(ds)), normalizeNewIds(writeXml(read)));
+        assertTrue(read.getPrimitiveById(123456700, OsmPrimitiveType.NODE).isModified());
+        assertTrue(read.getPrimitiveById(123456701, OsmPrimitiveType.NODE).isDeleted());
+        assertTrue(read.getPrimitiveById(987654321, OsmPrimitiveType.NODE).isIncomplete());
+        assertEquals(new LatLon(52.50000000012, -13.30000000001),
+                ((Node) read.getPrimitiveById(123456700, OsmPrimitiveType.NODE)).getCoor());
+
+        // the binary format is much more compact than XML
+        assertTrue(binary.length * 3 < writeXml(ds).getBytes(StandardCharsets.UTF_8).length);
+    }
+
+    /**
+     * Test that the upload policy and empty datasets are supported.
+     * @throws Exception if an error occurs
+     */
+    @Test
+    public void testEmpty() throws Exception {
+        DataSet ds = new DataSet();
+        ds.setUploadPolicy(UploadPolicy.BLOCKED);
+        DataSet read = OsmBinaryReader.parseDataSet(new ByteArrayInputStream(writeBinary(ds)), null);
+        assertEquals(UploadPolicy.BLOCKED, read.getUploadPolicy());
+        assertTrue(read.allPrimitives().isEmpty());
+    }
+
+    /**
+     * Test that invalid data is rejected.
+     * @throws Exception if an error occurs
+     */
+    @Test
+    public void testInvalidData() throws Exception {
+        byte[] binary = writeBinary(createDataSet());
+        for (byte[] invalid : new byte[][] {
+            "<osm version='0.6'/>".getBytes(StandardCharsets.UTF_8),
+            Arrays.copyOf(binary, binary.length / 2)}) {
+            try (InputStream in = new ByteArrayInputStream(invalid)) {
+                OsmBinaryReader.parseDataSet(in, null);
+                fail("Invalid data accepted");
+            } catch (IllegalDataException e) {
+                // expected
+            }
+        }
+    }
+}
@@ -0,0 +1,196 @@
+// License: GPL. For details, see LICENSE file.
+package org.openstreetmap.josm.io;
+
+import static org.junit.Assert.assertEquals;
+
+import java.io.File;
+import java.io.IOException;
+import java.io.PrintWriter;
+import java.io.RandomAccessFile;
+import java.io.StringWriter;
+import java.nio.charset.StandardCharsets;
+import java.nio.file.Files;
+import java.util.ArrayList;
+import java.util.Arrays;
+import java.util.Collections;
+import java.util.List;
+
+import org.junit.Before;
+import org.junit.Rule;
+import org.junit.Test;
+import org.junit.rules.TemporaryFolder;
+import org.openstreetmap.josm.data.Bounds;
+import org.openstreetmap.josm.data.DataSource;
+import org.openstreetmap.josm.data.coor.LatLon;
+import org.openstreetmap.josm.data.osm.DataSet;
+import org.openstreetmap.josm.data.osm.DataSetSnapshot;
+import org.openstreetmap.josm.data.osm.Node;
+import org.openstreetmap.josm.data.osm.OsmPrimitive;
+import org.openstreetmap.josm.data.osm.PrimitiveId;
+import org.openstreetmap.josm.data.osm.Relation;
+import org.openstreetmap.josm.data.osm.RelationMember;
+import org.openstreetmap.josm.data.osm.User;
+import org.openstreetmap.josm.data.osm.Way;
+import org.openstreetmap.josm.testutils.JOSMTestRules;
+
+import edu.umd.cs.findbugs.annotations.SuppressFBWarnings;
+
+/**
+ * Unit tests of {@link OsmJournal} class.
+ */
+public class OsmJournalTest {
+
+    /**
+     * Setup test.
+     */
+    @Rule
+    @SuppressFBWarnings(value = "URF_UNREAD_PUBLIC_OR_PROTECTED_FIELD")
+    public JOSMTestRules test = new JOSMTestRules().preferences();
+
+    /**
+     * Temporary folder.
+     */
+    @Rule
+    @SuppressFBWarnings(value = "URF_UNREAD_PUBLIC_OR_PROTECTED_FIELD")
+    public TemporaryFolder folder = new TemporaryFolder();
+
+    private DataSet ds;
+    private final List<Node> nodes = new ArrayList<>();
+    private Way way;
+    private Relation relation;
+
+    /**
+     * Creates the test data.
+     */
+    @Before
+    public void setUp() {
+        ds = new DataSet();
+        ds.addDataSource(new DataSource(new Bounds(0, 0, 1, 1), "test"));
+        for (int i = 0; i < 5; i++) {
+            Node n = new Node(new LatLon(i / 10.0, i / 10.0));
+            n.put("ref", Integer.toString(i));
+            ds.addPrimitive(n);
+            nodes.add(n);
+        }
+        Node existing = new Node(42, 3);
+        existing.setCoor(new LatLon(0.5, 0.5));
+        existing.setUser(User.createOsmUser(1, "user"));
+        existing.setChangesetId(7);
+        existing.put("name", "existing");
+        ds.addPrimitive(existing);
+        nodes.add(existing);
+        way = new Way();
+        way.setNodes(nodes.subList(0, 4));
+        way.put("highway", "residential");
+        way.put("name", "residential");
+        ds.addPrimitive(way);
+        relation = new Relation();
+        relation.addMember(new RelationMember("outer", way));
+        relation.addMember(new RelationMember("", existing));
+        relation.put("type", "route");
+        ds.addPrimitive(relation);
+    }
+
+    private static String write(DataSet ds) throws IOException {
+        StringWriter out = new StringWriter();
+        try (OsmWriter w = OsmWriterFactory.createOsmWriter(new PrintWriter(out), false, "0.6");
+             DataSetSnapshot snapshot = ds.createSnapshot()) {
+            w.writeSnapshot(snapshot);
+        }
+        return out.toString();
+    }
+
+    private String replay(OsmJournal journal) throws IOException {
+        File osmFile = folder.newFile();
+        OsmJournal.replay(journal.getFile(), osmFile);
+        return new String(Files.readAllBytes(osmFile.toPath()), StandardCharsets.UTF_8);
+    }
+
+    private OsmJournal writeBase() throws IOException {
+        OsmJournal journal = new OsmJournal(new File(folder.getRoot(), "test." + OsmJournal.EXTENSION));
+        try (DataSetSnapshot snapshot = ds.createSnapshot()) {
+            journal.writeBase(snapshot);
+        }
+        return journal;
+    }
+
+    /**
+     * Test that a replayed base snapshot is identical to the saved dataset.
+     * @throws IOException if an I/O error occurs
+     */
+    @Test
+    public void testBase() throws IOException {
+        OsmJournal journal = writeBase();
+        assertEquals(journal.getFile().length(), journal.getBaseSize());
+        assertEquals(0, journal.getAppendedSize());
+        assertEquals(write(ds), replay(journal));
+    }
+
+    /**
+     * Test that appended changes and removals are replayed.
+     * @throws IOException if an I/O error occurs
+     */
+    @Test
+    public void testAppend() throws IOException {
+        OsmJournal journal = writeBase();
+
+        nodes.get(0).setCoor(new LatLon(0.75, 0.75));
+        nodes.get(1).put("ref", "changed");
+        way.removeNode(nodes.get(3));
+        PrimitiveId removed = nodes.get(3).getPrimitiveId();
+        ds.removePrimitive(nodes.get(3));
+        Node added = new Node(LatLon.ZERO);
+        ds.addPrimitive(added);
+        relation.setDeleted(true);
+        List<OsmPrimitive> changed = Arrays.asList(nodes.get(0), nodes.get(1), nodes.get(3), way, added, relation);
+        journal.append(ds, changed, Collections.singleton(removed));
+        assertEquals(journal.getFile().length(), journal.getBaseSize() + journal.getAppendedSize());
+        assertEquals(write(ds), replay(journal));
+
+        // a primitive removed and added again
+        ds.removePrimitive(added);
+        ds.addPrimitive(added);
+        journal.append(ds, Collections.singleton(added), Collections.singleton(added.getPrimitiveId()));
+        assertEquals(write(ds), replay(journal));
+
+        // compaction
+        String expected = write(ds);
+        OsmJournal compacted = writeBase();
+        assertEquals(expected, replay(compacted));
+    }
+
+    /**
+     * Test that a truncated record, e.g. after a crash, is ignored.
+     * @throws IOException if an I/O error occurs
+     */
+    @Test
+    public void testTruncatedRecord() throws IOException {
+        OsmJournal journal = writeBase();
+        String expected = write(ds);
+        nodes.get(0).put("ref", "changed");
+        journal.append(ds, Collections.singleton(nodes.get(0)), Collections.emptyList());
+        try (RandomAccessFile file = new RandomAccessFile(journal.getFile(), "rw")) {
+            file.setLength(file.length() - 1);
+        }
+        assertEquals(expected, replay(journal));
+    }
+
+    /**
+     * Test that a record with a corrupted length is ignored, instead of allocating a buffer of that length.
+     * @throws IOException if an I/O error occurs
+     */
+    @Test
+    public void testCorruptedRecordLength() throws IOException {
+        OsmJournal journal = writeBase();
+        String expected = write(ds);
+        nodes.get(0).put("ref", "changed");
+        journal.append(ds, Collections.singleton(nodes.get(0)), Collections.emptyList());
+        for (int length : new int[] {Integer.MAX_VALUE, -1}) {
+            try (RandomAccessFile file = new RandomAccessFile(journal.getFile(), "rw")) {
+                file.seek(journal.getBaseSize());
+                file.writeInt(length);
+            }
+            assertEquals(expected, replay(journal));
+        }
+    }
+}
@@ -0,0 +1,47 @@
+// License: GPL. For details, see LICENSE file.
+package org.openstreetmap.josm.io;
+
+import static org.junit.Assert.assertFalse;
+import static org.junit.Assert.assertTrue;
+
+import java.util.Arrays;
+import java.util.Collections;
+
+import org.junit.Test;
+import org.openstreetmap.josm.data.coor.LatLon;
+import org.openstreetmap.josm.data.osm.Node;
+import org.openstreetmap.josm.data.osm.Relation;
+import org.openstreetmap.josm.data.osm.RelationMember;
+import org.openstreetmap.josm.data.osm.Way;
+
+/**
+ * Unit tests of {@link OsmServerWriter} class.
+ */
+public class OsmServerWriterTest {
+
+    /**
+     * Test of {@link OsmServerWriter#refersToCreatedPrimitives}, which decides if the request of a chunk
+     * can be built while the previous chunk is uploaded.
+     */
+    @Test
+    public void testRefersToCreatedPrimitives() {
+        Node created = new Node(LatLon.ZERO);
+        Node existing = new Node(1, 1);
+        existing.setCoor(LatLon.ZERO);
+        Way way = new Way();
+        way.setNodes(Arrays.asList(created, existing));
+        Relation relation = new Relation(2, 1);
+        relation.addMember(new RelationMember("", created));
+
+        assertTrue(OsmServerWriter.refersToCreatedPrimitives(Arrays.asList(way), Arrays.asList(created)));
+        assertTrue(OsmServerWriter.refersToCreatedPrimitives(Arrays.asList(relation), Arrays.asList(created, existing)));
+        // existing primitives keep their id
+        assertFalse(OsmServerWriter.refersToCreatedPrimitives(Arrays.asList(way), Arrays.asList(existing)));
+        // nodes do not refer to anything
+        assertFalse(OsmServerWriter.refersToCreatedPrimitives(Arrays.asList(existing), Arrays.asList(created)));
+        assertFalse(OsmServerWriter.refersToCreatedPrimitives(Arrays.asList(way), Collections.emptyList()));
+        // deleted primitives are uploaded without nodes or members
+        relation.setDeleted(true);
+        assertFalse(OsmServerWriter.refersToCreatedPrimitives(Arrays.asList(relation), Arrays.asList(created)));
+    }
+}
@@ -0,0 +1,165 @@
+// License: GPL. For details, see LICENSE file.
+package org.openstreetmap.josm.io;
+
+import static org.junit.Assert.assertArrayEquals;
+import static org.junit.Assert.assertTrue;
+
+import java.io.ByteArrayOutputStream;
+import java.io.File;
+import java.io.IOException;
+import java.io.InputStream;
+import java.io.OutputStreamWriter;
+import java.io.PrintWriter;
+import java.nio.channels.Channels;
+import java.nio.channels.WritableByteChannel;
+import java.nio.charset.StandardCharsets;
+import java.util.ArrayList;
+import java.util.List;
+
+import org.junit.Before;
+import org.junit.Rule;
+import org.junit.Test;
+import org.junit.rules.TemporaryFolder;
+import org.openstreetmap.josm.data.Bounds;
+import org.openstreetmap.josm.data.DataSource;
+import org.openstreetmap.josm.data.coor.LatLon;
+import org.openstreetmap.josm.data.osm.DataSet;
+import org.openstreetmap.josm.data.osm.DataSetSnapshot;
+import org.openstreetmap.josm.data.osm.Node;
+import org.openstreetmap.josm.data.osm.Relation;
+import org.openstreetmap.josm.data.osm.RelationMember;
+import org.openstreetmap.josm.data.osm.User;
+import org.openstreetmap.josm.data.osm.Way;
+import org.openstreetmap.josm.gui.layer.OsmDataLayer;
+import org.openstreetmap.josm.testutils.JOSMTestRules;
+import org.openstreetmap.josm.tools.Utils;
+
+import edu.umd.cs.findbugs.annotations.SuppressFBWarnings;
+
+/**
+ * Unit tests of {@link ParallelOsmWriter} class.
+ */
+public class ParallelOsmWriterTest {
+
+    /**
+     * Setup test.
+     */
+    @Rule
+    @SuppressFBWarnings(value = "URF_UNREAD_PUBLIC_OR_PROTECTED_FIELD")
+    public JOSMTestRules test = new JOSMTestRules().preferences();
+
+    /**
+     * Temporary folder for exported files.
+     */
+    @Rule
+    @SuppressFBWarnings(value = "URF_UNREAD_PUBLIC_OR_PROTECTED_FIELD")
+    public TemporaryFolder folder = new TemporaryFolder();
+
+    private DataSet ds;
+
+    /**
+     * Creates a dataset of several segments, with new, modified and deleted primitives.
+     */
+    @Before
+    public void setUp() {
+        ds = new DataSet();
+        ds.addDataSource(new DataSource(new Bounds(53, 13, 54, 14), "test"));
+        User user = User.createOsmUser(42, "<Jos\u00e9>");
+        List<Node> nodes = new ArrayList<>();
+        for (int i = 1; i <= 20_000; i++) {
+            Node n = i % 3 == 0 ? new Node(new LatLon(53 + i * 1e-5, 13 + i * 3e-5)) : new Node(i, i % 7 + 1);
+            if (!n.isNew()) {
+                n.setCoor(new LatLon(53 - i * 1e-5, 13 - i * 7e-7));
+                n.setUser(user);
+                n.setRawTimestamp(1_500_000_000 + i);
+                n.setChangesetId(i % 100 + 1);
+            }
+            if (i % 10 == 0) {
+                n.put("amenity", i % 20 == 0 ? "cafe" : "bar");
+                n.put("name", "<Caf\u00e9 & \"Bar\">\t'\u20ac' " + i);
+            }
+            ds.addPrimitive(n);
+            nodes.add(n);
+        }
+        List<Way> ways = new ArrayList<>();
+        for (int i = 0; i < nodes.size() - 10; i += 10) {
+            Way w = i % 30 == 0 ? new Way() : new Way(i + 1, 2);
+            w.setNodes(nodes.subList(i, i + 11));
+            w.put("highway", i % 20 == 0 ? "residential" : "service");
+            w.put("note", "line1\nline2");
+            ds.addPrimitive(w);
+            ways.add(w);
+        }
+        for (int i = 0; i < ways.size() - 5; i += 5) {
+            Relation r = new Relation();
+            r.put("type", "route");
+            for (int j = 0; j < 5; j++) {
+                r.addMember(new RelationMember(j == 0 ? "from" : "", ways.get(i + j)));
+            }
+            r.addMember(new RelationMember("stop & go", nodes.get(i)));
+            ds.addPrimitive(r);
+        }
+        nodes.get(1).setModified(true);
+        ds.removePrimitive(ways.get(0));
+        nodes.get(0).setDeleted(true);
+    }
+
+    private static byte[] write(DataSetSnapshot snapshot) throws IOException {
+        ByteArrayOutputStream out = new ByteArrayOutputStream();
+        try (OsmWriter w = OsmWriterFactory.createOsmWriter(
+                new PrintWriter(new OutputStreamWriter(out, StandardCharsets.UTF_8)), false, "0.6")) {
+            w.writeSnapshot(snapshot);
+        }
+        return out.toByteArray();
+    }
+
+    private static byte[] writeParallel(DataSetSnapshot snapshot) throws IOException {
+        ByteArrayOutputStream out = new ByteArrayOutputStream();
+        try (WritableByteChannel channel = Channels.newChannel(out)) {
+            new ParallelOsmWriter(false, "0.6").writeSnapshot(snapshot, channel);
+        }
+        return out.toByteArray();
+    }
+
+    /**
+     * Test that the output is identical to the output of {@link OsmWriter}.
+     * @throws IOException never
+     */
+    @Test
+    public void testIdenticalOutput() throws IOException {
+        try (DataSetSnapshot snapshot = ds.createSnapshot()) {
+            byte[] expected = write(snapshot);
+            assertTrue(expected.length > 2_000_000);
+            assertArrayEquals(expected, writeParallel(snapshot));
+        }
+        ds.setUploadPolicy(DataSet.UploadPolicy.DISCOURAGED);
+        try (DataSetSnapshot snapshot = ds.createSnapshot()) {
+            assertArrayEquals(write(snapshot), writeParallel(snapshot));
+        }
+    }
+
+    /**
+     * Test that {@link OsmExporter} writes the same files, compressed or not, with the parallel writer.
+     * @throws IOException if an I/O error occurs
+     */
+    @Test
+    public void testExporter() throws IOException {
+        OsmDataLayer layer = new OsmDataLayer(ds, null, null);
+        for (String extension : new String[] {".osm", ".osm.gz"}) {
+            File sequential = folder.newFile("sequential" + extension);
+            File parallel = folder.newFile("parallel" + extension);
+            ParallelOsmWriter.PARALLEL_THRESHOLD.put(Integer.MAX_VALUE);
+            new OsmExporter().exportData(sequential, layer, true);
+            ParallelOsmWriter.PARALLEL_THRESHOLD.put(0);
+            new OsmExporter().exportData(parallel, layer, true);
+            ParallelOsmWriter.PARALLEL_THRESHOLD.remove();
+            assertArrayEquals(uncompressed(sequential), uncompressed(parallel));
+        }
+    }
+
+    private static byte[] uncompressed(File file) throws IOException {
+        try (InputStream is = Compression.getUncompressedFileInputStream(file)) {
+            return Utils.readBytesFromStream(is);
+        }
+    }
+}
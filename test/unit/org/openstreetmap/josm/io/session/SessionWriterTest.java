@@ -1,6 +1,9 @@
 // License: GPL. For details, see LICENSE file.
 package org.openstreetmap.josm.io.session;
 
+import static org.junit.Assert.assertEquals;
+import static org.junit.Assert.assertTrue;
+
 import java.io.File;
 import java.io.IOException;
 import java.util.Arrays;
@@ -20,6 +23,7 @@ import org.openstreetmap.josm.data.imagery.ImageryInfo;
 import org.openstreetmap.josm.data.imagery.OffsetBookmark;
 import org.openstreetmap.josm.data.notes.Note;
 import org.openstreetmap.josm.data.osm.DataSet;
+import org.openstreetmap.josm.data.osm.Node;
 import org.openstreetmap.josm.gui.MainApplication;
 import org.openstreetmap.josm.gui.layer.GpxLayer;
 import org.openstreetmap.josm.gui.layer.ImageryLayer;
@@ -234,4 +238,38 @@ public class SessionWriterTest {
         final Layer layer = createNoteLayer();
         testWrite(Collections.singletonList(layer), true);
     }
+
+    /**
+     * Tests to write a .joz file containing OSM data in binary format, and to read it again.
+     * @throws Exception if an error occurs
+     */
+    @Test
+    public void testWriteOsmJozBinary() throws Exception {
+        OsmDataSessionExporter.BINARY.put(true);
+        OsmDataLayer layer = createOsmLayer();
+        Node node = new Node(new LatLon(42.72665, -0.00747));
+        node.put("name", "binary");
+        layer.data.addPrimitive(node);
+        SessionWriter.registerSessionLayerExporter(OsmDataLayer.class, OsmHeadlessJozExporter.class);
+        Map<Layer, SessionLayerExporter> exporters = Collections.singletonMap(layer, SessionWriter.getSessionLayerExporter(layer));
+        SessionWriter sw = new SessionWriter(Collections.<Layer>singletonList(layer), -1, exporters, new MultiMap<Layer, Layer>(), true);
+        File file = new File(System.getProperty("java.io.tmpdir"), getClass().getName() + ".joz");
+        try {
+            sw.write(file);
+            SessionReader reader = new SessionReader();
+            reader.loadSession(file, true, null);
+            assertEquals(1, reader.getLayers().size());
+            DataSet read = ((OsmDataLayer) reader.getLayers().get(0)).data;
+            assertEquals(1, read.getNodes().size());
+            Node readNode = read.getNodes().iterator().next();
+            assertEquals("binary", readNode.get("name"));
+            assertEquals(node.getCoor(), readNode.getCoor());
+            assertTrue(readNode.isNew());
+        } finally {
+            OsmDataSessionExporter.BINARY.remove();
+            if (file.exists()) {
+                Utils.deleteFile(file);
+            }
+        }
+    }
 }
@@ -4,6 +4,8 @@ package org.openstreetmap.josm.tools;
 import static org.junit.Assert.assertEquals;
 import static org.junit.Assert.assertFalse;
 import static org.junit.Assert.assertNotNull;
+import static org.junit.Assert.assertNull;
+import static org.junit.Assert.assertSame;
 
 import java.awt.Transparency;
 import java.awt.image.BufferedImage;
@@ -111,4 +113,21 @@ public class ImageProviderTest {
                 "iVBORw0KGgoAAAANSUhEUgAAAAUAAAAFCAYAAACNbyblAAAAHElEQVQI12P4"+
                 "//8/w38GIAXDIBKE0DHxgljNBAAO9TXL0Y4OHwAAAABJRU5ErkJggg=="));
     }
+
+    /**
+     * Test of {@link ImageProvider#toStandardImageType} method.
+     * @throws IOException if an error occurs during reading
+     */
+    @Test
+    public void testToStandardImageType() throws IOException {
+        assertNull(ImageProvider.toStandardImageType(null));
+        BufferedImage rgb = new BufferedImage(4, 4, BufferedImage.TYPE_3BYTE_BGR);
+        assertSame(rgb, ImageProvider.toStandardImageType(rgb));
+        BufferedImage gray = new BufferedImage(4, 4, BufferedImage.TYPE_BYTE_GRAY);
+        assertEquals(BufferedImage.TYPE_3BYTE_BGR, ImageProvider.toStandardImageType(gray).getType());
+        BufferedImage indexed = ImageProvider.read(new File(TestUtils.getRegressionDataFile(9984, "tile.png")), false, true);
+        BufferedImage converted = ImageProvider.toStandardImageType(indexed);
+        assertEquals(indexed.getWidth(), converted.getWidth());
+        assertEquals(indexed.getRGB(10, 10), converted.getRGB(10, 10));
+    }
 }
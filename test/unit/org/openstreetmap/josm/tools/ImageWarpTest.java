@@ -0,0 +1,81 @@
+// License: GPL. For details, see LICENSE file.
+package org.openstreetmap.josm.tools;
+
+import static org.junit.Assert.assertEquals;
+
+import java.awt.Dimension;
+import java.awt.geom.Point2D;
+import java.awt.image.BufferedImage;
+
+import org.junit.Rule;
+import org.junit.Test;
+import org.openstreetmap.josm.testutils.JOSMTestRules;
+
+import edu.umd.cs.findbugs.annotations.SuppressFBWarnings;
+
+/**
+ * Unit tests of {@link ImageWarp} class.
+ */
+public class ImageWarpTest {
+
+    /**
+     * Setup rule.
+     */
+    @Rule
+    @SuppressFBWarnings(value = "URF_UNREAD_PUBLIC_OR_PROTECTED_FIELD")
+    public JOSMTestRules test = new JOSMTestRules().preferences();
+
+    private static BufferedImage createImage(int width, int height) {
+        BufferedImage img = new BufferedImage(width, height, BufferedImage.TYPE_INT_ARGB);
+        for (int y = 0; y < height; y++) {
+            for (int x = 0; x < width; x++) {
+                img.setRGB(x, y, 0xff000000 | (x * 3 & 0xff) << 16 | (y * 5 & 0xff) << 8 | (x + y) & 0xff);
+            }
+        }
+        return img;
+    }
+
+    private static void assertSameImage(BufferedImage expected, BufferedImage actual) {
+        assertEquals(expected.getWidth(), actual.getWidth());
+        assertEquals(expected.getHeight(), actual.getHeight());
+        for (int y = 0; y < expected.getHeight(); y++) {
+            for (int x = 0; x < expected.getWidth(); x++) {
+                assertEquals("pixel " + x + ',' + y, expected.getRGB(x, y), actual.getRGB(x, y));
+            }
+        }
+    }
+
+    /**
+     * Test that {@link ImageWarp#warpParallel} produces the same result as {@link ImageWarp#warp}.
+     */
+    @Test
+    public void testWarpParallel() {
+        BufferedImage src = createImage(256, 256);
+        ImageWarp.PointTransform transform = pt -> new Point2D.Double(pt.getX() * 0.7 + pt.getY() * 0.1, pt.getY() * 0.8 - 3);
+        Dimension dim = new Dimension(300, 310);
+        for (ImageWarp.Interpolation interpolation : ImageWarp.Interpolation.values()) {
+            assertSameImage(ImageWarp.warp(src, dim, transform, interpolation),
+                    ImageWarp.warpParallel(src, dim, transform, interpolation));
+        }
+    }
+
+    /**
+     * Test that {@link ImageWarp.PrecomputedGridTransform} gives the same values as {@link ImageWarp.GridTransform}.
+     */
+    @Test
+    public void testPrecomputedGridTransform() {
+        ImageWarp.PointTransform transform = pt -> new Point2D.Double(Math.sqrt(pt.getX() + 1) * 10, pt.getY() * pt.getY() / 100);
+        Dimension dim = new Dimension(100, 90);
+        ImageWarp.GridTransform grid = new ImageWarp.GridTransform(transform, 7);
+        ImageWarp.PrecomputedGridTransform precomputed = new ImageWarp.PrecomputedGridTransform(transform, 7, dim);
+        for (int y = 0; y < dim.height; y++) {
+            for (int x = 0; x < dim.width; x++) {
+                Point2D pt = new Point2D.Double(x, y);
+                Point2D expected = grid.transform(pt);
+                Point2D actual = precomputed.transform(pt);
+                assertEquals(expected.getX(), actual.getX(), 1e-9);
+                assertEquals(expected.getY(), actual.getY(), 1e-9);
+            }
+        }
+    }
+}